@@ -1,12 +1,25 @@
 package com.jjonsson.chess;
 
+import static com.jjonsson.utilities.Loggers.STDERR;
 import static com.jjonsson.utilities.Loggers.STDOUT;
 import static org.apache.log4j.Level.DEBUG;
 
+import java.io.File;
+import java.io.IOException;
+
 import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.evaluators.tablebases.TablebaseGenerator;
+import com.jjonsson.chess.evaluators.tablebases.Tablebases;
 import com.jjonsson.chess.gui.ChessWindow;
 import com.jjonsson.chess.gui.DisplayOption;
+import com.jjonsson.chess.gui.EdtViolationChecker;
+import com.jjonsson.chess.gui.PieceImageCache;
+import com.jjonsson.chess.gui.Settings;
 import com.jjonsson.chess.gui.WindowUtilities;
+import com.jjonsson.chess.gui.components.ChessBoardComponent;
+import com.jjonsson.chess.persistence.MoveJournal;
+import com.jjonsson.chess.persistence.OpeningBook;
+import com.jjonsson.utilities.EventRecorder;
 
 public final class Chess {
 	private Chess(){}
@@ -17,20 +30,88 @@ public final class Chess {
 	public static void main(final String[] args)
 	{
 		//TODO: remove
-		//FileSystem.deleteDuplicateFiles("faulty_boards/");
 		//BoardLoader.cleanUnloadableBoards("faulty_boards/");
 		/*if(!DEBUG)
 		{
 			LOGGER.setLevel(Level.WARNING);
 		}*/
 		STDOUT.setLevel(DEBUG);
+		EventRecorder.startRecordingFromProperty();
+		//The piece images are loaded while the board is being set up
+		PieceImageCache.preload(ChessBoardComponent.getSpriteSize(ChessWindow.getDefaultBoardComponentSize()));
 
 		WindowUtilities.setNativeLookAndFeel();
+		if(Settings.DEBUG)
+		{
+			EdtViolationChecker.install();
+		}
 
 		ChessBoard board = new ChessBoard();
 		board.setDifficulty(2);
+		loadOpeningBook(board, System.getProperty("book"));
+		loadTablebases(board, System.getProperty("tablebases"));
+		startAutosaving(board, System.getProperty("autosave"));
 
 		@SuppressWarnings("unused") //used by EDT
 		ChessWindow window = new ChessWindow(board, DisplayOption.DISPLAY);
 	}
+
+	/**
+	 * Lets the AI pick its opening moves from the given book (if any)
+	 */
+	private static void loadOpeningBook(final ChessBoard board, final String bookFile)
+	{
+		if(bookFile == null)
+		{
+			return;
+		}
+		try
+		{
+			board.setOpeningBook(new OpeningBook(bookFile));
+		}
+		catch(IOException e)
+		{
+			STDERR.warn("Failed to load the opening book " + bookFile, e);
+		}
+	}
+
+	/**
+	 * Lets the AI probe the endgame tables in the given directory (if any), see {@link TablebaseGenerator}
+	 */
+	private static void loadTablebases(final ChessBoard board, final String directory)
+	{
+		if(directory == null)
+		{
+			return;
+		}
+		File tables = new File(directory);
+		if(!tables.isDirectory())
+		{
+			STDERR.warn("The tablebase directory " + directory + " doesn't exist");
+			return;
+		}
+		board.setTablebases(new Tablebases(tables));
+	}
+
+	/**
+	 * Continues the game in the given file (if there is one) and saves each move to it as it's made, see {@link MoveJournal}
+	 */
+	private static void startAutosaving(final ChessBoard board, final String file)
+	{
+		if(file == null)
+		{
+			return;
+		}
+		File snapshot = new File(file);
+		if(snapshot.isFile())
+		{
+			board.clear();
+			if(!MoveJournal.recover(snapshot, board))
+			{
+				STDERR.warn("The autosaved game in " + file + " couldn't be recovered, starting a new game");
+				board.reset();
+			}
+		}
+		MoveJournal.open(board, snapshot);
+	}
 }
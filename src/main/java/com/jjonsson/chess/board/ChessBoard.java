@@ -1,5 +1,6 @@
 package com.jjonsson.chess.board;
 
+import static com.jjonsson.chess.gui.Settings.DEBUG;
 import static com.jjonsson.chess.moves.Position.BLACK_PAWN_ROW;
 import static com.jjonsson.chess.moves.Position.BLACK_STARTING_ROW;
 import static com.jjonsson.chess.moves.Position.WHITE_PAWN_ROW;
@@ -36,8 +37,11 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.jjonsson.chess.evaluators.ChessBoardEvaluator;
 import com.jjonsson.chess.evaluators.ChessBoardEvaluator.ChessState;
+import com.jjonsson.chess.evaluators.SearchBudget;
+import com.jjonsson.chess.evaluators.SearchTelemetry;
 import com.jjonsson.chess.evaluators.statistics.StatisticsAction;
 import com.jjonsson.chess.evaluators.statistics.StatisticsTracker;
+import com.jjonsson.chess.evaluators.tablebases.Tablebases;
 import com.jjonsson.chess.exceptions.DuplicatePieceError;
 import com.jjonsson.chess.exceptions.InvalidBoardException;
 import com.jjonsson.chess.exceptions.NoMovesAvailableException;
@@ -50,14 +54,16 @@ import com.jjonsson.chess.moves.ImmutablePosition;
 import com.jjonsson.chess.moves.KingMove;
 import com.jjonsson.chess.moves.Move;
 import com.jjonsson.chess.moves.MutablePosition;
+import com.jjonsson.chess.moves.PawnMove;
 import com.jjonsson.chess.moves.PawnTakeOverMove;
 import com.jjonsson.chess.moves.Position;
 import com.jjonsson.chess.moves.Position.Column;
 import com.jjonsson.chess.moves.RevertingMove;
+import com.jjonsson.chess.persistence.BoardDumps;
 import com.jjonsson.chess.persistence.BoardLoader;
-import com.jjonsson.chess.persistence.ChessFileFilter;
 import com.jjonsson.chess.persistence.MoveLogger;
 import com.jjonsson.chess.persistence.MoveLoggerFactory;
+import com.jjonsson.chess.persistence.OpeningBook;
 import com.jjonsson.chess.persistence.PersistanceLogging;
 import com.jjonsson.chess.persistence.PersistenceLogger;
 import com.jjonsson.chess.pieces.Bishop;
@@ -68,6 +74,7 @@ import com.jjonsson.chess.pieces.Piece;
 import com.jjonsson.chess.pieces.Queen;
 import com.jjonsson.chess.pieces.Rock;
 import com.jjonsson.chess.pieces.WhitePawn;
+import com.jjonsson.utilities.EventRecorder;
 
 public final class ChessBoard
 {
@@ -83,7 +90,7 @@ public final class ChessBoard
 	/**
 	 * In principle this means that at least 2 steps ahead is evaluated for every move
 	 */
-	private static final int DEFAULT_DIFFICULTY = 1;
+	public static final int DEFAULT_DIFFICULTY = 1;
 	/**
 	 * If set it means that it's Blacks turn
 	 */
@@ -156,6 +163,33 @@ public final class ChessBoard
 	 */
 	private int	myDifficulty;
 
+	/**
+	 * The book that the AI picks moves from before it starts searching, null if no book should be used
+	 */
+	private OpeningBook myOpeningBook;
+
+	/**
+	 * The endgame tables that the AI probes when few pieces are left, null if no tables should be used
+	 */
+	private Tablebases myTablebases;
+
+	/**
+	 * The latest positions, used to detect repetitions and the 50-move rule
+	 */
+	private PositionHistory myPositionHistory;
+
+	/**
+	 * The XOR of the {@link ZobristKeys#getPieceKey(Piece, ImmutablePosition)} of all the pieces on the board,
+	 * kept up to date as pieces are added, moved and removed so that {@link #getPositionKey()} doesn't have to look at every piece
+	 */
+	private long myPiecesKey;
+
+	/**
+	 * Set by {@link #movePiece(Piece, Move)} so that {@link #nextPlayer()} knows how to update the position history
+	 */
+	private boolean myLastMoveWasReverted;
+	private boolean myLastMoveWasIrreversible;
+
 	private Set<Piece> myPieces;
 	private PositionContainer[][] myPositions;
 
@@ -174,6 +208,7 @@ public final class ChessBoard
 		myMoveListeners = Sets.newIdentityHashSet();
 		myMoveLogger = MoveLoggerFactory.createMoveLogger();
 		myScheduledMoveUpdates = Sets.newIdentityHashSet();
+		myPositionHistory = new PositionHistory();
 		addMoveListener(myMoveLogger);
 
 		myPieces = Sets.newIdentityHashSet();
@@ -215,6 +250,28 @@ public final class ChessBoard
 		}
 	}
 
+	/**
+	 * Makes the statistics (if any) count the moves evaluated with the given budget, see {@link StatisticsTracker#searchStarted(SearchBudget)}
+	 */
+	public void searchStarted(final SearchBudget budget)
+	{
+		if(myStatisticsTracker != null)
+		{
+			myStatisticsTracker.searchStarted(budget);
+		}
+	}
+
+	/**
+	 * Lets the statistics listener (if any) know about the measurements of a finished search
+	 */
+	public void searchFinished(final SearchTelemetry telemetry)
+	{
+		if(myStatisticsTracker != null)
+		{
+			myStatisticsTracker.searchFinished(telemetry);
+		}
+	}
+
 	/**
 	 * Constructs a default ChessBoard (places pieces in their original positions),
 	 * with the possibility to save moves as well.
@@ -251,11 +308,24 @@ public final class ChessBoard
 		return myMoveListeners.add(moveListener);
 	}
 
+	public void removeMoveListener(final MoveListener moveListener)
+	{
+		myMoveListeners.remove(moveListener);
+	}
+
 	public void setStatisticsListener(final StatisticsListener statisticsListener)
 	{
 		myStatisticsTracker = new StatisticsTracker(statisticsListener);
 	}
 
+	/**
+	 * Stops the statistics of searches on this board from being tracked, a copy of a board shares the tracker of the board it was copied from
+	 */
+	public void removeStatisticsListener()
+	{
+		myStatisticsTracker = null;
+	}
+
 	public StatisticsTracker getStatisticsTracker()
 	{
 		return myStatisticsTracker;
@@ -267,11 +337,45 @@ public final class ChessBoard
 		addMoveListener(persistenceMoveLogger);
 	}
 
+	/**
+	 * @return the persistence logger for this board or null if this board doesn't log its moves for persistence
+	 */
+	public PersistenceLogger getPersistenceLogger()
+	{
+		return myPersistenceLogger;
+	}
+
 	public void setDifficulty(final int newDifficulty)
 	{
 		myDifficulty = newDifficulty;
 	}
 
+	/**
+	 * @param openingBook the book that the AI should pick moves from while the position is in it, null to always search
+	 */
+	public void setOpeningBook(final OpeningBook openingBook)
+	{
+		myOpeningBook = openingBook;
+	}
+
+	public OpeningBook getOpeningBook()
+	{
+		return myOpeningBook;
+	}
+
+	/**
+	 * @param tablebases the endgame tables that the AI should probe, null to always search
+	 */
+	public void setTablebases(final Tablebases tablebases)
+	{
+		myTablebases = tablebases;
+	}
+
+	public Tablebases getTablebases()
+	{
+		return myTablebases;
+	}
+
 	/**
 	 * Makes a copy of the board without copying the listeners
 	 * <br><b>Note</b>: this does not copy the made moves on the board, so an undo operation on the returned board would always fail
@@ -280,6 +384,8 @@ public final class ChessBoard
 	 */
 	public ChessBoard copy(final PersistanceLogging persistanceLogging)
 	{
+		boolean recording = EventRecorder.isRecording();
+		long startTime = recording ? System.nanoTime() : 0;
 		ChessBoard newBoard = new ChessBoard(PiecePlacement.DONT_PLACE_PIECES, persistanceLogging);
 		ByteBuffer buffer = ByteBuffer.allocate(getPersistenceSize(persistanceLogging));
 		try
@@ -288,13 +394,15 @@ public final class ChessBoard
 			buffer.flip();
 			if(BoardLoader.loadBufferIntoBoard(buffer, newBoard))
 			{
-				newBoard.copyMoveCounters(this);
+				newBoard.myPositionHistory.copyFrom(myPositionHistory);
 				newBoard.myMoveLogger.setMovesMadeOffset(myMoveLogger.getMovesMade());
+				newBoard.myMoveLogger.setPliesMadeOffset(myMoveLogger.getPliesMade());
 				newBoard.myStatisticsTracker = myStatisticsTracker;
+				newBoard.myTablebases = myTablebases;
 			}
 			else
 			{
-				BoardLoader.saveBoard(this, "faulty_boards/board_failed_to_copy_" + System.currentTimeMillis() + ChessFileFilter.FILE_ENDING);
+				BoardDumps.dumpFaultyBoard(this, "board_failed_to_copy");
 				STDERR.error("Failed to copy board");
 				newBoard = null;
 			}
@@ -304,45 +412,12 @@ public final class ChessBoard
 			newBoard = null;
 		}
 
-		return newBoard;
-	}
-
-	/**
-	 * Copies the number of times the moves has been made from the given board
-	 * @param chessBoard the board to copy the move counters from
-	 */
-	private void copyMoveCounters(final ChessBoard chessBoard)
-	{
-		for(Piece p : getPieces())
+		if(recording)
 		{
-			//Note that if the arrays differ only the common moves will be copied, the rest is ignored
-			for(Move currentMove : p.getPossibleMoves())
-			{
-				Move fromMove = chessBoard.getMove(currentMove);
-				if(fromMove != null)
-				{
-					currentMove.copyMoveCounter(fromMove);
-				}
-				/*else
-				{
-					LOGGER.warning("Failed to copy moves from: " + currentMove + ", didn't find a matching move for it in the given board");
-				}*/
-			}
-		}
-	}
-
-	/**
-	 * Resets the number of times the moves has been made to zero
-	 */
-	public void resetMoveCounters()
-	{
-		for(Piece p : getPieces())
-		{
-			for(Move m : p.getPossibleMoves())
-			{
-				m.resetMoveCounter();
-			}
+			EventRecorder.record(EventRecorder.event("boardCopy", startTime).add("pieces", getPieces().size())
+					.add("persistenceLogging", persistanceLogging.usePersistanceLogging()).add("success", newBoard != null));
 		}
+		return newBoard;
 	}
 
 	/**
@@ -366,6 +441,8 @@ public final class ChessBoard
 		//Set lists of all the possible moves for all of the pieces
 		setPossibleMoves();
 		myCurrentPlayer = Piece.WHITE;
+		//The logged moves starts from the new game and not from the board that was loaded before it
+		updatePersistenceLogger();
 
 		for(ChessBoardListener listener : myBoardListeners)
 		{
@@ -373,6 +450,7 @@ public final class ChessBoard
 		}
 
 		updateGameState();
+		resetPositionHistory(0);
 	}
 
 	public void setMovesThatStopsKingFromBeingChecked(final Set<Move> moves)
@@ -431,6 +509,11 @@ public final class ChessBoard
 		myBoardListeners.add(listener);
 	}
 
+	public void removeChessBoardListener(final ChessBoardListener listener)
+	{
+		myBoardListeners.remove(listener);
+	}
+
 	public King getCurrentKing()
 	{
 		if(myCurrentPlayer == Piece.BLACK)
@@ -477,6 +560,21 @@ public final class ChessBoard
 	{
 		myCurrentPlayer = !myCurrentPlayer;
 
+		if(myLastMoveWasReverted)
+		{
+			myPositionHistory.pop();
+			if(myPositionHistory.isEmpty())
+			{
+				//Undone further back than the history remembers
+				resetPositionHistory(0);
+			}
+		}
+		else
+		{
+			myPositionHistory.push(getPositionKey(), myLastMoveWasIrreversible);
+		}
+		myLastMoveWasIrreversible = false;
+
 		for(Move m : ImmutableList.copyOf(myScheduledMoveUpdates))
 		{
 			m.updatePossibility(this, true);
@@ -551,7 +649,7 @@ public final class ChessBoard
 		if(oldPiece != null & oldPiece != p && oldPiece.getCurrentPosition() == p.getCurrentPosition())
 		{
 			Error e = new DuplicatePieceError(oldPiece, p);
-			BoardLoader.saveBoard(this, "faulty_boards/board_before_duplicate_piece_is_put_into_it_" + System.currentTimeMillis() + ChessFileFilter.FILE_ENDING);
+			BoardDumps.dumpFaultyBoard(this, "board_before_duplicate_piece_is_put_into_it");
 			STDERR.error("", e);
 			throw e;
 		}
@@ -568,6 +666,7 @@ public final class ChessBoard
 	{
 		if(myPieces.add(piece))
 		{
+			myPiecesKey ^= ZobristKeys.getPieceKey(piece, piece.getCurrentPosition());
 			pieceValueChanged(piece.getValue(), piece.getAffinity());
 		}
 		myPieceToPositionAvailableMoves.put(piece, new HashMap<ImmutablePosition, Move>());
@@ -671,6 +770,7 @@ public final class ChessBoard
 		ImmutablePosition currentPosition = p.getCurrentPosition();
 		if(myPieces.remove(p))
 		{
+			myPiecesKey ^= ZobristKeys.getPieceKey(p, currentPosition);
 			pieceValueChanged(-p.getValue(), p.getAffinity());
 		}
 		getPositionContainer(currentPosition).setCurrentPiece(null);
@@ -910,6 +1010,81 @@ public final class ChessBoard
 		return myWhiteKing;
 	}
 
+	/**
+	 * @param affinity the player to check the castling possibility for
+	 * @param rockColumn {@link Column#H} for king side castling and {@link Column#A} for queen side castling
+	 * @return true if neither the king nor the rock has moved, note that the castling move may still be unavailable at the moment
+	 */
+	public boolean hasCastlingPossibility(final boolean affinity, final Column rockColumn)
+	{
+		King king = getKing(affinity);
+		Piece rock = getPiece(ImmutablePosition.position(affinity == BLACK ? BLACK_STARTING_ROW : WHITE_STARTING_ROW, rockColumn));
+		return king != null && king.isAtStartingPosition() && king.getMovesMade() == 0
+				&& rock instanceof Rock && rock.hasSameAffinityAs(affinity) && rock.getMovesMade() == 0;
+	}
+
+	/**
+	 * @return a Zobrist key for the current position, equal positions (including castling possibilities, en-passant and the player to move) gives equal keys
+	 * @throws IllegalStateException if {@link com.jjonsson.chess.gui.Settings#DEBUG} is on and the incrementally kept key is out of sync with the pieces
+	 */
+	public long getPositionKey()
+	{
+		long key = myPiecesKey ^ ZobristKeys.getStateKey(this);
+		if(DEBUG)
+		{
+			long expectedKey = ZobristKeys.getKey(this);
+			if(key != expectedKey)
+			{
+				//Not dumped as the dump is named after the position key
+				throw new IllegalStateException("The position key " + Long.toHexString(key) + " is out of sync with the pieces, expected " + Long.toHexString(expectedKey));
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Forgets the earlier positions, call this when the pieces have been placed so that the current position is the first one in the history
+	 * @param halfmoveClock the number of plies since the last capture or pawn move
+	 */
+	public void resetPositionHistory(final int halfmoveClock)
+	{
+		myPositionHistory.clear();
+		myPositionHistory.add(getPositionKey(), halfmoveClock);
+	}
+
+	/**
+	 * @return the number of plies since the last capture or pawn move
+	 */
+	public int getHalfmoveClock()
+	{
+		return myPositionHistory.getHalfmoveClock();
+	}
+
+	/**
+	 * Only positions after the last capture or pawn move are compared so this is cheap enough to use during searches
+	 * @return how many times the current position has occurred (1 if it hasn't been repeated)
+	 */
+	public int getRepetitionCount()
+	{
+		return myPositionHistory.getRepetitionCount();
+	}
+
+	/**
+	 * @return true if the current position has occurred three times
+	 */
+	public boolean isDrawByRepetition()
+	{
+		return getRepetitionCount() >= 3;
+	}
+
+	/**
+	 * @return true if 50 moves have been made by each player without a capture or a pawn move
+	 */
+	public boolean isDrawByFiftyMoveRule()
+	{
+		return getHalfmoveClock() >= PositionHistory.FIFTY_MOVE_RULE_PLIES;
+	}
+
 	public MoveLogger getMoveLogger()
 	{
 		return myMoveLogger;
@@ -1123,19 +1298,26 @@ public final class ChessBoard
 			moveToPerform.updatePossibility(this, false);
 			if(!moveToPerform.canBeMade(this))
 			{
-				BoardLoader.saveBoard(this, "faulty_boards/board_with_move_thats_out_of_sync_" + System.currentTimeMillis() + ChessFileFilter.FILE_ENDING);
+				BoardDumps.dumpFaultyBoard(this, "board_with_move_thats_out_of_sync");
 				STDOUT.info("Due to the move being out of sync it was thought to be available when in fact it wasn't. Faulty move: " + moveToPerform);
 				return false;
 			}
 		}
+		myLastMoveWasReverted = moveToPerform instanceof RevertingMove;
 		if(moveToPerform.getPieceAtDestination() != null)
 		{
 			//Take over is happening
 			moveToPerform.getPieceAtDestination().removeFromBoard(this);
+			myLastMoveWasIrreversible = true;
+		}
+		if(moveToPerform instanceof PawnMove)
+		{
+			myLastMoveWasIrreversible = true;
 		}
 
 		getPositionContainer(oldPosition).setCurrentPiece(null);
 		getPositionContainer(newPosition).setCurrentPiece(pieceToMove);
+		myPiecesKey ^= ZobristKeys.getPieceKey(pieceToMove, oldPosition) ^ ZobristKeys.getPieceKey(pieceToMove, newPosition);
 
 		if(moveToPerform instanceof RevertingMove)
 		{
@@ -1220,6 +1402,7 @@ public final class ChessBoard
 		myWhitePieceValueCount = 0;
 		myBlackPieceValueCount = 0;
 		myPieces.clear();
+		myPiecesKey = 0;
 		myWhiteAvailableMoves.clear();
 		myBlackAvailableMoves.clear();
 
@@ -1230,6 +1413,7 @@ public final class ChessBoard
 		}
 		myWhiteKing = null;
 		myBlackKing = null;
+		myPositionHistory.clear();
 	}
 
 	/**
@@ -1323,6 +1507,18 @@ public final class ChessBoard
 		{
 			addPiece(Piece.getPieceFromPersistenceData(buffer, this), false, true);
 		}
+		piecePlacementDone(myCurrentPlayer);
+	}
+
+	/**
+	 * Should be called when all the pieces have been added (with loadingInProgress set) to an empty board,
+	 * it sets the player that is to make the next move and connects the kings with their castling rocks
+	 * @param currentPlayer the player that is to make the next move
+	 * @throws InvalidBoardException if a King is missing
+	 */
+	public void piecePlacementDone(final boolean currentPlayer) throws InvalidBoardException
+	{
+		myCurrentPlayer = currentPlayer;
 		if(myWhiteKing == null || myBlackKing == null)
 		{
 			throw new InvalidBoardException();
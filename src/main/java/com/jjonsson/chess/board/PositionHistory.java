@@ -0,0 +1,120 @@
+package com.jjonsson.chess.board;
+
+/**
+ * A ring buffer with the position keys (see {@link ZobristKeys}) of the latest positions on a board together with
+ * the half move clock (plies since the last capture or pawn move) for each of them.
+ * <br>Positions before a capture or a pawn move can't come back so repetitions are only looked for within the half move clock,
+ * which makes a repetition check O(k) where k is the number of reversible plies.
+ * <br>Only the latest {@link #CAPACITY} positions are remembered, that covers the 50-move rule.
+ */
+final class PositionHistory
+{
+	/**
+	 * Must be a power of two
+	 */
+	static final int CAPACITY = 128;
+	private static final int MASK = CAPACITY - 1;
+
+	/**
+	 * The number of plies without captures or pawn moves that makes the game a draw
+	 */
+	static final int FIFTY_MOVE_RULE_PLIES = 100;
+
+	private final long[] myKeys;
+	private final int[] myHalfmoveClocks;
+
+	/**
+	 * The index where the next position will be stored
+	 */
+	private int myEnd;
+	private int mySize;
+
+	PositionHistory()
+	{
+		myKeys = new long[CAPACITY];
+		myHalfmoveClocks = new int[CAPACITY];
+	}
+
+	void clear()
+	{
+		myEnd = 0;
+		mySize = 0;
+	}
+
+	boolean isEmpty()
+	{
+		return mySize == 0;
+	}
+
+	/**
+	 * Adds a position that was reached with a move
+	 * @param irreversible true if the move was a capture or a pawn move
+	 */
+	void push(final long key, final boolean irreversible)
+	{
+		add(key, irreversible || isEmpty() ? 0 : getHalfmoveClock() + 1);
+	}
+
+	/**
+	 * Adds a position with a known half move clock, typically the first position of a game
+	 */
+	void add(final long key, final int halfmoveClock)
+	{
+		myKeys[myEnd] = key;
+		myHalfmoveClocks[myEnd] = halfmoveClock;
+		myEnd = (myEnd + 1) & MASK;
+		mySize = Math.min(mySize + 1, CAPACITY);
+	}
+
+	/**
+	 * Removes the latest position (when a move is undone)
+	 */
+	void pop()
+	{
+		if(mySize > 0)
+		{
+			myEnd = (myEnd - 1) & MASK;
+			mySize--;
+		}
+	}
+
+	/**
+	 * @return the number of plies since the last capture or pawn move
+	 */
+	int getHalfmoveClock()
+	{
+		return isEmpty() ? 0 : myHalfmoveClocks[(myEnd - 1) & MASK];
+	}
+
+	/**
+	 * @return how many times the latest position has occurred (1 if it hasn't been repeated, 0 if the history is empty)
+	 */
+	int getRepetitionCount()
+	{
+		if(isEmpty())
+		{
+			return 0;
+		}
+		int latest = (myEnd - 1) & MASK;
+		long key = myKeys[latest];
+		int count = 1;
+		//The same player must be to move so only every other position needs to be checked
+		int pliesBack = Math.min(myHalfmoveClocks[latest], mySize - 1);
+		for(int ply = 2; ply <= pliesBack; ply += 2)
+		{
+			if(myKeys[(latest - ply) & MASK] == key)
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+
+	void copyFrom(final PositionHistory history)
+	{
+		System.arraycopy(history.myKeys, 0, myKeys, 0, CAPACITY);
+		System.arraycopy(history.myHalfmoveClocks, 0, myHalfmoveClocks, 0, CAPACITY);
+		myEnd = history.myEnd;
+		mySize = history.mySize;
+	}
+}
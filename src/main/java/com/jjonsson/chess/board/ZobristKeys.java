@@ -0,0 +1,144 @@
+package com.jjonsson.chess.board;
+
+import static com.jjonsson.chess.pieces.Piece.BLACK;
+import static com.jjonsson.chess.pieces.Piece.WHITE;
+
+import java.util.Random;
+
+import com.jjonsson.chess.moves.ImmutablePosition;
+import com.jjonsson.chess.moves.Move;
+import com.jjonsson.chess.moves.PawnTwoStepMove;
+import com.jjonsson.chess.moves.Position.Column;
+import com.jjonsson.chess.pieces.Pawn;
+import com.jjonsson.chess.pieces.Piece;
+
+/**
+ * Calculates Zobrist keys for positions, a key is the XOR of one random number for each piece (type, affinity and position),
+ * the player to move, the remaining castling possibilities and the column of a possible en-passant take over
+ * (only included when there is a pawn that can make the take over so that transpositions gets the same key).
+ * <br>The random numbers are generated from a fixed seed so the keys can be stored in files.
+ */
+public final class ZobristKeys
+{
+	private ZobristKeys(){}
+
+	private static final long SEED = 0x5DEECE66DL;
+
+	/**
+	 * The notation characters of the pieces in the order used by the piece table
+	 */
+	private static final String PIECES = "PNBRQKpnbrqk";
+	private static final int SQUARES = ChessBoard.BOARD_SIZE * ChessBoard.BOARD_SIZE;
+
+	private static final long[][] PIECE_KEYS = new long[PIECES.length()][SQUARES];
+	private static final long BLACK_TO_MOVE_KEY;
+	private static final long[] CASTLING_KEYS = new long[4];
+	private static final long[] EN_PASSANT_KEYS = new long[ChessBoard.BOARD_SIZE];
+
+	static
+	{
+		Random random = new Random(SEED);
+		for(long[] pieceKeys : PIECE_KEYS)
+		{
+			for(int square = 0; square < SQUARES; square++)
+			{
+				pieceKeys[square] = random.nextLong();
+			}
+		}
+		BLACK_TO_MOVE_KEY = random.nextLong();
+		for(int i = 0; i < CASTLING_KEYS.length; i++)
+		{
+			CASTLING_KEYS[i] = random.nextLong();
+		}
+		for(int i = 0; i < EN_PASSANT_KEYS.length; i++)
+		{
+			EN_PASSANT_KEYS[i] = random.nextLong();
+		}
+	}
+
+	/**
+	 * Calculates the key from scratch, {@link ChessBoard#getPositionKey()} keeps the piece part of it up to date as the pieces move instead
+	 * @return the key for the current position of the given board
+	 */
+	public static long getKey(final ChessBoard board)
+	{
+		long key = 0;
+		for(Piece p : board.getPieces())
+		{
+			key ^= getPieceKey(p, p.getCurrentPosition());
+		}
+		return key ^ getStateKey(board);
+	}
+
+	/**
+	 * @return the part of the key that doesn't come from the pieces: the player to move, the castling possibilities and a possible en-passant take over
+	 */
+	static long getStateKey(final ChessBoard board)
+	{
+		long key = 0;
+		if(board.getCurrentPlayer() == BLACK)
+		{
+			key ^= BLACK_TO_MOVE_KEY;
+		}
+		key ^= getCastlingKey(board);
+
+		Move lastMove = board.getLastMove();
+		if(lastMove instanceof PawnTwoStepMove && canBeTakenEnPassant(board, lastMove.getPiece()))
+		{
+			key ^= EN_PASSANT_KEYS[lastMove.getPiece().getCurrentPosition().getColumn()];
+		}
+		return key;
+	}
+
+	/**
+	 * @return true if there is an opposing pawn next to the given pawn
+	 */
+	private static boolean canBeTakenEnPassant(final ChessBoard board, final Piece pawn)
+	{
+		ImmutablePosition pawnPosition = pawn.getCurrentPosition();
+		for(int columnDelta = -1; columnDelta <= 1; columnDelta += 2)
+		{
+			int column = pawnPosition.getColumn() + columnDelta;
+			if(column >= 0 && column < ChessBoard.BOARD_SIZE)
+			{
+				Piece neighbour = board.getPiece(ImmutablePosition.from(pawnPosition.getRow(), column));
+				if(neighbour instanceof Pawn && !neighbour.hasSameAffinityAs(pawn))
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the key that the given piece contributes with when it's at the given position
+	 */
+	public static long getPieceKey(final Piece piece, final ImmutablePosition position)
+	{
+		int pieceIndex = PIECES.indexOf(piece.getNotationCharacter());
+		return PIECE_KEYS[pieceIndex][position.getRow() * ChessBoard.BOARD_SIZE + position.getColumn()];
+	}
+
+	private static long getCastlingKey(final ChessBoard board)
+	{
+		long key = 0;
+		if(board.hasCastlingPossibility(WHITE, Column.H))
+		{
+			key ^= CASTLING_KEYS[0];
+		}
+		if(board.hasCastlingPossibility(WHITE, Column.A))
+		{
+			key ^= CASTLING_KEYS[1];
+		}
+		if(board.hasCastlingPossibility(BLACK, Column.H))
+		{
+			key ^= CASTLING_KEYS[2];
+		}
+		if(board.hasCastlingPossibility(BLACK, Column.A))
+		{
+			key ^= CASTLING_KEYS[3];
+		}
+		return key;
+	}
+}
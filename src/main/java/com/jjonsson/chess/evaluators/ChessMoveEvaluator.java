@@ -13,13 +13,20 @@ import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
 import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.evaluators.ChessBoardEvaluator.ChessState;
 import com.jjonsson.chess.evaluators.orderings.MoveOrdering;
 import com.jjonsson.chess.evaluators.statistics.StatisticsAction;
+import com.jjonsson.chess.evaluators.tablebases.TablebaseResult;
+import com.jjonsson.chess.evaluators.tablebases.Tablebases;
 import com.jjonsson.chess.exceptions.NoMovesAvailableException;
-import com.jjonsson.chess.exceptions.SearchInterruptedError;
 import com.jjonsson.chess.moves.Move;
-import com.jjonsson.utilities.ThreadTracker;
+import com.jjonsson.chess.persistence.FenNotation;
+import com.jjonsson.chess.persistence.MoveItem;
+import com.jjonsson.chess.persistence.OpeningBook;
+import com.jjonsson.utilities.EventRecorder;
 
 /**
  * TODO: clean up this code mess (i.e make this into an "instanceiatable" class)
@@ -30,44 +37,170 @@ public final class ChessMoveEvaluator
 {
 	private ChessMoveEvaluator(){}
 
-	private static long deepestSearch = 0;
-	/**
-	 * Determines how badly we want to repeat a previous made move
-	 */
-	private static final int REPITIVE_PUNISHMENT_FACTOR = 10;
-
 	/**
 	 * Performs a directed DFS (not all moves to a given level are evaluated) and tries to return the best move available
+	 * <br>If the board has an opening book that contains the current position a book move is returned without searching
 	 * @param board
 	 * @return the best move for the current player on the given board
 	 * @throws NoMovesAvailableException if the evaluation of available moves didn't return a move
-	 * @throws SearchInterruptedError if interrupted by something (e.g the GUI)
 	 */
 	public static Move getBestMove(final ChessBoard board) throws NoMovesAvailableException
+	{
+		return getBestMove(board, new SearchBudget());
+	}
+
+	/**
+	 * Like {@link #getBestMove(ChessBoard)} but the search stops going deeper when the given budget is exhausted
+	 * (or cancelled, in which case the best move found so far is returned)
+	 */
+	public static Move getBestMove(final ChessBoard board, final SearchBudget budget) throws NoMovesAvailableException
+	{
+		Move bookMove = getBookMove(board);
+		if(bookMove != null)
+		{
+			return bookMove;
+		}
+		return search(board, budget).getBestMove();
+	}
+
+	/**
+	 * @return a move from the opening book of the given board or null if the board has no book or if the position isn't in it
+	 */
+	public static Move getBookMove(final ChessBoard board)
+	{
+		OpeningBook openingBook = board.getOpeningBook();
+		if(openingBook == null)
+		{
+			return null;
+		}
+		Move bookMove = openingBook.getMove(board);
+		if(bookMove != null)
+		{
+			STDOUT.debug("Book move: " + bookMove);
+		}
+		return bookMove;
+	}
+
+	/**
+	 * Searches for the best move without consulting the opening book
+	 * @param board the board to search, it's not modified
+	 * @param budget limits the search, it's spent budget is reset before the search starts
+	 * @return the best move (a move on the given board) and its evaluated value
+	 * @throws NoMovesAvailableException if the evaluation of available moves didn't return a move
+	 */
+	public static SearchResult search(final ChessBoard board, final SearchBudget budget) throws NoMovesAvailableException
+	{
+		return search(board, new SearchLimiter(board.getDifficulty(), budget));
+	}
+
+	/**
+	 * Like {@link #search(ChessBoard, SearchBudget)} but with the difficulty and other settings given by the limiter
+	 * instead of by the board
+	 * @param limiter a new limiter, its budget is reset before the search starts
+	 */
+	public static SearchResult search(final ChessBoard board, final SearchLimiter limiter) throws NoMovesAvailableException
 	{
 		long startTime = System.nanoTime();
 		Move result = null;
-		deepestSearch = 0;
+		SearchBudget budget = limiter.getBudget();
 		ChessBoard copyOfBoard = board.copy(DEBUG ? USE_PERSISTANCE_LOGGING : SKIP_PERSISTANCE_LOGGING);
 
-		board.performStatisticsAction(StatisticsAction.RESET);
-
-		SearchLimiter limiter = new SearchLimiter(board.getDifficulty());
-		SearchResult searchResult = deepSearch(copyOfBoard, limiter);
+		budget.start(limiter.getFullWidthDepth());
+		limiter.setPhaseTiming(budget.isPhaseTiming() || board.getStatisticsTracker() != null);
+		board.searchStarted(budget);
+		SearchResult searchResult = searchTablebases(copyOfBoard, limiter);
+		if(searchResult == null)
+		{
+			searchResult = deepSearch(copyOfBoard, limiter);
+		}
+		limiter.flushNodes();
+		budget.finish();
 		result = searchResult.getBestMove();
 		board.performStatisticsAction(StatisticsAction.MOVE_EVALUATION_STOPPED);
+		board.searchFinished(budget.getTelemetry());
+		if(EventRecorder.isRecording())
+		{
+			SearchTelemetry telemetry = budget.getTelemetry();
+			EventRecorder.record(EventRecorder.event("search", startTime).add("fen", FenNotation.toFen(board))
+					.add("difficulty", limiter.getMinimumDepthToSearch()).add("depth", telemetry.getDepth())
+					.add("selectiveDepth", telemetry.getSelectiveDepth()).add("nodes", budget.getNodesSearched())
+					.add("cancelled", budget.isCancelled()).add("bestMove", String.valueOf(result)));
+		}
 		if(result == null)
 		{
 			throw new NoMovesAvailableException();
 		}
 		STDOUT.debug("Best move: " + result);
 		STDOUT.debug("Best move value: " + searchResult.getBestMoveValue());
-		STDOUT.debug("Reached " + deepestSearch + " steps ahead on the deepest path");
+		STDOUT.debug("Reached " + budget.getDeepestSearch() + " steps ahead on the deepest path");
 		//This fetches the corresponding move from our original board
-		result = board.getMove(result);
+		SearchResult resultOnBoard = new SearchResult();
+		resultOnBoard.setBestMoveIfBetter(board.getMove(result), searchResult.getBestMoveValue(), searchResult.getExpectedReply());
 		double duration = (double)(System.nanoTime() - startTime) / SECONDS.toNanos(1);
-		STDOUT.debug("getBestMove took " + duration + " secs");
-		return result;
+		STDOUT.debug("getBestMove took " + duration + " secs, evaluated " + budget.getNodesSearched() + " moves");
+		return resultOnBoard;
+	}
+
+	/**
+	 * Picks the move with the best outcome in the endgame tables (the fastest win or the slowest loss)
+	 * @return the best move and its value, or null if the position (or the position after one of the moves) isn't in the tables
+	 */
+	private static SearchResult searchTablebases(final ChessBoard board, final SearchLimiter limiter)
+	{
+		if(probeTablebases(board, limiter) == null)
+		{
+			return null;
+		}
+		Set<Move> moves = board.getAvailableMoves(board.getCurrentPlayer());
+		SearchResult result = new SearchResult();
+		for(Move move : moves.toArray(new Move[moves.size()]))
+		{
+			if(!move.getPiece().performMove(move, board, false))
+			{
+				continue;
+			}
+			limiter.nodeSearched();
+			TablebaseResult reply = probeTablebases(board, limiter);
+			board.undoMove(move, false);
+			if(reply == null)
+			{
+				return null;
+			}
+			result.setBestMoveIfBetter(move, getTablebaseValue(reply, limiter.getCurrentDepth()));
+		}
+		limiter.getBudget().reachedDepth(1);
+		return result.getBestMove() != null ? result : null;
+	}
+
+	/**
+	 * @return the outcome for the current player in the endgame tables or null if the board has no tables or if the position isn't in them
+	 */
+	private static TablebaseResult probeTablebases(final ChessBoard board, final SearchLimiter limiter)
+	{
+		Tablebases tablebases = board.getTablebases();
+		if(tablebases == null || board.getTotalPieceCount() > Tablebases.MAX_PIECES)
+		{
+			return null;
+		}
+		return tablebases.probe(board, limiter.getMaterialCache());
+	}
+
+	/**
+	 * @param reply the outcome for the opponent after a move
+	 * @param ply the ply of the move
+	 * @return the value of the move, a mate score (see {@link MateScore}) or zero for a draw
+	 */
+	private static long getTablebaseValue(final TablebaseResult reply, final long ply)
+	{
+		switch(reply.getOutcome())
+		{
+			case LOSS:
+				return MateScore.mateAt(ply + reply.getPliesToMate());
+			case WIN:
+				return -MateScore.mateAt(ply + reply.getPliesToMate());
+			default:
+				return 0;
+		}
 	}
 
 	/**
@@ -75,7 +208,6 @@ public final class ChessMoveEvaluator
 	 * @param board
 	 * @param listener
 	 * @throws NoMovesAvailableException
-	 * @throws SearchInterruptedError
 	 */
 	public static void performBestMove(final ChessBoard board) throws NoMovesAvailableException
 	{
@@ -105,37 +237,60 @@ public final class ChessMoveEvaluator
 	 * 			or a search result with best move set to null if no moves were available
 	 * @throws NoMovesAvailableException
 	 * @throws UnavailableMoveException
-	 * @throws SearchInterruptedError
 	 */
 	private static SearchResult deepSearch(final ChessBoard board, final SearchLimiter limiter)
 	{
-		if(SearchLimiter.MAX_DEPTH - limiter.getDepth() > deepestSearch)
-		{
-			deepestSearch = SearchLimiter.MAX_DEPTH - limiter.getDepth();
-		}
+		limiter.getBudget().reachedDepth(SearchLimiter.MAX_DEPTH - limiter.getDepth());
+		SearchTelemetry telemetry = limiter.getBudget().getTelemetry();
+		SearchTracer tracer = limiter.getBudget().getTracer();
 		SearchResult result = new SearchResult();
 		//The game doesn't allow us to traverse further
 		if(!ChessBoardEvaluator.inPlay(board))
 		{
-			//No move to return, only the game state's value
-			result.setBestMoveIfBetter(null, board.getCurrentState().getValue());
+			//No move to return, only the game state's value (the current player is the one that has been mated)
+			ChessState state = board.getCurrentState();
+			result.setBestMoveIfBetter(null, state == ChessState.CHECKMATE ? -MateScore.MATE : state.getValue());
 		}
 		else
 		{
 			Set<Move> moves = board.getAvailableMoves(board.getCurrentPlayer());
 
+			long orderingStart = limiter.isPhaseTiming() ? System.nanoTime() : 0;
 			List<Move> sortedMoves = Arrays.asList(moves.toArray(new Move[moves.size()]));
 			Collections.sort(sortedMoves, MoveOrdering.getInstance());
+			if(limiter.isPhaseTiming())
+			{
+				telemetry.ordered(System.nanoTime() - orderingStart);
+			}
 			//TODO: instead of doing DFS do BFS and sort the moves before diving (this will also fix concurrency problems)
 
 			//The deeper we go, the less we branch, this assumes that a reasonable ordering of the moves has been made already
 			long movesLeftToEvaluateOnThisBranch = Math.max(limiter.getDepth() * ChessBoard.BOARD_SIZE, 0) + 2;
 			CountDownLatch workersDoneSignal = new CountDownLatch(sortedMoves.size());
-			ThreadTracker threadTracker = new ThreadTracker();
+			boolean isFirstLevel = limiter.getDepth() == SearchLimiter.MAX_DEPTH;
+			Move firstMove = null;
+			long searchedMoves = 0;
+			int visitedMoves = 0;
+			List<Move> tracedMoves = tracer != null ? Lists.<Move>newArrayList() : null;
 			for(Move move : sortedMoves)
 			{
+				//After a cancellation the first level only goes on until it has a move to return
+				if(limiter.getBudget().isCancelled() && (!isFirstLevel || firstMove != null))
+				{
+					break;
+				}
+				visitedMoves++;
 				if(move.shouldBeIncludedInMoveTable())
 				{
+					if(firstMove == null)
+					{
+						firstMove = move;
+					}
+					searchedMoves++;
+					if(tracedMoves != null)
+					{
+						tracedMoves.add(move);
+					}
 					//TODO(jontejj): how to search deeper when time allows us to
 					if(limiter.getDepth() == SearchLimiter.MAX_DEPTH)
 					{
@@ -144,10 +299,6 @@ public final class ChessMoveEvaluator
 					}
 					movesLeftToEvaluateOnThisBranch--;
 					MoveEvaluatingThread moveEvaluator = new MoveEvaluatingThread(board, move, limiter, result, movesLeftToEvaluateOnThisBranch, workersDoneSignal);
-					if(moveEvaluator.isRunningInSeperateThread())
-					{
-						threadTracker.addJob(moveEvaluator.getThread());
-					}
 					moveEvaluator.advancedRun();
 				}
 				else
@@ -155,14 +306,19 @@ public final class ChessMoveEvaluator
 					workersDoneSignal.countDown();
 				}
 			}
-			try
+			//The moves that were skipped after a cancellation
+			for(int skippedMoves = sortedMoves.size() - visitedMoves; skippedMoves > 0; skippedMoves--)
 			{
-				workersDoneSignal.await();
+				workersDoneSignal.countDown();
 			}
-			catch (InterruptedException e)
+			awaitWorkers(workersDoneSignal, limiter.getBudget());
+			if(searchedMoves > 0)
 			{
-				threadTracker.interruptCurrentJobs();
-				throw new SearchInterruptedError(e);
+				telemetry.nodeExpanded(searchedMoves, isSameMove(firstMove, result.getBestMove()));
+			}
+			if(tracer != null)
+			{
+				tracer.expanded(limiter.getTraceParent(), tracedMoves.size(), getRank(tracedMoves, result.getBestMove()), result.getBestMove());
 			}
 		}
 		//Inverses the factor making it possible to evaluate a good move for the other player
@@ -171,6 +327,58 @@ public final class ChessMoveEvaluator
 		return result;
 	}
 
+	/**
+	 * @param move a move on the board that is searched
+	 * @param bestMove a move on the same board or on a copy of it (if it was evaluated in another thread), may be null
+	 */
+	private static boolean isSameMove(final Move move, final Move bestMove)
+	{
+		return bestMove != null && move.getCurrentPosition().equals(bestMove.getCurrentPosition())
+				&& Objects.equal(move.getDestination(), bestMove.getDestination());
+	}
+
+	/**
+	 * @return the index of the best move in the given moves or -1 if it isn't one of them
+	 */
+	private static int getRank(final List<Move> moves, final Move bestMove)
+	{
+		for(int i = 0; i < moves.size(); i++)
+		{
+			if(isSameMove(moves.get(i), bestMove))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Waits for the workers on a branch to finish. An interrupt cancels the search (which makes the workers finish fast)
+	 * instead of abandoning the workers.
+	 */
+	private static void awaitWorkers(final CountDownLatch workersDoneSignal, final SearchBudget budget)
+	{
+		boolean interrupted = false;
+		while(true)
+		{
+			try
+			{
+				workersDoneSignal.await();
+				break;
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+				budget.cancel();
+			}
+		}
+		if(interrupted)
+		{
+			//Let the caller know about the interruption as well
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	/**
 	 * Evaluates the given move and if the limits allows it, this also searches deeper
 	 * if the move is better than the move in the given result
@@ -179,35 +387,106 @@ public final class ChessMoveEvaluator
 	 * @param limiter
 	 * @param result
 	 * @param movesLeftToEvaluateOnThisBranch
-	 * @throws SearchInterruptedError
 	 */
 	@VisibleForTesting
 	public static void evaluateMove(final Move move, final ChessBoard board, final SearchLimiter limiter, final SearchResult result, final long movesLeftToEvaluateOnThisBranch)
 	{
 		boolean takeOverMove = move.isTakeOverMove();
 		long moveValue = performMoveWithMeasurements(move, board, limiter);
-		board.performStatisticsAction(StatisticsAction.MOVE_EVALUATED);
-		boolean deeperSearch = shouldContinueDeeper(board, limiter, movesLeftToEvaluateOnThisBranch, moveValue, takeOverMove);
+		limiter.nodeSearched();
+		SearchTelemetry telemetry = limiter.getBudget().getTelemetry();
+		telemetry.nodeEvaluated(limiter.getCurrentDepth());
+		SearchTracer tracer = limiter.getBudget().getTracer();
+		long nodeId = tracer != null ? tracer.nextNodeId() : SearchTracer.ROOT;
+		//The outcome is known for drawn positions and for positions that are in the endgame tables, there is no need to search them
+		boolean draw = moveValue != Long.MIN_VALUE && !MateScore.isMate(moveValue) && isDraw(board);
+		TablebaseResult tablebaseResult = moveValue != Long.MIN_VALUE && !draw ? probeTablebases(board, limiter) : null;
+		byte decision;
+		if(draw)
+		{
+			moveValue = getDrawValue(board, limiter);
+			decision = SearchTracer.DRAW;
+		}
+		else if(tablebaseResult != null)
+		{
+			moveValue = getTablebaseValue(tablebaseResult, limiter.getCurrentDepth());
+			decision = SearchTracer.TABLEBASE_HIT;
+		}
+		else
+		{
+			decision = deeperSearchDecision(board, limiter, movesLeftToEvaluateOnThisBranch, moveValue, takeOverMove);
+		}
+		boolean deeperSearch = decision == SearchTracer.SEARCHED_DEEPER;
+		MoveItem expectedReply = null;
 		if(deeperSearch)
 		{
-			moveValue = delveDeeper(limiter, board, moveValue);
+			long traceParent = limiter.getTraceParent();
+			limiter.setTraceParent(nodeId);
+			SearchResult deepResult = delveDeeper(limiter, board, moveValue);
+			limiter.setTraceParent(traceParent);
+			moveValue = deepResult.getBestMoveValue();
+			if(deepResult.getBestMove() != null)
+			{
+				expectedReply = MoveItem.from(deepResult.getBestMove());
+			}
+		}
+		long unmakeStart = limiter.isPhaseTiming() ? System.nanoTime() : 0;
+		boolean undone = board.undoMove(move, false);
+		if(limiter.isPhaseTiming())
+		{
+			telemetry.unmade(System.nanoTime() - unmakeStart);
+		}
+		if(tracer != null)
+		{
+			tracer.node(nodeId, limiter.getTraceParent(), limiter.getCurrentDepth(), move, decision, moveValue);
 		}
-		if(board.undoMove(move, false))
+		if(undone)
 		{
 			//Moves that has not been searched deeper than one level risks an immediate take over from the other player
 			//so to avoid making really stupid moves we only make those moves if they have a really high value
-			//
+			//(a mate can't be answered with a take over)
 			long moveValueWithMarginForAPossibleTakeOver = moveValue - move.getPiece().getValue();
 
-			if(deeperSearch || moveValueWithMarginForAPossibleTakeOver > result.getBestMoveValue())
+			if(deeperSearch || MateScore.isMate(moveValue) || moveValueWithMarginForAPossibleTakeOver > result.getBestMoveValue())
 			{
 				//Only return the move if it was undoable because otherwise it means that it was a bad/invalid move
-				result.setBestMoveIfBetter(move, moveValue);
+				result.setBestMoveIfBetter(move, moveValue, expectedReply);
 			}
+			SearchSampleChannel channel = limiter.getBudget().getSampleChannel();
+			if(channel != null && limiter.getCurrentDepth() == 1 && moveValue != Long.MIN_VALUE)
+			{
+				SearchBudget budget = limiter.getBudget();
+				channel.offer(SearchSample.rootMove(MoveItem.from(move), moveValue, expectedReply, budget.getDeepestSearch(), budget.getNodesSearched()));
+			}
+		}
+	}
+
+	/**
+	 * A position that has occurred before is scored as a draw as the players could repeat it again (and again),
+	 * this is what stops the search from going in circles
+	 * @return true if the current position is a repetition or if the 50-move rule has been reached
+	 */
+	private static boolean isDraw(final ChessBoard board)
+	{
+		return board.getRepetitionCount() > 1 || board.isDrawByFiftyMoveRule();
+	}
+
+	/**
+	 * @return the value of a drawn position for the player that drew it, repetitions are punished with {@link SearchLimiter#getRepetitivePunishmentFactor()}
+	 */
+	private static long getDrawValue(final ChessBoard board, final SearchLimiter limiter)
+	{
+		if(board.getRepetitionCount() > 1)
+		{
+			return -limiter.getRepetitivePunishmentFactor();
 		}
+		return 0;
 	}
 
-	private static long delveDeeper(final SearchLimiter limiter, final ChessBoard board, final long currentMoveValue)
+	/**
+	 * @return a result with the total value of the current move and the best reply to it
+	 */
+	private static SearchResult delveDeeper(final SearchLimiter limiter, final ChessBoard board, final long currentMoveValue)
 	{
 		long totalMoveValue = currentMoveValue;
 		limiter.goDown();
@@ -221,26 +500,42 @@ public final class ChessMoveEvaluator
 		{
 			totalMoveValue = Long.MIN_VALUE;
 		}
+		else if(MateScore.isMate(deepValue))
+		{
+			//Mates are passed on as is, mixing in positional values would make the distance to the mate unreliable
+			totalMoveValue = deepValue;
+		}
 		else
 		{
 			totalMoveValue += deepValue;
 		}
 		limiter.goUp();
-		return totalMoveValue;
+		SearchResult result = new SearchResult();
+		result.setBestMoveIfBetter(deepResult.getBestMove(), totalMoveValue);
+		return result;
 	}
 
-	static boolean shouldContinueDeeper(final ChessBoard board, final SearchLimiter limiter, final long movesLeftOnBranch, final long moveValue, final boolean isTakeOverMove)
+	/**
+	 * @return {@link SearchTracer#SEARCHED_DEEPER} if the move should be searched deeper, otherwise the reason for why it shouldn't
+	 */
+	private static byte deeperSearchDecision(final ChessBoard board, final SearchLimiter limiter, final long movesLeftOnBranch, final long moveValue, final boolean isTakeOverMove)
 	{
 		if(!ChessBoardEvaluator.inPlay(board))
 		{
 			//Don't search deeper if we already are at check mate
-			return false;
+			return SearchTracer.GAME_OVER;
 		}
 
 		if(moveValue == Long.MIN_VALUE)
 		{
 			//For invalid moves we don't continue
-			return false;
+			return SearchTracer.INVALID_MOVE;
+		}
+
+		if(limiter.getBudget().isExhausted())
+		{
+			//The node or time budget has been spent
+			return SearchTracer.BUDGET_EXHAUSTED;
 		}
 
 		boolean minimumDepthNotReached = (limiter.getCurrentDepth() <= limiter.getMinimumDepthToSearch());
@@ -248,37 +543,28 @@ public final class ChessMoveEvaluator
 		if(movesLeftOnBranch <= 0 && !minimumDepthNotReached)
 		{
 			//This filters out deeper searches for moves that initially don't look so good
-			return false;
+			return SearchTracer.BRANCH_FILTERED;
 		}
 
 		boolean finalDepthNotReached = (limiter.getDepth() >= 0 && limiter.getMovesLeft() > 0);
 		//If we take over a piece we continue that path to not give too positive results
 		boolean iTookOverAPiece = (isTakeOverMove && limiter.getScoreFactor() == 1 && limiter.getDepth() <= 0);
 
-		return minimumDepthNotReached || finalDepthNotReached || iTookOverAPiece;
+		if(minimumDepthNotReached || finalDepthNotReached || iTookOverAPiece)
+		{
+			return SearchTracer.SEARCHED_DEEPER;
+		}
+		return SearchTracer.DEPTH_REACHED;
 	}
 
+	/**
+	 * @param move a move that hasn't been made yet
+	 * @return true if the search will go deeper than the given move (see {@link #deeperSearchDecision}) so that it's worth a thread of its own
+	 */
 	static boolean shouldContinueInNewThread(final ChessBoard board, final SearchLimiter limiter, final long movesLeftOnBranch, final Move move)
 	{
-		if(!ChessBoardEvaluator.inPlay(board))
-		{
-			//Don't search deeper if we already are at check mate
-			return false;
-		}
-
-		boolean minimumDepthNotReached = (limiter.getCurrentDepth() <= limiter.getMinimumDepthToSearch());
-
-		if(movesLeftOnBranch <= 0 && !minimumDepthNotReached)
-		{
-			//This filters out deeper searches for moves that initially don't look so good
-			return false;
-		}
-
-		boolean finalDepthNotReached = (limiter.getDepth() >= 0 && limiter.getMovesLeft() > 0);
-		//If we take over a piece we continue that path to not give too positive results
-		boolean iTookOverAPiece = (move.isTakeOverMove() && limiter.getScoreFactor() == 1 && limiter.getDepth() <= 0);
-
-		return (minimumDepthNotReached || finalDepthNotReached || iTookOverAPiece);
+		//The value of the move isn't known before it has been made, a valid value lets the other conditions decide
+		return deeperSearchDecision(board, limiter, movesLeftOnBranch, 0, move.isTakeOverMove()) == SearchTracer.SEARCHED_DEEPER;
 	}
 
 	/**
@@ -287,7 +573,6 @@ public final class ChessMoveEvaluator
 	 * The differences in available moves and non available moves,
 	 * how many pieces that are protected by other pieces,
 	 * how many pieces that can be taken over by the other player
-	 * how many time the move has been made (a repetitiveness protection)
 	 * how progressive a move is
 	 * @param move the move to perform
 	 * @return the estimated value of the move performed
@@ -295,6 +580,9 @@ public final class ChessMoveEvaluator
 	@VisibleForTesting
 	public static long performMoveWithMeasurements(final Move move, final ChessBoard board, final SearchLimiter limiter)
 	{
+		SearchTelemetry telemetry = limiter.getBudget().getTelemetry();
+		boolean phaseTiming = limiter.isPhaseTiming();
+		long evaluationStart = phaseTiming ? System.nanoTime() : 0;
 		//Save some measurements for the before state
 		int takeOverValue = move.getTakeOverValue();
 		long accumulatedTakeOverValue = move.getAccumulatedTakeOverValuesForPieceAtDestination();
@@ -302,14 +590,36 @@ public final class ChessMoveEvaluator
 		long otherPlayerBefore = board.getMeasuredStatusForPlayer(!board.getCurrentPlayer());
 		long playerBefore = board.getMeasuredStatusForPlayer(board.getCurrentPlayer());
 
-		if(!move.getPiece().performMove(move, board, false))
+		long makeStart = phaseTiming ? System.nanoTime() : 0;
+		boolean made = move.getPiece().performMove(move, board, false);
+		long makeEnd = phaseTiming ? System.nanoTime() : 0;
+		if(phaseTiming)
+		{
+			telemetry.made(makeEnd - makeStart);
+		}
+		if(!made)
 		{
 			//if(board.isMoveUnavailableDueToCheck(move) || move.isMoveUnavailableDueToCheckMate(board))
+			if(phaseTiming)
+			{
+				telemetry.evaluated(makeStart - evaluationStart);
+			}
 			return Long.MIN_VALUE;
 		}
 
+		ChessState state = board.getCurrentState();
+		if(state == ChessState.CHECKMATE)
+		{
+			//The closer the mate is, the better it is
+			if(phaseTiming)
+			{
+				telemetry.evaluated(makeStart - evaluationStart + System.nanoTime() - makeEnd);
+			}
+			return MateScore.mateAt(limiter.getCurrentDepth());
+		}
+
 		//Save some measurements for the after state (the current player has changed now so that's why the getCurrentPlayer has been inverted)
-		long stateValue = board.getCurrentState().getValue() / limiter.getCurrentDepth();
+		long stateValue = state.getValue() / limiter.getCurrentDepth();
 
 		long otherPlayerAfter = board.getMeasuredStatusForPlayer(board.getCurrentPlayer());
 		long playerAfter = board.getMeasuredStatusForPlayer(!board.getCurrentPlayer());
@@ -322,9 +632,10 @@ public final class ChessMoveEvaluator
 		moveValue += playerAfter - playerBefore;
 		moveValue += accumulatedTakeOverValue;
 
-		//If we have made this move recently we punish it for being repetitive
-		moveValue -= (move.getMovesMade() - 1) * REPITIVE_PUNISHMENT_FACTOR;
-
+		if(phaseTiming)
+		{
+			telemetry.evaluated(makeStart - evaluationStart + System.nanoTime() - makeEnd);
+		}
 		return moveValue;
 	}
 }
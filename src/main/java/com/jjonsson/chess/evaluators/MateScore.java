@@ -0,0 +1,59 @@
+package com.jjonsson.chess.evaluators;
+
+/**
+ * Scores for lines that ends with a checkmate, they are encoded relative to the ply of the mate
+ * (as seen from the searched position) so that shorter mates are preferred and mates are postponed as long as possible.
+ * <br>Mate scores are far above any positional value so they are propagated as is instead of being mixed with positional values.
+ */
+public final class MateScore
+{
+	private MateScore(){}
+
+	/**
+	 * The score of a mate on the searched position (which can't happen for a move)
+	 */
+	static final long MATE = 1000000000L;
+
+	/**
+	 * Scores that are this close to {@link #MATE} are mate scores
+	 */
+	private static final long MAX_MATE_PLIES = 10000;
+
+	/**
+	 * @param ply the ply (1 for the first move) of the move that gives mate
+	 * @return the score of a mate at the given ply, from the view of the player that gives mate
+	 */
+	static long mateAt(final long ply)
+	{
+		return MATE - ply;
+	}
+
+	/**
+	 * @return true if the given score means that the line ends with a mate
+	 */
+	public static boolean isMate(final long score)
+	{
+		return score != Long.MIN_VALUE && Math.abs(score) >= MATE - MAX_MATE_PLIES;
+	}
+
+	/**
+	 * @param score a mate score, see {@link #isMate(long)}
+	 * @return the number of plies to the mate, positive if the player that the score is for gives mate
+	 * and negative if the player gets mated
+	 */
+	public static long getPliesToMate(final long score)
+	{
+		return score > 0 ? MATE - score : -(MATE + score);
+	}
+
+	/**
+	 * @param score a mate score, see {@link #isMate(long)}
+	 * @return the number of (full) moves to the mate, positive if the player that the score is for gives mate
+	 * and negative if the player gets mated
+	 */
+	public static long getMovesToMate(final long score)
+	{
+		long plies = getPliesToMate(score);
+		return plies > 0 ? (plies + 1) / 2 : -((-plies + 1) / 2);
+	}
+}
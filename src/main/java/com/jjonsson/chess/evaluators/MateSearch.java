@@ -0,0 +1,114 @@
+package com.jjonsson.chess.evaluators;
+
+import static com.jjonsson.chess.persistence.PersistanceLogging.SKIP_PERSISTANCE_LOGGING;
+import static com.jjonsson.utilities.Loggers.STDOUT;
+
+import java.util.Set;
+
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.evaluators.ChessBoardEvaluator.ChessState;
+import com.jjonsson.chess.moves.Move;
+import com.jjonsson.chess.persistence.FenNotation;
+import com.jjonsson.utilities.EventRecorder;
+
+/**
+ * Searches for forced mates where every move of the attacker is a check, the defender tries all of its evasions.
+ * <br>This only finds a subset of the forced mates but it does so with far fewer nodes than {@link ChessMoveEvaluator#search(ChessBoard, SearchBudget)}
+ * as the attacker rarely has more than a few checks to try.
+ */
+public final class MateSearch
+{
+	private MateSearch(){}
+
+	/**
+	 * Searches for the shortest mate (with checks) within the given number of moves
+	 * @param board the board to search, it's not modified
+	 * @param maxMoves the longest mate to search for, in moves by the current player (a mate in 1 is a single move)
+	 * @param budget limits the search, it's spent budget is reset before the search starts
+	 * @return the first move (a move on the given board) of the shortest mate and its mate score (see {@link MateScore}),
+	 * 			or a result without a best move if no mate was found
+	 */
+	public static SearchResult findMate(final ChessBoard board, final int maxMoves, final SearchBudget budget)
+	{
+		long startTime = System.nanoTime();
+		ChessBoard copyOfBoard = board.copy(SKIP_PERSISTANCE_LOGGING);
+		budget.start(maxMoves * 2 - 1);
+		//Only used to count the nodes
+		SearchLimiter limiter = new SearchLimiter(maxMoves * 2 - 1, budget);
+		SearchResult result = new SearchResult();
+		for(int moves = 1; moves <= maxMoves && result.getBestMove() == null && !budget.isExhausted(); moves++)
+		{
+			Move mate = findMatingMove(copyOfBoard, moves, limiter);
+			if(mate != null)
+			{
+				result.setBestMoveIfBetter(board.getMove(mate), MateScore.mateAt(moves * 2 - 1));
+			}
+		}
+		limiter.flushNodes();
+		budget.finish();
+		if(EventRecorder.isRecording())
+		{
+			EventRecorder.record(EventRecorder.event("mateSearch", startTime).add("fen", FenNotation.toFen(board))
+					.add("maxMoves", maxMoves).add("nodes", budget.getNodesSearched()).add("mate", String.valueOf(result.getBestMove())));
+		}
+		STDOUT.debug("Mate search evaluated " + budget.getNodesSearched() + " moves, mate: " + result.getBestMove());
+		return result;
+	}
+
+	/**
+	 * @return a checking move that forces a mate within the given number of moves or null if there is none (or if the budget ran out)
+	 */
+	private static Move findMatingMove(final ChessBoard board, final int movesLeft, final SearchLimiter limiter)
+	{
+		Set<Move> availableMoves = board.getAvailableMoves(board.getCurrentPlayer());
+		for(Move move : availableMoves.toArray(new Move[availableMoves.size()]))
+		{
+			if(limiter.getBudget().isExhausted())
+			{
+				return null;
+			}
+			if(!move.getPiece().performMove(move, board, false))
+			{
+				continue;
+			}
+			limiter.nodeSearched();
+			ChessState state = board.getCurrentState();
+			boolean mates = state == ChessState.CHECKMATE
+					|| (state == ChessState.CHECK && movesLeft > 1 && allEvasionsAreMated(board, movesLeft - 1, limiter));
+			board.undoMove(move, false);
+			if(mates)
+			{
+				return move;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return true if every reply of the player in check can be answered with a mate within the given number of moves
+	 */
+	private static boolean allEvasionsAreMated(final ChessBoard board, final int movesLeft, final SearchLimiter limiter)
+	{
+		Set<Move> availableMoves = board.getAvailableMoves(board.getCurrentPlayer());
+		for(Move move : availableMoves.toArray(new Move[availableMoves.size()]))
+		{
+			if(limiter.getBudget().isExhausted())
+			{
+				return false;
+			}
+			if(!move.getPiece().performMove(move, board, false))
+			{
+				//Moves that doesn't resolve the check
+				continue;
+			}
+			limiter.nodeSearched();
+			boolean mated = findMatingMove(board, movesLeft, limiter) != null;
+			board.undoMove(move, false);
+			if(!mated)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
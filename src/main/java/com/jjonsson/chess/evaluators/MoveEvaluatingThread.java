@@ -9,9 +9,8 @@ import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.concurrent.CountDownLatch;
 
 import com.jjonsson.chess.board.ChessBoard;
-import com.jjonsson.chess.exceptions.SearchInterruptedError;
 import com.jjonsson.chess.moves.Move;
-import com.jjonsson.chess.persistence.BoardLoader;
+import com.jjonsson.chess.persistence.BoardDumps;
 
 public class MoveEvaluatingThread implements Runnable, UncaughtExceptionHandler
 {
@@ -61,14 +60,9 @@ public class MoveEvaluatingThread implements Runnable, UncaughtExceptionHandler
 	@Override
 	public void run()
 	{
-		try
-		{
-			ChessMoveEvaluator.evaluateMove(myMoveToEvaluate, myBoard, myLimiter, myResult, myMovesLeftOnBranch);
-		}
-		catch(SearchInterruptedError error)
-		{
-			//Nothing to do here
-		}
+		ChessMoveEvaluator.evaluateMove(myMoveToEvaluate, myBoard, myLimiter, myResult, myMovesLeftOnBranch);
+		//The workers of a branch have added all their nodes to the budget when the branch stops waiting for them
+		myLimiter.flushNodes();
 		freeResources();
 	}
 
@@ -105,6 +99,7 @@ public class MoveEvaluatingThread implements Runnable, UncaughtExceptionHandler
 			return;
 		}
 		ChessMoveEvaluator.evaluateMove(myMoveToEvaluate, myBoard, myLimiter, myResult, myMovesLeftOnBranch);
+		myLimiter.flushNodes();
 		mySignal.countDown();
 	}
 
@@ -118,7 +113,7 @@ public class MoveEvaluatingThread implements Runnable, UncaughtExceptionHandler
 		if(copy == null)
 		{
 			STDERR.fatal("Failed to clone board.");
-			BoardLoader.saveBoard(myBoard, "faulty_boards/temp_board_causing_clone_failure");
+			BoardDumps.dumpFaultyBoard(myBoard, "board_causing_clone_failure");
 			return false;
 		}
 		Move move = copy.getMove(myMoveToEvaluate);
@@ -138,11 +133,6 @@ public class MoveEvaluatingThread implements Runnable, UncaughtExceptionHandler
 		return myThread != null;
 	}
 
-	Thread getThread()
-	{
-		return myThread;
-	}
-
 	@Override
 	public void uncaughtException(final Thread t, final Throwable e)
 	{
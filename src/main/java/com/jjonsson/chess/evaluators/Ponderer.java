@@ -0,0 +1,225 @@
+package com.jjonsson.chess.evaluators;
+
+import static com.jjonsson.chess.persistence.PersistanceLogging.SKIP_PERSISTANCE_LOGGING;
+import static com.jjonsson.utilities.Loggers.STDOUT;
+
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.exceptions.NoMovesAvailableException;
+import com.jjonsson.chess.exceptions.UnavailableMoveItem;
+import com.jjonsson.chess.moves.Move;
+import com.jjonsson.chess.persistence.MoveItem;
+
+/**
+ * Searches on the opponent's time: after the AI has moved, the reply that the search expected from the opponent
+ * is assumed and the AI's answer to it is searched for in the background.
+ * <br>If the opponent makes the expected move the result of that search is used, otherwise the background search is cancelled.
+ */
+public class Ponderer
+{
+	private final ChessBoard myBoard;
+
+	/**
+	 * The reply that the last search expected from the opponent, null if unknown
+	 */
+	private MoveItem myExpectedReply;
+
+	private Thread myPonderThread;
+	private SearchBudget myPonderBudget;
+	private long myPonderedPositionKey;
+	private volatile SearchResult myPonderResult;
+
+	private int myPonderHits;
+	private int myPonderMisses;
+
+	/**
+	 * @param board the board that the AI plays on
+	 */
+	public Ponderer(final ChessBoard board)
+	{
+		myBoard = board;
+	}
+
+	/**
+	 * Returns the move that was found while pondering if the opponent made the expected move,
+	 * otherwise (or if there is a book move) the best move is searched for as usual
+	 * @param budget the budget for the search, cancelling it stops the search (or the wait for the pondering to finish)
+	 * @return the best move for the current player, a move on the board given to the constructor.
+	 * If the budget was cancelled this may be null or a move from an unfinished search
+	 * @throws NoMovesAvailableException if the evaluation of available moves didn't return a move
+	 */
+	public Move getBestMove(final SearchBudget budget) throws NoMovesAvailableException
+	{
+		Move ponderedMove = takePonderedMove(budget);
+		if(budget.isCancelled())
+		{
+			return null;
+		}
+		if(ponderedMove != null)
+		{
+			return ponderedMove;
+		}
+		myExpectedReply = null;
+		Move bookMove = ChessMoveEvaluator.getBookMove(myBoard);
+		if(bookMove != null)
+		{
+			return bookMove;
+		}
+		SearchResult result = ChessMoveEvaluator.search(myBoard, budget);
+		myExpectedReply = result.getExpectedReply();
+		return result.getBestMove();
+	}
+
+	/**
+	 * Starts to search for an answer to the expected reply in the background (if a reply is expected),
+	 * should be called after the move from {@link #getBestMove(SearchBudget)} has been made
+	 */
+	public synchronized void startPondering()
+	{
+		cancel();
+		if(myExpectedReply == null || !ChessBoardEvaluator.inPlay(myBoard))
+		{
+			return;
+		}
+		final ChessBoard ponderBoard = myBoard.copy(SKIP_PERSISTANCE_LOGGING);
+		if(ponderBoard == null)
+		{
+			return;
+		}
+		//The background search isn't a search that the user asked for so it shouldn't show up in (or reset) the statistics
+		ponderBoard.removeStatisticsListener();
+		try
+		{
+			myExpectedReply.perform(ponderBoard);
+		}
+		catch(UnavailableMoveItem e)
+		{
+			STDOUT.debug("The expected reply " + myExpectedReply + " can't be made: " + e);
+			return;
+		}
+		final SearchBudget budget = new SearchBudget();
+		final SearchLimiter limiter = new SearchLimiter(myBoard.getDifficulty(), budget);
+		myPonderBudget = budget;
+		myPonderedPositionKey = ponderBoard.getPositionKey();
+		myPonderResult = null;
+		myPonderThread = new Thread(Ponderer.class.getName()){
+			@Override
+			public void run()
+			{
+				try
+				{
+					SearchResult result = ChessMoveEvaluator.search(ponderBoard, limiter);
+					if(!budget.isCancelled())
+					{
+						myPonderResult = result;
+					}
+				}
+				catch(NoMovesAvailableException e)
+				{
+					//The expected reply ends the game
+				}
+			}
+		};
+		myPonderThread.setDaemon(true);
+		myPonderThread.start();
+	}
+
+	/**
+	 * Stops the background search (without waiting for it)
+	 */
+	public synchronized void cancel()
+	{
+		if(myPonderThread != null)
+		{
+			myPonderBudget.cancel();
+			myPonderThread = null;
+			myPonderBudget = null;
+			myPonderResult = null;
+		}
+	}
+
+	/**
+	 * @return the reply that the opponent is expected to make to the last move from {@link #getBestMove(SearchBudget)}, null if unknown
+	 */
+	public MoveItem getExpectedReply()
+	{
+		return myExpectedReply;
+	}
+
+	/**
+	 * @return true if a background search has been started and not yet been used or cancelled
+	 */
+	public synchronized boolean isPondering()
+	{
+		return myPonderThread != null;
+	}
+
+	/**
+	 * @return the number of times the opponent made the expected reply
+	 */
+	public synchronized int getPonderHits()
+	{
+		return myPonderHits;
+	}
+
+	/**
+	 * @return the number of times the opponent didn't make the expected reply
+	 */
+	public synchronized int getPonderMisses()
+	{
+		return myPonderMisses;
+	}
+
+	/**
+	 * @return the move found while pondering (a move on the board) or null if the opponent didn't make the expected reply
+	 */
+	private Move takePonderedMove(final SearchBudget budget)
+	{
+		Thread ponderThread;
+		synchronized(this)
+		{
+			if(myPonderThread == null)
+			{
+				return null;
+			}
+			if(myBoard.getPositionKey() != myPonderedPositionKey)
+			{
+				myPonderMisses++;
+				cancel();
+				return null;
+			}
+			myPonderHits++;
+			ponderThread = myPonderThread;
+		}
+		try
+		{
+			//The search has had a head start, let it finish
+			ponderThread.join();
+		}
+		catch(InterruptedException e)
+		{
+			cancel();
+			budget.cancel();
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		SearchResult result;
+		synchronized(this)
+		{
+			result = myPonderResult;
+			myPonderThread = null;
+			myPonderBudget = null;
+			myPonderResult = null;
+		}
+		if(result == null || result.getBestMove() == null)
+		{
+			return null;
+		}
+		Move move = myBoard.getMove(result.getBestMove());
+		if(move != null)
+		{
+			STDOUT.debug("Using the pondered move: " + move);
+			myExpectedReply = result.getExpectedReply();
+		}
+		return move;
+	}
+}
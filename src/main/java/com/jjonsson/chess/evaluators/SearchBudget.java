@@ -0,0 +1,236 @@
+package com.jjonsson.chess.evaluators;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jjonsson.utilities.StripedCounter;
+
+/**
+ * A node and/or time budget that is shared by all the threads of one search.
+ * <br>When the budget is exhausted no branch is searched deeper, the moves that are being evaluated are still finished
+ * so there will always be a best move (a soft limit)
+ * <br>Each search thread counts its nodes in its own {@link SearchLimiter} and adds them to the budget every
+ * {@link #NODE_FLUSH_INTERVAL} nodes, that's also when the node and time limits are checked. The limits may therefore be
+ * overshot by up to {@link #NODE_FLUSH_INTERVAL} nodes per thread.
+ */
+public class SearchBudget
+{
+	public static final long UNLIMITED = Long.MAX_VALUE;
+
+	/**
+	 * How many nodes a search thread counts by itself before it adds them to the budget (see {@link SearchLimiter#nodeSearched()})
+	 */
+	static final int NODE_FLUSH_INTERVAL = 64;
+
+	/**
+	 * How often (in searched nodes) a progress sample is offered to the sample channel (if there is one)
+	 */
+	private static final int PROGRESS_SAMPLE_INTERVAL = 4096;
+
+	private final long myNodeLimit;
+	private final long myTimeLimitInNanos;
+	private final StripedCounter myNodesSearched;
+	private final AtomicLong myDeepestSearch;
+	private volatile long myStartTime;
+	private volatile long myElapsedNanos;
+	private volatile boolean myCancelled;
+	/**
+	 * Set when the budget is cancelled or when a limit has been reached, it's the only thing a search thread reads for each node
+	 */
+	private volatile boolean myExhausted;
+	private final SearchTelemetry myTelemetry;
+	private volatile SearchTracer myTracer;
+	private volatile SearchSampleChannel mySampleChannel;
+	private volatile boolean myPhaseTiming;
+
+	/**
+	 * Creates an unlimited budget (the search is only limited by the difficulty) that counts the searched nodes
+	 */
+	public SearchBudget()
+	{
+		this(UNLIMITED, UNLIMITED, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param nodeLimit the number of moves to evaluate before the budget is exhausted, or {@link #UNLIMITED}
+	 * @param timeLimit the time a search may take before the budget is exhausted, or {@link #UNLIMITED}
+	 * @param unit the unit of the time limit
+	 */
+	public SearchBudget(final long nodeLimit, final long timeLimit, final TimeUnit unit)
+	{
+		myNodeLimit = nodeLimit;
+		myTimeLimitInNanos = timeLimit == UNLIMITED ? UNLIMITED : unit.toNanos(timeLimit);
+		myNodesSearched = new StripedCounter();
+		myDeepestSearch = new AtomicLong();
+		myStartTime = System.nanoTime();
+		myElapsedNanos = -1;
+		myTelemetry = new SearchTelemetry(this);
+	}
+
+	/**
+	 * Resets the spent budget, called when a search starts
+	 * @param fullWidthDepth see {@link SearchLimiter#getFullWidthDepth()}
+	 */
+	void start(final long fullWidthDepth)
+	{
+		myNodesSearched.reset();
+		myDeepestSearch.set(0);
+		myExhausted = myCancelled;
+		myElapsedNanos = -1;
+		myTelemetry.reset(fullWidthDepth);
+		myStartTime = System.nanoTime();
+	}
+
+	/**
+	 * Called when a search has finished
+	 */
+	void finish()
+	{
+		myElapsedNanos = System.nanoTime() - myStartTime;
+	}
+
+	/**
+	 * Adds nodes that a search thread has counted by itself and checks the limits
+	 * @param nodes the number of nodes searched since the thread last added its nodes
+	 */
+	void nodesSearched(final long nodes)
+	{
+		myNodesSearched.add(nodes);
+		if(myTimeLimitInNanos != UNLIMITED && System.nanoTime() - myStartTime >= myTimeLimitInNanos)
+		{
+			myExhausted = true;
+		}
+		SearchSampleChannel channel = mySampleChannel;
+		if(myNodeLimit == UNLIMITED && channel == null)
+		{
+			return;
+		}
+		long total = myNodesSearched.sum();
+		if(total >= myNodeLimit)
+		{
+			myExhausted = true;
+		}
+		if(channel != null && total / PROGRESS_SAMPLE_INTERVAL != (total - nodes) / PROGRESS_SAMPLE_INTERVAL)
+		{
+			channel.offer(SearchSample.progress(myDeepestSearch.get(), total));
+		}
+	}
+
+	void reachedDepth(final long depth)
+	{
+		long deepest = myDeepestSearch.get();
+		while(depth > deepest && !myDeepestSearch.compareAndSet(deepest, depth))
+		{
+			deepest = myDeepestSearch.get();
+		}
+	}
+
+	/**
+	 * Makes this budget exhausted for good, this is the way to stop a search from another thread.
+	 * <br>The search that uses the budget polls it for each searched node and winds down as fast as it can,
+	 * workers doesn't start on new moves and moves being evaluated aren't searched deeper.
+	 * The best move found so far is returned from the search.
+	 */
+	public void cancel()
+	{
+		myCancelled = true;
+		myExhausted = true;
+	}
+
+	public boolean isCancelled()
+	{
+		return myCancelled;
+	}
+
+	/**
+	 * @return true if the search should stop going deeper
+	 */
+	public boolean isExhausted()
+	{
+		return myExhausted;
+	}
+
+	/**
+	 * @return the number of moves that has been evaluated since the search started,
+	 * while the search is running the nodes that the threads haven't added yet are missing
+	 */
+	public long getNodesSearched()
+	{
+		return myNodesSearched.sum();
+	}
+
+	/**
+	 * @return the time the last search took, or the time since it started if it's still running
+	 */
+	public long getElapsedNanos()
+	{
+		long elapsed = myElapsedNanos;
+		return elapsed >= 0 ? elapsed : System.nanoTime() - myStartTime;
+	}
+
+	/**
+	 * @return the measurements of the last (or current) search that used this budget
+	 */
+	public SearchTelemetry getTelemetry()
+	{
+		return myTelemetry;
+	}
+
+	/**
+	 * Makes the searches that uses this budget record their search trees with the given tracer
+	 * @param tracer the tracer or null to stop tracing
+	 */
+	public void setTracer(final SearchTracer tracer)
+	{
+		myTracer = tracer;
+	}
+
+	/**
+	 * @return the tracer that the search should record nodes with, null if the search isn't traced
+	 */
+	SearchTracer getTracer()
+	{
+		return myTracer;
+	}
+
+	/**
+	 * Makes the searches that uses this budget measure the time they spend on ordering, making, undoing and evaluating moves
+	 * (see {@link SearchTelemetry#getMakeNanos()} etc.), it's off by default as it costs a few {@link System#nanoTime()} calls per node.
+	 * <br>Searches of boards with a statistics listener always measure it.
+	 * It's read when a search starts so it doesn't affect a running search.
+	 */
+	public void setPhaseTiming(final boolean phaseTiming)
+	{
+		myPhaseTiming = phaseTiming;
+	}
+
+	boolean isPhaseTiming()
+	{
+		return myPhaseTiming;
+	}
+
+	/**
+	 * Makes the searches that uses this budget offer samples of their progress to the given channel
+	 * @param channel the channel or null to stop sampling
+	 */
+	public void setSampleChannel(final SearchSampleChannel channel)
+	{
+		mySampleChannel = channel;
+	}
+
+	/**
+	 * @return the channel that the search should offer samples to, null if the search isn't sampled
+	 */
+	SearchSampleChannel getSampleChannel()
+	{
+		return mySampleChannel;
+	}
+
+	/**
+	 * @return the number of steps ahead that the search reached on its deepest path
+	 */
+	public long getDeepestSearch()
+	{
+		return myDeepestSearch.get();
+	}
+}
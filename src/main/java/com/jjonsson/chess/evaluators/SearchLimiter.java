@@ -1,9 +1,15 @@
 package com.jjonsson.chess.evaluators;
 
+import com.jjonsson.chess.evaluators.tablebases.Tablebases;
+
 public class SearchLimiter
 {
 	static final long MAX_DEPTH = 2;
 	static final long MAX_BRANCH_MOVES = 30;
+	/**
+	 * Determines how badly we want to draw by repeating a previous position
+	 */
+	public static final int DEFAULT_REPITIVE_PUNISHMENT_FACTOR = 10;
 	private int myDifficulty;
 	/**
 	 * Used to limit the amount of moves to evaluate
@@ -19,23 +25,76 @@ public class SearchLimiter
 	 * this makes it possible to simulate that the player would have made the best move according to the same algorithm
 	 */
 	private long myScoreFactor;
+
+	/**
+	 * Shared between all the copies of this limiter
+	 */
+	private final SearchBudget myBudget;
+
+	private int myRepetitivePunishmentFactor;
+
+	/**
+	 * The id of the traced node whose replies are being searched, see {@link SearchTracer}
+	 */
+	private long myTraceParent;
+
+	/**
+	 * The nodes searched with this limiter that hasn't been added to the budget yet,
+	 * each search thread has its own copy of the limiter so this isn't shared
+	 */
+	private long myUnflushedNodes;
+
+	/**
+	 * Decided once per search (see {@link SearchBudget#setPhaseTiming(boolean)}) so that the nodes don't have to ask the budget
+	 */
+	private boolean myPhaseTiming;
+
+	/**
+	 * Each search thread gets its own (as it gets its own copy of the limiter)
+	 */
+	private final Tablebases.MaterialCache myMaterialCache;
 	
 	public SearchLimiter(int difficulty)
+	{
+		this(difficulty, new SearchBudget());
+	}
+
+	public SearchLimiter(int difficulty, SearchBudget budget)
 	{
 		myMovesLeft = MAX_BRANCH_MOVES;
 		myDepth = MAX_DEPTH;
 		myScoreFactor = 1;
 		myDifficulty = difficulty;
+		myBudget = budget;
+		myRepetitivePunishmentFactor = DEFAULT_REPITIVE_PUNISHMENT_FACTOR;
+		myTraceParent = SearchTracer.ROOT;
+		myMaterialCache = new Tablebases.MaterialCache();
 	}
 	
 	public SearchLimiter copy()
 	{
-		SearchLimiter copy = new SearchLimiter(myDifficulty);
+		SearchLimiter copy = new SearchLimiter(myDifficulty, myBudget);
 		copy.myScoreFactor = this.myScoreFactor;
 		copy.myMovesLeft = this.myMovesLeft;
 		copy.myDepth = this.myDepth;
+		copy.myRepetitivePunishmentFactor = this.myRepetitivePunishmentFactor;
+		copy.myTraceParent = this.myTraceParent;
+		copy.myPhaseTiming = this.myPhaseTiming;
 		return copy;
 	}
+
+	/**
+	 * @param factor how much lower than a draw a move that repeats a position is valued
+	 */
+	public void setRepetitivePunishmentFactor(int factor)
+	{
+		myRepetitivePunishmentFactor = factor;
+	}
+
+	int getRepetitivePunishmentFactor()
+	{
+		return myRepetitivePunishmentFactor;
+	}
 	
 	public void resetMovesLeft()
 	{
@@ -52,6 +111,43 @@ public class SearchLimiter
 		return myDifficulty;
 	}
 	
+	/**
+	 * @return the number of plies that the moves that pass the move filtering are searched to,
+	 * deeper than this only moves that take over a piece are searched
+	 */
+	long getFullWidthDepth()
+	{
+		return Math.max(myDifficulty, MAX_DEPTH + 1) + 1;
+	}
+
+	long getTraceParent()
+	{
+		return myTraceParent;
+	}
+
+	void setTraceParent(final long traceParent)
+	{
+		myTraceParent = traceParent;
+	}
+
+	/**
+	 * @return true if the time spent in the phases of each node should be measured (see {@link SearchTelemetry#getMakeNanos()} etc.)
+	 */
+	boolean isPhaseTiming()
+	{
+		return myPhaseTiming;
+	}
+
+	void setPhaseTiming(final boolean phaseTiming)
+	{
+		myPhaseTiming = phaseTiming;
+	}
+
+	Tablebases.MaterialCache getMaterialCache()
+	{
+		return myMaterialCache;
+	}
+
 	long getDepth()
 	{
 		return myDepth;
@@ -62,6 +158,34 @@ public class SearchLimiter
 		return myMovesLeft;
 	}
 	
+	public SearchBudget getBudget()
+	{
+		return myBudget;
+	}
+
+	/**
+	 * Counts a searched node, the count is added to the budget every {@link SearchBudget#NODE_FLUSH_INTERVAL} nodes
+	 */
+	void nodeSearched()
+	{
+		if(++myUnflushedNodes >= SearchBudget.NODE_FLUSH_INTERVAL)
+		{
+			flushNodes();
+		}
+	}
+
+	/**
+	 * Adds the nodes that hasn't been added to the budget yet, called when a thread is done with its part of the search
+	 */
+	void flushNodes()
+	{
+		if(myUnflushedNodes > 0)
+		{
+			myBudget.nodesSearched(myUnflushedNodes);
+			myUnflushedNodes = 0;
+		}
+	}
+	
 	long getScoreFactor()
 	{
 		return myScoreFactor;
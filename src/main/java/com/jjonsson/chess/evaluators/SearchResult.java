@@ -1,31 +1,66 @@
 package com.jjonsson.chess.evaluators;
 
 import com.jjonsson.chess.moves.Move;
+import com.jjonsson.chess.persistence.MoveItem;
 
 public class SearchResult
 {
 	private volatile Move myBestMove = null;
 	private volatile long myBestMoveValue = Long.MIN_VALUE;
+	/**
+	 * The move that the search expects the opponent to reply to the best move with (the second move of the principal variation)
+	 */
+	private volatile MoveItem myExpectedReply = null;
 
 	//TODO: sync the results of all threads after all threads have finished
 	synchronized void setBestMoveIfBetter(Move newBestMove, long newMoveValue)
+	{
+		setBestMoveIfBetter(newBestMove, newMoveValue, null);
+	}
+
+	synchronized void setBestMoveIfBetter(Move newBestMove, long newMoveValue, MoveItem expectedReply)
 	{
 		if(newMoveValue > myBestMoveValue || myBestMove == null)
 		{
 			myBestMove = newBestMove;
 			myBestMoveValue = newMoveValue;
+			myExpectedReply = expectedReply;
 		}
 	}
 	
-	synchronized long getBestMoveValue()
+	public synchronized long getBestMoveValue()
 	{
 		return myBestMoveValue;
 	}
 	
-	synchronized Move getBestMove()
+	public synchronized Move getBestMove()
 	{
 		return myBestMove;
 	}
+
+	/**
+	 * @return the reply that the opponent is expected to make to the best move, or null if the best move wasn't searched deeper
+	 */
+	public synchronized MoveItem getExpectedReply()
+	{
+		return myExpectedReply;
+	}
+	
+	/**
+	 * @return true if the value of the best move means that it leads to a mate (for either player), see {@link MateScore}
+	 */
+	public synchronized boolean isMate()
+	{
+		return myBestMove != null && MateScore.isMate(myBestMoveValue);
+	}
+
+	/**
+	 * @return the number of moves until the current player gives mate (positive) or gets mated (negative), only valid if {@link #isMate()}
+	 */
+	public synchronized long getMovesToMate()
+	{
+		return MateScore.getMovesToMate(myBestMoveValue);
+	}
 	
 	synchronized void applyPlayerAffinityFactor(long factor)
 	{
@@ -0,0 +1,81 @@
+package com.jjonsson.chess.evaluators;
+
+import com.jjonsson.chess.persistence.MoveItem;
+
+/**
+ * A snapshot of a running search, see {@link SearchSampleChannel}.
+ * <br>Samples are either taken when a move on the first level (a root move) has been evaluated, then the value of that
+ * move and the reply that the opponent is expected to make to it are included, or they are progress samples with only
+ * the depth and the number of nodes.
+ */
+public final class SearchSample
+{
+	private final MoveItem myRootMove;
+	private final long myRootMoveValue;
+	private final MoveItem myExpectedReply;
+	private final long myDepth;
+	private final long myNodes;
+
+	private SearchSample(final MoveItem rootMove, final long rootMoveValue, final MoveItem expectedReply, final long depth, final long nodes)
+	{
+		myRootMove = rootMove;
+		myRootMoveValue = rootMoveValue;
+		myExpectedReply = expectedReply;
+		myDepth = depth;
+		myNodes = nodes;
+	}
+
+	static SearchSample rootMove(final MoveItem rootMove, final long rootMoveValue, final MoveItem expectedReply, final long depth, final long nodes)
+	{
+		return new SearchSample(rootMove, rootMoveValue, expectedReply, depth, nodes);
+	}
+
+	static SearchSample progress(final long depth, final long nodes)
+	{
+		return new SearchSample(null, 0, null, depth, nodes);
+	}
+
+	/**
+	 * @return the root move that this sample was taken for, null for progress samples
+	 */
+	public MoveItem getRootMove()
+	{
+		return myRootMove;
+	}
+
+	/**
+	 * @return the value of the root move for the player that is searching, only valid if there is a root move
+	 */
+	public long getRootMoveValue()
+	{
+		return myRootMoveValue;
+	}
+
+	/**
+	 * @return the reply that the opponent is expected to make to the root move, null if the root move wasn't searched deeper
+	 */
+	public MoveItem getExpectedReply()
+	{
+		return myExpectedReply;
+	}
+
+	/**
+	 * @return the number of steps ahead that the search had reached on its deepest path, see {@link SearchBudget#getDeepestSearch()}
+	 */
+	public long getDepth()
+	{
+		return myDepth;
+	}
+
+	public long getNodes()
+	{
+		return myNodes;
+	}
+
+	@Override
+	public String toString()
+	{
+		return (myRootMove != null ? myRootMove + " " + myExpectedReply + " (" + myRootMoveValue + "), " : "")
+				+ "depth: " + myDepth + ", nodes: " + myNodes;
+	}
+}
@@ -0,0 +1,143 @@
+package com.jjonsson.chess.evaluators;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Hands samples of a running search (see {@link SearchSample}) to a reader on another thread, typically the GUI.
+ * <br>The search threads never wait: offering a sample is one atomic increment and one compare-and-set in a ring buffer,
+ * when the reader falls behind the oldest samples are overwritten (dropped) instead. A slot only ever goes to a later sample
+ * so a writer that is overtaken by a writer one lap ahead drops its sample instead of hiding the later one from the reader.
+ * <br>Any number of threads may offer samples but only one thread should read them.
+ * <br>Opt-in per search, see {@link SearchBudget#setSampleChannel(SearchSampleChannel)}
+ */
+public final class SearchSampleChannel
+{
+	/**
+	 * Must be a power of two
+	 */
+	static final int DEFAULT_CAPACITY = 64;
+
+	/**
+	 * A sample and the sequence number it was offered with, the sequence number tells the reader if the slot
+	 * has been written yet or if it has been overwritten
+	 */
+	private static final class Slot
+	{
+		private final long mySequence;
+		private final SearchSample mySample;
+
+		private Slot(final long sequence, final SearchSample sample)
+		{
+			mySequence = sequence;
+			mySample = sample;
+		}
+	}
+
+	private final AtomicReferenceArray<Slot> mySlots;
+	private final int myMask;
+	private final AtomicLong myNextSequence;
+	private final AtomicLong myDroppedSamples;
+
+	/**
+	 * Only used by the reader
+	 */
+	private long myNextToRead;
+
+	public SearchSampleChannel()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity the number of samples that can wait to be read, must be a power of two
+	 */
+	SearchSampleChannel(final int capacity)
+	{
+		if(Integer.bitCount(capacity) != 1)
+		{
+			throw new IllegalArgumentException("The capacity must be a power of two, was: " + capacity);
+		}
+		mySlots = new AtomicReferenceArray<Slot>(capacity);
+		myMask = capacity - 1;
+		myNextSequence = new AtomicLong();
+		myDroppedSamples = new AtomicLong();
+	}
+
+	/**
+	 * Never blocks, if the channel is full the oldest sample is overwritten
+	 */
+	void offer(final SearchSample sample)
+	{
+		write(claim(), sample);
+	}
+
+	/**
+	 * @return the sequence number that the next sample should be written with
+	 */
+	@VisibleForTesting
+	long claim()
+	{
+		return myNextSequence.getAndIncrement();
+	}
+
+	@VisibleForTesting
+	void write(final long sequence, final SearchSample sample)
+	{
+		int index = (int) (sequence & myMask);
+		Slot slot = new Slot(sequence, sample);
+		Slot current = mySlots.get(index);
+		while(current == null || current.mySequence < sequence)
+		{
+			if(mySlots.compareAndSet(index, current, slot))
+			{
+				return;
+			}
+			current = mySlots.get(index);
+		}
+		//A later sample is already in the slot, the reader counts this one as dropped when it finds the later one
+	}
+
+	/**
+	 * Moves the samples that have been offered since the last call to the given collection, in the order they were offered.
+	 * <br>Samples that were overwritten before they could be read are counted as dropped, see {@link #getDroppedSamples()}
+	 * @return the number of samples that were added to the given collection
+	 */
+	public int drainTo(final Collection<SearchSample> samples)
+	{
+		long end = myNextSequence.get();
+		int drained = 0;
+		while(myNextToRead < end)
+		{
+			Slot slot = mySlots.get((int) (myNextToRead & myMask));
+			if(slot == null || slot.mySequence < myNextToRead)
+			{
+				//The sample has been claimed but not written yet, it's read the next time
+				break;
+			}
+			if(slot.mySequence > myNextToRead)
+			{
+				//Overwritten, only the latest samples (as many as there are slots) can still be there
+				long dropped = Math.max(myNextToRead + 1, end - mySlots.length()) - myNextToRead;
+				myDroppedSamples.addAndGet(dropped);
+				myNextToRead += dropped;
+				continue;
+			}
+			samples.add(slot.mySample);
+			drained++;
+			myNextToRead++;
+		}
+		return drained;
+	}
+
+	/**
+	 * @return the number of samples that were overwritten because the reader didn't keep up
+	 */
+	public long getDroppedSamples()
+	{
+		return myDroppedSamples.get();
+	}
+}
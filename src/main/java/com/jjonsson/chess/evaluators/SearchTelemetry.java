@@ -0,0 +1,227 @@
+package com.jjonsson.chess.evaluators;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jjonsson.utilities.JsonLine;
+import com.jjonsson.utilities.StripedCounter;
+
+/**
+ * Measurements of how a search went, collected by all the threads of one search (see {@link SearchBudget#getTelemetry()}).
+ * <br>The search has no transposition table or quiescence search so the corresponding measurements are
+ * the moves searched beyond the full width depth because they took over a piece (capture extensions)
+ * and how often the first move (in the {@link com.jjonsson.chess.evaluators.orderings.MoveOrdering}) remained the best one on a branch.
+ * <br>The times spent on ordering, making, undoing and evaluating moves are zero unless they were asked for (see {@link SearchBudget#setPhaseTiming(boolean)}).
+ */
+public class SearchTelemetry
+{
+	private final SearchBudget myBudget;
+
+	private final StripedCounter myExtensionNodes;
+	private final StripedCounter myExpandedNodes;
+	private final StripedCounter myChildrenSearched;
+	private final StripedCounter myFirstMoveBest;
+	private final StripedCounter myOrderingNanos;
+	private final StripedCounter myMakeNanos;
+	private final StripedCounter myUnmakeNanos;
+	private final StripedCounter myEvaluationNanos;
+	private final AtomicLong mySelectiveDepth;
+	private volatile long myFullWidthDepth;
+
+	SearchTelemetry(final SearchBudget budget)
+	{
+		myBudget = budget;
+		myExtensionNodes = new StripedCounter();
+		myExpandedNodes = new StripedCounter();
+		myChildrenSearched = new StripedCounter();
+		myFirstMoveBest = new StripedCounter();
+		myOrderingNanos = new StripedCounter();
+		myMakeNanos = new StripedCounter();
+		myUnmakeNanos = new StripedCounter();
+		myEvaluationNanos = new StripedCounter();
+		mySelectiveDepth = new AtomicLong();
+	}
+
+	void reset(final long fullWidthDepth)
+	{
+		myExtensionNodes.reset();
+		myExpandedNodes.reset();
+		myChildrenSearched.reset();
+		myFirstMoveBest.reset();
+		myOrderingNanos.reset();
+		myMakeNanos.reset();
+		myUnmakeNanos.reset();
+		myEvaluationNanos.reset();
+		mySelectiveDepth.set(0);
+		myFullWidthDepth = fullWidthDepth;
+	}
+
+	/**
+	 * @param ply how many moves ahead (counting the evaluated move) the evaluated move is
+	 */
+	void nodeEvaluated(final long ply)
+	{
+		if(ply > myFullWidthDepth)
+		{
+			myExtensionNodes.increment();
+		}
+		long deepest = mySelectiveDepth.get();
+		while(ply > deepest && !mySelectiveDepth.compareAndSet(deepest, ply))
+		{
+			deepest = mySelectiveDepth.get();
+		}
+	}
+
+	/**
+	 * @param children the number of moves that was searched from the expanded position
+	 * @param firstMoveWasBest true if the first searched move ended up as the best move
+	 */
+	void nodeExpanded(final long children, final boolean firstMoveWasBest)
+	{
+		myExpandedNodes.increment();
+		myChildrenSearched.add(children);
+		if(firstMoveWasBest)
+		{
+			myFirstMoveBest.increment();
+		}
+	}
+
+	void ordered(final long nanos)
+	{
+		myOrderingNanos.add(nanos);
+	}
+
+	void made(final long nanos)
+	{
+		myMakeNanos.add(nanos);
+	}
+
+	void unmade(final long nanos)
+	{
+		myUnmakeNanos.add(nanos);
+	}
+
+	void evaluated(final long nanos)
+	{
+		myEvaluationNanos.add(nanos);
+	}
+
+	/**
+	 * @return the number of evaluated moves, see {@link SearchBudget#getNodesSearched()}
+	 */
+	public long getNodes()
+	{
+		return myBudget.getNodesSearched();
+	}
+
+	/**
+	 * @return the number of moves that was evaluated beyond the full width depth because they took over a piece
+	 */
+	public long getExtensionNodes()
+	{
+		return myExtensionNodes.sum();
+	}
+
+	public double getNodesPerSecond()
+	{
+		return getNodes() / ((double) myBudget.getElapsedNanos() / SECONDS.toNanos(1));
+	}
+
+	/**
+	 * @return the number of plies that all moves that passed the move filtering was searched to
+	 */
+	public long getDepth()
+	{
+		return Math.min(myFullWidthDepth, getSelectiveDepth());
+	}
+
+	/**
+	 * @return the number of plies on the deepest searched path
+	 */
+	public long getSelectiveDepth()
+	{
+		return mySelectiveDepth.get();
+	}
+
+	/**
+	 * @return the average number of moves searched from each expanded position
+	 */
+	public double getBranchingFactor()
+	{
+		return (double) myChildrenSearched.sum() / myExpandedNodes.sum();
+	}
+
+	/**
+	 * @return the branching factor that a uniform tree of {@link #getDepth()} plies with the same number of nodes would have
+	 */
+	public double getEffectiveBranchingFactor()
+	{
+		return Math.pow(getNodes(), 1.0 / getDepth());
+	}
+
+	/**
+	 * @return the share of expanded positions where the first searched move was the best one,
+	 * this measures how good the move ordering is
+	 */
+	public double getFirstMoveBestRate()
+	{
+		return (double) myFirstMoveBest.sum() / myExpandedNodes.sum();
+	}
+
+	/**
+	 * @return the time (summed over all threads) spent on sorting moves
+	 */
+	public long getOrderingNanos()
+	{
+		return myOrderingNanos.sum();
+	}
+
+	/**
+	 * @return the time (summed over all threads) spent on making moves
+	 */
+	public long getMakeNanos()
+	{
+		return myMakeNanos.sum();
+	}
+
+	/**
+	 * @return the time (summed over all threads) spent on undoing moves
+	 */
+	public long getUnmakeNanos()
+	{
+		return myUnmakeNanos.sum();
+	}
+
+	/**
+	 * @return the time (summed over all threads) spent on measuring positions
+	 */
+	public long getEvaluationNanos()
+	{
+		return myEvaluationNanos.sum();
+	}
+
+	/**
+	 * Adds the measurements to the given line
+	 * @return the given line
+	 */
+	public JsonLine addTo(final JsonLine line)
+	{
+		return line.add("nodes", getNodes()).add("extensionNodes", getExtensionNodes())
+				.add("nodesPerSecond", getNodesPerSecond()).add("millis", NANOSECONDS.toMillis(myBudget.getElapsedNanos()))
+				.add("depth", getDepth()).add("selectiveDepth", getSelectiveDepth())
+				.add("branchingFactor", getBranchingFactor()).add("effectiveBranchingFactor", getEffectiveBranchingFactor())
+				.add("firstMoveBestRate", getFirstMoveBestRate())
+				.add("orderingNanos", getOrderingNanos()).add("makeNanos", getMakeNanos())
+				.add("unmakeNanos", getUnmakeNanos()).add("evaluationNanos", getEvaluationNanos());
+	}
+
+	/**
+	 * @return the measurements as a JSON object on a single line
+	 */
+	public JsonLine toJsonLine()
+	{
+		return addTo(new JsonLine());
+	}
+}
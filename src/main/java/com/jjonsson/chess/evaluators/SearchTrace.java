@@ -0,0 +1,344 @@
+package com.jjonsson.chess.evaluators;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import com.jjonsson.chess.moves.ImmutablePosition;
+
+/**
+ * A search tree recorded by a {@link SearchTracer}, summarizes where the nodes of the search went
+ */
+public class SearchTrace
+{
+	private static final String[] REASONS = {"searched deeper", "game over", "invalid move", "budget exhausted", "filtered on branch", "depth reached", "tablebase hit", "draw"};
+
+	private final String myFen;
+
+	/**
+	 * Indexed by node id, the root (id 0) is the searched position
+	 */
+	private int myNodeCount;
+	private int[] myParents;
+	private byte[] myPlies;
+	private byte[] myFroms;
+	private byte[] myTos;
+	private byte[] myReasons;
+	private long[] myScores;
+	private int[] mySubtreeSizes;
+	private short[] mySearchedMoves;
+	private short[] myBestMoveRanks;
+	private int[] myBestChildren;
+	private short[] myBestMoves;
+
+	private SearchTrace(final String fen)
+	{
+		myFen = fen;
+		int capacity = 1 << 10;
+		myParents = new int[capacity];
+		myPlies = new byte[capacity];
+		myFroms = new byte[capacity];
+		myTos = new byte[capacity];
+		myReasons = new byte[capacity];
+		myScores = new long[capacity];
+		mySearchedMoves = new short[capacity];
+		myBestMoveRanks = new short[capacity];
+		myBestMoves = new short[capacity];
+		Arrays.fill(myBestMoveRanks, (short) -1);
+	}
+
+	/**
+	 * @param fileName a file written by a {@link SearchTracer}
+	 * @throws IOException if the file couldn't be read or if it isn't a search trace
+	 */
+	public static SearchTrace read(final String fileName) throws IOException
+	{
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16));
+		try
+		{
+			if(input.readInt() != SearchTracer.MAGIC || input.readInt() != SearchTracer.VERSION)
+			{
+				throw new IOException(fileName + " isn't a search trace");
+			}
+			SearchTrace trace = new SearchTrace(input.readUTF());
+			trace.readRecords(input);
+			trace.linkNodes();
+			return trace;
+		}
+		finally
+		{
+			input.close();
+		}
+	}
+
+	private void readRecords(final DataInputStream input) throws IOException
+	{
+		while(true)
+		{
+			int type = input.read();
+			if(type == -1)
+			{
+				return;
+			}
+			try
+			{
+				if(type == SearchTracer.NODE_RECORD)
+				{
+					int id = toIndex(input.readLong());
+					ensureCapacity(id);
+					myParents[id] = toIndex(input.readLong());
+					myPlies[id] = input.readByte();
+					myFroms[id] = input.readByte();
+					myTos[id] = input.readByte();
+					myReasons[id] = input.readByte();
+					myScores[id] = input.readLong();
+					myNodeCount = Math.max(myNodeCount, id);
+				}
+				else if(type == SearchTracer.EXPANSION_RECORD)
+				{
+					int id = toIndex(input.readLong());
+					ensureCapacity(id);
+					mySearchedMoves[id] = input.readShort();
+					myBestMoveRanks[id] = input.readShort();
+					myBestMoves[id] = (short) ((input.readByte() << Byte.SIZE) | (input.readByte() & 0xFF));
+				}
+				else
+				{
+					throw new IOException("Unknown record type: " + type);
+				}
+			}
+			catch(EOFException e)
+			{
+				//The trace was cut off (the search may still be running), use the complete records
+				return;
+			}
+		}
+	}
+
+	private static int toIndex(final long id) throws IOException
+	{
+		if(id < 0 || id >= Integer.MAX_VALUE)
+		{
+			throw new IOException("Invalid node id: " + id);
+		}
+		return (int) id;
+	}
+
+	private void ensureCapacity(final int id)
+	{
+		if(id < myParents.length)
+		{
+			return;
+		}
+		int oldCapacity = myParents.length;
+		int capacity = Math.max(id + 1, oldCapacity * 2);
+		myParents = Arrays.copyOf(myParents, capacity);
+		myPlies = Arrays.copyOf(myPlies, capacity);
+		myFroms = Arrays.copyOf(myFroms, capacity);
+		myTos = Arrays.copyOf(myTos, capacity);
+		myReasons = Arrays.copyOf(myReasons, capacity);
+		myScores = Arrays.copyOf(myScores, capacity);
+		mySearchedMoves = Arrays.copyOf(mySearchedMoves, capacity);
+		myBestMoveRanks = Arrays.copyOf(myBestMoveRanks, capacity);
+		Arrays.fill(myBestMoveRanks, oldCapacity, capacity, (short) -1);
+		myBestMoves = Arrays.copyOf(myBestMoves, capacity);
+	}
+
+	/**
+	 * Calculates the subtree sizes and finds the best child of each expanded node
+	 */
+	private void linkNodes()
+	{
+		mySubtreeSizes = new int[myNodeCount + 1];
+		myBestChildren = new int[myNodeCount + 1];
+		Arrays.fill(myBestChildren, -1);
+		//A child always gets a higher id than its parent
+		for(int id = myNodeCount; id > 0; id--)
+		{
+			mySubtreeSizes[id]++;
+			int parent = myParents[id];
+			mySubtreeSizes[parent] += mySubtreeSizes[id];
+			if(myBestMoveRanks[parent] >= 0 && myBestMoves[parent] == (short) ((myFroms[id] << Byte.SIZE) | (myTos[id] & 0xFF)))
+			{
+				myBestChildren[parent] = id;
+			}
+		}
+	}
+
+	/**
+	 * @return the searched position
+	 */
+	public String getFen()
+	{
+		return myFen;
+	}
+
+	/**
+	 * @return the number of traced moves
+	 */
+	public int getNodeCount()
+	{
+		return myNodeCount;
+	}
+
+	/**
+	 * @return the number of traced moves below (and including) the given node
+	 */
+	public int getSubtreeSize(final int id)
+	{
+		return id == 0 ? myNodeCount : mySubtreeSizes[id];
+	}
+
+	/**
+	 * @return the ids of the moves made from the given node
+	 */
+	public List<Integer> getChildren(final int id)
+	{
+		List<Integer> children = Lists.newArrayList();
+		for(int child = id + 1; child <= myNodeCount; child++)
+		{
+			if(myParents[child] == id)
+			{
+				children.add(child);
+			}
+		}
+		return children;
+	}
+
+	/**
+	 * @return the moves from the searched position to the given node, like "2E-4E 7D-5D"
+	 */
+	public String getPath(final int id)
+	{
+		List<String> moves = Lists.newArrayList();
+		for(int node = id; node != 0; node = myParents[node])
+		{
+			moves.add(getMove(node));
+		}
+		Collections.reverse(moves);
+		StringBuilder path = new StringBuilder();
+		for(String move : moves)
+		{
+			path.append(path.length() > 0 ? " " : "").append(move);
+		}
+		return path.toString();
+	}
+
+	private String getMove(final int id)
+	{
+		return position(myFroms[id]) + "-" + position(myTos[id]);
+	}
+
+	private static String position(final byte persistence)
+	{
+		return persistence == -1 ? "?" : ImmutablePosition.from(persistence).toString();
+	}
+
+	/**
+	 * @return the ordering rank of the best reply to the given node, -1 if it wasn't expanded or if no reply was good enough
+	 */
+	public int getBestMoveRank(final int id)
+	{
+		return myBestMoveRanks[id];
+	}
+
+	/**
+	 * Writes a summary of where the nodes went: per ply, per reason, per root move and
+	 * the largest subtrees where the move ordering didn't put the best move first
+	 * @param top how many of the ordering mistakes to list
+	 */
+	public void summarize(final Writer output, final int top)
+	{
+		PrintWriter out = new PrintWriter(output);
+		out.println("Position: " + myFen);
+		out.println("Nodes: " + myNodeCount);
+
+		int[] plies = new int[Byte.MAX_VALUE + 1];
+		int[] reasons = new int[REASONS.length];
+		int expansions = 0;
+		List<Integer> orderingMistakes = Lists.newArrayList();
+		int[] ranks = new int[Short.MAX_VALUE + 1];
+		for(int id = 0; id <= myNodeCount; id++)
+		{
+			if(id > 0)
+			{
+				plies[Math.max(myPlies[id], 0)]++;
+				if(myReasons[id] >= 0 && myReasons[id] < REASONS.length)
+				{
+					reasons[myReasons[id]]++;
+				}
+			}
+			if(myBestMoveRanks[id] >= 0)
+			{
+				expansions++;
+				ranks[myBestMoveRanks[id]]++;
+				if(myBestMoveRanks[id] > 0)
+				{
+					orderingMistakes.add(id);
+				}
+			}
+		}
+
+		out.println("Nodes per ply:");
+		for(int ply = 0; ply < plies.length; ply++)
+		{
+			if(plies[ply] > 0)
+			{
+				out.println("  " + ply + ": " + plies[ply]);
+			}
+		}
+		out.println("Why moves were (not) searched deeper:");
+		for(int reason = 0; reason < REASONS.length; reason++)
+		{
+			out.println("  " + REASONS[reason] + ": " + reasons[reason]);
+		}
+
+		out.println("Root moves (by subtree size):");
+		List<Integer> rootMoves = getChildren(0);
+		Collections.sort(rootMoves, new SubtreeSizeOrdering());
+		for(int id : rootMoves)
+		{
+			out.println(String.format("  %-6s %8d nodes %5.1f%% score %d%s", getMove(id), mySubtreeSizes[id],
+					100.0 * mySubtreeSizes[id] / Math.max(myNodeCount, 1), myScores[id], id == myBestChildren[0] ? " (best)" : ""));
+		}
+
+		out.println(String.format("Ordering mistakes: %d of %d expanded positions (%.1f%%)", orderingMistakes.size(), expansions,
+				100.0 * orderingMistakes.size() / Math.max(expansions, 1)));
+		out.println("Rank of the best move:");
+		for(int rank = 0; rank < ranks.length; rank++)
+		{
+			if(ranks[rank] > 0)
+			{
+				out.println("  " + rank + ": " + ranks[rank]);
+			}
+		}
+		out.println("Largest subtrees with ordering mistakes:");
+		Collections.sort(orderingMistakes, new SubtreeSizeOrdering());
+		for(int id : orderingMistakes.subList(0, Math.min(top, orderingMistakes.size())))
+		{
+			String bestReply = myBestChildren[id] != -1 ? getMove(myBestChildren[id]) : "?";
+			out.println(String.format("  %s: %d nodes, best reply %s was ordered %d of %d", id == 0 ? "(root)" : getPath(id),
+					getSubtreeSize(id), bestReply, myBestMoveRanks[id] + 1, mySearchedMoves[id]));
+		}
+		out.flush();
+	}
+
+	private final class SubtreeSizeOrdering implements Comparator<Integer>
+	{
+		@Override
+		public int compare(final Integer first, final Integer second)
+		{
+			return Ints.compare(getSubtreeSize(second), getSubtreeSize(first));
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.jjonsson.chess.evaluators;
+
+import static com.jjonsson.utilities.Loggers.STDERR;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.moves.ImmutablePosition;
+import com.jjonsson.chess.moves.Move;
+import com.jjonsson.chess.persistence.FenNotation;
+
+/**
+ * Records the tree that a search explores to a compact binary file, read it with {@link SearchTrace}.
+ * <br>Tracing is opt-in per search (see {@link SearchBudget#setTracer(SearchTracer)}), the records are streamed
+ * through a fixed size buffer so deep searches can be traced with bounded memory.
+ * <br>The file starts with a header (magic, version and the FEN of the searched position) followed by records:
+ * <ul>
+ * <li>{@link #NODE_RECORD}: id, parent id, ply, from, to, the reason the move was or wasn't searched deeper and its score</li>
+ * <li>{@link #EXPANSION_RECORD}: the id of a searched position (0 for the root), the number of searched moves,
+ * the ordering rank of the move that turned out to be the best one (-1 if none) and its from and to positions</li>
+ * </ul>
+ * Records are written when a node is finished, children are thus written before their parents.
+ */
+public class SearchTracer implements Closeable
+{
+	static final int MAGIC = 0x43485354;
+	static final int VERSION = 1;
+
+	static final byte NODE_RECORD = 1;
+	static final byte EXPANSION_RECORD = 2;
+
+	/**
+	 * The id of the searched position
+	 */
+	static final long ROOT = 0;
+
+	/**
+	 * Reasons for why a move was or wasn't searched deeper
+	 */
+	static final byte SEARCHED_DEEPER = 0;
+	static final byte GAME_OVER = 1;
+	static final byte INVALID_MOVE = 2;
+	static final byte BUDGET_EXHAUSTED = 3;
+	static final byte BRANCH_FILTERED = 4;
+	static final byte DEPTH_REACHED = 5;
+	static final byte TABLEBASE_HIT = 6;
+	static final byte DRAW = 7;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final DataOutputStream myOutput;
+	private final AtomicLong myNextNodeId;
+	private volatile boolean myFailed;
+
+	/**
+	 * @param fileName the file to write the trace to (replaced if it exists)
+	 * @param board the board that is going to be searched
+	 */
+	public SearchTracer(final String fileName, final ChessBoard board) throws IOException
+	{
+		myOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), BUFFER_SIZE));
+		myOutput.writeInt(MAGIC);
+		myOutput.writeInt(VERSION);
+		myOutput.writeUTF(FenNotation.toFen(board));
+		myNextNodeId = new AtomicLong(ROOT);
+	}
+
+	long nextNodeId()
+	{
+		return myNextNodeId.incrementAndGet();
+	}
+
+	/**
+	 * @return the number of nodes that has been traced
+	 */
+	public long getNodeCount()
+	{
+		return myNextNodeId.get();
+	}
+
+	void node(final long id, final long parent, final long ply, final Move move, final byte reason, final long score)
+	{
+		if(myFailed)
+		{
+			return;
+		}
+		synchronized(myOutput)
+		{
+			try
+			{
+				myOutput.writeByte(NODE_RECORD);
+				myOutput.writeLong(id);
+				myOutput.writeLong(parent);
+				myOutput.writeByte((int) ply);
+				myOutput.writeByte(persistence(move.getCurrentPosition()));
+				myOutput.writeByte(persistence(move.getDestination()));
+				myOutput.writeByte(reason);
+				myOutput.writeLong(score);
+			}
+			catch(IOException e)
+			{
+				failed(e);
+			}
+		}
+	}
+
+	/**
+	 * @param bestMove the best of the searched moves, null if none of them were good enough
+	 */
+	void expanded(final long id, final int searchedMoves, final int bestMoveRank, final Move bestMove)
+	{
+		if(myFailed)
+		{
+			return;
+		}
+		synchronized(myOutput)
+		{
+			try
+			{
+				myOutput.writeByte(EXPANSION_RECORD);
+				myOutput.writeLong(id);
+				myOutput.writeShort(searchedMoves);
+				myOutput.writeShort(bestMoveRank);
+				myOutput.writeByte(bestMove == null ? -1 : persistence(bestMove.getCurrentPosition()));
+				myOutput.writeByte(bestMove == null ? -1 : persistence(bestMove.getDestination()));
+			}
+			catch(IOException e)
+			{
+				failed(e);
+			}
+		}
+	}
+
+	private static byte persistence(final ImmutablePosition position)
+	{
+		return position == null ? -1 : position.getPersistence();
+	}
+
+	private void failed(final IOException e)
+	{
+		myFailed = true;
+		STDERR.error("Failed to write the search trace, tracing stopped", e);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		synchronized(myOutput)
+		{
+			myOutput.close();
+		}
+	}
+}
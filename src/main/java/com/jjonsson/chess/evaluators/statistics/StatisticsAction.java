@@ -3,10 +3,14 @@ package com.jjonsson.chess.evaluators.statistics;
 public enum StatisticsAction
 {
 	RESET,
+	/**
+	 * A move evaluated outside of a search (searches are counted by their budgets), it's counted directly by the calling thread
+	 * and the listener is notified of it with the next snapshot
+	 */
 	MOVE_EVALUATED,
 	MOVE_EVALUATION_STOPPED,
 	/**
-	 * Action used to stop the tracking thread
+	 * Action used to stop the thread that notifies the listener
 	 */
 	INTERRUPT_TRACKING
 }
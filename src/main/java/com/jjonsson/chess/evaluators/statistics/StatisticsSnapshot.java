@@ -10,7 +10,7 @@ public class StatisticsSnapshot
 
 	public StatisticsSnapshot(final StatisticsTracker statisticsTracker)
 	{
-		myMovesMade = statisticsTracker.myMovesMade;
+		myMovesMade = statisticsTracker.getMovesMade();
 		myStartTime = statisticsTracker.myStartTime;
 		myEndTime = statisticsTracker.myTemporaryEndTime;
 	}
@@ -1,27 +1,37 @@
 package com.jjonsson.chess.evaluators.statistics;
 
-import java.util.concurrent.BlockingDeque;
-import java.util.concurrent.LinkedBlockingDeque;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
+import com.jjonsson.chess.evaluators.SearchBudget;
+import com.jjonsson.chess.evaluators.SearchTelemetry;
 import com.jjonsson.chess.listeners.StatisticsListener;
+import com.jjonsson.utilities.StripedCounter;
 
 /**
  * A tracker that notifies the {@link StatisticsListener} when statistics changes occur
+ * <br>The moves evaluated by a search are read from the node count of its {@link SearchBudget} (see {@link #searchStarted(SearchBudget)})
+ * so the search threads doesn't count them twice. Moves evaluated outside of a search are counted with {@link StatisticsAction#MOVE_EVALUATED}.
+ * A poller thread takes snapshots of the counts every {@link StatisticsListener#notificationIntervalInNanos()}.
  * @author jonatanjoensson
  *
  */
 public class StatisticsTracker
 {
 	private StatisticsListener myListener;
-	private long myLastNotificationNanoTime;
 	private long myNotificationIntervaInNanos;
-	private BlockingDeque<StatisticsAction> myWorkQueue;
+	private Thread myPoller;
+
+	/**
+	 * Set when something other than an evaluated move has happened, makes the next poll notify the listener
+	 */
+	private volatile boolean myStateChanged;
 
 	/**
 	 * Measurements
 	 */
-	long myMovesMade;
-	long myStartTime;
+	final StripedCounter myMovesMade;
+	private volatile SearchBudget myBudget;
+	volatile long myStartTime;
 
 	long myTemporaryEndTime;
 
@@ -29,14 +39,16 @@ public class StatisticsTracker
 	{
 		myListener = listener;
 		myNotificationIntervaInNanos = listener.notificationIntervalInNanos();
+		myMovesMade = new StripedCounter();
+		myStartTime = System.nanoTime();
 
-		//This makes the first action trigger a notification
-		myLastNotificationNanoTime = -myNotificationIntervaInNanos;
-
-		myWorkQueue = new LinkedBlockingDeque<StatisticsAction>();
+		//This makes the first poll trigger a notification
+		myStateChanged = true;
 
-		//Startup the daemon that listens for statistics changes
-		new Thread(new QueueWorker(), getClass().getName()).start();
+		//Startup the daemon that notifies the listener of statistics changes
+		myPoller = new Thread(new Poller(), getClass().getName());
+		myPoller.setDaemon(true);
+		myPoller.start();
 	}
 
 	/**
@@ -45,7 +57,55 @@ public class StatisticsTracker
 	 */
 	public void perform(final StatisticsAction action)
 	{
-		myWorkQueue.add(action);
+		if(action == StatisticsAction.MOVE_EVALUATED)
+		{
+			//The hot path of the search
+			myMovesMade.increment();
+			return;
+		}
+		switch(action)
+		{
+			case RESET:
+				myMovesMade.reset();
+				myBudget = null;
+				myStartTime = System.nanoTime();
+				break;
+			case INTERRUPT_TRACKING:
+				myPoller.interrupt();
+				break;
+			default:
+				break;
+		}
+		myStateChanged = true;
+	}
+
+	/**
+	 * Resets the statistics and starts to count the moves evaluated by a search
+	 * @param budget the (started) budget of the search, its node count is read until the next search starts
+	 */
+	public void searchStarted(final SearchBudget budget)
+	{
+		myMovesMade.reset();
+		myBudget = budget;
+		myStartTime = System.nanoTime();
+		myStateChanged = true;
+	}
+
+	/**
+	 * @return the moves evaluated since the last reset
+	 */
+	long getMovesMade()
+	{
+		SearchBudget budget = myBudget;
+		return myMovesMade.sum() + (budget != null ? budget.getNodesSearched() : 0);
+	}
+
+	/**
+	 * Notifies the listener (in the calling thread) about the measurements of a finished search
+	 */
+	public void searchFinished(final SearchTelemetry telemetry)
+	{
+		myListener.searchFinished(telemetry);
 	}
 
 	public synchronized StatisticsSnapshot createSnapshotForCurrentStatistics()
@@ -55,50 +115,30 @@ public class StatisticsTracker
 		return new StatisticsSnapshot(StatisticsTracker.this);
 	}
 
-	private final class QueueWorker implements Runnable
+	private final class Poller implements Runnable
 	{
 		@Override public void run()
 		{
+			long lastMovesMade = -1;
 			while(true)
 			{
 				try
 				{
-					StatisticsAction action = myWorkQueue.take();
-
-					switch(action)
-					{
-						case RESET:
-							myMovesMade = 0;
-							myStartTime = System.nanoTime();
-							break;
-						case MOVE_EVALUATED:
-							myMovesMade++;
-							break;
-						case MOVE_EVALUATION_STOPPED:
-							//This Nothing to do here?
-							break;
-						case INTERRUPT_TRACKING:
-							throw new InterruptedException();
-					}
-					if(timeToNotify(action))
+					long movesMade = getMovesMade();
+					if(movesMade != lastMovesMade || myStateChanged)
 					{
+						myStateChanged = false;
+						lastMovesMade = movesMade;
 						myListener.newStatistics(createSnapshotForCurrentStatistics());
-						myLastNotificationNanoTime = System.nanoTime();
 					}
+					NANOSECONDS.sleep(myNotificationIntervaInNanos);
 				}
 				catch (InterruptedException e)
 				{
 					myListener.wasInterrupted(e);
 					break;
 				}
-
 			}
 		}
 	}
-
-	private boolean timeToNotify(final StatisticsAction action)
-	{
-		boolean enoughTimePassed = System.nanoTime() - myLastNotificationNanoTime > myNotificationIntervaInNanos;
-		return enoughTimePassed || action != StatisticsAction.MOVE_EVALUATED;
-	}
 }
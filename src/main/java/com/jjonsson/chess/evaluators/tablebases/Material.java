@@ -0,0 +1,220 @@
+package com.jjonsson.chess.evaluators.tablebases;
+
+import java.util.Arrays;
+
+/**
+ * The pieces of an endgame, like KQK (a white king and queen against a black king) or KRKP.
+ * <br>The white pieces are named first and the pieces of each player are ordered by {@link #PIECE_ORDER}, kings first.
+ * Each piece gets an index (the white pieces first) that is used by the positions of a {@link Tablebase}.
+ */
+public final class Material
+{
+	/**
+	 * The order of the pieces within a player, the strongest pieces first
+	 */
+	static final String PIECE_ORDER = "KQRBNP";
+
+	static final char KING = 'K';
+	static final char QUEEN = 'Q';
+	static final char ROCK = 'R';
+	static final char BISHOP = 'B';
+	static final char KNIGHT = 'N';
+	static final char PAWN = 'P';
+
+	/**
+	 * The pieces that a pawn can be promoted to
+	 */
+	static final char[] PROMOTIONS = {QUEEN, ROCK, BISHOP, KNIGHT};
+
+	private final char[] myPieces;
+	private final int myWhitePieces;
+
+	private Material(final char[] pieces, final int whitePieces)
+	{
+		myPieces = pieces;
+		myWhitePieces = whitePieces;
+	}
+
+	/**
+	 * @param white the white pieces, like "KQ"
+	 * @param black the black pieces, like "K"
+	 * @throws IllegalArgumentException if a player doesn't have exactly one king or if a piece is unknown
+	 */
+	public static Material of(final String white, final String black)
+	{
+		char[] whitePieces = sorted(white);
+		char[] blackPieces = sorted(black);
+		char[] pieces = Arrays.copyOf(whitePieces, whitePieces.length + blackPieces.length);
+		System.arraycopy(blackPieces, 0, pieces, whitePieces.length, blackPieces.length);
+		return new Material(pieces, whitePieces.length);
+	}
+
+	/**
+	 * @param name the name of an endgame, like "KQK" or "KRKP"
+	 * @throws IllegalArgumentException if the name isn't a valid endgame
+	 */
+	public static Material parse(final String name)
+	{
+		int blackKing = name.indexOf(KING, 1);
+		if(!name.startsWith(String.valueOf(KING)) || blackKing == -1)
+		{
+			throw new IllegalArgumentException("Not an endgame: " + name);
+		}
+		return of(name.substring(0, blackKing), name.substring(blackKing));
+	}
+
+	private static char[] sorted(final String pieces)
+	{
+		char[] sorted = pieces.toUpperCase().toCharArray();
+		int kings = 0;
+		for(char piece : sorted)
+		{
+			if(PIECE_ORDER.indexOf(piece) == -1)
+			{
+				throw new IllegalArgumentException("Unknown piece: " + piece);
+			}
+			if(piece == KING)
+			{
+				kings++;
+			}
+		}
+		if(kings != 1)
+		{
+			throw new IllegalArgumentException("Each player needs exactly one king: " + pieces);
+		}
+		//Insertion sort, there are only a few pieces
+		for(int i = 1; i < sorted.length; i++)
+		{
+			for(int j = i; j > 0 && PIECE_ORDER.indexOf(sorted[j]) < PIECE_ORDER.indexOf(sorted[j - 1]); j--)
+			{
+				char piece = sorted[j];
+				sorted[j] = sorted[j - 1];
+				sorted[j - 1] = piece;
+			}
+		}
+		return sorted;
+	}
+
+	public int getPieceCount()
+	{
+		return myPieces.length;
+	}
+
+	/**
+	 * @return the type of the given piece, one of {@link #PIECE_ORDER}
+	 */
+	public char getPiece(final int piece)
+	{
+		return myPieces[piece];
+	}
+
+	public boolean isWhite(final int piece)
+	{
+		return piece < myWhitePieces;
+	}
+
+	/**
+	 * @return the index of the king of the given player
+	 */
+	int getKing(final boolean white)
+	{
+		return white ? 0 : myWhitePieces;
+	}
+
+	/**
+	 * @return the number of positions (including illegal ones) in a table for this material, for both players to move
+	 */
+	public long getPositionCount()
+	{
+		return 2L << (Tablebase.SQUARE_BITS * myPieces.length);
+	}
+
+	/**
+	 * @return true if only the kings are left, which always is a draw
+	 */
+	public boolean isBareKings()
+	{
+		return myPieces.length == 2;
+	}
+
+	/**
+	 * Tables are only stored for the canonical color of each endgame, the other is probed with the colors flipped
+	 * @return true if white has more pieces than black, or as many pieces but stronger ones
+	 */
+	public boolean isCanonical()
+	{
+		int blackPieces = myPieces.length - myWhitePieces;
+		if(myWhitePieces != blackPieces)
+		{
+			return myWhitePieces > blackPieces;
+		}
+		for(int i = 0; i < myWhitePieces; i++)
+		{
+			int white = PIECE_ORDER.indexOf(myPieces[i]);
+			int black = PIECE_ORDER.indexOf(myPieces[myWhitePieces + i]);
+			if(white != black)
+			{
+				return white < black;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the same material with the colors swapped, the black pieces gets the lowest indexes
+	 */
+	public Material flipped()
+	{
+		return of(new String(myPieces, myWhitePieces, myPieces.length - myWhitePieces), new String(myPieces, 0, myWhitePieces));
+	}
+
+	/**
+	 * @return the material after the given piece has been captured
+	 */
+	Material without(final int piece)
+	{
+		StringBuilder white = new StringBuilder();
+		StringBuilder black = new StringBuilder();
+		for(int i = 0; i < myPieces.length; i++)
+		{
+			if(i != piece)
+			{
+				(isWhite(i) ? white : black).append(myPieces[i]);
+			}
+		}
+		return of(white.toString(), black.toString());
+	}
+
+	/**
+	 * @return the material after the given pawn has been promoted to the given piece
+	 */
+	Material promoted(final int pawn, final char piece)
+	{
+		char[] pieces = myPieces.clone();
+		pieces[pawn] = piece;
+		return of(new String(pieces, 0, myWhitePieces), new String(pieces, myWhitePieces, pieces.length - myWhitePieces));
+	}
+
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if(!(obj instanceof Material))
+		{
+			return false;
+		}
+		Material other = (Material) obj;
+		return myWhitePieces == other.myWhitePieces && Arrays.equals(myPieces, other.myPieces);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(myPieces) * 31 + myWhitePieces;
+	}
+
+	@Override
+	public String toString()
+	{
+		return new String(myPieces);
+	}
+}
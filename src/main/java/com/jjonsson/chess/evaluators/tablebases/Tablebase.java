@@ -0,0 +1,248 @@
+package com.jjonsson.chess.evaluators.tablebases;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import com.google.common.base.Charsets;
+
+/**
+ * The outcome of every position of one endgame (see {@link Material}), with perfect play from both players.
+ * <br>Tables are created by the {@link TablebaseGenerator} and are memory-mapped when they are read from a file.
+ * <br>A position is indexed by the player to move followed by the square (row * 8 + column) of each piece,
+ * {@link #SQUARE_BITS} bits each. The file starts with a header followed by two bit-packed arrays indexed by position:
+ * <ul>
+ * <li>the outcome for the player to move ({@link #WIN}, {@link #DRAW}, {@link #LOSS} or {@link #ILLEGAL}), two bits each</li>
+ * <li>the distance to mate in plies for won and lost positions (0 for a position that is mate), the number of bits is given by the header</li>
+ * </ul>
+ */
+public class Tablebase implements Closeable
+{
+	public static final String FILE_ENDING = ".tb";
+
+	static final int MAGIC = 0x43485442;
+	static final int VERSION = 1;
+
+	/**
+	 * Magic (4 bytes), version (4 bytes), material (6 ASCII bytes, zero padded), bits per distance to mate (1 byte), unused (1 byte)
+	 */
+	static final int HEADER_SIZE = 16;
+	private static final int MATERIAL_OFFSET = 8;
+	private static final int MAX_MATERIAL_LENGTH = 6;
+	private static final int DTM_BITS_OFFSET = MATERIAL_OFFSET + MAX_MATERIAL_LENGTH;
+
+	static final int SQUARE_BITS = 6;
+	static final int SQUARES = 1 << SQUARE_BITS;
+
+	/**
+	 * Outcomes for the player to move
+	 */
+	public static final int ILLEGAL = 0;
+	public static final int WIN = 1;
+	public static final int DRAW = 2;
+	public static final int LOSS = 3;
+
+	private static final int WDL_BITS = 2;
+	private static final int WDL_MASK = (1 << WDL_BITS) - 1;
+	private static final int POSITIONS_PER_WDL_BYTE = Byte.SIZE / WDL_BITS;
+
+	private final Material myMaterial;
+	private final ByteBuffer myBuffer;
+	private final int myDtmBits;
+	private final int myDtmMask;
+	private final int myDtmOffset;
+	private final RandomAccessFile myFile;
+
+	/**
+	 * @param fileName the table file to map
+	 * @throws IOException if the file couldn't be mapped or if it isn't a tablebase
+	 */
+	public Tablebase(final String fileName) throws IOException
+	{
+		myFile = new RandomAccessFile(fileName, "r");
+		ByteBuffer buffer = myFile.getChannel().map(MapMode.READ_ONLY, 0, myFile.length());
+		if(buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.SIZE / Byte.SIZE) != VERSION)
+		{
+			myFile.close();
+			throw new IOException(fileName + " isn't a tablebase");
+		}
+		Material material;
+		try
+		{
+			material = Material.parse(readMaterialName(buffer));
+		}
+		catch(IllegalArgumentException e)
+		{
+			myFile.close();
+			throw new IOException(fileName + " has an invalid material", e);
+		}
+		myMaterial = material;
+		myBuffer = buffer;
+		myDtmBits = buffer.get(DTM_BITS_OFFSET);
+		myDtmMask = (1 << myDtmBits) - 1;
+		myDtmOffset = HEADER_SIZE + getWdlSize(myMaterial);
+		if(myDtmBits < 1 || myDtmBits > Byte.SIZE || myDtmOffset + getDtmSize(myMaterial, myDtmBits) > buffer.limit())
+		{
+			myFile.close();
+			throw new IOException(fileName + " is truncated");
+		}
+	}
+
+	private Tablebase(final Material material, final ByteBuffer buffer, final int dtmBits)
+	{
+		myMaterial = material;
+		myBuffer = buffer;
+		myDtmBits = dtmBits;
+		myDtmMask = (1 << myDtmBits) - 1;
+		myDtmOffset = HEADER_SIZE + getWdlSize(myMaterial);
+		myFile = null;
+	}
+
+	/**
+	 * Packs the outcomes that the generator has calculated into an in-memory table
+	 * @param outcomes the outcome of each position
+	 * @param distances the distance to mate (unsigned) of each position, ignored for draws and illegal positions
+	 */
+	static Tablebase pack(final Material material, final byte[] outcomes, final byte[] distances)
+	{
+		int maxDistance = 1;
+		for(int i = 0; i < outcomes.length; i++)
+		{
+			if(outcomes[i] == WIN || outcomes[i] == LOSS)
+			{
+				maxDistance = Math.max(maxDistance, distances[i] & 0xFF);
+			}
+		}
+		int dtmBits = Integer.SIZE - Integer.numberOfLeadingZeros(maxDistance);
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + getWdlSize(material) + getDtmSize(material, dtmBits));
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(Integer.SIZE / Byte.SIZE, VERSION);
+		byte[] name = material.toString().getBytes(Charsets.US_ASCII);
+		for(int i = 0; i < name.length; i++)
+		{
+			buffer.put(MATERIAL_OFFSET + i, name[i]);
+		}
+		buffer.put(DTM_BITS_OFFSET, (byte) dtmBits);
+
+		Tablebase table = new Tablebase(material, buffer, dtmBits);
+		for(int i = 0; i < outcomes.length; i++)
+		{
+			int wdlByte = HEADER_SIZE + i / POSITIONS_PER_WDL_BYTE;
+			buffer.put(wdlByte, (byte) (buffer.get(wdlByte) | outcomes[i] << (i % POSITIONS_PER_WDL_BYTE * WDL_BITS)));
+			if(outcomes[i] == WIN || outcomes[i] == LOSS)
+			{
+				long bit = (long) i * dtmBits;
+				int dtmByte = table.myDtmOffset + (int) (bit >>> 3);
+				int value = (distances[i] & 0xFF) << (bit & 7);
+				buffer.put(dtmByte, (byte) (buffer.get(dtmByte) | value));
+				buffer.put(dtmByte + 1, (byte) (buffer.get(dtmByte + 1) | value >>> Byte.SIZE));
+			}
+		}
+		return table;
+	}
+
+	private static String readMaterialName(final ByteBuffer buffer)
+	{
+		StringBuilder name = new StringBuilder();
+		for(int i = 0; i < MAX_MATERIAL_LENGTH && buffer.get(MATERIAL_OFFSET + i) != 0; i++)
+		{
+			name.append((char) buffer.get(MATERIAL_OFFSET + i));
+		}
+		return name.toString();
+	}
+
+	private static int getWdlSize(final Material material)
+	{
+		return (int) ((material.getPositionCount() + POSITIONS_PER_WDL_BYTE - 1) / POSITIONS_PER_WDL_BYTE);
+	}
+
+	/**
+	 * One extra byte so that a distance can always be read as two bytes
+	 */
+	private static int getDtmSize(final Material material, final int dtmBits)
+	{
+		return (int) ((material.getPositionCount() * dtmBits + Byte.SIZE - 1) / Byte.SIZE) + 1;
+	}
+
+	/**
+	 * @param squares the square of each piece (row * 8 + column), in the order of the material
+	 * @return the index of the given position
+	 */
+	static long index(final int[] squares, final boolean whiteToMove)
+	{
+		long index = whiteToMove ? 0 : 1;
+		for(int square : squares)
+		{
+			index = (index << SQUARE_BITS) | square;
+		}
+		return index;
+	}
+
+	public Material getMaterial()
+	{
+		return myMaterial;
+	}
+
+	/**
+	 * @return {@link #WIN}, {@link #DRAW} or {@link #LOSS} for the player to move in the given position, or {@link #ILLEGAL}
+	 */
+	public int getOutcome(final long index)
+	{
+		int wdlByte = myBuffer.get(HEADER_SIZE + (int) (index / POSITIONS_PER_WDL_BYTE));
+		return (wdlByte >>> (index % POSITIONS_PER_WDL_BYTE * WDL_BITS)) & WDL_MASK;
+	}
+
+	/**
+	 * @return the number of plies until mate, only valid for won or lost positions
+	 */
+	public int getPliesToMate(final long index)
+	{
+		long bit = index * myDtmBits;
+		int dtmByte = myDtmOffset + (int) (bit >>> 3);
+		int twoBytes = (myBuffer.get(dtmByte) & 0xFF) | (myBuffer.get(dtmByte + 1) & 0xFF) << Byte.SIZE;
+		return (twoBytes >>> (bit & 7)) & myDtmMask;
+	}
+
+	/**
+	 * Writes this table to the given file, use the file name given by {@link #getFileName(Material)} so that {@link Tablebases} finds it
+	 */
+	public void write(final File file) throws IOException
+	{
+		FileChannel channel = new FileOutputStream(file).getChannel();
+		try
+		{
+			ByteBuffer content = myBuffer.duplicate();
+			content.clear();
+			while(content.hasRemaining())
+			{
+				channel.write(content);
+			}
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+
+	/**
+	 * @return the name of the file that the table for the given material is stored in
+	 */
+	public static String getFileName(final Material material)
+	{
+		return material + FILE_ENDING;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if(myFile != null)
+		{
+			myFile.close();
+		}
+	}
+}
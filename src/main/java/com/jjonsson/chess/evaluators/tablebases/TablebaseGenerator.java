@@ -0,0 +1,752 @@
+package com.jjonsson.chess.evaluators.tablebases;
+
+import static com.jjonsson.utilities.Loggers.STDERR;
+import static com.jjonsson.utilities.Loggers.STDOUT;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Generates tablebases by retrograde analysis: the mates are found first and then the outcomes are propagated backwards,
+ * one ply at a time, by taking back moves. Captures and promotions leads to other (smaller) tables, those are generated first.
+ * <br>Castling and en-passant captures are not considered.
+ */
+public final class TablebaseGenerator
+{
+	private static final String USAGE = "Usage: TablebaseGenerator [--all] directory [material...]"
+			+ "\n  Generates the given endgames (like KQK or KRKP), all endgames with 3 pieces if none is given"
+			+ "\n  or all endgames with up to " + Tablebases.MAX_PIECES + " pieces with --all";
+
+	private static final String EXTRA_PIECES = "QRBNP";
+
+	/**
+	 * States of a position during the generation
+	 */
+	private static final byte UNKNOWN = 0;
+	private static final byte DRAWING_EXIT = 1;
+	private static final byte PENDING_WIN = 2;
+	private static final byte PENDING_LOSS = 3;
+	private static final byte WIN = 4;
+	private static final byte LOSS = 5;
+	private static final byte DRAW = 6;
+	private static final byte ILLEGAL = 7;
+
+	private static final int ROWS = 8;
+	private static final int[][] KING_STEPS = {{1, 1}, {1, 0}, {1, -1}, {0, 1}, {0, -1}, {-1, 1}, {-1, 0}, {-1, -1}};
+	private static final int[][] KNIGHT_JUMPS = {{2, 1}, {2, -1}, {-2, 1}, {-2, -1}, {1, 2}, {1, -2}, {-1, 2}, {-1, -2}};
+	private static final int[][] ROCK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+	private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+	private final Tablebases myTables;
+	private final File myDirectory;
+
+	/**
+	 * @param directory where to write the generated tables (existing tables in it are reused), or null to keep them in memory
+	 */
+	public TablebaseGenerator(final File directory)
+	{
+		myDirectory = directory;
+		myTables = new Tablebases(directory);
+	}
+
+	/**
+	 * @return the generated tables (and the tables that already existed in the directory)
+	 */
+	public Tablebases getTables()
+	{
+		return myTables;
+	}
+
+	public static void main(final String[] args) throws IOException
+	{
+		boolean all = args.length > 0 && args[0].equals("--all");
+		int first = all ? 1 : 0;
+		if(args.length <= first)
+		{
+			STDERR.error(USAGE);
+			return;
+		}
+		File directory = new File(args[first]);
+		if(!directory.isDirectory() && !directory.mkdirs())
+		{
+			STDERR.error("Couldn't create " + directory);
+			return;
+		}
+		List<Material> materials = Lists.newArrayList();
+		try
+		{
+			for(int i = first + 1; i < args.length; i++)
+			{
+				materials.add(Material.parse(args[i]));
+			}
+		}
+		catch(IllegalArgumentException e)
+		{
+			STDERR.error(e.getMessage() + "\n" + USAGE);
+			return;
+		}
+		if(materials.isEmpty())
+		{
+			materials = getMaterials(all ? Tablebases.MAX_PIECES : 3);
+		}
+		TablebaseGenerator generator = new TablebaseGenerator(directory);
+		for(Material material : materials)
+		{
+			generator.generate(material);
+		}
+		generator.getTables().close();
+	}
+
+	/**
+	 * @return all canonical endgames with at least three and at most the given number of pieces
+	 */
+	static List<Material> getMaterials(final int maxPieces)
+	{
+		List<String> extras = Lists.newArrayList("");
+		for(int i = 0; i < EXTRA_PIECES.length(); i++)
+		{
+			extras.add(EXTRA_PIECES.substring(i, i + 1));
+			for(int j = i; j < EXTRA_PIECES.length(); j++)
+			{
+				extras.add(EXTRA_PIECES.substring(i, i + 1) + EXTRA_PIECES.charAt(j));
+			}
+		}
+		List<Material> materials = Lists.newArrayList();
+		for(String white : extras)
+		{
+			for(String black : extras)
+			{
+				int pieces = 2 + white.length() + black.length();
+				Material material = Material.of(Material.KING + white, Material.KING + black);
+				if(pieces >= 3 && pieces <= maxPieces && material.isCanonical() && !materials.contains(material))
+				{
+					materials.add(material);
+				}
+			}
+		}
+		return materials;
+	}
+
+	/**
+	 * Generates the table for the given material (if it doesn't exist already) and the tables it depends on
+	 * @return the table, for the canonical color of the given material
+	 * @throws IOException if the table couldn't be written to the directory
+	 */
+	public Tablebase generate(final Material material) throws IOException
+	{
+		Material canonical = material.isCanonical() ? material : material.flipped();
+		Tablebase existing = myTables.getTable(canonical);
+		if(existing != null || canonical.isBareKings())
+		{
+			return existing;
+		}
+		if(canonical.getPieceCount() > Tablebases.MAX_PIECES)
+		{
+			throw new IllegalArgumentException(canonical + " has more than " + Tablebases.MAX_PIECES + " pieces");
+		}
+		for(int piece = 0; piece < canonical.getPieceCount(); piece++)
+		{
+			if(canonical.getPiece(piece) != Material.KING)
+			{
+				generate(canonical.without(piece));
+			}
+			if(canonical.getPiece(piece) == Material.PAWN)
+			{
+				for(char promotion : Material.PROMOTIONS)
+				{
+					generate(canonical.promoted(piece, promotion));
+				}
+			}
+		}
+
+		long startTime = System.nanoTime();
+		Tablebase table = new Solver(canonical).solve();
+		STDOUT.info("Generated " + canonical + " in " + (double) (System.nanoTime() - startTime) / SECONDS.toNanos(1) + " secs");
+		if(myDirectory != null)
+		{
+			File file = new File(myDirectory, Tablebase.getFileName(canonical));
+			table.write(file);
+			table = new Tablebase(file.getPath());
+		}
+		myTables.add(table);
+		return table;
+	}
+
+	private static int row(final int square)
+	{
+		return square / ROWS;
+	}
+
+	private static int column(final int square)
+	{
+		return square % ROWS;
+	}
+
+	/**
+	 * @return the square at the given offset from the given square or -1 if that is outside of the board
+	 */
+	private static int offset(final int square, final int rows, final int columns)
+	{
+		int row = row(square) + rows;
+		int column = column(square) + columns;
+		if(row < 0 || row >= ROWS || column < 0 || column >= ROWS)
+		{
+			return -1;
+		}
+		return row * ROWS + column;
+	}
+
+	/**
+	 * Solves one table, the state of each position is held in arrays indexed like the positions of a {@link Tablebase}
+	 */
+	private final class Solver
+	{
+		private final Material myMaterial;
+		private final int myPieceCount;
+		private final char[] myTypes;
+		private final boolean[] myWhites;
+		private final int mySize;
+
+		private final byte[] myStates;
+		/**
+		 * The number of moves (within the table) that hasn't been proven to lose yet
+		 */
+		private final byte[] myCounters;
+		/**
+		 * The distance to mate of resolved and pending positions, for unknown positions the longest loss through a capture or a promotion
+		 */
+		private final byte[] myDistances;
+		/**
+		 * The longest distance of the pending positions
+		 */
+		private int myMaxPending;
+
+		private final int[] mySquares;
+		private final int[] myMoveSquares;
+		private final int[] myExitSquares;
+		private final char[] myExitTypes;
+		private final int[] myTargets;
+		private final int[] myOrigins;
+
+		private Solver(final Material material)
+		{
+			myMaterial = material;
+			myPieceCount = material.getPieceCount();
+			myTypes = new char[myPieceCount];
+			myWhites = new boolean[myPieceCount];
+			for(int piece = 0; piece < myPieceCount; piece++)
+			{
+				myTypes[piece] = material.getPiece(piece);
+				myWhites[piece] = material.isWhite(piece);
+			}
+			mySize = (int) material.getPositionCount();
+			myStates = new byte[mySize];
+			myCounters = new byte[mySize];
+			myDistances = new byte[mySize];
+			mySquares = new int[myPieceCount];
+			myMoveSquares = new int[myPieceCount];
+			myExitSquares = new int[myPieceCount];
+			myExitTypes = new char[myPieceCount];
+			myTargets = new int[Tablebase.SQUARES];
+			myOrigins = new int[Tablebase.SQUARES];
+		}
+
+		private Tablebase solve()
+		{
+			for(int index = 0; index < mySize; index++)
+			{
+				initialize(index);
+			}
+			for(int distance = 1; ; distance++)
+			{
+				boolean changed = false;
+				for(int index = 0; index < mySize; index++)
+				{
+					if((myStates[index] == PENDING_WIN || myStates[index] == PENDING_LOSS) && (myDistances[index] & 0xFF) == distance)
+					{
+						myStates[index] = myStates[index] == PENDING_WIN ? WIN : LOSS;
+						changed = true;
+					}
+				}
+				for(int index = 0; index < mySize; index++)
+				{
+					if((myStates[index] == WIN || myStates[index] == LOSS) && (myDistances[index] & 0xFF) == distance - 1)
+					{
+						changed |= propagate(index, distance);
+					}
+				}
+				if(!changed && distance > myMaxPending)
+				{
+					break;
+				}
+			}
+
+			byte[] outcomes = new byte[mySize];
+			for(int index = 0; index < mySize; index++)
+			{
+				switch(myStates[index])
+				{
+					case WIN:
+						outcomes[index] = Tablebase.WIN;
+						break;
+					case LOSS:
+						outcomes[index] = Tablebase.LOSS;
+						break;
+					case ILLEGAL:
+						outcomes[index] = Tablebase.ILLEGAL;
+						break;
+					default:
+						//Positions where neither player can force a mate
+						outcomes[index] = Tablebase.DRAW;
+						break;
+				}
+			}
+			return Tablebase.pack(myMaterial, outcomes, myDistances);
+		}
+
+		private boolean decode(final int index, final int[] squares)
+		{
+			for(int piece = myPieceCount - 1, shift = 0; piece >= 0; piece--, shift += Tablebase.SQUARE_BITS)
+			{
+				squares[piece] = (index >>> shift) & (Tablebase.SQUARES - 1);
+			}
+			return (index >>> (Tablebase.SQUARE_BITS * myPieceCount)) == 0;
+		}
+
+		private int getPieceAt(final int[] squares, final int square)
+		{
+			for(int piece = 0; piece < myPieceCount; piece++)
+			{
+				if(squares[piece] == square)
+				{
+					return piece;
+				}
+			}
+			return -1;
+		}
+
+		private boolean isLegal(final int[] squares, final boolean whiteToMove)
+		{
+			for(int piece = 0; piece < myPieceCount; piece++)
+			{
+				if(myTypes[piece] == Material.PAWN && (row(squares[piece]) == 0 || row(squares[piece]) == ROWS - 1))
+				{
+					return false;
+				}
+				for(int other = piece + 1; other < myPieceCount; other++)
+				{
+					if(squares[piece] == squares[other])
+					{
+						return false;
+					}
+				}
+			}
+			//The player that just moved can't be in check
+			return !isAttacked(squares, squares[myMaterial.getKing(!whiteToMove)], whiteToMove);
+		}
+
+		/**
+		 * @param squares the squares of the pieces, -1 for captured pieces
+		 */
+		private boolean isAttacked(final int[] squares, final int target, final boolean byWhite)
+		{
+			for(int piece = 0; piece < myPieceCount; piece++)
+			{
+				if(squares[piece] != -1 && myWhites[piece] == byWhite && attacks(squares, piece, target))
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean attacks(final int[] squares, final int piece, final int target)
+		{
+			int from = squares[piece];
+			int rows = row(target) - row(from);
+			int columns = column(target) - column(from);
+			switch(myTypes[piece])
+			{
+				case Material.KING:
+					return Math.max(Math.abs(rows), Math.abs(columns)) == 1;
+				case Material.KNIGHT:
+					return Math.abs(rows * columns) == 2;
+				case Material.PAWN:
+					return rows == (myWhites[piece] ? 1 : -1) && Math.abs(columns) == 1;
+				case Material.ROCK:
+					return (rows == 0 || columns == 0) && isPathClear(squares, from, target);
+				case Material.BISHOP:
+					return Math.abs(rows) == Math.abs(columns) && isPathClear(squares, from, target);
+				default:
+					return (rows == 0 || columns == 0 || Math.abs(rows) == Math.abs(columns)) && isPathClear(squares, from, target);
+			}
+		}
+
+		/**
+		 * @return true if there are no pieces between the given squares (that are on the same row, column or diagonal)
+		 */
+		private boolean isPathClear(final int[] squares, final int from, final int to)
+		{
+			if(from == to)
+			{
+				return false;
+			}
+			int rowStep = Integer.signum(row(to) - row(from));
+			int columnStep = Integer.signum(column(to) - column(from));
+			for(int square = offset(from, rowStep, columnStep); square != to; square = offset(square, rowStep, columnStep))
+			{
+				if(getPieceAt(squares, square) != -1)
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void initialize(final int index)
+		{
+			boolean whiteToMove = decode(index, mySquares);
+			if(!isLegal(mySquares, whiteToMove))
+			{
+				myStates[index] = ILLEGAL;
+				return;
+			}
+			int moves = 0;
+			int internalMoves = 0;
+			int shortestWin = Integer.MAX_VALUE;
+			int longestLoss = 0;
+			boolean drawingExit = false;
+			for(int piece = 0; piece < myPieceCount; piece++)
+			{
+				if(myWhites[piece] != whiteToMove)
+				{
+					continue;
+				}
+				int[] targets = getTargets(mySquares, piece);
+				for(int target : targets)
+				{
+					if(target == -1)
+					{
+						break;
+					}
+					int captured = getPieceAt(mySquares, target);
+					System.arraycopy(mySquares, 0, myMoveSquares, 0, myPieceCount);
+					myMoveSquares[piece] = target;
+					if(captured != -1)
+					{
+						myMoveSquares[captured] = -1;
+					}
+					if(isAttacked(myMoveSquares, myMoveSquares[myMaterial.getKing(whiteToMove)], !whiteToMove))
+					{
+						continue;
+					}
+					moves++;
+					boolean promotion = myTypes[piece] == Material.PAWN && (row(target) == 0 || row(target) == ROWS - 1);
+					if(captured == -1 && !promotion)
+					{
+						internalMoves++;
+						continue;
+					}
+					for(char type : promotion ? Material.PROMOTIONS : new char[]{myTypes[piece]})
+					{
+						int exit = probeExit(piece, type, whiteToMove);
+						int distance = (exit & 0xFF) + 1;
+						switch(exit >>> Byte.SIZE)
+						{
+							case Tablebase.LOSS:
+								shortestWin = Math.min(shortestWin, distance);
+								break;
+							case Tablebase.WIN:
+								longestLoss = Math.max(longestLoss, distance);
+								break;
+							default:
+								drawingExit = true;
+								break;
+						}
+					}
+				}
+			}
+			if(moves == 0)
+			{
+				boolean inCheck = isAttacked(mySquares, mySquares[myMaterial.getKing(whiteToMove)], !whiteToMove);
+				myStates[index] = inCheck ? LOSS : DRAW;
+				myDistances[index] = 0;
+			}
+			else if(shortestWin != Integer.MAX_VALUE)
+			{
+				myStates[index] = PENDING_WIN;
+				myDistances[index] = (byte) shortestWin;
+				myMaxPending = Math.max(myMaxPending, shortestWin);
+			}
+			else if(drawingExit)
+			{
+				myStates[index] = DRAWING_EXIT;
+			}
+			else if(internalMoves == 0)
+			{
+				//Every move is a capture or a promotion that loses
+				myStates[index] = PENDING_LOSS;
+				myDistances[index] = (byte) longestLoss;
+				myMaxPending = Math.max(myMaxPending, longestLoss);
+			}
+			else
+			{
+				myStates[index] = UNKNOWN;
+				myCounters[index] = (byte) internalMoves;
+				myDistances[index] = (byte) longestLoss;
+			}
+		}
+
+		/**
+		 * Probes the position after a capture or a promotion (given by {@link #myMoveSquares}), it's in another table
+		 */
+		private int probeExit(final int piece, final char type, final boolean whiteToMove)
+		{
+			System.arraycopy(myTypes, 0, myExitTypes, 0, myPieceCount);
+			System.arraycopy(myMoveSquares, 0, myExitSquares, 0, myPieceCount);
+			myExitTypes[piece] = type;
+			int exit = myTables.probe(myExitTypes, myWhites, myExitSquares, !whiteToMove);
+			if(exit == Tablebases.NOT_FOUND)
+			{
+				throw new IllegalStateException("The table that " + myMaterial + " depends on isn't available");
+			}
+			return exit;
+		}
+
+		/**
+		 * @return the squares that the given piece can move to (captures included), ends with -1 unless all elements are used.
+		 * The array is reused by the next call
+		 */
+		private int[] getTargets(final int[] squares, final int piece)
+		{
+			int[] targets = myTargets;
+			int count = 0;
+			int from = squares[piece];
+			switch(myTypes[piece])
+			{
+				case Material.KING:
+					count = addSteps(squares, piece, KING_STEPS, targets, count);
+					break;
+				case Material.KNIGHT:
+					count = addSteps(squares, piece, KNIGHT_JUMPS, targets, count);
+					break;
+				case Material.ROCK:
+					count = addSlides(squares, piece, ROCK_DIRECTIONS, targets, count);
+					break;
+				case Material.BISHOP:
+					count = addSlides(squares, piece, BISHOP_DIRECTIONS, targets, count);
+					break;
+				case Material.QUEEN:
+					count = addSlides(squares, piece, ROCK_DIRECTIONS, targets, count);
+					count = addSlides(squares, piece, BISHOP_DIRECTIONS, targets, count);
+					break;
+				default:
+					int forward = myWhites[piece] ? 1 : -1;
+					int oneStep = offset(from, forward, 0);
+					if(oneStep != -1 && getPieceAt(squares, oneStep) == -1)
+					{
+						targets[count++] = oneStep;
+						int startingRow = myWhites[piece] ? 1 : ROWS - 2;
+						int twoSteps = offset(from, 2 * forward, 0);
+						if(row(from) == startingRow && getPieceAt(squares, twoSteps) == -1)
+						{
+							targets[count++] = twoSteps;
+						}
+					}
+					for(int side = -1; side <= 1; side += 2)
+					{
+						int capture = offset(from, forward, side);
+						if(capture != -1 && isOpponentAt(squares, piece, capture))
+						{
+							targets[count++] = capture;
+						}
+					}
+					break;
+			}
+			if(count < targets.length)
+			{
+				targets[count] = -1;
+			}
+			return targets;
+		}
+
+		private boolean isOpponentAt(final int[] squares, final int piece, final int square)
+		{
+			int other = getPieceAt(squares, square);
+			return other != -1 && myWhites[other] != myWhites[piece] && myTypes[other] != Material.KING;
+		}
+
+		private int addSteps(final int[] squares, final int piece, final int[][] steps, final int[] targets, final int count)
+		{
+			int added = count;
+			for(int[] step : steps)
+			{
+				int target = offset(squares[piece], step[0], step[1]);
+				if(target != -1 && (getPieceAt(squares, target) == -1 || isOpponentAt(squares, piece, target)))
+				{
+					targets[added++] = target;
+				}
+			}
+			return added;
+		}
+
+		private int addSlides(final int[] squares, final int piece, final int[][] directions, final int[] targets, final int count)
+		{
+			int added = count;
+			for(int[] direction : directions)
+			{
+				for(int target = offset(squares[piece], direction[0], direction[1]); target != -1; target = offset(target, direction[0], direction[1]))
+				{
+					if(getPieceAt(squares, target) == -1)
+					{
+						targets[added++] = target;
+						continue;
+					}
+					if(isOpponentAt(squares, piece, target))
+					{
+						targets[added++] = target;
+					}
+					break;
+				}
+			}
+			return added;
+		}
+
+		/**
+		 * Takes back every move (that wasn't a capture or a promotion) that could have led to the given resolved position
+		 * and updates the positions before those moves
+		 * @return true if a position was resolved or became pending
+		 */
+		private boolean propagate(final int index, final int distance)
+		{
+			boolean whiteToMove = decode(index, mySquares);
+			boolean lost = myStates[index] == LOSS;
+			boolean changed = false;
+			for(int piece = 0; piece < myPieceCount; piece++)
+			{
+				if(myWhites[piece] == whiteToMove)
+				{
+					continue;
+				}
+				for(int origin : getOrigins(mySquares, piece))
+				{
+					if(origin == -1)
+					{
+						break;
+					}
+					System.arraycopy(mySquares, 0, myMoveSquares, 0, myPieceCount);
+					myMoveSquares[piece] = origin;
+					int previous = (int) Tablebase.index(myMoveSquares, !whiteToMove);
+					byte state = myStates[previous];
+					if(lost)
+					{
+						//The player that moved here wins
+						if(state == UNKNOWN || state == DRAWING_EXIT || (state == PENDING_WIN && (myDistances[previous] & 0xFF) > distance))
+						{
+							myStates[previous] = WIN;
+							myDistances[previous] = (byte) distance;
+							changed = true;
+						}
+					}
+					else if(state == UNKNOWN && --myCounters[previous] == 0)
+					{
+						//Every move loses, the longest way to get mated is picked
+						int longestLoss = myDistances[previous] & 0xFF;
+						if(longestLoss > distance)
+						{
+							myStates[previous] = PENDING_LOSS;
+							myMaxPending = Math.max(myMaxPending, longestLoss);
+						}
+						else
+						{
+							myStates[previous] = LOSS;
+							myDistances[previous] = (byte) distance;
+						}
+						changed = true;
+					}
+				}
+			}
+			return changed;
+		}
+
+		/**
+		 * @return the empty squares that the given piece could have moved from (without capturing), ends with -1 unless all elements are used.
+		 * The array is reused by the next call
+		 */
+		private int[] getOrigins(final int[] squares, final int piece)
+		{
+			int[] origins = myOrigins;
+			int count = 0;
+			int to = squares[piece];
+			switch(myTypes[piece])
+			{
+				case Material.KING:
+					count = addEmptySteps(squares, to, KING_STEPS, origins, count);
+					break;
+				case Material.KNIGHT:
+					count = addEmptySteps(squares, to, KNIGHT_JUMPS, origins, count);
+					break;
+				case Material.ROCK:
+					count = addEmptySlides(squares, to, ROCK_DIRECTIONS, origins, count);
+					break;
+				case Material.BISHOP:
+					count = addEmptySlides(squares, to, BISHOP_DIRECTIONS, origins, count);
+					break;
+				case Material.QUEEN:
+					count = addEmptySlides(squares, to, ROCK_DIRECTIONS, origins, count);
+					count = addEmptySlides(squares, to, BISHOP_DIRECTIONS, origins, count);
+					break;
+				default:
+					int backward = myWhites[piece] ? -1 : 1;
+					int startingRow = myWhites[piece] ? 1 : ROWS - 2;
+					int oneStep = offset(to, backward, 0);
+					if(oneStep != -1 && row(oneStep) != 0 && row(oneStep) != ROWS - 1 && getPieceAt(squares, oneStep) == -1)
+					{
+						origins[count++] = oneStep;
+						int twoSteps = offset(to, 2 * backward, 0);
+						if(twoSteps != -1 && row(twoSteps) == startingRow && getPieceAt(squares, twoSteps) == -1)
+						{
+							origins[count++] = twoSteps;
+						}
+					}
+					break;
+			}
+			if(count < origins.length)
+			{
+				origins[count] = -1;
+			}
+			return origins;
+		}
+
+		private int addEmptySteps(final int[] squares, final int to, final int[][] steps, final int[] origins, final int count)
+		{
+			int added = count;
+			for(int[] step : steps)
+			{
+				int origin = offset(to, step[0], step[1]);
+				if(origin != -1 && getPieceAt(squares, origin) == -1)
+				{
+					origins[added++] = origin;
+				}
+			}
+			return added;
+		}
+
+		private int addEmptySlides(final int[] squares, final int to, final int[][] directions, final int[] origins, final int count)
+		{
+			int added = count;
+			for(int[] direction : directions)
+			{
+				for(int origin = offset(to, direction[0], direction[1]); origin != -1 && getPieceAt(squares, origin) == -1; origin = offset(origin, direction[0], direction[1]))
+				{
+					origins[added++] = origin;
+				}
+			}
+			return added;
+		}
+	}
+}
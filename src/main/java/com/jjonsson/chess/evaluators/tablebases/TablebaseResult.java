@@ -0,0 +1,60 @@
+package com.jjonsson.chess.evaluators.tablebases;
+
+/**
+ * The outcome of a position that was found in a {@link Tablebase}, as seen by the player to move
+ */
+public final class TablebaseResult
+{
+	public enum Outcome
+	{
+		WIN,
+		DRAW,
+		LOSS;
+	}
+
+	private static final TablebaseResult DRAWN = new TablebaseResult(Outcome.DRAW, 0);
+
+	private final Outcome myOutcome;
+	private final int myPliesToMate;
+
+	private TablebaseResult(final Outcome outcome, final int pliesToMate)
+	{
+		myOutcome = outcome;
+		myPliesToMate = pliesToMate;
+	}
+
+	/**
+	 * @param outcome one of the outcomes of {@link Tablebase} except {@link Tablebase#ILLEGAL}
+	 */
+	static TablebaseResult of(final int outcome, final int pliesToMate)
+	{
+		switch(outcome)
+		{
+			case Tablebase.WIN:
+				return new TablebaseResult(Outcome.WIN, pliesToMate);
+			case Tablebase.LOSS:
+				return new TablebaseResult(Outcome.LOSS, pliesToMate);
+			default:
+				return DRAWN;
+		}
+	}
+
+	public Outcome getOutcome()
+	{
+		return myOutcome;
+	}
+
+	/**
+	 * @return the number of plies until the winning player gives mate (with perfect play from both players), 0 for draws
+	 */
+	public int getPliesToMate()
+	{
+		return myPliesToMate;
+	}
+
+	@Override
+	public String toString()
+	{
+		return myOutcome == Outcome.DRAW ? "draw" : myOutcome.toString().toLowerCase() + " (mate in " + myPliesToMate + " plies)";
+	}
+}
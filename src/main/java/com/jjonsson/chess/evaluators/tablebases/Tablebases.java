@@ -0,0 +1,304 @@
+package com.jjonsson.chess.evaluators.tablebases;
+
+import static com.jjonsson.chess.pieces.Piece.BLACK;
+import static com.jjonsson.chess.pieces.Piece.WHITE;
+import static com.jjonsson.utilities.Loggers.STDERR;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.Maps;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.moves.PawnTwoStepMove;
+import com.jjonsson.chess.moves.Position.Column;
+import com.jjonsson.chess.pieces.Piece;
+
+/**
+ * The tablebases in a directory, all the tables are memory-mapped when the directory is opened so that probing never takes a lock.
+ * <br>Only positions without castling possibilities and (possible) en-passant captures are probed,
+ * the tables assume that neither is possible.
+ */
+public class Tablebases implements Closeable
+{
+	/**
+	 * Tables are generated for endgames with up to this many pieces (kings included)
+	 */
+	public static final int MAX_PIECES = 4;
+
+	/**
+	 * Returned by {@link #probe(char[], boolean[], int[], boolean)} when there is no table for the position
+	 */
+	static final int NOT_FOUND = -1;
+
+	/**
+	 * The number of bits used for the count of each kind of piece in a {@link MaterialCache} signature
+	 */
+	private static final int SIGNATURE_BITS = 4;
+
+	/**
+	 * The tables by canonical material, read without locking by the probing threads
+	 */
+	private final ConcurrentMap<Material, Tablebase> myTables;
+
+	/**
+	 * @param directory where the tables are stored (they are all mapped right away), or null for tables that are only added with {@link #add(Tablebase)}
+	 */
+	public Tablebases(final File directory)
+	{
+		myTables = Maps.newConcurrentMap();
+		if(directory != null)
+		{
+			load(directory);
+		}
+	}
+
+	private void load(final File directory)
+	{
+		File[] files = directory.listFiles(new FilenameFilter(){
+			@Override
+			public boolean accept(final File dir, final String name)
+			{
+				return name.endsWith(Tablebase.FILE_ENDING);
+			}
+		});
+		if(files == null)
+		{
+			return;
+		}
+		for(File file : files)
+		{
+			try
+			{
+				add(new Tablebase(file.getPath()));
+			}
+			catch(IOException e)
+			{
+				STDERR.warn("Failed to load the tablebase " + file, e);
+			}
+		}
+	}
+
+	/**
+	 * Makes the given table available for probing (replacing any earlier table for the same material)
+	 */
+	public void add(final Tablebase table)
+	{
+		myTables.put(table.getMaterial(), table);
+	}
+
+	/**
+	 * @param material a canonical material, see {@link Material#isCanonical()}
+	 * @return the table for the given material or null if there is none
+	 */
+	Tablebase getTable(final Material material)
+	{
+		return myTables.get(material);
+	}
+
+	/**
+	 * @return the outcome for the player to move on the given board or null if the position isn't in any of the tables
+	 * @see #probe(ChessBoard, MaterialCache)
+	 */
+	public TablebaseResult probe(final ChessBoard board)
+	{
+		return probe(board, new MaterialCache());
+	}
+
+	/**
+	 * Like {@link #probe(ChessBoard)} but the material (and its table) is only looked up when it differs from the last probe with the same cache,
+	 * so tables added after that aren't seen by the cache until the material changes
+	 * @param cache the cache of the calling thread
+	 * @return the outcome for the player to move on the given board or null if the position isn't in any of the tables
+	 */
+	public TablebaseResult probe(final ChessBoard board, final MaterialCache cache)
+	{
+		int pieceCount = board.getTotalPieceCount();
+		if(pieceCount > MAX_PIECES || board.hasCastlingPossibility(WHITE, Column.A) || board.hasCastlingPossibility(WHITE, Column.H)
+				|| board.hasCastlingPossibility(BLACK, Column.A) || board.hasCastlingPossibility(BLACK, Column.H))
+		{
+			return null;
+		}
+		char[] types = cache.myTypes;
+		boolean[] whites = cache.myWhites;
+		int[] squares = cache.mySquares;
+		long signature = 0;
+		int piece = 0;
+		boolean whitePawns = false;
+		boolean blackPawns = false;
+		for(Piece p : board.getPieces())
+		{
+			types[piece] = Character.toUpperCase(p.getNotationCharacter());
+			whites[piece] = p.isWhite();
+			squares[piece] = p.getCurrentPosition().getRow() * ChessBoard.BOARD_SIZE + p.getCurrentPosition().getColumn();
+			whitePawns |= types[piece] == Material.PAWN && whites[piece];
+			blackPawns |= types[piece] == Material.PAWN && !whites[piece];
+			int kind = Material.PIECE_ORDER.indexOf(types[piece]) + (whites[piece] ? 0 : Material.PIECE_ORDER.length());
+			signature += 1L << (kind * SIGNATURE_BITS);
+			piece++;
+		}
+		Arrays.fill(squares, piece, squares.length, -1);
+		if(whitePawns && blackPawns && board.getLastMove() instanceof PawnTwoStepMove)
+		{
+			//An en-passant capture may be possible
+			return null;
+		}
+		if(cache.myTablebases != this || cache.mySignature != signature)
+		{
+			cache.update(this, signature);
+		}
+		int result = probe(cache.myMaterial, cache.myFlip, cache.myTable, cache.myTableSquares, types, whites, squares, board.getCurrentPlayer() == WHITE);
+		if(result == NOT_FOUND)
+		{
+			return null;
+		}
+		return TablebaseResult.of(result >>> Byte.SIZE, result & 0xFF);
+	}
+
+	/**
+	 * @param types the type of each piece (see {@link Material#PIECE_ORDER}), in any order
+	 * @param whites the color of each piece
+	 * @param squares the square of each piece (row * 8 + column), -1 for pieces that should be skipped
+	 * @return the outcome in the high bits and the plies to mate in the lowest byte or {@link #NOT_FOUND}
+	 */
+	int probe(final char[] types, final boolean[] whites, final int[] squares, final boolean whiteToMove)
+	{
+		Material material = getMaterial(types, whites, squares);
+		if(material == null)
+		{
+			return NOT_FOUND;
+		}
+		boolean flip = !material.isCanonical();
+		if(flip)
+		{
+			material = material.flipped();
+		}
+		return probe(material, flip, getTable(material), new int[material.getPieceCount()], types, whites, squares, whiteToMove);
+	}
+
+	/**
+	 * @return the material of the pieces that aren't skipped or null if a king is missing
+	 */
+	private static Material getMaterial(final char[] types, final boolean[] whites, final int[] squares)
+	{
+		StringBuilder white = new StringBuilder();
+		StringBuilder black = new StringBuilder();
+		for(int i = 0; i < types.length; i++)
+		{
+			if(squares[i] != -1)
+			{
+				(whites[i] ? white : black).append(types[i]);
+			}
+		}
+		try
+		{
+			return Material.of(white.toString(), black.toString());
+		}
+		catch(IllegalArgumentException e)
+		{
+			//A king is missing
+			return null;
+		}
+	}
+
+	/**
+	 * @param material the canonical material of the pieces, null if a king is missing
+	 * @param flip true if the colors (and the rows) of the pieces should be flipped as their material isn't the stored one
+	 * @param table the table for the material or null if there is none
+	 * @param tableSquares where the squares of the pieces are put in the order of the material
+	 */
+	private static int probe(final Material material, final boolean flip, final Tablebase table, final int[] tableSquares,
+			final char[] types, final boolean[] whites, final int[] squares, final boolean whiteToMove)
+	{
+		if(material == null)
+		{
+			return NOT_FOUND;
+		}
+		if(material.isBareKings())
+		{
+			return Tablebase.DRAW << Byte.SIZE;
+		}
+		if(table == null)
+		{
+			return NOT_FOUND;
+		}
+		long used = 0;
+		for(int slot = 0; slot < tableSquares.length; slot++)
+		{
+			for(int i = 0; i < types.length; i++)
+			{
+				if(squares[i] != -1 && (used & (1L << i)) == 0 && types[i] == material.getPiece(slot) && (whites[i] != flip) == material.isWhite(slot))
+				{
+					used |= 1L << i;
+					tableSquares[slot] = flip ? squares[i] ^ (ChessBoard.BOARD_SIZE * (ChessBoard.BOARD_SIZE - 1)) : squares[i];
+					break;
+				}
+			}
+		}
+		long index = Tablebase.index(tableSquares, whiteToMove != flip);
+		int outcome = table.getOutcome(index);
+		if(outcome == Tablebase.ILLEGAL)
+		{
+			return NOT_FOUND;
+		}
+		return outcome << Byte.SIZE | (outcome == Tablebase.DRAW ? 0 : table.getPliesToMate(index));
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		for(Tablebase table : myTables.values())
+		{
+			table.close();
+		}
+		myTables.clear();
+	}
+
+	/**
+	 * The material of the last probed position, the material only changes with captures and promotions
+	 * so most probes from a search can skip building it (and looking up its table).
+	 * <br>It also holds the arrays that the probes are made with, so a cache may only be used by one thread at a time.
+	 */
+	public static final class MaterialCache
+	{
+		private final char[] myTypes = new char[MAX_PIECES];
+		private final boolean[] myWhites = new boolean[MAX_PIECES];
+		private final int[] mySquares = new int[MAX_PIECES];
+
+		private Tablebases myTablebases;
+		/**
+		 * The number of pieces of each kind and color, {@link #SIGNATURE_BITS} bits for each
+		 */
+		private long mySignature;
+		/**
+		 * The canonical material or null if a king is missing
+		 */
+		private Material myMaterial;
+		private boolean myFlip;
+		/**
+		 * The table that was available for the material when it was looked up
+		 */
+		private Tablebase myTable;
+		private int[] myTableSquares;
+
+		/**
+		 * Looks up the material of the pieces in {@link #myTypes} and {@link #myWhites}
+		 */
+		private void update(final Tablebases tablebases, final long signature)
+		{
+			myTablebases = tablebases;
+			mySignature = signature;
+			myMaterial = getMaterial(myTypes, myWhites, mySquares);
+			myFlip = myMaterial != null && !myMaterial.isCanonical();
+			if(myFlip)
+			{
+				myMaterial = myMaterial.flipped();
+			}
+			myTable = myMaterial != null ? tablebases.getTable(myMaterial) : null;
+			myTableSquares = myMaterial != null ? new int[myMaterial.getPieceCount()] : null;
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package com.jjonsson.chess.exceptions;
+
+public class InvalidFenException extends Exception
+{
+	private static final long	serialVersionUID	= 4925374018462951840L;
+
+	private int myIndex;
+
+	/**
+	 * @param message a description of what's wrong with the FEN string
+	 * @param index the index in the FEN string where the problem was detected
+	 */
+	public InvalidFenException(final String message, final int index)
+	{
+		super(message);
+		myIndex = index;
+	}
+
+	/**
+	 * @return the index in the FEN string where the problem was detected
+	 */
+	public int getIndex()
+	{
+		return myIndex;
+	}
+
+	@Override
+	public String toString()
+	{
+		return getMessage() + " (at index " + myIndex + ")";
+	}
+}
@@ -0,0 +1,11 @@
+package com.jjonsson.chess.exceptions;
+
+public class InvalidPgnException extends Exception
+{
+	private static final long	serialVersionUID	= -2870349811926745710L;
+
+	public InvalidPgnException(final String message)
+	{
+		super(message);
+	}
+}
@@ -0,0 +1,515 @@
+package com.jjonsson.chess.gui;
+
+import static com.jjonsson.chess.board.PiecePlacement.DONT_PLACE_PIECES;
+import static com.jjonsson.chess.persistence.PersistanceLogging.SKIP_PERSISTANCE_LOGGING;
+import static com.jjonsson.utilities.Loggers.STDERR;
+import static com.jjonsson.utilities.Loggers.STDOUT;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.imageio.ImageIO;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.exceptions.InvalidFenException;
+import com.jjonsson.chess.gui.components.ChessBoardComponent;
+import com.jjonsson.chess.moves.ImmutablePosition;
+import com.jjonsson.chess.persistence.BoardLoader;
+import com.jjonsson.chess.persistence.ChessFileFilter;
+import com.jjonsson.chess.persistence.FenNotation;
+import com.jjonsson.chess.pieces.Piece;
+
+/**
+ * Draws boards into PNG or SVG images without a display, the boards look like they do in a {@link ChessBoardComponent}
+ * but without any markings.
+ * <br>The PNG images are drawn with the sprites from the {@link PieceImageCache} and the SVG images refers to the original piece images.
+ * <br>Positions can be given as boards, FEN strings or .chess files, see {@link #readPlacement(String)}.
+ * A placement is the notation character (see {@link Piece#getNotationCharacter()}) of the piece on each square by row and column, 0 for empty squares.
+ */
+public final class BoardRenderer
+{
+	private BoardRenderer(){}
+
+	public static final int DEFAULT_SQUARE_SIZE = 60;
+
+	/**
+	 * The notation characters of the pieces, in the same order as {@link PieceImageCache#PIECE_IDENTIFIERS}
+	 */
+	private static final String NOTATION_CHARACTERS = "KQRBNPkqrbnp";
+
+	private static final byte[] PNG_SIGNATURE = {(byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+	private static final int PNG_HEADER_LENGTH = 13;
+	private static final int PNG_TRUECOLOR = 2;
+	private static final int PNG_BYTES_PER_PIXEL = 3;
+	private static final byte PNG_UP_FILTER = 2;
+
+	/**
+	 * The piece images by piece identifier, used when writing SVG images, see {@link #getPieceDefinition(String)}
+	 */
+	private static ConcurrentMap<String, String> pieceDefinitions = Maps.newConcurrentMap();
+
+	private static final Pattern SVG_SIZE_AND_ID_ATTRIBUTES = Pattern.compile("\\s(width|height|id)\\s*=\\s*\"[^\"]*\"");
+
+	public enum ImageFormat
+	{
+		PNG(".png"),
+		SVG(".svg");
+
+		private final String myFileEnding;
+
+		private ImageFormat(final String fileEnding)
+		{
+			myFileEnding = fileEnding;
+		}
+
+		public String getFileEnding()
+		{
+			return myFileEnding;
+		}
+	}
+
+	/**
+	 * @param source a path to a .chess file or a FEN string
+	 * @return the placement of the pieces described by the given source
+	 * @throws IOException if the source couldn't be read
+	 */
+	public static char[][] readPlacement(final String source) throws IOException
+	{
+		if(source.endsWith(ChessFileFilter.FILE_ENDING))
+		{
+			ChessBoard board = new ChessBoard(DONT_PLACE_PIECES, SKIP_PERSISTANCE_LOGGING);
+			if(!BoardLoader.loadFileIntoBoard(new File(source), board))
+			{
+				throw new IOException("Failed to load the board in " + source);
+			}
+			return getPlacement(board);
+		}
+		try
+		{
+			return FenNotation.readPlacement(source);
+		}
+		catch(InvalidFenException e)
+		{
+			throw new IOException("Invalid FEN string: " + source + ", " + e.getMessage());
+		}
+	}
+
+	public static char[][] getPlacement(final ChessBoard board)
+	{
+		char[][] placement = new char[ChessBoard.BOARD_SIZE][ChessBoard.BOARD_SIZE];
+		for(int row = 0; row < ChessBoard.BOARD_SIZE; row++)
+		{
+			for(int column = 0; column < ChessBoard.BOARD_SIZE; column++)
+			{
+				Piece piece = board.getPiece(ImmutablePosition.from(row, column));
+				if(piece != null)
+				{
+					placement[row][column] = piece.getNotationCharacter();
+				}
+			}
+		}
+		return placement;
+	}
+
+	/**
+	 * @return the piece identifier (see {@link Piece#getIdentifier()}) for the given notation character
+	 */
+	private static String getIdentifier(final char notationCharacter)
+	{
+		int index = NOTATION_CHARACTERS.indexOf(notationCharacter);
+		if(index == -1)
+		{
+			throw new IllegalArgumentException("Unknown piece: '" + notationCharacter + "'");
+		}
+		return PieceImageCache.PIECE_IDENTIFIERS.get(index);
+	}
+
+	/**
+	 * @return the size of the piece images in a square of the given size
+	 */
+	private static int getPieceSize(final int squareSize)
+	{
+		int boardSize = squareSize * ChessBoard.BOARD_SIZE;
+		return ChessBoardComponent.getSpriteSize(new Dimension(boardSize, boardSize));
+	}
+
+	private static Color getSquareColor(final int row, final int column)
+	{
+		//The rows are counted from the top of the image
+		return (ChessBoard.BOARD_SIZE - 1 - row) % 2 == column % 2 ? ChessBoardComponent.DARK_BACKGROUND : ChessBoardComponent.LIGHT_BACKGROUND;
+	}
+
+	public static BufferedImage render(final ChessBoard board, final int squareSize)
+	{
+		return render(getPlacement(board), squareSize);
+	}
+
+	/**
+	 * @param squareSize the width and height of each square in pixels
+	 */
+	public static BufferedImage render(final char[][] placement, final int squareSize)
+	{
+		int boardSize = squareSize * ChessBoard.BOARD_SIZE;
+		int pieceSize = getPieceSize(squareSize);
+		int inset = (squareSize - pieceSize) / 2;
+		BufferedImage image = new BufferedImage(boardSize, boardSize, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = image.createGraphics();
+		try
+		{
+			for(int row = 0; row < ChessBoard.BOARD_SIZE; row++)
+			{
+				for(int column = 0; column < ChessBoard.BOARD_SIZE; column++)
+				{
+					int x = column * squareSize;
+					int y = (ChessBoard.BOARD_SIZE - 1 - row) * squareSize;
+					graphics.setColor(getSquareColor(row, column));
+					graphics.fillRect(x, y, squareSize, squareSize);
+					if(placement[row][column] != 0)
+					{
+						BufferedImage sprite = PieceImageCache.getSprite(getIdentifier(placement[row][column]), pieceSize);
+						if(sprite != null)
+						{
+							graphics.drawImage(sprite, x + inset, y + inset, null);
+						}
+					}
+				}
+			}
+		}
+		finally
+		{
+			graphics.dispose();
+		}
+		return image;
+	}
+
+	public static void writePng(final char[][] placement, final int squareSize, final OutputStream output) throws IOException
+	{
+		writePng(render(placement, squareSize), output);
+	}
+
+	/**
+	 * Writes the given image with the fastest compression level and each row stored as the difference to the row above,
+	 * that's about three times faster than {@link ImageIO} and the files are as small as the boards mostly have rows that are equal to the one above.
+	 * @param image an image of the type {@link BufferedImage#TYPE_INT_RGB}, see {@link #render(char[][], int)}
+	 */
+	static void writePng(final BufferedImage image, final OutputStream output) throws IOException
+	{
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int[] pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+
+		DataOutputStream png = new DataOutputStream(output);
+		png.write(PNG_SIGNATURE);
+
+		ByteArrayOutputStream header = new ByteArrayOutputStream(PNG_HEADER_LENGTH);
+		DataOutputStream headerData = new DataOutputStream(header);
+		headerData.writeInt(width);
+		headerData.writeInt(height);
+		headerData.writeByte(Byte.SIZE); //bits per color
+		headerData.writeByte(PNG_TRUECOLOR);
+		headerData.writeByte(0); //deflate
+		headerData.writeByte(0); //adaptive filtering
+		headerData.writeByte(0); //no interlacing
+		writePngChunk(png, "IHDR", header.toByteArray());
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		DeflaterOutputStream imageData = new DeflaterOutputStream(compressed, deflater);
+		byte[] row = new byte[width * PNG_BYTES_PER_PIXEL];
+		byte[] previousRow = new byte[row.length];
+		byte[] filteredRow = new byte[1 + row.length];
+		filteredRow[0] = PNG_UP_FILTER;
+		for(int y = 0; y < height; y++)
+		{
+			for(int x = 0, pixel = y * width, index = 0; x < width; x++, pixel++)
+			{
+				row[index++] = (byte)(pixels[pixel] >> 16);
+				row[index++] = (byte)(pixels[pixel] >> 8);
+				row[index++] = (byte)pixels[pixel];
+			}
+			for(int index = 0; index < row.length; index++)
+			{
+				filteredRow[index + 1] = (byte)(row[index] - previousRow[index]);
+			}
+			imageData.write(filteredRow);
+			byte[] swap = previousRow;
+			previousRow = row;
+			row = swap;
+		}
+		imageData.finish();
+		deflater.end();
+		writePngChunk(png, "IDAT", compressed.toByteArray());
+		writePngChunk(png, "IEND", new byte[0]);
+		png.flush();
+	}
+
+	private static void writePngChunk(final DataOutputStream png, final String type, final byte[] data) throws IOException
+	{
+		byte[] typeBytes = type.getBytes(Charsets.US_ASCII.name());
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data);
+		png.writeInt(data.length);
+		png.write(typeBytes);
+		png.write(data);
+		png.writeInt((int)crc.getValue());
+	}
+
+	/**
+	 * Writes an SVG image where each piece image that is used is included once
+	 * and then referred to from the squares where the piece is
+	 * @param squareSize the width and height of each square in the default user unit (pixels)
+	 */
+	public static void writeSvg(final char[][] placement, final int squareSize, final Writer output) throws IOException
+	{
+		int boardSize = squareSize * ChessBoard.BOARD_SIZE;
+		int pieceSize = getPieceSize(squareSize);
+		int inset = (squareSize - pieceSize) / 2;
+		StringBuilder squares = new StringBuilder();
+		StringBuilder pieces = new StringBuilder();
+		List<String> usedPieces = Lists.newArrayList();
+		for(int row = 0; row < ChessBoard.BOARD_SIZE; row++)
+		{
+			for(int column = 0; column < ChessBoard.BOARD_SIZE; column++)
+			{
+				int x = column * squareSize;
+				int y = (ChessBoard.BOARD_SIZE - 1 - row) * squareSize;
+				squares.append("<rect x=\"").append(x).append("\" y=\"").append(y).append("\" width=\"").append(squareSize)
+						.append("\" height=\"").append(squareSize).append("\" fill=\"").append(toHex(getSquareColor(row, column))).append("\"/>\n");
+				if(placement[row][column] != 0)
+				{
+					String identifier = getIdentifier(placement[row][column]);
+					if(!usedPieces.contains(identifier))
+					{
+						usedPieces.add(identifier);
+					}
+					pieces.append("<use xlink:href=\"#").append(identifier).append("\" x=\"").append(x + inset).append("\" y=\"").append(y + inset).append("\"/>\n");
+				}
+			}
+		}
+		output.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		output.write("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" version=\"1.1\" width=\""
+				+ boardSize + "\" height=\"" + boardSize + "\">\n");
+		output.write("<defs>\n");
+		for(String identifier : usedPieces)
+		{
+			output.write("<svg id=\"" + identifier + "\" width=\"" + pieceSize + "\" height=\"" + pieceSize + "\"" + getPieceDefinition(identifier) + "\n");
+		}
+		output.write("</defs>\n");
+		output.write(squares.toString());
+		output.write(pieces.toString());
+		output.write("</svg>\n");
+	}
+
+	private static String toHex(final Color color)
+	{
+		return String.format("#%06x", color.getRGB() & 0xFFFFFF);
+	}
+
+	/**
+	 * @return the piece image as an svg element without a size, the size is given to the element when it's written
+	 */
+	private static String getPieceDefinition(final String identifier) throws IOException
+	{
+		String definition = pieceDefinitions.get(identifier);
+		if(definition == null)
+		{
+			URL resource = PieceImageCache.getImageResource(identifier);
+			if(resource == null)
+			{
+				throw new IOException("No image for " + identifier);
+			}
+			String image = Resources.toString(resource, Charsets.UTF_8);
+			int rootStart = image.indexOf("<svg");
+			int rootEnd = image.indexOf('>', rootStart);
+			if(rootStart == -1 || rootEnd == -1)
+			{
+				throw new IOException("No svg element in the image for " + identifier);
+			}
+			//The original size is replaced by the size of the squares, the view box makes the image scale
+			String rootAttributes = SVG_SIZE_AND_ID_ATTRIBUTES.matcher(image.substring(rootStart + "<svg".length(), rootEnd)).replaceAll("");
+			definition = rootAttributes + image.substring(rootEnd);
+			pieceDefinitions.putIfAbsent(identifier, definition);
+		}
+		return definition;
+	}
+
+	/**
+	 * Writes an image of the given placement to the given file
+	 */
+	public static void write(final char[][] placement, final int squareSize, final ImageFormat format, final File file) throws IOException
+	{
+		if(format == ImageFormat.PNG)
+		{
+			OutputStream output = Files.newOutputStreamSupplier(file).getOutput();
+			try
+			{
+				writePng(placement, squareSize, output);
+			}
+			finally
+			{
+				output.close();
+			}
+		}
+		else
+		{
+			Writer output = Files.newWriter(file, Charsets.UTF_8);
+			try
+			{
+				writeSvg(placement, squareSize, output);
+			}
+			finally
+			{
+				output.close();
+			}
+		}
+	}
+
+	/**
+	 * Renders the given positions on one thread per processor, the images are named after the index of their position (000000.png etc)
+	 * <br>Positions that can't be read or written are logged and skipped.
+	 * @param sources FEN strings or paths to .chess files, see {@link #readPlacement(String)}
+	 * @param directory where to put the images, created if it doesn't exist
+	 * @return the number of images that were written
+	 * @throws IOException if the directory couldn't be created
+	 */
+	public static int renderAll(final List<String> sources, final File directory, final ImageFormat format, final int squareSize) throws IOException
+	{
+		Files.createParentDirs(new File(directory, "images"));
+		final AtomicInteger nextSource = new AtomicInteger();
+		final AtomicInteger written = new AtomicInteger();
+		final int pieceSize = getPieceSize(squareSize);
+		int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), sources.size()));
+		ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new ThreadFactoryBuilder().setNameFormat(BoardRenderer.class.getSimpleName() + "-%d").setDaemon(true).build());
+		for(int thread = 0; thread < threads; thread++)
+		{
+			executor.execute(new Runnable(){
+				@Override
+				public void run()
+				{
+					if(format == ImageFormat.PNG)
+					{
+						//Rasterizes the sprites once (on different threads) instead of when the first positions are drawn
+						for(String identifier : PieceImageCache.PIECE_IDENTIFIERS)
+						{
+							PieceImageCache.getSprite(identifier, pieceSize);
+						}
+					}
+					//Each thread takes the next position that hasn't been taken until all are done
+					for(int index = nextSource.getAndIncrement(); index < sources.size(); index = nextSource.getAndIncrement())
+					{
+						String source = sources.get(index);
+						try
+						{
+							write(readPlacement(source), squareSize, format, new File(directory, String.format("%06d", index) + format.getFileEnding()));
+							written.incrementAndGet();
+						}
+						catch(IOException e)
+						{
+							STDERR.warn("Failed to render " + source, e);
+						}
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		try
+		{
+			while(!executor.awaitTermination(1, TimeUnit.SECONDS))
+			{
+				STDOUT.debug("Rendered " + written.get() + " of " + sources.size() + " positions");
+			}
+		}
+		catch(InterruptedException e)
+		{
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		return written.get();
+	}
+
+	/**
+	 * Renders positions without a display
+	 * @param args [-svg] [-size pixels] output-directory inputs...
+	 * <br>where each input is a .chess file or a text file with one FEN string per line
+	 * @throws IOException if an input file couldn't be read
+	 */
+	public static void main(final String[] args) throws IOException
+	{
+		System.setProperty("java.awt.headless", "true");
+		ImageFormat format = ImageFormat.PNG;
+		int squareSize = DEFAULT_SQUARE_SIZE;
+		int arg = 0;
+		for(; arg < args.length && args[arg].startsWith("-"); arg++)
+		{
+			if(args[arg].equals("-svg"))
+			{
+				format = ImageFormat.SVG;
+			}
+			else if(args[arg].equals("-size") && arg + 1 < args.length)
+			{
+				squareSize = Integer.parseInt(args[++arg]);
+			}
+			else
+			{
+				STDERR.error("Unknown option: " + args[arg]);
+				return;
+			}
+		}
+		if(args.length - arg < 2)
+		{
+			STDERR.error("Usage: BoardRenderer [-svg] [-size pixels] output-directory (file.chess | file-with-fen-strings)...");
+			return;
+		}
+		File directory = new File(args[arg++]);
+		List<String> sources = Lists.newArrayList();
+		for(; arg < args.length; arg++)
+		{
+			if(args[arg].endsWith(ChessFileFilter.FILE_ENDING))
+			{
+				sources.add(args[arg]);
+			}
+			else
+			{
+				for(String line : Files.readLines(new File(args[arg]), Charsets.UTF_8))
+				{
+					if(line.trim().length() > 0)
+					{
+						sources.add(line.trim());
+					}
+				}
+			}
+		}
+		long startTime = System.nanoTime();
+		int written = renderAll(sources, directory, format, squareSize);
+		long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+		STDOUT.info("Rendered " + written + " of " + sources.size() + " positions in " + millis + " ms (" + written * TimeUnit.SECONDS.toMillis(1) / millis + " positions/s)");
+	}
+}
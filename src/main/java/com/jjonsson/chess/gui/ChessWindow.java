@@ -14,6 +14,7 @@ import static com.jjonsson.chess.gui.KeyboardActions.Action.UNDO_TWICE;
 import static com.jjonsson.utilities.CrossPlatformUtilities.USUAL_TITLE_HEIGHT;
 import static com.jjonsson.utilities.CrossPlatformUtilities.getTitleHeightForCurrentPlatform;
 import static com.jjonsson.utilities.Loggers.STDOUT;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 import java.awt.Color;
 import java.awt.Dimension;
@@ -30,6 +31,7 @@ import javax.swing.JLabel;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
+import javax.swing.SwingUtilities;
 
 import org.fest.swing.util.Platform;
 
@@ -40,12 +42,13 @@ import com.google.common.io.Files;
 import com.jjonsson.chess.board.ChessBoard;
 import com.jjonsson.chess.board.PiecePlacement;
 import com.jjonsson.chess.evaluators.statistics.StatisticsAction;
+import com.jjonsson.chess.gui.components.BoardWorker;
+import com.jjonsson.chess.gui.components.BoardWorker.BoardCommand;
 import com.jjonsson.chess.gui.components.ChessBoardComponent;
 import com.jjonsson.chess.listeners.StatusListener;
 import com.jjonsson.chess.persistence.BoardLoader;
 import com.jjonsson.chess.persistence.ChessFileFilter;
 import com.jjonsson.chess.persistence.PersistanceLogging;
-import com.jjonsson.utilities.ThreadTracker;
 
 public class ChessWindow extends JFrame implements ActionListener, StatusListener
 {
@@ -61,6 +64,11 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 	private static final int STATUS_BAR_HEIGHT = 20;
 	private static final int WINDOW_BORDER_SIZE = 3;
 
+	/**
+	 * How long to wait for {@link PieceImageCache#preload(int)} before the window is shown without the piece images being ready
+	 */
+	private static final long PRELOADING_TIMEOUT_IN_SECONDS = 5;
+
 	@VisibleForTesting
 	public static final String	FILE_MENU_NAME	= "File";
 
@@ -81,6 +89,8 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 	@VisibleForTesting
 	public static final String	SHOW_AVAILABLE_CLICKS_MENU_ITEM	= "Show Available Clicks";
 	private static final String	HIDE_AVAILABLE_CLICKS_MENU_ITEM	= "Hide Available Clicks";
+	private static final String	SHOW_SEARCH_OVERLAY_MENU_ITEM	= "Show Search Overlay";
+	private static final String	HIDE_SEARCH_OVERLAY_MENU_ITEM	= "Hide Search Overlay";
 
 	@VisibleForTesting
 	public static final String	ACTIONS_MENU_NAME	= "Actions";
@@ -112,8 +122,6 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 	 */
 	private String myInteractionResultText;
 
-	private ThreadTracker myTracker;
-
 	/**
 	 * Makes it possible to view the current speed of evaluations
 	 */
@@ -123,12 +131,11 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 	{
 		super(NAME);
 		myBoard = board;
-		myTracker = new ThreadTracker();
 
 		this.setBackground(Color.DARK_GRAY);
 		createMenuBar();
 
-		this.setSize(ChessWindow.DEFAULT_WINDOW_WIDTH + WINDOW_BORDER_SIZE, ChessWindow.DEFAULT_WINDOW_HEIGHT + WINDOW_BORDER_SIZE + getJMenuBar().getHeight() + STATUS_BAR_HEIGHT);
+		this.setSize(getDefaultWindowSize(getJMenuBar().getHeight()));
 		myComponent = new ChessBoardComponent(myBoard, getBoardComponentSize());
 
 		myComponent.setStatusListener(this);
@@ -143,10 +150,28 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 		createStatusBar();
 		if(displayOption.shouldDisplay())
 		{
+			//The piece images are ready in time unless the machine is really slow
+			if(!PieceImageCache.awaitPreloading(PRELOADING_TIMEOUT_IN_SECONDS, SECONDS))
+			{
+				STDOUT.info("The piece images are still being loaded");
+			}
 			displayGame();
 		}
 	}
 
+	private static Dimension getDefaultWindowSize(final int menuBarHeight)
+	{
+		return new Dimension(DEFAULT_WINDOW_WIDTH + WINDOW_BORDER_SIZE, DEFAULT_WINDOW_HEIGHT + WINDOW_BORDER_SIZE + menuBarHeight + STATUS_BAR_HEIGHT);
+	}
+
+	/**
+	 * @return the size that the board component gets in a new window (before the menu bar has been laid out)
+	 */
+	public static Dimension getDefaultBoardComponentSize()
+	{
+		return getBoardComponentSize(getDefaultWindowSize(0), 0);
+	}
+
 	/**
 	 * Calling this has the same affect as calling {@link ChessWindow#ChessWindow(ChessBoard, DisplayOption) with {@link DisplayOption#DISPLAY}
 	 */
@@ -165,12 +190,17 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 	{
 		myStatisticsWindow.dispose();
 		getBoard().performStatisticsAction(StatisticsAction.INTERRUPT_TRACKING);
+		myComponent.interruptCurrentJobs();
+		getBoardWorker().shutdown();
 		super.dispose();
 	}
 
-	public ThreadTracker getThreadTracker()
+	/**
+	 * @return the worker that loads, saves, undoes and searches so that the EDT doesn't have to
+	 */
+	public BoardWorker getBoardWorker()
 	{
-		return myTracker;
+		return myComponent.getBoardWorker();
 	}
 
 	@VisibleForTesting
@@ -181,7 +211,12 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 
 	public final Dimension getBoardComponentSize()
 	{
-		return new Dimension(getSize().width + WINDOW_BORDER_SIZE, getSize().height - getJMenuBar().getHeight() - STATUS_BAR_HEIGHT - USUAL_TITLE_HEIGHT);
+		return getBoardComponentSize(getSize(), getJMenuBar().getHeight());
+	}
+
+	private static Dimension getBoardComponentSize(final Dimension windowSize, final int menuBarHeight)
+	{
+		return new Dimension(windowSize.width + WINDOW_BORDER_SIZE, windowSize.height - menuBarHeight - STATUS_BAR_HEIGHT - USUAL_TITLE_HEIGHT);
 	}
 
 	private void createStatusBar()
@@ -203,7 +238,7 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 	public final void updateStatusBar()
 	{
 		myInteractionResultText = "";
-		myGameStatus = getBoard().getStatusString();
+		myGameStatus = myComponent.getStatus();
 		myStatusBar.setText(myGameStatus);
 	}
 
@@ -321,6 +356,10 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 		showAvailableClicks.addActionListener(this);
 		settingsMenu.add(showAvailableClicks);
 
+		JMenuItem showSearchOverlay = new JMenuItem(SHOW_SEARCH_OVERLAY_MENU_ITEM);
+		showSearchOverlay.addActionListener(this);
+		settingsMenu.add(showSearchOverlay);
+
 		JMenuItem disableAI = new JMenuItem(DISABLE_AI_MENU_ITEM);
 		disableAI.addActionListener(this);
 		settingsMenu.add(disableAI);
@@ -337,21 +376,47 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 			selectFile("Save Chess File");
 		}
 
-		if(BoardLoader.saveBoard(getBoard(), myCurrentBoardFile))
-		{
-			setResultOfInteraction("Saved successfully");
-		}
-		else
-		{
-			setResultOfInteraction("Save failed");
-		}
+		final String file = myCurrentBoardFile;
+		getBoardWorker().submit(new BoardCommand<Boolean>("save the board to " + file){
+			@Override
+			protected Boolean perform()
+			{
+				return BoardLoader.saveBoard(getBoard(), file);
+			}
+
+			@Override
+			protected void done(final Boolean saved)
+			{
+				if(saved)
+				{
+					setResultOfInteraction("Saved successfully");
+				}
+				else
+				{
+					setResultOfInteraction("Save failed");
+				}
+			}
+		});
 	}
 
 	private void newGame()
 	{
+		//The component is only changed on the EDT, the selection is forgotten before the worker removes the pieces
 		myComponent.clear();
-		myBoard.reset();
-		myComponent.nextPlayer();
+		getBoardWorker().submit(new BoardCommand<Void>("start a new game"){
+			@Override
+			protected Void perform()
+			{
+				myBoard.reset();
+				return null;
+			}
+
+			@Override
+			protected void done(final Void result)
+			{
+				myComponent.nextPlayer();
+			}
+		});
 	}
 
 	/**
@@ -361,6 +426,17 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 	@Override
 	public void setResultOfInteraction(final String msg)
 	{
+		if(!SwingUtilities.isEventDispatchThread())
+		{
+			SwingUtilities.invokeLater(new Runnable(){
+				@Override
+				public void run()
+				{
+					setResultOfInteraction(msg);
+				}
+			});
+			return;
+		}
 		myInteractionResultText = msg;
 		myStatusBar.setText(myGameStatus + " (" + msg + ")");
 	}
@@ -368,6 +444,17 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 	@Override
 	public void setProgressInformation(final String msg)
 	{
+		if(!SwingUtilities.isEventDispatchThread())
+		{
+			SwingUtilities.invokeLater(new Runnable(){
+				@Override
+				public void run()
+				{
+					setProgressInformation(msg);
+				}
+			});
+			return;
+		}
 		myStatusBar.setText(myGameStatus + " (" + myInteractionResultText + ") (" + msg + ")");
 	}
 
@@ -376,52 +463,96 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 		File selectedFile = selectFile("Load Chess File");
 		if(myCurrentBoardFile != null)
 		{
-			boolean loadOk = false;
-			while(!loadOk && myCurrentBoardFile != null)
+			load(selectedFile);
+		}
+	}
+
+	/**
+	 * Loads the given file on the worker, if it can't be loaded the user is asked for another file
+	 */
+	private void load(final File file)
+	{
+		setResultOfInteraction("Loading " + file.getName());
+		myComponent.clear();
+		getBoardWorker().submit(new BoardCommand<Boolean>("load " + file){
+			@Override
+			protected Boolean perform()
 			{
 				//First make a test load
-				if(BoardLoader.loadFileIntoBoard(selectedFile, new ChessBoard(PiecePlacement.DONT_PLACE_PIECES, PersistanceLogging.USE_PERSISTANCE_LOGGING)))
+				if(BoardLoader.loadFileIntoBoard(file, new ChessBoard(PiecePlacement.DONT_PLACE_PIECES, PersistanceLogging.USE_PERSISTANCE_LOGGING)))
 				{
 					//The board seems to look fine, replace the board connected to the GUI with this one
 					getBoard().clear();
-					myComponent.clear();
-					loadOk = BoardLoader.loadFileIntoBoard(selectedFile, getBoard());
-					if(loadOk)
-					{
-						break;
-					}
+					return loadIntoBoard(file);
 				}
-				myStatusBar.setText(myGameStatus + " (Invalid board file format, Select new file to load)");
-				selectedFile = selectFile("Load Chess File");
+				return false;
 			}
-			myComponent.loadingOfBoardDone();
 
-			if(loadOk)
-			{
-				setResultOfInteraction("Load Ok");
-			}
-			else
+			@Override
+			protected void done(final Boolean loadOk)
 			{
-				setResultOfInteraction("Load Cancelled");
+				if(loadOk)
+				{
+					setResultOfInteraction("Load Ok");
+					return;
+				}
+				myStatusBar.setText(myGameStatus + " (Invalid board file format, Select new file to load)");
+				File nextFile = selectFile("Load Chess File");
+				if(myCurrentBoardFile != null)
+				{
+					load(nextFile);
+				}
+				else
+				{
+					myComponent.loadingOfBoardDone();
+					setResultOfInteraction("Load Cancelled");
+				}
 			}
+		});
+	}
+
+	/**
+	 * Loads the given file into the cleared board and shows it, must be called on the worker
+	 * @return true if the file was loaded
+	 */
+	private boolean loadIntoBoard(final File file)
+	{
+		if(BoardLoader.loadFileIntoBoard(file, getBoard()))
+		{
+			myComponent.loadingOfBoardDone();
+			return true;
 		}
+		return false;
 	}
 
 	private void reload()
 	{
 		if(myCurrentBoardFile != null)
 		{
-			getBoard().clear();
+			final File file = new File(myCurrentBoardFile);
 			myComponent.clear();
-			if(BoardLoader.loadFileIntoBoard(new File(myCurrentBoardFile), getBoard()))
-			{
-				setResultOfInteraction("Reload Ok");
-			}
-			else
-			{
-				setResultOfInteraction("Reload failed! Starting New Game.");
-				newGame();
-			}
+			getBoardWorker().submit(new BoardCommand<Boolean>("reload " + file){
+				@Override
+				protected Boolean perform()
+				{
+					getBoard().clear();
+					return loadIntoBoard(file);
+				}
+
+				@Override
+				protected void done(final Boolean reloadOk)
+				{
+					if(reloadOk)
+					{
+						setResultOfInteraction("Reload Ok");
+					}
+					else
+					{
+						setResultOfInteraction("Reload failed! Starting New Game.");
+						newGame();
+					}
+				}
+			});
 		}
 		else
 		{
@@ -431,17 +562,28 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 
 	private void undo(final int nrOfMoves)
 	{
-		int undoneMoves = getBoard().undoMoves(nrOfMoves);
-		updateStatusBar();
-		if(undoneMoves == 0)
-		{
-			setResultOfInteraction("Undo not possible");
-		}
-		else
-		{
-			setResultOfInteraction("Reverted " + undoneMoves + " moves");
-		}
-		myComponent.repaint();
+		getBoardWorker().submit(new BoardCommand<Integer>("undo " + nrOfMoves + " moves"){
+			@Override
+			protected Integer perform()
+			{
+				return getBoard().undoMoves(nrOfMoves);
+			}
+
+			@Override
+			protected void done(final Integer undoneMoves)
+			{
+				updateStatusBar();
+				if(undoneMoves == 0)
+				{
+					setResultOfInteraction("Undo not possible");
+				}
+				else
+				{
+					setResultOfInteraction("Reverted " + undoneMoves + " moves");
+				}
+				myComponent.repaint();
+			}
+		});
 	}
 
 	/**
@@ -465,6 +607,8 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 	private static Set<String> noAbortionNecessaryCommands = Sets.newHashSet(
 			SHOW_AVAILABLE_CLICKS_MENU_ITEM,
 			HIDE_AVAILABLE_CLICKS_MENU_ITEM,
+			SHOW_SEARCH_OVERLAY_MENU_ITEM,
+			HIDE_SEARCH_OVERLAY_MENU_ITEM,
 			SHOW_STATISTICS_MENU_ITEM);
 
 	@Override
@@ -475,7 +619,6 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 		{
 			//Cancel current jobs such as when the AI is thinking of the next move or when a hint move is searched for
 			myComponent.interruptCurrentJobs();
-			myTracker.interruptCurrentJobs();
 		}
 
 		if(e.getActionCommand().equals(NEW_MENU_ITEM))
@@ -530,6 +673,16 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 			myComponent.showAvailableClicks(false);
 			JMenuItem.class.cast(e.getSource()).setText(SHOW_AVAILABLE_CLICKS_MENU_ITEM);
 		}
+		else if(e.getActionCommand().equals(SHOW_SEARCH_OVERLAY_MENU_ITEM))
+		{
+			myComponent.showSearchOverlay(true);
+			JMenuItem.class.cast(e.getSource()).setText(HIDE_SEARCH_OVERLAY_MENU_ITEM);
+		}
+		else if(e.getActionCommand().equals(HIDE_SEARCH_OVERLAY_MENU_ITEM))
+		{
+			myComponent.showSearchOverlay(false);
+			JMenuItem.class.cast(e.getSource()).setText(SHOW_SEARCH_OVERLAY_MENU_ITEM);
+		}
 		else if(e.getActionCommand().equals(SHOW_STATISTICS_MENU_ITEM))
 		{
 			myStatisticsWindow.setVisible(true);
@@ -543,18 +696,14 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 	private void showHint()
 	{
 		setResultOfInteraction("Thinking of a hint");
-		Thread t = new Thread()
-		{
+		getBoardWorker().submit(new BoardCommand<Void>("search for a hint"){
 			@Override
-			public void run()
+			protected Void perform()
 			{
 				myComponent.showHint();
-				myTracker.removeJob(this);
+				return null;
 			}
-		};
-		myTracker.addJob(t);
-		t.start();
-
+		});
 	}
 
 	private File selectFile(final String buttonText)
@@ -615,6 +764,17 @@ public class ChessWindow extends JFrame implements ActionListener, StatusListene
 	@Override
 	public void statusHasBeenUpdated()
 	{
+		if(!SwingUtilities.isEventDispatchThread())
+		{
+			SwingUtilities.invokeLater(new Runnable(){
+				@Override
+				public void run()
+				{
+					updateStatusBar();
+				}
+			});
+			return;
+		}
 		updateStatusBar();
 	}
 }
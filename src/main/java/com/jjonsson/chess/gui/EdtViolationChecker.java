@@ -0,0 +1,129 @@
+package com.jjonsson.chess.gui;
+
+import static com.jjonsson.utilities.Loggers.STDERR;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.JComponent;
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Sets;
+
+/**
+ * Reports the two kinds of threading mistakes that makes the GUI misbehave (used in debug mode, see {@link #install()}):
+ * <ul>
+ * <li>Swing components that are changed from another thread than the EDT (found by replacing the {@link RepaintManager},
+ * {@link JComponent#repaint()} is thread safe so it isn't reported)</li>
+ * <li>Long running work, like searches, that is done on the EDT, see {@link #checkNotOnEdt(String)}</li>
+ * </ul>
+ * Each place in the code is only reported once
+ */
+public final class EdtViolationChecker extends RepaintManager
+{
+	private static volatile EdtViolationChecker installed;
+
+	private final Set<String> myReportedViolations = Sets.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final AtomicInteger myViolations = new AtomicInteger();
+
+	@VisibleForTesting
+	EdtViolationChecker()
+	{
+	}
+
+	/**
+	 * Starts checking the threading of the GUI, does nothing if it's already checked
+	 */
+	public static synchronized void install()
+	{
+		if(installed == null)
+		{
+			installed = new EdtViolationChecker();
+			RepaintManager.setCurrentManager(installed);
+		}
+	}
+
+	/**
+	 * Reports work that shouldn't be done on the EDT as it would freeze the GUI, does nothing unless the checker is installed
+	 * @param work what is about to be done
+	 */
+	public static void checkNotOnEdt(final String work)
+	{
+		EdtViolationChecker checker = installed;
+		if(checker != null && SwingUtilities.isEventDispatchThread())
+		{
+			checker.report(work + " on the EDT", new Throwable().getStackTrace());
+		}
+	}
+
+	@Override
+	public synchronized void addInvalidComponent(final JComponent invalidComponent)
+	{
+		checkThread(invalidComponent);
+		super.addInvalidComponent(invalidComponent);
+	}
+
+	@Override
+	public void addDirtyRegion(final JComponent c, final int x, final int y, final int w, final int h)
+	{
+		checkThread(c);
+		super.addDirtyRegion(c, x, y, w, h);
+	}
+
+	@VisibleForTesting
+	void checkThread(final JComponent component)
+	{
+		if(SwingUtilities.isEventDispatchThread())
+		{
+			return;
+		}
+		StackTraceElement[] stack = new Throwable().getStackTrace();
+		for(StackTraceElement element : stack)
+		{
+			if("repaint".equals(element.getMethodName()) || "imageUpdate".equals(element.getMethodName()))
+			{
+				return;
+			}
+		}
+		//Components that have never been shown can be built on any thread
+		if(!component.isShowing())
+		{
+			return;
+		}
+		report(component.getClass().getSimpleName() + " changed from " + Thread.currentThread().getName(), stack);
+	}
+
+	private void report(final String violation, final StackTraceElement[] stack)
+	{
+		myViolations.incrementAndGet();
+		//The first element that isn't in this class or in Swing is where the violation was made
+		String location = violation;
+		for(StackTraceElement element : stack)
+		{
+			if(!element.getClassName().equals(EdtViolationChecker.class.getName()) && !element.getClassName().startsWith("javax.")
+					&& !element.getClassName().startsWith("java."))
+			{
+				location = violation + " at " + element;
+				break;
+			}
+		}
+		if(myReportedViolations.add(location))
+		{
+			Throwable trace = new Throwable("EDT violation");
+			trace.setStackTrace(stack);
+			STDERR.warn(location, trace);
+		}
+	}
+
+	/**
+	 * @return how many times a violation has been found, including the ones that weren't reported because they were already reported
+	 */
+	@VisibleForTesting
+	int getViolations()
+	{
+		return myViolations.get();
+	}
+}
@@ -1,58 +1,360 @@
 package com.jjonsson.chess.gui;
 
 import static com.jjonsson.utilities.Loggers.STDERR;
+import static com.jjonsson.utilities.Loggers.STDOUT;
 
-import java.io.FileNotFoundException;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Dimension2D;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.batik.bridge.BridgeContext;
+import org.apache.batik.bridge.BridgeException;
+import org.apache.batik.bridge.GVTBuilder;
+import org.apache.batik.bridge.UserAgentAdapter;
 import org.apache.batik.dom.svg.SAXSVGDocumentFactory;
+import org.apache.batik.gvt.GraphicsNode;
 import org.apache.batik.util.XMLResourceDescriptor;
 import org.w3c.dom.svg.SVGDocument;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.jjonsson.chess.pieces.Piece;
 
+/**
+ * Rasterized images (sprites) of the pieces. The SVG file for each piece is parsed once and
+ * then painted once for each size that the sprite is asked for.
+ * <br>The sprites for the {@link #MAX_CACHED_SIZES} most recently used sizes are kept, older sizes are evicted.
+ * <br>All the images can be parsed and rasterized in the background with {@link #preload(int)} so that the first paint doesn't have to wait for them.
+ */
 public final class PieceImageCache
 {
 	private PieceImageCache(){}
 
-	private static SAXSVGDocumentFactory svgFactory = new SAXSVGDocumentFactory(XMLResourceDescriptor.getXMLParserClassName());
+	/**
+	 * One size is used per window, the extra sizes makes resizing back and forth cheap
+	 */
+	static final int MAX_CACHED_SIZES = 4;
+
+	/**
+	 * The identifiers of all the pieces, see {@link Piece#getIdentifier()}
+	 */
+	public static final List<String> PIECE_IDENTIFIERS = ImmutableList.of(
+			"White_King", "White_Queen", "White_Rock", "White_Bishop", "White_Knight", "White_Pawn",
+			"Black_King", "Black_Queen", "Black_Rock", "Black_Bishop", "Black_Knight", "Black_Pawn");
+
+	/**
+	 * The parsed graphics by piece identifier, the tasks are run by the first thread that needs them
+	 * and the graphics are null for pieces whose image couldn't be loaded
+	 */
+	private static ConcurrentMap<String, FutureTask<PieceGraphics>> pieceGraphics = Maps.newConcurrentMap();
 
-	private static Map<String, SVGDocument> pieceCache = Maps.newHashMap();
-	public static SVGDocument getSVGForPiece(final Piece p)
+	/**
+	 * Sprites by size and piece identifier, in the order they were last used
+	 */
+	private static Map<Integer, Map<String, BufferedImage>> sprites = new LinkedHashMap<Integer, Map<String, BufferedImage>>(MAX_CACHED_SIZES, 1, true)
 	{
-		SVGDocument cachedDocument = pieceCache.get(p.getIdentifier());
-		if(cachedDocument == null)
+		private static final long	serialVersionUID	= 6437104937151829043L;
+
+		@Override
+		protected boolean removeEldestEntry(final Entry<Integer, Map<String, BufferedImage>> eldest)
 		{
-			cachedDocument = imageForPiece(p);
-			//TODO(jontejj) can we actually cache this?
-			//pieceCache.put(p.getIdentifier(), cachedDocument);
+			return size() > MAX_CACHED_SIZES;
 		}
-		return cachedDocument;
+	};
+
+	/**
+	 * Counted down when the last {@link #preload(int)} is done
+	 */
+	private static volatile CountDownLatch preloading = new CountDownLatch(0);
+
+	/**
+	 * A parsed piece image, painting it isn't thread safe so that's done while holding its lock
+	 */
+	private static final class PieceGraphics
+	{
+		private final GraphicsNode myNode;
+		private final Dimension2D myDocumentSize;
+
+		private PieceGraphics(final GraphicsNode node, final Dimension2D documentSize)
+		{
+			myNode = node;
+			myDocumentSize = documentSize;
+		}
+	}
+
+	/**
+	 * @param size the width and height of the sprite in pixels
+	 * @return a sprite for the given piece with a transparent background or null if the image for the piece couldn't be loaded
+	 */
+	public static BufferedImage getSprite(final Piece p, final int size)
+	{
+		return getSprite(p.getIdentifier(), size);
 	}
+
 	/**
-	 * Note: This function requires that the "images" directory is added to the class path
+	 * @param identifier see {@link Piece#getIdentifier()}
+	 * @param size the width and height of the sprite in pixels
+	 * @return a sprite for the given piece with a transparent background or null if the image for the piece couldn't be loaded
+	 */
+	public static BufferedImage getSprite(final String identifier, final int size)
+	{
+		if(size <= 0)
+		{
+			return null;
+		}
+		BufferedImage sprite;
+		synchronized(sprites)
+		{
+			sprite = getSpritesForSize(size).get(identifier);
+		}
+		if(sprite == null)
+		{
+			//Rasterized without holding the lock so that different sprites can be rasterized in parallel
+			PieceGraphics graphics = getGraphics(identifier);
+			if(graphics == null)
+			{
+				return null;
+			}
+			sprite = rasterize(graphics, size);
+			synchronized(sprites)
+			{
+				Map<String, BufferedImage> spritesForSize = getSpritesForSize(size);
+				BufferedImage existingSprite = spritesForSize.get(identifier);
+				if(existingSprite != null)
+				{
+					sprite = existingSprite;
+				}
+				else
+				{
+					spritesForSize.put(identifier, sprite);
+				}
+			}
+		}
+		return sprite;
+	}
+
+	/**
+	 * Must be called while holding the lock for {@link #sprites}
+	 */
+	private static Map<String, BufferedImage> getSpritesForSize(final int size)
+	{
+		Map<String, BufferedImage> spritesForSize = sprites.get(size);
+		if(spritesForSize == null)
+		{
+			spritesForSize = Maps.newHashMap();
+			sprites.put(size, spritesForSize);
+		}
+		return spritesForSize;
+	}
+
+	/**
+	 * @return the number of sizes that there are sprites for
+	 */
+	static int getCachedSizeCount()
+	{
+		synchronized(sprites)
+		{
+			return sprites.size();
+		}
+	}
+
+	/**
+	 * Parses and rasterizes all the piece images on background threads, one thread per processor.
+	 * <br>Use {@link #awaitPreloading(long, TimeUnit)} to wait for the sprites to be ready
+	 * @param size the size of the sprites to rasterize, 0 if the images should only be parsed
+	 */
+	public static void preload(final int size)
+	{
+		final CountDownLatch done = new CountDownLatch(PIECE_IDENTIFIERS.size());
+		preloading = done;
+		final long startTime = System.nanoTime();
+		int threads = Math.min(Runtime.getRuntime().availableProcessors(), PIECE_IDENTIFIERS.size());
+		ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new ThreadFactoryBuilder().setNameFormat(PieceImageCache.class.getSimpleName() + "-%d").setDaemon(true).build());
+		for(final String identifier : PIECE_IDENTIFIERS)
+		{
+			executor.execute(new Runnable(){
+				@Override
+				public void run()
+				{
+					try
+					{
+						if(size > 0)
+						{
+							getSprite(identifier, size);
+						}
+						else
+						{
+							getGraphics(identifier);
+						}
+					}
+					finally
+					{
+						done.countDown();
+						if(done.getCount() == 0)
+						{
+							STDOUT.debug("Preloaded the piece images in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + " ms");
+						}
+					}
+				}
+			});
+		}
+		executor.shutdown();
+	}
+
+	/**
+	 * Waits for the last {@link #preload(int)} to finish, returns directly if nothing is being preloaded
+	 * @return true if the preloading is done, false if the timeout elapsed before that
+	 */
+	public static boolean awaitPreloading(final long timeout, final TimeUnit unit)
+	{
+		try
+		{
+			return preloading.await(timeout, unit);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static PieceGraphics getGraphics(final String identifier)
+	{
+		FutureTask<PieceGraphics> task = pieceGraphics.get(identifier);
+		if(task == null)
+		{
+			FutureTask<PieceGraphics> newTask = new FutureTask<PieceGraphics>(new Callable<PieceGraphics>(){
+				@Override
+				public PieceGraphics call()
+				{
+					return buildGraphics(identifier);
+				}
+			});
+			task = pieceGraphics.putIfAbsent(identifier, newTask);
+			if(task == null)
+			{
+				task = newTask;
+				task.run();
+			}
+		}
+		try
+		{
+			return task.get();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch(ExecutionException e)
+		{
+			STDERR.fatal("Failed to build the image for piece: " + identifier, e.getCause());
+			return null;
+		}
+	}
+
+	private static PieceGraphics buildGraphics(final String identifier)
+	{
+		SVGDocument document = imageForPiece(identifier);
+		if(document == null)
+		{
+			return null;
+		}
+		BridgeContext context = new BridgeContext(new UserAgentAdapter());
+		try
+		{
+			GraphicsNode node = new GVTBuilder().build(context, document);
+			return new PieceGraphics(node, context.getDocumentSize());
+		}
+		catch(BridgeException e)
+		{
+			STDERR.fatal("Failed to build the image for piece: " + identifier, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Paints the given graphics centered in a square image
 	 */
-	private static SVGDocument imageForPiece(final Piece p)
+	private static BufferedImage rasterize(final PieceGraphics graphics, final int size)
 	{
-		SVGDocument document = null;
-		String image = "/images/svg/Piece_" + p.getIdentifier() + ".svg";
+		BufferedImage sprite = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		double width = graphics.myDocumentSize.getWidth();
+		double height = graphics.myDocumentSize.getHeight();
+		double scale = size / Math.max(width, height);
+
+		Graphics2D g2d = sprite.createGraphics();
 		try
 		{
-			URL resource = PieceImageCache.class.getResource(image);
-			document = svgFactory.createSVGDocument(resource.toString());
+			g2d.setRenderingHints(WindowUtilities.getRenderingHints());
+			g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			AffineTransform transform = AffineTransform.getTranslateInstance((size - width * scale) / 2, (size - height * scale) / 2);
+			transform.scale(scale, scale);
+			g2d.transform(transform);
+			synchronized(graphics)
+			{
+				graphics.myNode.paint(g2d);
+			}
 		}
-		catch (FileNotFoundException fnfe)
+		finally
+		{
+			g2d.dispose();
+		}
+		return sprite;
+	}
+
+	/**
+	 * Note: This function requires that the "images" directory is added to the class path
+	 * @return the SVG file for the given piece or null if it couldn't be found
+	 */
+	static URL getImageResource(final String identifier)
+	{
+		String image = "/images/svg/Piece_" + identifier + ".svg";
+		URL resource = PieceImageCache.class.getResource(image);
+		if(resource == null)
 		{
 			STDERR.fatal("PieceImageCache: Couldn't find resource for image at: " + image);
+		}
+		return resource;
+	}
+
+	/**
+	 * A new factory is used for each document as the factories aren't thread safe
+	 */
+	private static SVGDocument imageForPiece(final String identifier)
+	{
+		URL resource = getImageResource(identifier);
+		if(resource == null)
+		{
 			return null;
 		}
+		try
+		{
+			SAXSVGDocumentFactory svgFactory = new SAXSVGDocumentFactory(XMLResourceDescriptor.getXMLParserClassName());
+			return svgFactory.createSVGDocument(resource.toString());
+		}
 		catch (IOException e)
 		{
-			STDERR.fatal("Failed to load image for piece: " + p, e);
+			STDERR.fatal("Failed to load image for piece: " + identifier, e);
 		}
-		return document;
+		return null;
 	}
 }
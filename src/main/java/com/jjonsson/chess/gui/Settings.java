@@ -6,6 +6,10 @@ public final class Settings
 
 	public static boolean DEBUG = Boolean.valueOf(System.getenv("debug")) || Boolean.getBoolean("debug");
 	public static final boolean DEMO = Boolean.valueOf(System.getenv("demomode")) || Boolean.getBoolean("demomode");
+	/**
+	 * If the AI should search for its next move while the user is thinking
+	 */
+	public static final boolean PONDERING = !(Boolean.valueOf(System.getenv("noponder")) || Boolean.getBoolean("noponder"));
 
 	public static boolean DISABLE_SAVING = false;
 
@@ -9,6 +9,7 @@ import java.awt.GridLayout;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 
+import com.jjonsson.chess.evaluators.SearchTelemetry;
 import com.jjonsson.chess.evaluators.statistics.StatisticsSnapshot;
 import com.jjonsson.chess.listeners.StatisticsListener;
 
@@ -29,12 +30,19 @@ public class StatisticsWindow extends JFrame implements StatisticsListener
 	private static final JLabel MOVE_EVALUATION_TIME_TEXT = new JLabel("Running time (in seconds) of evaluation");
 	private JLabel myMoveEvaluationTime = new JLabel("0");
 
+	private static final JLabel DEPTH_TEXT = new JLabel("Depth (selective depth) of the last search");
+	private JLabel myDepthLabel = new JLabel("0");
+	private static final JLabel BRANCHING_FACTOR_TEXT = new JLabel("Branching factor of the last search");
+	private JLabel myBranchingFactorLabel = new JLabel("0");
+	private static final JLabel FIRST_MOVE_BEST_TEXT = new JLabel("First move best (move ordering quality)");
+	private JLabel myFirstMoveBestLabel = new JLabel("0");
+
 	private long myHighestSpeed;
 
 	public StatisticsWindow()
 	{
 		setTitle("Statistics Window");
-		setLayout(new GridLayout(4, 2, 10, 0));
+		setLayout(new GridLayout(7, 2, 10, 0));
 		setSize(150, 60);
 		add(MOVES_MADE_TEXT);
 		add(myMovesMadeCounter);
@@ -44,6 +52,12 @@ public class StatisticsWindow extends JFrame implements StatisticsListener
 		add(myMoveEvaluationTime);
 		add(HIGHEST_SPEED_TEXT);
 		add(myHighestSpeedLabel);
+		add(DEPTH_TEXT);
+		add(myDepthLabel);
+		add(BRANCHING_FACTOR_TEXT);
+		add(myBranchingFactorLabel);
+		add(FIRST_MOVE_BEST_TEXT);
+		add(myFirstMoveBestLabel);
 		pack();
 	}
 	@Override public void newStatistics(final StatisticsSnapshot snapshot)
@@ -62,6 +76,16 @@ public class StatisticsWindow extends JFrame implements StatisticsListener
 		}
 	}
 
+	@Override public void searchFinished(final SearchTelemetry telemetry)
+	{
+		if(isVisible())
+		{
+			myDepthLabel.setText(telemetry.getDepth() + " (" + telemetry.getSelectiveDepth() + ")");
+			myBranchingFactorLabel.setText(String.format("%.1f", telemetry.getBranchingFactor()));
+			myFirstMoveBestLabel.setText(String.format("%.0f%%", telemetry.getFirstMoveBestRate() * 100));
+		}
+	}
+
 	@Override public void wasInterrupted(final InterruptedException ie)
 	{
 		//TODO: handle/visualize this
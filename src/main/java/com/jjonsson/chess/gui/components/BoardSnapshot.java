@@ -0,0 +1,157 @@
+package com.jjonsson.chess.gui.components;
+
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.evaluators.ChessBoardEvaluator;
+import com.jjonsson.chess.moves.Move;
+import com.jjonsson.chess.moves.Position;
+import com.jjonsson.chess.pieces.Piece;
+
+/**
+ * What a {@link ChessBoardComponent} shows of its board, taken by the thread that changed the board (the {@link BoardWorker})
+ * when a change is complete and handed to the EDT, so that painting and selecting pieces never reads a board that is being changed.
+ * <br>The pieces are only used for their identity and their looks (kind and color) as their positions may have changed since.
+ */
+final class BoardSnapshot
+{
+	private static final int SQUARES = ChessBoard.BOARD_SIZE * ChessBoard.BOARD_SIZE;
+
+	/**
+	 * The piece at each square (row * 8 + column), null for empty squares
+	 */
+	private final Piece[] myPieces;
+
+	/**
+	 * One bit for each square that the current player's piece at the square can move to
+	 */
+	private final long[] myDestinations;
+
+	private final long myMovablePieceSquares;
+	private final boolean myCurrentPlayer;
+	private final boolean myInPlay;
+	private final String myStatus;
+
+	private BoardSnapshot(final Piece[] pieces, final long[] destinations, final long movablePieceSquares, final boolean currentPlayer,
+			final boolean inPlay, final String status)
+	{
+		myPieces = pieces;
+		myDestinations = destinations;
+		myMovablePieceSquares = movablePieceSquares;
+		myCurrentPlayer = currentPlayer;
+		myInPlay = inPlay;
+		myStatus = status;
+	}
+
+	/**
+	 * Must be called by the thread that changes the given board
+	 */
+	static BoardSnapshot of(final ChessBoard board)
+	{
+		Piece[] pieces = new Piece[SQUARES];
+		long[] destinations = new long[SQUARES];
+		long movablePieceSquares = 0;
+		boolean currentPlayer = board.getCurrentPlayer();
+		for(Piece p : board.getPieces())
+		{
+			int square = getSquareIndex(p.getCurrentPosition());
+			pieces[square] = p;
+			if(p.hasSameAffinityAs(currentPlayer))
+			{
+				for(Move m : p.getAvailableMoves())
+				{
+					destinations[square] |= 1L << getSquareIndex(m.getDestination());
+				}
+				if(destinations[square] != 0)
+				{
+					movablePieceSquares |= 1L << square;
+				}
+			}
+		}
+		return new BoardSnapshot(pieces, destinations, movablePieceSquares, currentPlayer, ChessBoardEvaluator.inPlay(board), board.getStatusString());
+	}
+
+	static int getSquareIndex(final Position position)
+	{
+		return position.getRow() * ChessBoard.BOARD_SIZE + position.getColumn();
+	}
+
+	/**
+	 * @return the piece at the given square (row * 8 + column) or null if it was empty
+	 */
+	Piece getPiece(final int square)
+	{
+		return myPieces[square];
+	}
+
+	Piece getPiece(final Position position)
+	{
+		return getPiece(getSquareIndex(position));
+	}
+
+	/**
+	 * @return the square (row * 8 + column) that the given piece was at or -1 if it wasn't on the board
+	 */
+	int getSquare(final Piece piece)
+	{
+		if(piece != null)
+		{
+			for(int square = 0; square < SQUARES; square++)
+			{
+				if(myPieces[square] == piece)
+				{
+					return square;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return one bit for each square that the piece at the given square could move to, 0 for the pieces of the player that waited
+	 */
+	long getDestinations(final int square)
+	{
+		return square == -1 ? 0 : myDestinations[square];
+	}
+
+	/**
+	 * @return one bit for each square with a piece that the current player could move
+	 */
+	long getMovablePieceSquares()
+	{
+		return myMovablePieceSquares;
+	}
+
+	/**
+	 * @return the squares that has another piece (or no piece) in the given snapshot
+	 */
+	long getChangedSquares(final BoardSnapshot other)
+	{
+		long changedSquares = 0;
+		for(int square = 0; square < SQUARES; square++)
+		{
+			if(myPieces[square] != other.myPieces[square])
+			{
+				changedSquares |= 1L << square;
+			}
+		}
+		return changedSquares;
+	}
+
+	boolean getCurrentPlayer()
+	{
+		return myCurrentPlayer;
+	}
+
+	boolean isInPlay()
+	{
+		return myInPlay;
+	}
+
+	/**
+	 * @return the status that the board had, see {@link ChessBoard#getStatusString()}
+	 */
+	String getStatus()
+	{
+		return myStatus;
+	}
+}
@@ -0,0 +1,173 @@
+package com.jjonsson.chess.gui.components;
+
+import static com.jjonsson.utilities.Loggers.STDERR;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingUtilities;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The thread that changes the board of a {@link ChessBoardComponent} (a single writer), loading, saving, undoing and
+ * searching are queued here as {@link BoardCommand}s and performed one at a time in the order they were submitted
+ * so that the EDT never has to wait for them.
+ * <br>The result of each command is handed back to the EDT with {@link SwingUtilities#invokeLater(Runnable)}.
+ * <br>The moves that the user makes by clicking on the board are queued like everything else, the EDT only reads
+ * the snapshots of the board that the worker hands to it (see {@link BoardSnapshot}).
+ */
+public final class BoardWorker
+{
+	/**
+	 * Work that is performed on the board by a {@link BoardWorker}
+	 * @param <T> the type of the result that is handed back to the EDT
+	 */
+	public abstract static class BoardCommand<T>
+	{
+		private final String myName;
+
+		/**
+		 * @param name what the command does, used when it fails
+		 */
+		protected BoardCommand(final String name)
+		{
+			myName = name;
+		}
+
+		/**
+		 * Called on the worker thread
+		 */
+		protected abstract T perform() throws Exception;
+
+		/**
+		 * Called on the EDT with the result of {@link #perform()}
+		 */
+		protected void done(final T result)
+		{
+		}
+
+		/**
+		 * Called on the EDT if {@link #perform()} threw an exception, an {@link Error} is wrapped in an {@link ExecutionException}
+		 * and it's then rethrown on the worker thread
+		 */
+		protected void failed(final Exception e)
+		{
+			STDERR.error("Failed to " + myName, e);
+		}
+
+		@Override
+		public String toString()
+		{
+			return myName;
+		}
+	}
+
+	private final ExecutorService myExecutor;
+
+	/**
+	 * The number of commands that have been submitted but whose results haven't been handed to the EDT yet
+	 */
+	private int myPendingCommands;
+
+	public BoardWorker()
+	{
+		//The thread isn't started until the first command is submitted
+		myExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat(BoardWorker.class.getSimpleName() + "-%d").setDaemon(true).build());
+	}
+
+	/**
+	 * Queues the given command, it's performed after the commands that were submitted before it. Can be called from any thread
+	 */
+	public <T> void submit(final BoardCommand<T> command)
+	{
+		synchronized(this)
+		{
+			myPendingCommands++;
+		}
+		myExecutor.execute(new Runnable(){
+			@Override
+			public void run()
+			{
+				T result = null;
+				Exception failure = null;
+				try
+				{
+					result = command.perform();
+				}
+				catch(Exception e)
+				{
+					failure = e;
+				}
+				catch(Error e)
+				{
+					//The command is still finished so that the worker doesn't look busy forever but the error isn't
+					//something to recover from, it's left to end the thread (the executor starts a new one for the next command)
+					publish(command, null, new ExecutionException(e));
+					throw e;
+				}
+				publish(command, result, failure);
+			}
+		});
+	}
+
+	private <T> void publish(final BoardCommand<T> command, final T result, final Exception failure)
+	{
+		SwingUtilities.invokeLater(new Runnable(){
+			@Override
+			public void run()
+			{
+				try
+				{
+					if(failure == null)
+					{
+						command.done(result);
+					}
+					else
+					{
+						command.failed(failure);
+					}
+				}
+				finally
+				{
+					commandFinished();
+				}
+			}
+		});
+	}
+
+	private synchronized void commandFinished()
+	{
+		myPendingCommands--;
+		notifyAll();
+	}
+
+	/**
+	 * @return true if there are no commands that are queued, running or waiting for their results to be handed to the EDT
+	 */
+	public synchronized boolean isIdle()
+	{
+		return myPendingCommands == 0;
+	}
+
+	/**
+	 * Waits until all the submitted commands have been performed and their results have been handed to the EDT.
+	 * <br>Must not be called from the EDT or from a command as it would wait for itself
+	 */
+	public synchronized void awaitIdle() throws InterruptedException
+	{
+		while(myPendingCommands > 0)
+		{
+			wait();
+		}
+	}
+
+	/**
+	 * Stops the worker thread after the commands that are queued have been performed
+	 */
+	public void shutdown()
+	{
+		myExecutor.shutdown();
+	}
+}
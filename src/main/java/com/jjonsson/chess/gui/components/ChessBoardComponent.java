@@ -1,6 +1,7 @@
 package com.jjonsson.chess.gui.components;
 
 import static com.jjonsson.chess.gui.Settings.DEMO;
+import static com.jjonsson.chess.gui.components.BoardSnapshot.getSquareIndex;
 import static com.jjonsson.chess.pieces.Piece.BLACK;
 import static com.jjonsson.utilities.Loggers.STDOUT;
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -10,36 +11,53 @@ import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.lang.Thread.UncaughtExceptionHandler;
+import java.lang.management.ManagementFactory;
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.jjonsson.chess.board.ChessBoard;
-import com.jjonsson.chess.evaluators.ChessBoardEvaluator;
 import com.jjonsson.chess.evaluators.ChessBoardEvaluator.ChessState;
 import com.jjonsson.chess.evaluators.ChessMoveEvaluator;
+import com.jjonsson.chess.evaluators.Ponderer;
+import com.jjonsson.chess.evaluators.SearchBudget;
 import com.jjonsson.chess.exceptions.InvalidPosition;
 import com.jjonsson.chess.exceptions.NoMovesAvailableException;
-import com.jjonsson.chess.exceptions.SearchInterruptedError;
+import com.jjonsson.chess.gui.EdtViolationChecker;
+import com.jjonsson.chess.gui.PieceImageCache;
 import com.jjonsson.chess.gui.Settings;
 import com.jjonsson.chess.gui.WindowUtilities;
+import com.jjonsson.chess.gui.components.BoardWorker.BoardCommand;
+import com.jjonsson.chess.gui.components.FrameScheduler.FrameListener;
 import com.jjonsson.chess.listeners.ChessBoardListener;
+import com.jjonsson.chess.listeners.MoveListener;
 import com.jjonsson.chess.listeners.StatusListener;
 import com.jjonsson.chess.moves.ImmutablePosition;
 import com.jjonsson.chess.moves.Move;
 import com.jjonsson.chess.moves.Position;
+import com.jjonsson.chess.moves.RevertingMove;
 import com.jjonsson.chess.pieces.Piece;
-import com.jjonsson.utilities.ThreadTracker;
+import com.jjonsson.utilities.EventRecorder;
 
-public class ChessBoardComponent extends JComponent implements MouseListener, ChessBoardListener, UncaughtExceptionHandler
+public class ChessBoardComponent extends JComponent implements MouseListener, ChessBoardListener, MoveListener
 {
 	private static final long	serialVersionUID	= -6866444162384406903L;
 
@@ -52,14 +70,19 @@ public class ChessBoardComponent extends JComponent implements MouseListener, Ch
 	 */
 	private static final double	MARGINSIZE_PERCENTAGE = 0.1;
 
-	static final Color DARK_BACKGROUND				= Color.DARK_GRAY;
-	static final Color LIGHT_BACKGROUND				= Color.LIGHT_GRAY;
+	public static final Color DARK_BACKGROUND		= Color.DARK_GRAY;
+	public static final Color LIGHT_BACKGROUND		= Color.LIGHT_GRAY;
 	static final Color AVAILABLE_POSITION_BORDER 	= Color.GREEN;
 	static final Color AVAILABLE_PIECE_BORDER 		= Color.MAGENTA;
 	static final Color SELECT_PIECE_BORDER 			= Color.CYAN;
 	static final Color HINT_MOVE_DESTINATION_BORDER = Color.ORANGE;
 
-	private Set<ChessPieceComponent> pieces;
+	private static final int SQUARES = ChessBoard.BOARD_SIZE * ChessBoard.BOARD_SIZE;
+
+	/**
+	 * How long it takes for a moved piece to slide to its new square
+	 */
+	static final long MOVE_ANIMATION_TIME_IN_MILLIS = 200;
 
 	private Piece myCurrentlySelectedPiece;
 
@@ -72,14 +95,71 @@ public class ChessBoardComponent extends JComponent implements MouseListener, Ch
 	private boolean myAIdisabled;
 
 	private Move myHintMove;
+	private ImmutablePosition myHintFrom;
+	private ImmutablePosition myHintTo;
 
 	private boolean myShowAvailableClicks;
 
+	/**
+	 * Shows what the searches are thinking about, off by default as the sampling costs a little
+	 */
+	private volatile boolean myShowSearchOverlay;
+	private final SearchOverlay mySearchOverlay = new SearchOverlay(this);
+
 	private ChessBoard myBoard;
 
+	/**
+	 * What the EDT paints and selects from, the board itself is only read by the thread that changes it (see {@link #boardChanged(Runnable)})
+	 */
+	private volatile BoardSnapshot mySnapshot;
+
+	/**
+	 * The moves that have been made since the last snapshot, they are animated when the snapshot is shown.
+	 * Only used by the thread that changes the board
+	 */
+	private final List<PieceAnimation> myMovesToAnimate = Lists.newArrayList();
+
 	private StatusListener	myStatusListener;
 
-	private ThreadTracker myTracker;
+	/**
+	 * The budgets of the searches that are running for this component, cancelling them stops the searches
+	 */
+	private Set<SearchBudget> myCurrentSearches;
+
+	private Ponderer myPonderer;
+
+	/**
+	 * Makes all the changes to the board that takes time so that the EDT doesn't have to wait for them
+	 */
+	private final BoardWorker myWorker = new BoardWorker();
+
+	private boolean myHasBeenPainted;
+
+	/**
+	 * The pieces that are moving to their new squares, only used from the EDT
+	 */
+	private final Map<Piece, PieceAnimation> myAnimations = Maps.newIdentityHashMap();
+	private final FrameListener myAnimator = new Animator();
+
+	/**
+	 * The grid without any pieces or markings, drawn once for each size of the board
+	 */
+	private BufferedImage myBackground;
+
+	/**
+	 * One bit (row * 8 + column) for each square that has changed since it was painted, see {@link #markSquaresAsDirty(long)}
+	 */
+	private final AtomicLong myDirtySquares = new AtomicLong();
+
+	/**
+	 * One bit for each square with a piece that the current player can move, calculated when the player changes instead of on each paint
+	 */
+	private volatile long myAvailablePieceSquares;
+
+	/**
+	 * One bit for each square that the selected piece can move to
+	 */
+	private volatile long myAvailableDestinationSquares;
 
 	/**
 	 * 
@@ -94,23 +174,17 @@ public class ChessBoardComponent extends JComponent implements MouseListener, Ch
 		}
 		mySize = size;
 		myBoard = board;
-		myTracker = new ThreadTracker();
+		myCurrentSearches = Collections.synchronizedSet(Sets.<SearchBudget>newIdentityHashSet());
+		myPonderer = new Ponderer(board);
 
-		pieces = Sets.newIdentityHashSet();
 		setCurrentPieceSize();
 		setSize(size);
+		setBackground(DARK_BACKGROUND);
 		addMouseListener(this);
 		myBoard.addChessBoardListener(this);
-
-		for(Piece p : myBoard.getPieces())
-		{
-			ChessPieceComponent comp = new ChessPieceComponent(p, this);
-			pieces.add(comp);
-		}
-		for(ChessPieceComponent p : pieces)
-		{
-			this.add(p);
-		}
+		myBoard.addMoveListener(this);
+		mySnapshot = BoardSnapshot.of(board);
+		updateAvailablePieces();
 	}
 
 	public void setStatusListener(final StatusListener sl)
@@ -134,9 +208,21 @@ public class ChessBoardComponent extends JComponent implements MouseListener, Ch
 		}
 	}
 
+	/**
+	 * @return the status of the board as it's shown, see {@link ChessBoard#getStatusString()}. Must be called from the EDT
+	 */
+	public String getStatus()
+	{
+		return mySnapshot.getStatus();
+	}
+
 	public void setAIEnabled(final boolean enable)
 	{
 		myAIdisabled = !enable;
+		if(myAIdisabled)
+		{
+			myPonderer.cancel();
+		}
 		//Makes the AI make a move directly if it's his turn
 		nextPlayer();
 	}
@@ -156,6 +242,18 @@ public class ChessBoardComponent extends JComponent implements MouseListener, Ch
 		return myCurrentPieceSize;
 	}
 
+	/**
+	 * @param componentSize the size of a board component
+	 * @return the size of the piece sprites that are drawn by a board component of the given size
+	 */
+	public static int getSpriteSize(final Dimension componentSize)
+	{
+		int squareSize = Math.min(componentSize.width, componentSize.height) / ChessBoard.BOARD_SIZE;
+		int pieceHeight = componentSize.height / ChessBoard.BOARD_SIZE;
+		int inset = (int) (pieceHeight * BORDERSIZE_PERCENTAGE) + (int) (pieceHeight * MARGINSIZE_PERCENTAGE);
+		return squareSize - inset * 2;
+	}
+
 	private void setCurrentPieceSize()
 	{
 		myCurrentPieceSize = new Dimension(mySize.width / ChessBoard.BOARD_SIZE, mySize.height / ChessBoard.BOARD_SIZE);
@@ -164,16 +262,14 @@ public class ChessBoardComponent extends JComponent implements MouseListener, Ch
 	}
 
 	/**
-	 * Removes all the pieces from this GUI component
+	 * Forgets the selected piece, call this on the EDT when the pieces are about to be removed from the board
 	 */
 	public void clear()
 	{
 		myCurrentlySelectedPiece = null;
-		for(ChessPieceComponent comp : pieces)
-		{
-			comp.pieceRemoved(comp.getPiece());
-		}
-		pieces.clear();
+		myAvailableDestinationSquares = 0;
+		myAvailablePieceSquares = 0;
+		repaint();
 	}
 
 	public Piece getSelectedPiece()
@@ -186,28 +282,252 @@ public class ChessBoardComponent extends JComponent implements MouseListener, Ch
 		return myBoard;
 	}
 
+	public BoardWorker getBoardWorker()
+	{
+		return myWorker;
+	}
+
+	/**
+	 * Paints the squares within the clip, for changes on the board that's only the squares that were marked as dirty
+	 * (see {@link #markSquaresAsDirty(long)}) and the squares between them
+	 */
 	@Override
 	public void paintComponent(final Graphics g)
 	{
+		boolean recording = EventRecorder.isRecording();
+		long startTime = recording ? System.nanoTime() : 0;
+		if(!myHasBeenPainted)
+		{
+			myHasBeenPainted = true;
+			STDOUT.debug("Time to first paint: " + (System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime()) + " ms");
+		}
 		super.paintComponent(g);
 		Graphics2D g2d = (Graphics2D)g;
 		g2d.setRenderingHints(WindowUtilities.getRenderingHints());
-		setBackground(DARK_BACKGROUND);
-		drawGrid(g2d);
-		if(myShowAvailableClicks)
+
+		Rectangle clip = g.getClipBounds();
+		//Everything within the clip must be painted as the parent may have painted over it
+		long squaresToPaint = getSquaresWithin(clip == null ? new Rectangle(getSize()) : clip);
+		long dirtySquares;
+		do
+		{
+			dirtySquares = myDirtySquares.get();
+		}
+		while(!myDirtySquares.compareAndSet(dirtySquares, dirtySquares & ~squaresToPaint));
+		BoardSnapshot snapshot = mySnapshot;
+		int selectedSquare = snapshot.getSquare(myCurrentlySelectedPiece);
+		BufferedImage background = getBackgroundImage();
+		int paintedSquares = 0;
+		for(int square = 0; square < SQUARES; square++)
+		{
+			if((squaresToPaint & (1L << square)) != 0)
+			{
+				paintSquare(ImmutablePosition.from(square / ChessBoard.BOARD_SIZE, square % ChessBoard.BOARD_SIZE), background, snapshot, selectedSquare, g2d);
+				paintedSquares++;
+			}
+		}
+		//The moving pieces are drawn on top of the squares they are moving over
+		for(Entry<Piece, PieceAnimation> animation : myAnimations.entrySet())
+		{
+			Rectangle bounds = getAnimationBounds(animation.getValue());
+			if(clip == null || clip.intersects(bounds))
+			{
+				drawPiece(animation.getKey(), bounds.getLocation(), g2d);
+			}
+		}
+		if(myShowSearchOverlay)
+		{
+			mySearchOverlay.paint(g2d);
+		}
+		if(recording)
 		{
-			markPiecesAsAvailable(g2d);
-			markAvailableSquares(g2d);
+			EventRecorder.record(EventRecorder.event("repaint", startTime).add("component", getClass().getSimpleName())
+					.add("clip", clip == null ? "full" : clip.width + "x" + clip.height + "+" + clip.x + "+" + clip.y)
+					.add("squares", paintedSquares));
+		}
+	}
+
+	/**
+	 * Paints the background, the piece and the markings for one square, the markings are painted in the same order as they were
+	 * when the whole board was painted at once so that the overlapping ones looks the same
+	 */
+	private void paintSquare(final ImmutablePosition position, final BufferedImage background, final BoardSnapshot snapshot, final int selectedSquare,
+			final Graphics2D graphics)
+	{
+		Point point = getInnerBorderUpperLeftCornerPointForSquare(position);
+		int width = myCurrentPieceSize.width;
+		int height = myCurrentPieceSize.height;
+		graphics.drawImage(background, point.x, point.y, point.x + width, point.y + height, point.x, point.y, point.x + width, point.y + height, null);
+		if(myShowSearchOverlay)
+		{
+			mySearchOverlay.paintSquare(position, new Rectangle(point, myCurrentPieceSize), graphics);
 		}
-		markSelectedSquare(g2d);
 
+		int squareIndex = getSquareIndex(position);
+		Piece piece = snapshot.getPiece(squareIndex);
+		if(piece != null && !myAnimations.containsKey(piece))
+		{
+			drawPiece(piece, point, graphics);
+		}
+		//Only draw possible moves if the game is in play
+		if(snapshot.isInPlay())
+		{
+			long square = 1L << squareIndex;
+			if(myShowAvailableClicks && (myAvailablePieceSquares & square) != 0)
+			{
+				markSquare(position, AVAILABLE_PIECE_BORDER, graphics);
+			}
+			if(selectedSquare != -1)
+			{
+				if(myShowAvailableClicks && (myAvailableDestinationSquares & square) != 0)
+				{
+					markSquare(position, AVAILABLE_POSITION_BORDER, graphics);
+				}
+				if(squareIndex == selectedSquare)
+				{
+					markSquare(position, SELECT_PIECE_BORDER, graphics);
+				}
+			}
+		}
 		if(myHintMove != null)
 		{
-			markSquare(myHintMove.getCurrentPosition(), AVAILABLE_POSITION_BORDER, g2d);
-			markSquare(myHintMove.getDestination(), HINT_MOVE_DESTINATION_BORDER, g2d);
+			if(position.equals(myHintFrom))
+			{
+				markSquare(position, AVAILABLE_POSITION_BORDER, graphics);
+			}
+			if(position.equals(myHintTo))
+			{
+				markSquare(position, HINT_MOVE_DESTINATION_BORDER, graphics);
+			}
 		}
 	}
 
+	/**
+	 * Draws the sprite for the given piece inside the borders and margins of the square at the given point
+	 */
+	private void drawPiece(final Piece piece, final Point squareCorner, final Graphics2D graphics)
+	{
+		BufferedImage sprite = PieceImageCache.getSprite(piece, getSpriteSize(mySize));
+		if(sprite != null)
+		{
+			int inset = myPieceBorderSize + myPieceMargin;
+			graphics.drawImage(sprite, squareCorner.x + inset, squareCorner.y + inset, null);
+		}
+	}
+
+	/**
+	 * @return the square that the given animation currently covers
+	 */
+	private Rectangle getAnimationBounds(final PieceAnimation animation)
+	{
+		Point from = getInnerBorderUpperLeftCornerPointForSquare(animation.myFrom);
+		Point to = getInnerBorderUpperLeftCornerPointForSquare(animation.myTo);
+		double progress = animation.myProgress;
+		return new Rectangle(new Point((int) Math.round(from.x + (to.x - from.x) * progress), (int) Math.round(from.y + (to.y - from.y) * progress)), myCurrentPieceSize);
+	}
+
+	/**
+	 * Lets the piece of the given animation slide from one square to another, must be called from the EDT
+	 */
+	private void startAnimation(final PieceAnimation animation)
+	{
+		//Nothing can be seen so there's no need to animate anything
+		if(!isShowing())
+		{
+			return;
+		}
+		animation.myStartTime = System.nanoTime();
+		myAnimations.put(animation.myPiece, animation);
+		FrameScheduler.getInstance().add(myAnimator);
+	}
+
+	/**
+	 * Moves the animated pieces and repaints the areas that they move over
+	 */
+	private final class Animator implements FrameListener
+	{
+		@Override
+		public boolean frame(final long frameTime)
+		{
+			for(Iterator<Entry<Piece, PieceAnimation>> animations = myAnimations.entrySet().iterator(); animations.hasNext();)
+			{
+				Entry<Piece, PieceAnimation> entry = animations.next();
+				PieceAnimation animation = entry.getValue();
+				Rectangle bounds = getAnimationBounds(animation);
+				animation.advance(frameTime);
+				bounds.add(getAnimationBounds(animation));
+				repaint(bounds);
+				//The piece may have been captured, moved again or the board may have been reset during the animation
+				if(animation.isDone() || mySnapshot.getPiece(animation.myTo) != entry.getKey())
+				{
+					animations.remove();
+				}
+			}
+			return !myAnimations.isEmpty();
+		}
+	}
+
+	private static final class PieceAnimation
+	{
+		private final Piece myPiece;
+		private final ImmutablePosition myFrom;
+		private final ImmutablePosition myTo;
+
+		/**
+		 * Set when the animation is started on the EDT
+		 */
+		private long myStartTime;
+
+		/**
+		 * How far the piece has moved, 0 when it's at the from square and 1 when it has arrived
+		 */
+		private double myProgress;
+
+		private PieceAnimation(final Piece piece, final ImmutablePosition from, final ImmutablePosition to)
+		{
+			myPiece = piece;
+			myFrom = from;
+			myTo = to;
+		}
+
+		/**
+		 * Calculates the progress from the time so that skipped frames doesn't slow down the animation
+		 */
+		private void advance(final long frameTime)
+		{
+			double time = Math.min(1, (double) (frameTime - myStartTime) / TimeUnit.MILLISECONDS.toNanos(MOVE_ANIMATION_TIME_IN_MILLIS));
+			//Slows down at the end
+			myProgress = 1 - (1 - time) * (1 - time);
+		}
+
+		private boolean isDone()
+		{
+			return myProgress >= 1;
+		}
+	}
+
+	private BufferedImage getBackgroundImage()
+	{
+		BufferedImage background = myBackground;
+		if(background == null || background.getWidth() != myCurrentPieceSize.width * ChessBoard.BOARD_SIZE
+				|| background.getHeight() != myCurrentPieceSize.height * ChessBoard.BOARD_SIZE)
+		{
+			background = new BufferedImage(Math.max(1, myCurrentPieceSize.width * ChessBoard.BOARD_SIZE),
+					Math.max(1, myCurrentPieceSize.height * ChessBoard.BOARD_SIZE), BufferedImage.TYPE_INT_RGB);
+			Graphics2D graphics = background.createGraphics();
+			try
+			{
+				drawGrid(graphics);
+			}
+			finally
+			{
+				graphics.dispose();
+			}
+			myBackground = background;
+		}
+		return background;
+	}
+
 	private void drawGrid(final Graphics g)
 	{
 		for (int row = 0;  row < ChessBoard.BOARD_SIZE;  row++ )
@@ -228,118 +548,232 @@ public class ChessBoardComponent extends JComponent implements MouseListener, Ch
 			}
 		}
 	}
+
 	/**
-	 * @param newComponentSize
+	 * @return the squares that have changed since they were painted
 	 */
-	public void resizeBoard(final Dimension newComponentSize)
+	@VisibleForTesting
+	long getDirtySquares()
 	{
-		mySize = newComponentSize;
-		setCurrentPieceSize();
-		for(ChessPieceComponent p : pieces)
+		return myDirtySquares.get();
+	}
+
+	/**
+	 * @return the smallest rectangle that covers all the given squares
+	 */
+	Rectangle getSquareBounds(final long squares)
+	{
+		Rectangle bounds = null;
+		for(int square = 0; square < SQUARES; square++)
 		{
-			p.updateSize();
-			p.repaint();
+			if((squares & (1L << square)) != 0)
+			{
+				Point point = getInnerBorderUpperLeftCornerPointForSquare(ImmutablePosition.from(square / ChessBoard.BOARD_SIZE, square % ChessBoard.BOARD_SIZE));
+				Rectangle squareBounds = new Rectangle(point, myCurrentPieceSize);
+				if(bounds == null)
+				{
+					bounds = squareBounds;
+				}
+				else
+				{
+					bounds.add(squareBounds);
+				}
+			}
 		}
-		repaint();
+		return bounds;
 	}
 
-	public void showHint()
+	private long getSquaresWithin(final Rectangle area)
 	{
-		try
+		long squares = 0;
+		for(int square = 0; square < SQUARES; square++)
 		{
-			if(getBoard().getCurrentPlayer() == Piece.WHITE || myAIdisabled)
+			Point point = getInnerBorderUpperLeftCornerPointForSquare(ImmutablePosition.from(square / ChessBoard.BOARD_SIZE, square % ChessBoard.BOARD_SIZE));
+			if(area.intersects(new Rectangle(point, myCurrentPieceSize)))
 			{
-				myHintMove = ChessMoveEvaluator.getBestMove(getBoard());
-				setResultOfInteraction("Hint: " + myHintMove);
-				//Makes it easy to make the move
-				setSelectedPiece(myHintMove.getPiece());
-				repaint();
+				squares |= 1L << square;
 			}
 		}
-		catch (NoMovesAvailableException e)
+		return squares;
+	}
+
+	/**
+	 * Schedules a repaint of the given squares (one bit per square, row * 8 + column), can be called from any thread
+	 */
+	void markSquaresAsDirty(final long squares)
+	{
+		if(squares == 0)
 		{
-			myHintMove = null;
-			setResultOfInteraction("No hint could be found");
+			return;
 		}
-		catch(SearchInterruptedError sie)
+		long dirtySquares;
+		do
 		{
-			STDOUT.info("Aborted the search for a hint move");
+			dirtySquares = myDirtySquares.get();
 		}
+		while(!myDirtySquares.compareAndSet(dirtySquares, dirtySquares | squares));
+		repaint(getSquareBounds(squares));
 	}
 
-	public Move getHintMove()
+	/**
+	 * @param square row * 8 + column, nothing is done for -1
+	 */
+	private void markSquareAsDirty(final int square)
 	{
-		return myHintMove;
+		if(square != -1)
+		{
+			markSquaresAsDirty(1L << square);
+		}
+	}
+
+	private static long getSquares(final ImmutablePosition from, final ImmutablePosition to)
+	{
+		if(from == null)
+		{
+			return 0;
+		}
+		return (1L << getSquareIndex(from)) | (1L << getSquareIndex(to));
 	}
 
 	/**
-	 * 
-	 * @param show true if the available clicks should be marked, false if they shouldn't
+	 * Recalculates which pieces that can be moved by the current player, they are only marked when the available clicks are shown
 	 */
-	public void showAvailableClicks(final boolean show)
+	private void updateAvailablePieces()
 	{
-		if(show != myShowAvailableClicks)
+		long availablePieceSquares = myShowAvailableClicks ? mySnapshot.getMovablePieceSquares() : 0;
+		long oldAvailablePieceSquares = myAvailablePieceSquares;
+		myAvailablePieceSquares = availablePieceSquares;
+		markSquaresAsDirty(oldAvailablePieceSquares ^ availablePieceSquares);
+	}
+
+	private void updateAvailableDestinations()
+	{
+		long availableDestinationSquares = 0;
+		if(myShowAvailableClicks)
 		{
-			myShowAvailableClicks = show;
-			repaint();
+			BoardSnapshot snapshot = mySnapshot;
+			availableDestinationSquares = snapshot.getDestinations(snapshot.getSquare(myCurrentlySelectedPiece));
 		}
+		long oldAvailableDestinationSquares = myAvailableDestinationSquares;
+		myAvailableDestinationSquares = availableDestinationSquares;
+		markSquaresAsDirty(oldAvailableDestinationSquares ^ availableDestinationSquares);
 	}
 
 	/**
-	 * Marks pieces that can make a move
-	 * @param graphics
+	 * @param from where the piece of the hint move was when the hint was found, null if there is no hint
+	 * @param to the destination of the hint move
 	 */
-	private void markPiecesAsAvailable(final Graphics2D graphics)
+	private void setHintMove(final Move hintMove, final ImmutablePosition from, final ImmutablePosition to)
 	{
-		//Only draw possible moves if the game is in play
-		if(ChessBoardEvaluator.inPlay(getBoard()))
+		long oldHintSquares = getSquares(myHintFrom, myHintTo);
+		myHintMove = hintMove;
+		myHintFrom = from;
+		myHintTo = to;
+		markSquaresAsDirty(oldHintSquares | getSquares(from, to));
+	}
+
+	/**
+	 * @param newComponentSize
+	 */
+	public void resizeBoard(final Dimension newComponentSize)
+	{
+		mySize = newComponentSize;
+		setCurrentPieceSize();
+		myBackground = null;
+		repaint();
+	}
+
+	public void showHint()
+	{
+		EdtViolationChecker.checkNotOnEdt("Searching for a hint");
+		SearchBudget budget = startSearch();
+		try
 		{
-			//Mark pieces with available moves
-			for(Piece p : ImmutableList.copyOf(getBoard().getPieces()))
+			if(getBoard().getCurrentPlayer() == Piece.WHITE || myAIdisabled)
 			{
-				if(p.hasSameAffinityAs(getBoard().getCurrentPlayer()) && p.canMakeAMove())
+				Move hintMove = ChessMoveEvaluator.getBestMove(getBoard(), budget);
+				if(budget.isCancelled())
 				{
-					markSquare(p.getCurrentPosition(),AVAILABLE_PIECE_BORDER, graphics);
+					STDOUT.info("Aborted the search for a hint move");
+					return;
 				}
+				showHintMove(hintMove);
 			}
 		}
-		/*
-		//Mark Square Testing
-		markSquare(Position.createPosition(1, Position.B), Color.cyan);
-		markSquare(Position.createPosition(1, Position.A), Color.GREEN);
-		markSquare(Position.createPosition(1, Position.C), Color.RED);
-		markSquare(Position.createPosition(2, Position.A), Color.BLUE);
-		markSquare(Position.createPosition(2, Position.B), Color.BLACK);
-		markSquare(Position.createPosition(2, Position.C), Color.yellow);
-		markSquare(Position.createPosition(3, Position.A), Color.MAGENTA);
-		markSquare(Position.createPosition(3, Position.B), Color.pink);
-		markSquare(Position.createPosition(3, Position.C), Color.WHITE);
-		 */
+		catch (NoMovesAvailableException e)
+		{
+			showHintMove(null);
+		}
+		finally
+		{
+			finishSearch(budget);
+		}
 	}
 
 	/**
-	 * Marks the squares available for the selected piece
-	 * @param graphics
+	 * Marks the given hint move (and selects its piece) on the EDT
+	 * @param hintMove the move to mark, null if no hint could be found
 	 */
-	private void markAvailableSquares(final Graphics2D graphics)
+	private void showHintMove(final Move hintMove)
 	{
-		if(ChessBoardEvaluator.inPlay(getBoard()) && myCurrentlySelectedPiece != null)
-		{
-			//Mark available moves for the selected piece
-			List<Move> moves = ImmutableList.copyOf(myCurrentlySelectedPiece.getAvailableMoves());
-			for(Move m : moves)
+		//The positions are read by the worker as the piece may have moved by the time the EDT shows the hint
+		final ImmutablePosition from = hintMove != null ? hintMove.getCurrentPosition() : null;
+		final ImmutablePosition to = hintMove != null ? hintMove.getDestination() : null;
+		SwingUtilities.invokeLater(new Runnable(){
+			@Override
+			public void run()
 			{
-				markSquare(m.getDestination(),AVAILABLE_POSITION_BORDER, graphics);
+				showHintMove(hintMove, from, to);
 			}
+		});
+	}
+
+	private void showHintMove(final Move hintMove, final ImmutablePosition from, final ImmutablePosition to)
+	{
+		setHintMove(hintMove, from, to);
+		if(hintMove == null)
+		{
+			setResultOfInteraction("No hint could be found");
+			return;
 		}
+		setResultOfInteraction("Hint: " + hintMove);
+		//Makes it easy to make the move
+		setSelectedPiece(hintMove.getPiece());
+	}
+
+	public Move getHintMove()
+	{
+		return myHintMove;
 	}
 
-	private void markSelectedSquare(final Graphics2D graphics)
+	/**
+	 * 
+	 * @param show true if the available clicks should be marked, false if they shouldn't
+	 */
+	public void showAvailableClicks(final boolean show)
 	{
-		if(ChessBoardEvaluator.inPlay(getBoard()) && myCurrentlySelectedPiece != null)
+		if(show != myShowAvailableClicks)
 		{
-			//Mark the selected piece
-			markSquare(myCurrentlySelectedPiece.getCurrentPosition(), SELECT_PIECE_BORDER, graphics);
+			myShowAvailableClicks = show;
+			updateAvailablePieces();
+			updateAvailableDestinations();
+			repaint();
+		}
+	}
+
+	/**
+	 * @param show true if the best line, the scores of the moves and the depth of the searches should be shown while they run
+	 */
+	public void showSearchOverlay(final boolean show)
+	{
+		if(show != myShowSearchOverlay)
+		{
+			myShowSearchOverlay = show;
+			if(!show)
+			{
+				mySearchOverlay.clear();
+			}
+			repaint();
 		}
 	}
 
@@ -389,13 +823,14 @@ public class ChessBoardComponent extends JComponent implements MouseListener, Ch
 	}
 
 	/**
-	 * Sets the currently selected piece, it also repaints the grid
+	 * Sets the currently selected piece, it also repaints the squares that are affected by the selection
 	 * @param p
 	 */
 	public void setSelectedPiece(final Piece p)
 	{
+		BoardSnapshot snapshot = mySnapshot;
 		//You shouldn't select the AI's players while he's thinking
-		if(!myAIdisabled && getBoard().getCurrentPlayer() == BLACK && p != null)
+		if(!myAIdisabled && snapshot.getCurrentPlayer() == BLACK && p != null)
 		{
 			return;
 		}
@@ -409,9 +844,11 @@ public class ChessBoardComponent extends JComponent implements MouseListener, Ch
 			//If we choose another piece the hint move should disappear
 			if(myHintMove != null && myHintMove.getPiece() != p)
 			{
-				myHintMove = null;
+				setHintMove(null, null, null);
 			}
-			repaint();
+			markSquareAsDirty(snapshot.getSquare(oldPiece));
+			markSquareAsDirty(snapshot.getSquare(p));
+			updateAvailableDestinations();
 		}
 	}
 	@Override
@@ -449,123 +886,300 @@ public class ChessBoardComponent extends JComponent implements MouseListener, Ch
 	@Override
 	public void mouseExited(final MouseEvent e){}
 
+	/**
+	 * Selects the clicked piece or, if a piece is selected and it can move to the clicked position, makes the move on the worker
+	 */
 	public void positionClicked(final ImmutablePosition positionThatWasClicked)
 	{
-		if(myCurrentlySelectedPiece != null)
+		BoardSnapshot snapshot = mySnapshot;
+		int clickedSquare = getSquareIndex(positionThatWasClicked);
+		int selectedSquare = snapshot.getSquare(myCurrentlySelectedPiece);
+		if(selectedSquare != -1)
 		{
-			Move m = getBoard().getAvailableMove(myCurrentlySelectedPiece, positionThatWasClicked);
-			if(m != null)
+			if((snapshot.getDestinations(selectedSquare) & (1L << clickedSquare)) != 0)
 			{
 				STDOUT.debug("Destination available: " + positionThatWasClicked);
-				if(myCurrentlySelectedPiece.performMove(m, getBoard()))
-				{
-					return;
-				}
-			}
-			else
-			{
-				STDOUT.debug("Destination not available: " + positionThatWasClicked);
+				queueMove(ImmutablePosition.from(selectedSquare / ChessBoard.BOARD_SIZE, selectedSquare % ChessBoard.BOARD_SIZE), positionThatWasClicked);
+				return;
 			}
+			STDOUT.debug("Destination not available: " + positionThatWasClicked);
 		}
 
-		Piece pieceAtSelectedPosition = getBoard().getPiece(positionThatWasClicked);
-		if(pieceAtSelectedPosition != null && pieceAtSelectedPosition.hasSameAffinityAs(getBoard().getCurrentPlayer()))
+		Piece pieceAtSelectedPosition = snapshot.getPiece(clickedSquare);
+		if(pieceAtSelectedPosition != null && pieceAtSelectedPosition.hasSameAffinityAs(snapshot.getCurrentPlayer()))
 		{
 			setSelectedPiece(pieceAtSelectedPosition);
 		}
 	}
 
+	/**
+	 * Makes the move on the worker (after the commands that it's busy with), all the moves on the board are made there.
+	 * The board may have changed since the click so the move is looked up again
+	 */
+	private void queueMove(final ImmutablePosition from, final ImmutablePosition to)
+	{
+		myWorker.submit(new BoardCommand<Void>("move from " + from + " to " + to){
+			@Override
+			protected Void perform()
+			{
+				Piece piece = getBoard().getPiece(from);
+				Move move = piece != null ? getBoard().getAvailableMove(piece, to) : null;
+				if(move == null || !piece.hasSameAffinityAs(getBoard().getCurrentPlayer()) || !piece.performMove(move, getBoard()))
+				{
+					setResultOfInteraction("The move from " + from + " to " + to + " is no longer available");
+				}
+				return null;
+			}
+		});
+	}
+
 	@Override
 	public void piecePlaced(final Piece p)
 	{
-		ChessPieceComponent comp = new ChessPieceComponent(p, this);
-		pieces.add(comp);
-		this.add(comp);
-		repaint();
+		//The square is repainted when the change is complete, see boardChanged
 	}
 
 	@Override
 	public void gameStateChanged(final ChessState newState)
 	{
 		STDOUT.debug("" + newState);
-		statusChange();
+		boardChanged(new Runnable(){
+			@Override
+			public void run()
+			{
+				statusChange();
+			}
+		});
 	}
 
 	@Override
 	public void piecePlacedLoadingInProgress(final Piece p)
 	{
-		ChessPieceComponent comp = new ChessPieceComponent(p, this);
-		pieces.add(comp);
-		this.add(comp);
 	}
 
+	/**
+	 * Shows the loaded board, called by the thread that loaded it
+	 */
 	@Override
 	public void loadingOfBoardDone()
 	{
-		nextPlayer();
-		repaint();
-		statusChange();
+		boardChanged(new Runnable(){
+			@Override
+			public void run()
+			{
+				playerChanged();
+				repaint();
+				statusChange();
+			}
+		});
+	}
+
+	/**
+	 * Must be called by the thread that changed the board when the change is complete. A snapshot of the board is taken and handed
+	 * to the EDT where it's shown before the given update is run.
+	 * <br>On the EDT the update is run directly as the board is only changed by the {@link BoardWorker} so the last snapshot is still current.
+	 */
+	private void boardChanged(final Runnable update)
+	{
+		if(SwingUtilities.isEventDispatchThread())
+		{
+			update.run();
+			return;
+		}
+		final BoardSnapshot snapshot = BoardSnapshot.of(getBoard());
+		final List<PieceAnimation> moves = ImmutableList.copyOf(myMovesToAnimate);
+		myMovesToAnimate.clear();
+		SwingUtilities.invokeLater(new Runnable(){
+			@Override
+			public void run()
+			{
+				showSnapshot(snapshot, moves);
+				update.run();
+			}
+		});
 	}
 
-	private class PerformBestMoveThread extends Thread
+	/**
+	 * Repaints the squares whose pieces has changed since the last snapshot and animates the moves that were made in between
+	 */
+	private void showSnapshot(final BoardSnapshot snapshot, final List<PieceAnimation> moves)
+	{
+		BoardSnapshot oldSnapshot = mySnapshot;
+		mySnapshot = snapshot;
+		markSquaresAsDirty(oldSnapshot.getChangedSquares(snapshot));
+		for(PieceAnimation move : moves)
+		{
+			startAnimation(move);
+		}
+		//The selected piece may have been captured or removed
+		if(snapshot.getSquare(myCurrentlySelectedPiece) == -1)
+		{
+			myCurrentlySelectedPiece = null;
+		}
+		updateAvailablePieces();
+		updateAvailableDestinations();
+	}
+
+	/**
+	 * Searches for the AI's move and performs it on the {@link BoardWorker}
+	 */
+	private class PerformBestMoveCommand extends BoardCommand<Void>
 	{
-		public PerformBestMoveThread()
+		private final SearchBudget myBudget;
+
+		public PerformBestMoveCommand(final SearchBudget budget)
 		{
-			super(PerformBestMoveThread.class.getName());
+			super("perform the move of the AI");
+			myBudget = budget;
 		}
 
 		@Override
-		public void run()
+		protected Void perform()
 		{
 			try
 			{
-				ChessMoveEvaluator.performBestMove(getBoard());
+				if(Settings.PONDERING)
+				{
+					performBestMoveAndPonder();
+				}
+				else
+				{
+					performBestMove();
+				}
+				if(myBudget.isCancelled())
+				{
+					STDOUT.info("Aborted searching for a move");
+					return null;
+				}
 			}
 			catch (NoMovesAvailableException e)
 			{
 				setResultOfInteraction("No valid moves found");
 			}
-			catch(SearchInterruptedError interrupted)
+			finally
 			{
-				STDOUT.info("Aborted searching for a move");
-				return;
+				finishSearch(myBudget);
 			}
 			statusChange();
-			repaint();
-			myTracker.removeJob(this);
+			return null;
+		}
+
+		@Override
+		protected void failed(final Exception e)
+		{
+			STDOUT.fatal("The search for the AI's move failed: " + e);
+			STDOUT.info("Exception trace: ", e);
+			STDOUT.info("AI move will not be made");
+		}
+
+		/**
+		 * Like {@link ChessMoveEvaluator#performBestMove(ChessBoard)} but nothing is done if the search is cancelled
+		 */
+		private void performBestMove() throws NoMovesAvailableException
+		{
+			Move bestMove;
+			try
+			{
+				bestMove = ChessMoveEvaluator.getBestMove(getBoard(), myBudget);
+			}
+			catch(NoMovesAvailableException evaluationNoMovesException)
+			{
+				bestMove = null;
+			}
+			if(myBudget.isCancelled())
+			{
+				return;
+			}
+			if(bestMove == null || !bestMove.getPiece().performMove(bestMove, getBoard()))
+			{
+				STDOUT.info("Move: " + bestMove + " is not available, performing random move");
+				//In the worst case scenario we make a random move if possible
+				getBoard().performRandomMove();
+			}
+		}
+
+		/**
+		 * Like {@link #performBestMove()} but the reply that the user is expected to make
+		 * is searched for while the user is thinking
+		 */
+		private void performBestMoveAndPonder() throws NoMovesAvailableException
+		{
+			Move bestMove = myPonderer.getBestMove(myBudget);
+			if(myBudget.isCancelled())
+			{
+				return;
+			}
+			if(!bestMove.getPiece().performMove(bestMove, getBoard()))
+			{
+				STDOUT.info("Move: " + bestMove + " is not available, performing random move");
+				getBoard().performRandomMove();
+			}
+			if(!myAIdisabled)
+			{
+				myPonderer.startPondering();
+			}
 		}
 	}
 
+	/**
+	 * Called by the board when a move has been made and from the EDT to let the AI make its move if it's its turn
+	 */
 	@Override
 	public void nextPlayer()
+	{
+		//The moves that are replayed while loading or undoing are shown when that's done
+		if(!SwingUtilities.isEventDispatchThread() && !getBoard().allowsMoves())
+		{
+			return;
+		}
+		boardChanged(new Runnable(){
+			@Override
+			public void run()
+			{
+				playerChanged();
+			}
+		});
+	}
+
+	/**
+	 * Forgets the selection and the hint of the last player and starts the search for the AI's move if it's its turn, called on the EDT
+	 */
+	private void playerChanged()
 	{
 		setSelectedPiece(null);
-		myHintMove = null;
+		setHintMove(null, null, null);
+		mySearchOverlay.clear();
 		statusChange();
-		if(!myAIdisabled && ChessBoardEvaluator.inPlay(getBoard()) && getBoard().allowsMoves())
+		updateAvailablePieces();
+		BoardSnapshot snapshot = mySnapshot;
+		if(!myAIdisabled && snapshot.isInPlay())
 		{
-			if(getBoard().getCurrentPlayer() == Piece.BLACK)
+			if(snapshot.getCurrentPlayer() == Piece.BLACK)
 			{
 				setResultOfInteraction("Thinking ...");
-				//Run in a seperate thread to let the eventQueue run along
-				PerformBestMoveThread t = new PerformBestMoveThread();
-				myTracker.addJob(t);
-				t.setUncaughtExceptionHandler(this);
-				t.start();
+				//Run on the worker to let the eventQueue run along
+				myWorker.submit(new PerformBestMoveCommand(startSearch()));
 			}
 			else
 			{
 				if(DEMO)
 				{
 					//just for fun
-					try
-					{
-						getBoard().performRandomMove();
-					}
-					catch (NoMovesAvailableException e)
-					{
-						STDOUT.warn("No moves available for the random player");
-					}
+					myWorker.submit(new BoardCommand<Void>("perform a random move"){
+						@Override
+						protected Void perform()
+						{
+							try
+							{
+								getBoard().performRandomMove();
+							}
+							catch (NoMovesAvailableException e)
+							{
+								STDOUT.warn("No moves available for the random player");
+							}
+							return null;
+						}
+					});
 				}
 			}
 		}
@@ -573,12 +1187,39 @@ public class ChessBoardComponent extends JComponent implements MouseListener, Ch
 
 	public boolean isWorking()
 	{
-		return myTracker.isWorking();
+		return !myCurrentSearches.isEmpty();
 	}
 
+	/**
+	 * Cancels the searches for a move or a hint that are running, they are finished (without any result) shortly after
+	 */
 	public void interruptCurrentJobs()
 	{
-		myTracker.interruptCurrentJobs();
+		myPonderer.cancel();
+		synchronized(myCurrentSearches)
+		{
+			for(SearchBudget budget : myCurrentSearches)
+			{
+				budget.cancel();
+			}
+		}
+	}
+
+	private SearchBudget startSearch()
+	{
+		SearchBudget budget = new SearchBudget();
+		myCurrentSearches.add(budget);
+		if(myShowSearchOverlay)
+		{
+			mySearchOverlay.start(budget);
+		}
+		return budget;
+	}
+
+	private void finishSearch(final SearchBudget budget)
+	{
+		myCurrentSearches.remove(budget);
+		mySearchOverlay.stop(budget);
 	}
 
 	@Override
@@ -599,14 +1240,50 @@ public class ChessBoardComponent extends JComponent implements MouseListener, Ch
 	@Override
 	public void undoDone()
 	{
-		nextPlayer();
+		boardChanged(new Runnable(){
+			@Override
+			public void run()
+			{
+				playerChanged();
+			}
+		});
 	}
 
 	@Override
-	public void uncaughtException(final Thread t, final Throwable e)
+	public void movePerformed(final Move performedMove)
 	{
-		STDOUT.fatal("Uncaught exception received in 'main' thread: " + e + ", for thread: " + t);
-		STDOUT.info("Exception trace: ", e);
-		STDOUT.info("AI move will not be made");
+		//Moves that are replayed when a game is loaded aren't animated
+		if(getBoard().allowsMoves())
+		{
+			//Started when the EDT gets the snapshot with the move
+			myMovesToAnimate.add(new PieceAnimation(performedMove.getPiece(), performedMove.getCurrentPosition(), performedMove.getDestination()));
+		}
+	}
+
+	@Override
+	public void pieceRemoved(final Piece removedPiece)
+	{
+		//The square is repainted when the change is complete, see boardChanged
+	}
+
+	@Override
+	public void moveReverted(final RevertingMove move)
+	{
+		//The squares are repainted when the undo is done, see undoDone
+	}
+
+	/**
+	 * Called by the board when all its pieces have been removed
+	 */
+	@Override
+	public void reset()
+	{
+		boardChanged(new Runnable(){
+			@Override
+			public void run()
+			{
+				repaint();
+			}
+		});
 	}
 }
@@ -0,0 +1,174 @@
+package com.jjonsson.chess.gui.components;
+
+import static com.jjonsson.utilities.Loggers.STDOUT;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.Timer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.jjonsson.chess.gui.Settings;
+
+/**
+ * Drives all the animations with one Swing {@link Timer}, the timer only runs while something is animated so nothing is done when idle.
+ * <br>The timer coalesces its events so when the EDT falls behind the frames that it didn't have time for are skipped,
+ * animations should therefore be based on the frame time instead of on the number of frames.
+ * <br>Must only be used from the EDT.
+ */
+final class FrameScheduler implements ActionListener
+{
+	/**
+	 * About 60 frames per second
+	 */
+	static final int FRAME_INTERVAL_IN_MILLIS = 16;
+
+	private static final FrameScheduler INSTANCE = new FrameScheduler();
+
+	interface FrameListener
+	{
+		/**
+		 * Called once per frame while the listener is added
+		 * @param frameTime the {@link System#nanoTime()} when the frame started
+		 * @return true if more frames are wanted, false if the listener should be removed
+		 */
+		boolean frame(long frameTime);
+	}
+
+	/**
+	 * How evenly the frames of the latest animation were delivered
+	 */
+	static final class FramePacing
+	{
+		private final int myFrames;
+		private final int mySkippedFrames;
+		private final long myLongestInterval;
+		private final long myTotalInterval;
+
+		private FramePacing(final int frames, final int skippedFrames, final long longestInterval, final long totalInterval)
+		{
+			myFrames = frames;
+			mySkippedFrames = skippedFrames;
+			myLongestInterval = longestInterval;
+			myTotalInterval = totalInterval;
+		}
+
+		int getFrames()
+		{
+			return myFrames;
+		}
+
+		/**
+		 * @return the number of frames that were coalesced because the EDT was busy
+		 */
+		int getSkippedFrames()
+		{
+			return mySkippedFrames;
+		}
+
+		long getLongestIntervalInMillis()
+		{
+			return TimeUnit.NANOSECONDS.toMillis(myLongestInterval);
+		}
+
+		double getAverageIntervalInMillis()
+		{
+			return myFrames > 1 ? (double) myTotalInterval / (myFrames - 1) / TimeUnit.MILLISECONDS.toNanos(1) : 0;
+		}
+
+		@Override
+		public String toString()
+		{
+			return myFrames + " frames, " + mySkippedFrames + " skipped, " + String.format("%.1f", getAverageIntervalInMillis())
+					+ " ms on average between frames and at most " + getLongestIntervalInMillis() + " ms";
+		}
+	}
+
+	private final Timer myTimer;
+	private final List<FrameListener> myListeners;
+
+	private long myLastFrameTime;
+	private int myFrames;
+	private int mySkippedFrames;
+	private long myLongestInterval;
+	private long myTotalInterval;
+
+	private FrameScheduler()
+	{
+		myListeners = Lists.newArrayList();
+		myTimer = new Timer(FRAME_INTERVAL_IN_MILLIS, this);
+		myTimer.setCoalesce(true);
+	}
+
+	static FrameScheduler getInstance()
+	{
+		return INSTANCE;
+	}
+
+	/**
+	 * Gives frames to the given listener until it says that it doesn't want more, starts the timer if it isn't running
+	 */
+	void add(final FrameListener listener)
+	{
+		if(!myListeners.contains(listener))
+		{
+			myListeners.add(listener);
+		}
+		if(!myTimer.isRunning())
+		{
+			myLastFrameTime = 0;
+			myFrames = 0;
+			mySkippedFrames = 0;
+			myLongestInterval = 0;
+			myTotalInterval = 0;
+			myTimer.start();
+		}
+	}
+
+	boolean isRunning()
+	{
+		return myTimer.isRunning();
+	}
+
+	/**
+	 * @return the pacing of the running animations, or the latest ones if nothing is animated
+	 */
+	FramePacing getFramePacing()
+	{
+		return new FramePacing(myFrames, mySkippedFrames, myLongestInterval, myTotalInterval);
+	}
+
+	@Override
+	public void actionPerformed(final ActionEvent e)
+	{
+		long frameTime = System.nanoTime();
+		if(myLastFrameTime != 0)
+		{
+			long interval = frameTime - myLastFrameTime;
+			myTotalInterval += interval;
+			myLongestInterval = Math.max(myLongestInterval, interval);
+			mySkippedFrames += Math.max(0, (int) (interval / TimeUnit.MILLISECONDS.toNanos(FRAME_INTERVAL_IN_MILLIS)) - 1);
+		}
+		myLastFrameTime = frameTime;
+		myFrames++;
+
+		for(FrameListener listener : ImmutableList.copyOf(myListeners))
+		{
+			if(!listener.frame(frameTime))
+			{
+				myListeners.remove(listener);
+			}
+		}
+		if(myListeners.isEmpty())
+		{
+			myTimer.stop();
+			if(Settings.DEBUG)
+			{
+				STDOUT.debug("Frame pacing: " + getFramePacing());
+			}
+		}
+	}
+}
@@ -0,0 +1,375 @@
+package com.jjonsson.chess.gui.components;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Stroke;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import com.google.common.collect.Lists;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.evaluators.SearchBudget;
+import com.jjonsson.chess.evaluators.SearchSample;
+import com.jjonsson.chess.evaluators.SearchSampleChannel;
+import com.jjonsson.chess.moves.Position;
+import com.jjonsson.chess.persistence.MoveItem;
+
+/**
+ * Shows what a running search is thinking about on top of a {@link ChessBoardComponent}:
+ * <ul>
+ * <li>A heatmap over the destination squares of the evaluated root moves, green for the best score and red for the worst</li>
+ * <li>The best move so far and the reply that is expected to it</li>
+ * <li>The search depth and the number of searched nodes</li>
+ * </ul>
+ * The search offers its samples to a {@link SearchSampleChannel} without ever waiting for the GUI,
+ * the overlay reads them at most every {@link #REFRESH_INTERVAL_IN_MILLIS} ms and only repaints what changed.
+ * <br>Except for {@link #start(SearchBudget)} and {@link #stop(SearchBudget)} this must only be used from the EDT.
+ */
+final class SearchOverlay implements ActionListener
+{
+	static final int REFRESH_INTERVAL_IN_MILLIS = 100;
+
+	private static final float HEATMAP_ALPHA = 0.35f;
+	private static final Color BEST_MOVE_COLOR = new Color(0, 90, 200, 200);
+	private static final Color EXPECTED_REPLY_COLOR = new Color(200, 40, 40, 200);
+	private static final Color TEXT_BACKGROUND = new Color(0, 0, 0, 160);
+	private static final int TEXT_MARGIN = 4;
+	/**
+	 * The component itself has no font unless it's in a window
+	 */
+	private static final Font TEXT_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+
+	private final ChessBoardComponent myComponent;
+	private final Timer myTimer;
+	private final List<SearchSample> mySamples = Lists.newArrayList();
+
+	private SearchBudget myBudget;
+	private SearchSampleChannel myChannel;
+
+	/**
+	 * The best score of the root moves to each square (row * 8 + column), only valid for the squares in {@link #myScoredSquares}
+	 */
+	private final long[] myScores = new long[ChessBoard.BOARD_SIZE * ChessBoard.BOARD_SIZE];
+	private long myScoredSquares;
+	private long myLowestScore;
+	private long myHighestScore;
+
+	private MoveItem myBestMove;
+	private MoveItem myExpectedReply;
+	private long myBestMoveValue;
+	private long myDepth;
+	private long myNodes;
+	private long myDroppedSamples;
+
+	SearchOverlay(final ChessBoardComponent component)
+	{
+		myComponent = component;
+		myTimer = new Timer(REFRESH_INTERVAL_IN_MILLIS, this);
+		myTimer.setCoalesce(true);
+	}
+
+	/**
+	 * Starts to follow the search that uses the given budget, can be called from any thread but must be called
+	 * before the search is started
+	 */
+	void start(final SearchBudget budget)
+	{
+		final SearchSampleChannel channel = new SearchSampleChannel();
+		budget.setSampleChannel(channel);
+		SwingUtilities.invokeLater(new Runnable(){
+			@Override
+			public void run()
+			{
+				clear();
+				myBudget = budget;
+				myChannel = channel;
+				myTimer.start();
+			}
+		});
+	}
+
+	/**
+	 * Reads the last samples of the search that used the given budget, what was found is shown until {@link #clear()} is called.
+	 * <br>Can be called from any thread
+	 */
+	void stop(final SearchBudget budget)
+	{
+		SwingUtilities.invokeLater(new Runnable(){
+			@Override
+			public void run()
+			{
+				//A newer search may already have been started
+				if(myBudget == budget)
+				{
+					refresh();
+					myTimer.stop();
+					myBudget = null;
+					myChannel = null;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Removes everything that has been shown and stops following the current search
+	 */
+	void clear()
+	{
+		myTimer.stop();
+		myBudget = null;
+		myChannel = null;
+		if(myBestMove != null || myNodes != 0)
+		{
+			myComponent.markSquaresAsDirty(myScoredSquares | getLineSquares(getSquares(myBestMove) | getSquares(myExpectedReply)));
+			myComponent.repaint(getTextBounds());
+		}
+		myScoredSquares = 0;
+		myBestMove = null;
+		myExpectedReply = null;
+		myBestMoveValue = Long.MIN_VALUE;
+		myDepth = 0;
+		myNodes = 0;
+		myDroppedSamples = 0;
+	}
+
+	boolean isFollowingASearch()
+	{
+		return myTimer.isRunning();
+	}
+
+	@Override
+	public void actionPerformed(final ActionEvent e)
+	{
+		refresh();
+	}
+
+	/**
+	 * Moves the samples that have arrived since the last refresh into the model and repaints the parts that changed
+	 */
+	void refresh()
+	{
+		SearchSampleChannel channel = myChannel;
+		if(channel == null || channel.drainTo(mySamples) == 0)
+		{
+			return;
+		}
+		long changedSquares = 0;
+		long oldBestLine = getSquares(myBestMove) | getSquares(myExpectedReply);
+		for(SearchSample sample : mySamples)
+		{
+			myDepth = Math.max(myDepth, sample.getDepth());
+			myNodes = Math.max(myNodes, sample.getNodes());
+			MoveItem rootMove = sample.getRootMove();
+			if(rootMove == null)
+			{
+				continue;
+			}
+			int square = getSquareIndex(rootMove.getToPosition());
+			long squareBit = 1L << square;
+			if((myScoredSquares & squareBit) == 0 || sample.getRootMoveValue() > myScores[square])
+			{
+				myScores[square] = sample.getRootMoveValue();
+				myScoredSquares |= squareBit;
+				changedSquares |= squareBit;
+			}
+			if(myBestMove == null || sample.getRootMoveValue() > myBestMoveValue)
+			{
+				myBestMove = rootMove;
+				myBestMoveValue = sample.getRootMoveValue();
+				myExpectedReply = sample.getExpectedReply();
+			}
+		}
+		mySamples.clear();
+		myDroppedSamples = channel.getDroppedSamples();
+
+		if(changedSquares != 0)
+		{
+			long lowest = Long.MAX_VALUE;
+			long highest = Long.MIN_VALUE;
+			for(int square = 0; square < myScores.length; square++)
+			{
+				if((myScoredSquares & (1L << square)) != 0)
+				{
+					lowest = Math.min(lowest, myScores[square]);
+					highest = Math.max(highest, myScores[square]);
+				}
+			}
+			//All the colors are relative to the range of the scores so they all change when the range does
+			if(lowest != myLowestScore || highest != myHighestScore)
+			{
+				changedSquares = myScoredSquares;
+			}
+			myLowestScore = lowest;
+			myHighestScore = highest;
+		}
+		long newBestLine = getSquares(myBestMove) | getSquares(myExpectedReply);
+		if(newBestLine != oldBestLine)
+		{
+			changedSquares |= getLineSquares(oldBestLine) | getLineSquares(newBestLine);
+		}
+		myComponent.markSquaresAsDirty(changedSquares);
+		myComponent.repaint(getTextBounds());
+	}
+
+	/**
+	 * Tints the given square with the color of its score, should be called after the background of the square has been drawn
+	 */
+	void paintSquare(final Position position, final Rectangle square, final Graphics2D graphics)
+	{
+		int index = getSquareIndex(position);
+		if((myScoredSquares & (1L << index)) == 0)
+		{
+			return;
+		}
+		double range = myHighestScore - (double) myLowestScore;
+		float quality = range > 0 ? (float) ((myScores[index] - (double) myLowestScore) / range) : 1f;
+		Composite composite = graphics.getComposite();
+		graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, HEATMAP_ALPHA));
+		graphics.setColor(new Color(1f - quality, quality, 0f));
+		graphics.fillRect(square.x, square.y, square.width, square.height);
+		graphics.setComposite(composite);
+	}
+
+	/**
+	 * Draws the best line and the text, should be called when everything else has been drawn
+	 */
+	void paint(final Graphics2D graphics)
+	{
+		if(myBestMove == null && myNodes == 0)
+		{
+			return;
+		}
+		Stroke stroke = graphics.getStroke();
+		graphics.setStroke(new BasicStroke(Math.max(2, myComponent.getSquareBounds(1L).width / 12f), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+		drawArrow(myBestMove, BEST_MOVE_COLOR, graphics);
+		drawArrow(myExpectedReply, EXPECTED_REPLY_COLOR, graphics);
+		graphics.setStroke(stroke);
+
+		Rectangle textBounds = getTextBounds();
+		graphics.setColor(TEXT_BACKGROUND);
+		graphics.fillRect(textBounds.x, textBounds.y, textBounds.width, textBounds.height);
+		graphics.setColor(Color.WHITE);
+		graphics.setFont(TEXT_FONT);
+		FontMetrics metrics = graphics.getFontMetrics();
+		int y = textBounds.y + TEXT_MARGIN + metrics.getAscent();
+		for(String line : getText())
+		{
+			graphics.drawString(line, textBounds.x + TEXT_MARGIN, y);
+			y += metrics.getHeight();
+		}
+	}
+
+	private void drawArrow(final MoveItem move, final Color color, final Graphics2D graphics)
+	{
+		if(move == null)
+		{
+			return;
+		}
+		Rectangle from = getSquareBounds(move.getFromPosition());
+		Rectangle to = getSquareBounds(move.getToPosition());
+		double fromX = from.getCenterX();
+		double fromY = from.getCenterY();
+		double toX = to.getCenterX();
+		double toY = to.getCenterY();
+		double angle = Math.atan2(toY - fromY, toX - fromX);
+		double headLength = to.width / 4.0;
+		graphics.setColor(color);
+		graphics.drawLine((int) fromX, (int) fromY, (int) toX, (int) toY);
+		graphics.drawLine((int) toX, (int) toY, (int) (toX - headLength * Math.cos(angle - Math.PI / 6)), (int) (toY - headLength * Math.sin(angle - Math.PI / 6)));
+		graphics.drawLine((int) toX, (int) toY, (int) (toX - headLength * Math.cos(angle + Math.PI / 6)), (int) (toY - headLength * Math.sin(angle + Math.PI / 6)));
+	}
+
+	private List<String> getText()
+	{
+		List<String> text = Lists.newArrayList("Depth: " + myDepth, "Nodes: " + myNodes);
+		if(myBestMove != null)
+		{
+			text.add("Best: " + myBestMove + " (" + myBestMoveValue + ")");
+		}
+		if(myExpectedReply != null)
+		{
+			text.add("Reply: " + myExpectedReply);
+		}
+		if(myDroppedSamples > 0)
+		{
+			text.add("Dropped samples: " + myDroppedSamples);
+		}
+		return text;
+	}
+
+	/**
+	 * @return the area in the upper left corner that the text is drawn in, large enough for the longest text there can be
+	 */
+	private Rectangle getTextBounds()
+	{
+		FontMetrics metrics = myComponent.getFontMetrics(TEXT_FONT);
+		int width = metrics.stringWidth("Best: 8H -> 8H (-9223372036854775808)");
+		return new Rectangle(0, 0, width + 2 * TEXT_MARGIN, metrics.getHeight() * 5 + 2 * TEXT_MARGIN);
+	}
+
+	private Rectangle getSquareBounds(final Position position)
+	{
+		return myComponent.getSquareBounds(1L << getSquareIndex(position));
+	}
+
+	private static int getSquareIndex(final Position position)
+	{
+		return position.getRow() * ChessBoard.BOARD_SIZE + position.getColumn();
+	}
+
+	private static long getSquares(final MoveItem move)
+	{
+		if(move == null)
+		{
+			return 0;
+		}
+		return (1L << getSquareIndex(move.getFromPosition())) | (1L << getSquareIndex(move.getToPosition()));
+	}
+
+	/**
+	 * @return all the squares within the rectangles spanned by the from and to squares of the given squares,
+	 * an arrow between two squares is always drawn within that rectangle
+	 */
+	private static long getLineSquares(final long squares)
+	{
+		if(squares == 0)
+		{
+			return 0;
+		}
+		int lowestRow = ChessBoard.BOARD_SIZE;
+		int highestRow = -1;
+		int lowestColumn = ChessBoard.BOARD_SIZE;
+		int highestColumn = -1;
+		for(int square = 0; square < ChessBoard.BOARD_SIZE * ChessBoard.BOARD_SIZE; square++)
+		{
+			if((squares & (1L << square)) != 0)
+			{
+				int row = square / ChessBoard.BOARD_SIZE;
+				int column = square % ChessBoard.BOARD_SIZE;
+				lowestRow = Math.min(lowestRow, row);
+				highestRow = Math.max(highestRow, row);
+				lowestColumn = Math.min(lowestColumn, column);
+				highestColumn = Math.max(highestColumn, column);
+			}
+		}
+		long lineSquares = 0;
+		for(int row = lowestRow; row <= highestRow; row++)
+		{
+			for(int column = lowestColumn; column <= highestColumn; column++)
+			{
+				lineSquares |= 1L << (row * ChessBoard.BOARD_SIZE + column);
+			}
+		}
+		return lineSquares;
+	}
+}
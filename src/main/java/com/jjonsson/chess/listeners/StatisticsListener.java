@@ -1,11 +1,17 @@
 package com.jjonsson.chess.listeners;
 
+import com.jjonsson.chess.evaluators.SearchTelemetry;
 import com.jjonsson.chess.evaluators.statistics.StatisticsSnapshot;
 
 public interface StatisticsListener
 {
 	public void newStatistics(StatisticsSnapshot snapshot);
 
+	/**
+	 * Called when a search has finished with the detailed measurements of it
+	 */
+	public void searchFinished(SearchTelemetry telemetry);
+
 	public void wasInterrupted(InterruptedException ie);
 
 	public long notificationIntervalInNanos();
@@ -121,7 +121,6 @@ public class CastlingMove extends IndependantMove
 		myPreviousPosition = getCurrentPosition();
 		getPiece().updateCurrentPosition(myKingMove);
 
-		setMovesMade(getMovesMade()+1);
 		getPiece().setMovesMade(getPiece().getMovesMade() + 1);
 		if(!myRock.performMove(myRockMove, board, false))
 		{
@@ -209,34 +209,6 @@ public abstract class DependantMove extends Move
 			myMoveDependingOnMe.syncCountersWithBoardDownwards(board);
 		}
 	}
-	/**
-	 * Copies the counters recursively
-	 */
-	@Override
-	public void copyMoveCounter(final Move moveToCopyFrom)
-	{
-		super.copyMoveCounter(moveToCopyFrom);
-		DependantMove moveDependingOnMe = getMoveDependingOnMe();
-		DependantMove fromMove = DependantMove.class.cast(moveToCopyFrom).getMoveDependingOnMe();
-		if(moveDependingOnMe != null && fromMove != null)
-		{
-			moveDependingOnMe.copyMoveCounter(fromMove);
-		}
-	}
-
-	/**
-	 * Resets the counters recursively
-	 */
-	@Override
-	public void resetMoveCounter()
-	{
-		super.resetMoveCounter();
-		if(getMoveDependingOnMe() != null)
-		{
-			getMoveDependingOnMe().resetMoveCounter();
-		}
-	}
-
 	public List<Move> getPossibleMovesThatIsDependantOnMe(final ChessBoard board)
 	{
 		List<Move> dependantMoves = null;
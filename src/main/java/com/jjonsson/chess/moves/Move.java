@@ -53,11 +53,6 @@ public abstract class Move
 
 	private boolean myIsRemoved;
 
-	/**
-	 * Holds the number of moves made with this move
-	 */
-	private long myMovesMade;
-
 	private int myFirstDimensionIndex;
 	private int mySecondDimensionIndex;
 
@@ -184,41 +179,6 @@ public abstract class Move
 		return true;
 	}
 
-	/**
-	 * 
-	 * @param newMovesMadeCount the new value for how many times this move has been made
-	 */
-	public void setMovesMade(final long newMovesMadeCount)
-	{
-		myMovesMade = newMovesMadeCount;
-	}
-
-	/**
-	 * 
-	 * @return how many times this move has been made
-	 */
-	public long getMovesMade()
-	{
-		return myMovesMade;
-	}
-
-	/**
-	 * Copies the move counter from the given move
-	 * @param moveToCopyFrom
-	 */
-	public void copyMoveCounter(final Move moveToCopyFrom)
-	{
-		myMovesMade = moveToCopyFrom.getMovesMade();
-	}
-
-	/**
-	 * Could be called periodically to reset the repetitiveness protection
-	 */
-	public void resetMoveCounter()
-	{
-		myMovesMade = 0;
-	}
-
 	/**
 	 * 
 	 * @return the affinity of the piece making this move
@@ -536,7 +496,6 @@ public abstract class Move
 			return false;
 		}
 		myPiece.updateCurrentPosition(this);
-		myMovesMade++;
 		getPiece().setMovesMade(getPiece().getMovesMade() + 1);
 		return true;
 	}
@@ -0,0 +1,447 @@
+package com.jjonsson.chess.performance;
+
+import static com.jjonsson.chess.board.PiecePlacement.DONT_PLACE_PIECES;
+import static com.jjonsson.chess.persistence.PersistanceLogging.USE_PERSISTANCE_LOGGING;
+import static com.jjonsson.utilities.Loggers.STDERR;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.evaluators.ChessMoveEvaluator;
+import com.jjonsson.chess.evaluators.MateSearch;
+import com.jjonsson.chess.evaluators.SearchBudget;
+import com.jjonsson.chess.evaluators.SearchResult;
+import com.jjonsson.chess.exceptions.NoMovesAvailableException;
+import com.jjonsson.chess.exceptions.UnavailableMoveItem;
+import com.jjonsson.chess.persistence.BoardLoader;
+import com.jjonsson.chess.persistence.ChessFileFilter;
+import com.jjonsson.chess.persistence.FenNotation;
+import com.jjonsson.chess.persistence.MoveItem;
+import com.jjonsson.chess.persistence.SanNotation;
+import com.jjonsson.utilities.EventRecorder;
+import com.jjonsson.utilities.JsonLine;
+
+/**
+ * Analyzes a batch of positions without a GUI and writes the best move, its value and the measurements of the search
+ * (see {@link com.jjonsson.chess.evaluators.SearchTelemetry}) for each position as JSON lines.
+ * <br>Positions are read from .chess files, from FEN/EPD files (one position per line) or from standard input ("-"),
+ * directories are searched for such files.
+ * <br>The positions are analyzed by a pool of workers that each reuses one board, the last line that is written
+ * summarizes the throughput in positions per second.
+ * <br>With --mate n the positions are only searched for mates in n moves or less (see {@link MateSearch}).
+ */
+public class BatchAnalyzer
+{
+	private static final String USAGE = "Usage: BatchAnalyzer [--workers n] [--difficulty n] [--nodes n] [--millis n] [--mate n] [--output file] (file|directory|-)...";
+
+	private static final String STANDARD_INPUT = "-";
+
+	/**
+	 * Makes the reading of positions wait for the workers instead of reading all positions into memory
+	 */
+	private static final int QUEUED_POSITIONS_PER_WORKER = 64;
+
+	/**
+	 * Put on the queue once for each worker when there are no more positions
+	 */
+	private static final Position END_OF_POSITIONS = new Position(null, null, null);
+
+	private static final Pattern EPD_ID = Pattern.compile("\\bid\\s+\"([^\"]*)\"");
+
+	private final int myWorkerCount;
+	private final int myDifficulty;
+	private final long myNodeLimit;
+	private final long myTimeLimitInMillis;
+	private int myMateSearchMoves;
+
+	private Writer myOutput;
+	private final AtomicInteger myAnalyzedPositions;
+	private final AtomicInteger myFailedPositions;
+
+	/**
+	 * @param workers the number of positions to analyze in parallel
+	 * @param difficulty the difficulty to search with (see {@link ChessBoard#setDifficulty(int)})
+	 * @param nodeLimit the number of moves to evaluate per position, or {@link SearchBudget#UNLIMITED}
+	 * @param timeLimitInMillis the time to spend per position, or {@link SearchBudget#UNLIMITED}
+	 */
+	public BatchAnalyzer(final int workers, final int difficulty, final long nodeLimit, final long timeLimitInMillis)
+	{
+		myWorkerCount = workers;
+		myDifficulty = difficulty;
+		myNodeLimit = nodeLimit;
+		myTimeLimitInMillis = timeLimitInMillis;
+		myAnalyzedPositions = new AtomicInteger();
+		myFailedPositions = new AtomicInteger();
+	}
+
+	/**
+	 * Makes the analysis only search for mates (see {@link MateSearch}) instead of searching for the best move
+	 * @param maxMoves the longest mate to search for, 0 to search for the best move
+	 */
+	public void setMateSearch(final int maxMoves)
+	{
+		myMateSearchMoves = maxMoves;
+	}
+
+	public static void main(final String[] args) throws IOException, InterruptedException
+	{
+		EventRecorder.startRecordingFromProperty();
+		int workers = Runtime.getRuntime().availableProcessors();
+		int difficulty = ChessBoard.DEFAULT_DIFFICULTY;
+		long nodes = SearchBudget.UNLIMITED;
+		long millis = SearchBudget.UNLIMITED;
+		int mateMoves = 0;
+		String output = null;
+		List<String> inputs = Lists.newArrayList();
+		try
+		{
+			for(int i = 0; i < args.length; i++)
+			{
+				if(args[i].equals("--workers"))
+				{
+					workers = Integer.parseInt(args[++i]);
+				}
+				else if(args[i].equals("--difficulty"))
+				{
+					difficulty = Integer.parseInt(args[++i]);
+				}
+				else if(args[i].equals("--nodes"))
+				{
+					nodes = Long.parseLong(args[++i]);
+				}
+				else if(args[i].equals("--millis"))
+				{
+					millis = Long.parseLong(args[++i]);
+				}
+				else if(args[i].equals("--mate"))
+				{
+					mateMoves = Integer.parseInt(args[++i]);
+				}
+				else if(args[i].equals("--output"))
+				{
+					output = args[++i];
+				}
+				else
+				{
+					inputs.add(args[i]);
+				}
+			}
+		}
+		catch(NumberFormatException e)
+		{
+			STDERR.error(USAGE);
+			return;
+		}
+		catch(ArrayIndexOutOfBoundsException e)
+		{
+			STDERR.error(USAGE);
+			return;
+		}
+		if(inputs.isEmpty() || workers < 1 || mateMoves < 0)
+		{
+			STDERR.error(USAGE);
+			return;
+		}
+		Writer writer = new BufferedWriter(new OutputStreamWriter(output == null ? System.out : new FileOutputStream(output), Charsets.UTF_8));
+		BatchAnalyzer analyzer = new BatchAnalyzer(workers, difficulty, nodes, millis);
+		analyzer.setMateSearch(mateMoves);
+		analyzer.analyze(inputs, writer);
+		writer.close();
+	}
+
+	/**
+	 * Analyzes all the positions in the given inputs
+	 * @param inputs paths to files or directories, or "-" for standard input
+	 * @param output where to write the JSON lines, it's flushed but not closed
+	 * @return the number of analyzed positions (including positions that couldn't be analyzed)
+	 * @throws IOException if an input couldn't be read or the output couldn't be written
+	 */
+	public int analyze(final List<String> inputs, final Writer output) throws IOException, InterruptedException
+	{
+		myOutput = output;
+		myAnalyzedPositions.set(0);
+		myFailedPositions.set(0);
+		BlockingQueue<Position> queue = new ArrayBlockingQueue<Position>(myWorkerCount * QUEUED_POSITIONS_PER_WORKER);
+		List<Thread> workers = Lists.newArrayList();
+		for(int i = 0; i < myWorkerCount; i++)
+		{
+			Thread worker = new Thread(new Worker(queue), BatchAnalyzer.class.getSimpleName() + "-" + i);
+			workers.add(worker);
+			worker.start();
+		}
+
+		long startTime = System.nanoTime();
+		try
+		{
+			for(String input : inputs)
+			{
+				if(input.equals(STANDARD_INPUT))
+				{
+					readPositions(System.in, input, queue);
+				}
+				else
+				{
+					readPositions(new File(input), queue);
+				}
+			}
+		}
+		finally
+		{
+			for(int i = 0; i < myWorkerCount; i++)
+			{
+				queue.put(END_OF_POSITIONS);
+			}
+			for(Thread worker : workers)
+			{
+				worker.join();
+			}
+		}
+		double seconds = (double)(System.nanoTime() - startTime) / SECONDS.toNanos(1);
+		int positions = myAnalyzedPositions.get();
+		double positionsPerSecond = positions / seconds;
+		write(new JsonLine().add("positions", positions).add("failed", myFailedPositions.get()).add("workers", myWorkerCount)
+				.add("seconds", seconds).add("positionsPerSecond", positionsPerSecond));
+		myOutput.flush();
+		STDERR.info("Analyzed " + positions + " positions in " + seconds + " secs (" + positionsPerSecond + " positions/sec)");
+		return positions;
+	}
+
+	private void readPositions(final File file, final BlockingQueue<Position> queue) throws IOException, InterruptedException
+	{
+		if(file.isDirectory())
+		{
+			File[] files = file.listFiles();
+			Arrays.sort(files);
+			for(File child : files)
+			{
+				readPositions(child, queue);
+			}
+		}
+		else if(file.getName().endsWith(ChessFileFilter.FILE_ENDING))
+		{
+			queue.put(new Position(file.getPath(), null, file));
+		}
+		else
+		{
+			InputStream input = new FileInputStream(file);
+			try
+			{
+				readPositions(input, file.getPath(), queue);
+			}
+			finally
+			{
+				input.close();
+			}
+		}
+	}
+
+	/**
+	 * Reads FEN or EPD positions, one per line. Empty lines and lines starting with # are skipped
+	 */
+	private void readPositions(final InputStream input, final String source, final BlockingQueue<Position> queue) throws IOException, InterruptedException
+	{
+		BufferedReader reader = new BufferedReader(new InputStreamReader(input, Charsets.UTF_8));
+		String line;
+		int lineNumber = 0;
+		while((line = reader.readLine()) != null)
+		{
+			lineNumber++;
+			line = line.trim();
+			if(line.length() == 0 || line.startsWith("#"))
+			{
+				continue;
+			}
+			String id = getEpdId(line);
+			if(id == null)
+			{
+				id = source + ":" + lineNumber;
+			}
+			queue.put(new Position(id, toFen(line), null));
+		}
+	}
+
+	/**
+	 * EPD lines only has the first four FEN fields, followed by operations (like id "name";)
+	 * @return the FEN part of the given FEN or EPD line
+	 */
+	static String toFen(final String line)
+	{
+		String[] fields = line.split("\\s+");
+		if(fields.length == 6 && fields[4].matches("\\d+") && fields[5].matches("\\d+"))
+		{
+			return line;
+		}
+		StringBuilder fen = new StringBuilder();
+		for(int i = 0; i < Math.min(4, fields.length); i++)
+		{
+			fen.append(fields[i]).append(' ');
+		}
+		return fen.append("0 1").toString();
+	}
+
+	/**
+	 * @return the value of the id operation in the given EPD line, or null
+	 */
+	private static String getEpdId(final String line)
+	{
+		Matcher matcher = EPD_ID.matcher(line);
+		if(matcher.find())
+		{
+			return matcher.group(1);
+		}
+		return null;
+	}
+
+	private void write(final JsonLine line) throws IOException
+	{
+		synchronized(myOutput)
+		{
+			myOutput.write(line.toString());
+			myOutput.write('\n');
+		}
+	}
+
+	private final class Worker implements Runnable
+	{
+		private final BlockingQueue<Position> myQueue;
+		private final ChessBoard myBoard;
+		private final SearchBudget myBudget;
+
+		private Worker(final BlockingQueue<Position> queue)
+		{
+			myQueue = queue;
+			myBoard = new ChessBoard(DONT_PLACE_PIECES, USE_PERSISTANCE_LOGGING);
+			myBoard.setDifficulty(myDifficulty);
+			myBudget = new SearchBudget(myNodeLimit, myTimeLimitInMillis, MILLISECONDS);
+			//The telemetry is written for each position
+			myBudget.setPhaseTiming(true);
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				Position position = myQueue.take();
+				while(position != END_OF_POSITIONS)
+				{
+					JsonLine result = analyze(position);
+					myAnalyzedPositions.incrementAndGet();
+					write(result);
+					position = myQueue.take();
+				}
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch(IOException e)
+			{
+				STDERR.error("Failed to write analysis results", e);
+			}
+		}
+
+		private JsonLine analyze(final Position position)
+		{
+			JsonLine result = new JsonLine().add("id", position.myId);
+			myBoard.clear();
+			boolean loaded;
+			if(position.myChessFile != null)
+			{
+				loaded = BoardLoader.loadFileIntoBoard(position.myChessFile, myBoard);
+			}
+			else
+			{
+				loaded = BoardLoader.loadFenIntoBoard(position.myFen, myBoard);
+			}
+			if(!loaded)
+			{
+				return failed(result, "Unloadable position" + (position.myFen != null ? ": " + position.myFen : ""));
+			}
+			result.add("fen", FenNotation.toFen(myBoard));
+			try
+			{
+				if(myMateSearchMoves > 0)
+				{
+					return analyzeMate(result);
+				}
+				SearchResult searchResult = ChessMoveEvaluator.search(myBoard, myBudget);
+				String move = SanNotation.describeAndPerform(myBoard, MoveItem.from(searchResult.getBestMove()));
+				result.add("bestMove", move).add("value", searchResult.getBestMoveValue());
+				if(searchResult.isMate())
+				{
+					result.add("mateIn", searchResult.getMovesToMate());
+				}
+				return myBudget.getTelemetry().addTo(result);
+			}
+			catch(NoMovesAvailableException e)
+			{
+				return failed(result, "No moves available, state: " + myBoard.getCurrentState());
+			}
+			catch(UnavailableMoveItem e)
+			{
+				return failed(result, "The best move couldn't be made: " + e);
+			}
+			catch(RuntimeException e)
+			{
+				STDERR.error("Analysis of " + position.myId + " failed", e);
+				return failed(result, e.toString());
+			}
+		}
+
+		private JsonLine analyzeMate(final JsonLine result) throws UnavailableMoveItem
+		{
+			SearchResult mate = MateSearch.findMate(myBoard, myMateSearchMoves, myBudget);
+			if(mate.getBestMove() != null)
+			{
+				String move = SanNotation.describeAndPerform(myBoard, MoveItem.from(mate.getBestMove()));
+				result.add("bestMove", move).add("mateIn", mate.getMovesToMate());
+			}
+			else
+			{
+				result.add("mateIn", (String) null);
+			}
+			return result.add("nodes", myBudget.getNodesSearched()).add("exhausted", myBudget.isExhausted());
+		}
+
+		private JsonLine failed(final JsonLine result, final String error)
+		{
+			myFailedPositions.incrementAndGet();
+			return result.add("error", error);
+		}
+	}
+
+	private static final class Position
+	{
+		private final String myId;
+		private final String myFen;
+		private final File myChessFile;
+
+		private Position(final String id, final String fen, final File chessFile)
+		{
+			myId = id;
+			myFen = fen;
+			myChessFile = chessFile;
+		}
+	}
+}
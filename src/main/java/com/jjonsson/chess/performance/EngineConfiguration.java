@@ -0,0 +1,74 @@
+package com.jjonsson.chess.performance;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.jjonsson.chess.evaluators.SearchBudget;
+import com.jjonsson.chess.evaluators.SearchLimiter;
+
+/**
+ * The settings that an engine plays with in a {@link Tournament}
+ */
+public class EngineConfiguration
+{
+	private final String myName;
+	private final int myDifficulty;
+	private final int myRepetitivePunishmentFactor;
+	private final long myNodeLimit;
+	private final long myTimeLimitInMillis;
+
+	/**
+	 * @param name the name to present results with
+	 * @param difficulty see {@link com.jjonsson.chess.board.ChessBoard#setDifficulty(int)}
+	 * @param repetitivePunishmentFactor see {@link SearchLimiter#setRepetitivePunishmentFactor(int)}
+	 * @param nodeLimit the number of moves to evaluate per move, or {@link SearchBudget#UNLIMITED}
+	 * @param timeLimitInMillis the time to spend per move, or {@link SearchBudget#UNLIMITED}
+	 */
+	public EngineConfiguration(final String name, final int difficulty, final int repetitivePunishmentFactor, final long nodeLimit, final long timeLimitInMillis)
+	{
+		myName = name;
+		myDifficulty = difficulty;
+		myRepetitivePunishmentFactor = repetitivePunishmentFactor;
+		myNodeLimit = nodeLimit;
+		myTimeLimitInMillis = timeLimitInMillis;
+	}
+
+	/**
+	 * Parses a configuration like "difficulty,punishmentFactor" (e.g "2,10")
+	 * @throws NumberFormatException if the description is malformed
+	 */
+	public static EngineConfiguration parse(final String name, final String description, final long nodeLimit, final long timeLimitInMillis)
+	{
+		String[] parts = description.split(",");
+		int punishmentFactor = SearchLimiter.DEFAULT_REPITIVE_PUNISHMENT_FACTOR;
+		if(parts.length > 2)
+		{
+			throw new NumberFormatException("Expected difficulty,punishmentFactor but got: " + description);
+		}
+		if(parts.length == 2)
+		{
+			punishmentFactor = Integer.parseInt(parts[1].trim());
+		}
+		return new EngineConfiguration(name, Integer.parseInt(parts[0].trim()), punishmentFactor, nodeLimit, timeLimitInMillis);
+	}
+
+	/**
+	 * @return a new limiter (and budget) for one search with this configuration
+	 */
+	public SearchLimiter createLimiter()
+	{
+		SearchLimiter limiter = new SearchLimiter(myDifficulty, new SearchBudget(myNodeLimit, myTimeLimitInMillis, MILLISECONDS));
+		limiter.setRepetitivePunishmentFactor(myRepetitivePunishmentFactor);
+		return limiter;
+	}
+
+	public String getName()
+	{
+		return myName;
+	}
+
+	@Override
+	public String toString()
+	{
+		return myName + " (difficulty: " + myDifficulty + ", punishment factor: " + myRepetitivePunishmentFactor + ")";
+	}
+}
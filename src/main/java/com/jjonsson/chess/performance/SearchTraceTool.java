@@ -0,0 +1,133 @@
+package com.jjonsson.chess.performance;
+
+import static com.jjonsson.chess.board.PiecePlacement.DONT_PLACE_PIECES;
+import static com.jjonsson.chess.persistence.PersistanceLogging.SKIP_PERSISTANCE_LOGGING;
+import static com.jjonsson.utilities.Loggers.STDERR;
+import static com.jjonsson.utilities.Loggers.STDOUT;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import com.google.common.base.Charsets;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.evaluators.ChessMoveEvaluator;
+import com.jjonsson.chess.evaluators.SearchBudget;
+import com.jjonsson.chess.evaluators.SearchResult;
+import com.jjonsson.chess.evaluators.SearchTrace;
+import com.jjonsson.chess.evaluators.SearchTracer;
+import com.jjonsson.chess.exceptions.NoMovesAvailableException;
+import com.jjonsson.chess.persistence.BoardLoader;
+
+/**
+ * Records the search tree of a search (see {@link SearchTracer}) and summarizes recorded search trees (see {@link SearchTrace}),
+ * used to find out why a search was slow or why it picked a bad move
+ */
+public final class SearchTraceTool
+{
+	private SearchTraceTool(){}
+
+	private static final String USAGE = "Usage: SearchTraceTool record [--difficulty n] [--nodes n] [--millis n] (fen|file.chess) traceFile"
+			+ "\n       SearchTraceTool summary [--top n] traceFile";
+
+	private static final int DEFAULT_TOP = 10;
+
+	public static void main(final String[] args) throws IOException
+	{
+		try
+		{
+			if(args.length > 0 && args[0].equals("record"))
+			{
+				record(args);
+				return;
+			}
+			else if(args.length > 0 && args[0].equals("summary"))
+			{
+				summary(args);
+				return;
+			}
+		}
+		catch(NumberFormatException e)
+		{
+			STDERR.error(USAGE);
+			return;
+		}
+		catch(ArrayIndexOutOfBoundsException e)
+		{
+			STDERR.error(USAGE);
+			return;
+		}
+		STDERR.error(USAGE);
+	}
+
+	private static void record(final String[] args) throws IOException
+	{
+		int difficulty = ChessBoard.DEFAULT_DIFFICULTY;
+		long nodes = SearchBudget.UNLIMITED;
+		long millis = SearchBudget.UNLIMITED;
+		int i = 1;
+		for(; i < args.length - 2; i++)
+		{
+			if(args[i].equals("--difficulty"))
+			{
+				difficulty = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("--nodes"))
+			{
+				nodes = Long.parseLong(args[++i]);
+			}
+			else if(args[i].equals("--millis"))
+			{
+				millis = Long.parseLong(args[++i]);
+			}
+			else
+			{
+				STDERR.error(USAGE);
+				return;
+			}
+		}
+		String position = args[i];
+		String traceFile = args[i + 1];
+
+		ChessBoard board = new ChessBoard(DONT_PLACE_PIECES, SKIP_PERSISTANCE_LOGGING);
+		boolean loaded = position.endsWith(".chess") ? BoardLoader.loadFileIntoBoard(new File(position), board) : BoardLoader.loadFenIntoBoard(position, board);
+		if(!loaded)
+		{
+			STDERR.error("Unloadable position: " + position);
+			return;
+		}
+		board.setDifficulty(difficulty);
+		SearchBudget budget = new SearchBudget(nodes, millis, MILLISECONDS);
+		SearchTracer tracer = new SearchTracer(traceFile, board);
+		budget.setTracer(tracer);
+		try
+		{
+			SearchResult result = ChessMoveEvaluator.search(board, budget);
+			STDOUT.info("Best move: " + result.getBestMove() + ", value: " + result.getBestMoveValue() + ", traced nodes: " + tracer.getNodeCount());
+		}
+		catch(NoMovesAvailableException e)
+		{
+			STDERR.error("No moves available in: " + position);
+		}
+		finally
+		{
+			tracer.close();
+		}
+	}
+
+	private static void summary(final String[] args) throws IOException
+	{
+		int top = DEFAULT_TOP;
+		int i = 1;
+		if(args[i].equals("--top"))
+		{
+			top = Integer.parseInt(args[++i]);
+			i++;
+		}
+		Writer output = new OutputStreamWriter(System.out, Charsets.UTF_8);
+		SearchTrace.read(args[i]).summarize(output, top);
+		output.flush();
+	}
+}
@@ -0,0 +1,432 @@
+package com.jjonsson.chess.performance;
+
+import static com.jjonsson.chess.board.PiecePlacement.DONT_PLACE_PIECES;
+import static com.jjonsson.chess.persistence.PersistanceLogging.SKIP_PERSISTANCE_LOGGING;
+import static com.jjonsson.chess.pieces.Piece.WHITE;
+import static com.jjonsson.utilities.Loggers.STDERR;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.evaluators.ChessBoardEvaluator;
+import com.jjonsson.chess.evaluators.ChessBoardEvaluator.ChessState;
+import com.jjonsson.chess.evaluators.ChessMoveEvaluator;
+import com.jjonsson.chess.evaluators.SearchBudget;
+import com.jjonsson.chess.evaluators.SearchLimiter;
+import com.jjonsson.chess.exceptions.NoMovesAvailableException;
+import com.jjonsson.chess.moves.Move;
+import com.jjonsson.chess.persistence.BoardLoader;
+import com.jjonsson.chess.persistence.FenNotation;
+import com.jjonsson.chess.persistence.PgnGame;
+import com.jjonsson.utilities.EventRecorder;
+import com.jjonsson.utilities.JsonLine;
+
+/**
+ * Lets two engine configurations play against each other, without a GUI, to measure the strength of a change.
+ * <br>Games are played in parallel from a set of opening positions, each opening is played twice with the colors switched.
+ * The result of each game is written as a JSON line followed by one line per engine with its score, Elo difference
+ * (with a 95% confidence interval), evaluated nodes per second and average search depth.
+ * <br>Games that reaches the maximum number of plies are counted as draws.
+ * The measurements of each search can be written to a separate file with --telemetry.
+ */
+public class Tournament
+{
+	private static final String USAGE = "Usage: Tournament [--games n] [--workers n] [--max-plies n] [--nodes n] [--millis n] [--openings file] [--output file] [--telemetry file] "
+			+ "difficulty[,punishmentFactor] difficulty[,punishmentFactor]";
+
+	public static final int DEFAULT_MAX_PLIES = 200;
+
+	/**
+	 * The number of standard errors that the Elo error bars covers (95%)
+	 */
+	private static final double CONFIDENCE_FACTOR = 1.96;
+
+	private final EngineConfiguration[] myEngines;
+	private final EngineStatistics[] myStatistics;
+	private final List<String> myOpenings;
+	private final int myWorkerCount;
+	private final int myMaxPlies;
+
+	private Writer myOutput;
+	private Writer myTelemetryOutput;
+
+	/**
+	 * @param first the first engine, it plays white in the first game
+	 * @param second the second engine
+	 * @param openings the positions (as FEN) to start games from
+	 * @param workers the number of games to play in parallel
+	 * @param maxPlies the number of half moves after which a game is counted as a draw
+	 */
+	public Tournament(final EngineConfiguration first, final EngineConfiguration second, final List<String> openings, final int workers, final int maxPlies)
+	{
+		myEngines = new EngineConfiguration[]{first, second};
+		myStatistics = new EngineStatistics[]{new EngineStatistics(), new EngineStatistics()};
+		myOpenings = ImmutableList.copyOf(openings);
+		myWorkerCount = workers;
+		myMaxPlies = maxPlies;
+	}
+
+	public static void main(final String[] args) throws IOException, InterruptedException
+	{
+		EventRecorder.startRecordingFromProperty();
+		int games = 100;
+		int workers = Runtime.getRuntime().availableProcessors();
+		int maxPlies = DEFAULT_MAX_PLIES;
+		long nodes = SearchBudget.UNLIMITED;
+		long millis = SearchBudget.UNLIMITED;
+		String openingsFile = null;
+		String output = null;
+		String telemetry = null;
+		List<String> engines = Lists.newArrayList();
+		try
+		{
+			for(int i = 0; i < args.length; i++)
+			{
+				if(args[i].equals("--games"))
+				{
+					games = Integer.parseInt(args[++i]);
+				}
+				else if(args[i].equals("--workers"))
+				{
+					workers = Integer.parseInt(args[++i]);
+				}
+				else if(args[i].equals("--max-plies"))
+				{
+					maxPlies = Integer.parseInt(args[++i]);
+				}
+				else if(args[i].equals("--nodes"))
+				{
+					nodes = Long.parseLong(args[++i]);
+				}
+				else if(args[i].equals("--millis"))
+				{
+					millis = Long.parseLong(args[++i]);
+				}
+				else if(args[i].equals("--openings"))
+				{
+					openingsFile = args[++i];
+				}
+				else if(args[i].equals("--output"))
+				{
+					output = args[++i];
+				}
+				else if(args[i].equals("--telemetry"))
+				{
+					telemetry = args[++i];
+				}
+				else
+				{
+					engines.add(args[i]);
+				}
+			}
+			if(engines.size() != 2 || workers < 1)
+			{
+				STDERR.error(USAGE);
+				return;
+			}
+			EngineConfiguration first = EngineConfiguration.parse("first", engines.get(0), nodes, millis);
+			EngineConfiguration second = EngineConfiguration.parse("second", engines.get(1), nodes, millis);
+			List<String> openings = ImmutableList.of(FenNotation.STARTING_POSITION);
+			if(openingsFile != null)
+			{
+				openings = readOpenings(new File(openingsFile));
+			}
+			Writer writer = new BufferedWriter(new OutputStreamWriter(output == null ? System.out : new FileOutputStream(output), Charsets.UTF_8));
+			Tournament tournament = new Tournament(first, second, openings, workers, maxPlies);
+			Writer telemetryWriter = null;
+			if(telemetry != null)
+			{
+				telemetryWriter = Files.newWriter(new File(telemetry), Charsets.UTF_8);
+				tournament.setTelemetryOutput(telemetryWriter);
+			}
+			tournament.play(games, writer);
+			writer.close();
+			if(telemetryWriter != null)
+			{
+				telemetryWriter.close();
+			}
+		}
+		catch(NumberFormatException e)
+		{
+			STDERR.error(USAGE);
+		}
+		catch(ArrayIndexOutOfBoundsException e)
+		{
+			STDERR.error(USAGE);
+		}
+	}
+
+	/**
+	 * @return the FEN (or EPD) positions in the given file, one per line
+	 */
+	public static List<String> readOpenings(final File file) throws IOException
+	{
+		List<String> openings = Lists.newArrayList();
+		for(String line : Files.readLines(file, Charsets.UTF_8))
+		{
+			line = line.trim();
+			if(line.length() > 0 && !line.startsWith("#"))
+			{
+				openings.add(BatchAnalyzer.toFen(line));
+			}
+		}
+		return openings;
+	}
+
+	/**
+	 * Makes the measurements of each search (see {@link com.jjonsson.chess.evaluators.SearchTelemetry})
+	 * be written as a JSON line to the given writer, it's flushed but not closed
+	 */
+	public void setTelemetryOutput(final Writer telemetryOutput)
+	{
+		myTelemetryOutput = telemetryOutput;
+	}
+
+	/**
+	 * Plays the given number of games and writes the results
+	 * @param output where to write the JSON lines, it's flushed but not closed
+	 */
+	public void play(final int games, final Writer output) throws IOException, InterruptedException
+	{
+		myOutput = output;
+		final AtomicInteger nextGame = new AtomicInteger();
+		List<Thread> workers = Lists.newArrayList();
+		for(int i = 0; i < myWorkerCount; i++)
+		{
+			Thread worker = new Thread(Tournament.class.getSimpleName() + "-" + i){
+				@Override
+				public void run()
+				{
+					for(int game = nextGame.getAndIncrement(); game < games; game = nextGame.getAndIncrement())
+					{
+						try
+						{
+							playGame(game);
+						}
+						catch(IOException e)
+						{
+							STDERR.error("Failed to write the result of game " + game, e);
+						}
+					}
+				}
+			};
+			workers.add(worker);
+			worker.start();
+		}
+		for(Thread worker : workers)
+		{
+			worker.join();
+		}
+		for(int engine = 0; engine < myEngines.length; engine++)
+		{
+			EngineStatistics statistics = myStatistics[engine];
+			write(new JsonLine().add("engine", myEngines[engine].toString()).add("games", statistics.getGames())
+					.add("wins", statistics.getWins()).add("draws", statistics.getDraws()).add("losses", statistics.getLosses())
+					.add("score", statistics.getScore()).add("elo", statistics.getElo()).add("eloError", statistics.getEloError())
+					.add("nodesPerSecond", statistics.getNodesPerSecond()).add("averageDepth", statistics.getAverageDepth()));
+		}
+		myOutput.flush();
+		if(myTelemetryOutput != null)
+		{
+			myTelemetryOutput.flush();
+		}
+	}
+
+	/**
+	 * @param engine 0 for the first engine and 1 for the second
+	 */
+	public EngineStatistics getStatistics(final int engine)
+	{
+		return myStatistics[engine];
+	}
+
+	private void playGame(final int game) throws IOException
+	{
+		String opening = myOpenings.get((game / 2) % myOpenings.size());
+		//Each opening is played with both colors
+		int whiteEngine = game % 2;
+		ChessBoard board = new ChessBoard(DONT_PLACE_PIECES, SKIP_PERSISTANCE_LOGGING);
+		if(!BoardLoader.loadFenIntoBoard(opening, board))
+		{
+			write(new JsonLine().add("game", game).add("opening", opening).add("error", "Unloadable opening"));
+			return;
+		}
+		int plies = 0;
+		while(plies < myMaxPlies && ChessBoardEvaluator.inPlay(board))
+		{
+			int engine = board.getCurrentPlayer() == WHITE ? whiteEngine : 1 - whiteEngine;
+			SearchLimiter limiter = myEngines[engine].createLimiter();
+			limiter.getBudget().setPhaseTiming(myTelemetryOutput != null);
+			long startTime = System.nanoTime();
+			try
+			{
+				Move move = ChessMoveEvaluator.search(board, limiter).getBestMove();
+				myStatistics[engine].moveSearched(limiter.getBudget(), System.nanoTime() - startTime);
+				if(myTelemetryOutput != null)
+				{
+					write(myTelemetryOutput, limiter.getBudget().getTelemetry().addTo(new JsonLine().add("game", game)
+							.add("ply", plies).add("engine", myEngines[engine].getName())));
+				}
+				if(!move.getPiece().performMove(move, board))
+				{
+					//The same fallback as when the AI plays in the GUI
+					board.performRandomMove();
+				}
+			}
+			catch(NoMovesAvailableException e)
+			{
+				break;
+			}
+			plies++;
+		}
+
+		String result = PgnGame.DRAW;
+		if(board.getCurrentState() == ChessState.CHECKMATE)
+		{
+			result = board.getCurrentPlayer() == WHITE ? PgnGame.BLACK_WON : PgnGame.WHITE_WON;
+			int winner = board.getCurrentPlayer() == WHITE ? 1 - whiteEngine : whiteEngine;
+			myStatistics[winner].won();
+			myStatistics[1 - winner].lost();
+		}
+		else
+		{
+			myStatistics[0].drew();
+			myStatistics[1].drew();
+		}
+		write(new JsonLine().add("game", game).add("opening", opening).add("white", myEngines[whiteEngine].getName())
+				.add("black", myEngines[1 - whiteEngine].getName()).add("result", result).add("plies", plies));
+	}
+
+	private void write(final JsonLine line) throws IOException
+	{
+		write(myOutput, line);
+	}
+
+	private static void write(final Writer output, final JsonLine line) throws IOException
+	{
+		synchronized(output)
+		{
+			output.write(line.toString());
+			output.write('\n');
+		}
+	}
+
+	/**
+	 * The results and search measurements for one engine
+	 */
+	public static class EngineStatistics
+	{
+		private int myWins;
+		private int myDraws;
+		private int myLosses;
+
+		private long myMovesSearched;
+		private long myNodes;
+		private long myNanos;
+		private long myTotalDepth;
+
+		synchronized void won()
+		{
+			myWins++;
+		}
+
+		synchronized void drew()
+		{
+			myDraws++;
+		}
+
+		synchronized void lost()
+		{
+			myLosses++;
+		}
+
+		synchronized void moveSearched(final SearchBudget budget, final long nanos)
+		{
+			myMovesSearched++;
+			myNodes += budget.getNodesSearched();
+			myTotalDepth += budget.getDeepestSearch();
+			myNanos += nanos;
+		}
+
+		public synchronized int getWins()
+		{
+			return myWins;
+		}
+
+		public synchronized int getDraws()
+		{
+			return myDraws;
+		}
+
+		public synchronized int getLosses()
+		{
+			return myLosses;
+		}
+
+		public synchronized int getGames()
+		{
+			return myWins + myDraws + myLosses;
+		}
+
+		/**
+		 * @return the share of the possible points that was taken (a draw counts as half a point)
+		 */
+		public synchronized double getScore()
+		{
+			return (myWins + myDraws / 2.0) / getGames();
+		}
+
+		/**
+		 * @return the Elo difference against the opponent that the score corresponds to
+		 */
+		public synchronized double getElo()
+		{
+			return toElo(getScore());
+		}
+
+		/**
+		 * @return the half width of the 95% confidence interval of {@link #getElo()}
+		 */
+		public synchronized double getEloError()
+		{
+			int games = getGames();
+			double score = getScore();
+			double variance = (myWins * square(1 - score) + myDraws * square(0.5 - score) + myLosses * square(score)) / games;
+			double scoreError = CONFIDENCE_FACTOR * Math.sqrt(variance / games);
+			double highElo = toElo(Math.min(score + scoreError, 1));
+			double lowElo = toElo(Math.max(score - scoreError, 0));
+			return (highElo - lowElo) / 2;
+		}
+
+		public synchronized double getNodesPerSecond()
+		{
+			return myNodes / (myNanos / 1e9);
+		}
+
+		public synchronized double getAverageDepth()
+		{
+			return (double) myTotalDepth / myMovesSearched;
+		}
+
+		private static double toElo(final double score)
+		{
+			return -400 * Math.log10(1 / score - 1);
+		}
+
+		private static double square(final double value)
+		{
+			return value * value;
+		}
+	}
+}
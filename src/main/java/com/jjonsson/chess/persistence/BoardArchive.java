@@ -0,0 +1,153 @@
+package com.jjonsson.chess.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+
+/**
+ * A memory-mapped, read only collection of named boards, like the test scenarios or a directory of faulty boards, in one file.
+ * <br>The file starts with a header and an index with one entry per board, in the order they were added, with the offset of its name
+ * and of its board. The boards have the same encoding as the .chess files (see {@link com.jjonsson.chess.board.ChessBoard#writePersistenceData}).
+ * <br>After the index follows a hash table from names to index entries (open addressing with linear probing) so that a board
+ * can be found by its name without reading the rest of the archive.
+ * <br>Archives are created with {@link BoardArchiveBuilder} and their boards are loaded with {@link BoardLoader#loadArchivedBoard}
+ * or {@link BoardLoader#loadArchive(BoardArchive)}.
+ */
+public class BoardArchive implements Closeable
+{
+	public static final String FILE_ENDING = ".chessarchive";
+
+	static final int MAGIC = 0x43484241;
+	static final int VERSION = 1;
+
+	/**
+	 * Magic, version, board count and hash table size
+	 */
+	static final int HEADER_SIZE = 16;
+
+	/**
+	 * Name offset, board offset and board length
+	 */
+	static final int ENTRY_SIZE = 12;
+
+	/**
+	 * Each slot in the hash table holds the index of an entry + 1, 0 means that the slot is empty
+	 */
+	static final int SLOT_SIZE = 4;
+
+	static final Charset NAME_CHARSET = Charset.forName("UTF-8");
+
+	private final RandomAccessFile myFile;
+	private final MappedByteBuffer myData;
+	private final int myBoardCount;
+	private final int myTableSize;
+	private final int myTableStart;
+
+	/**
+	 * @param fileName the archive file to open
+	 * @throws IOException if the file couldn't be mapped or if it isn't a board archive
+	 */
+	public BoardArchive(final String fileName) throws IOException
+	{
+		myFile = new RandomAccessFile(fileName, "r");
+		MappedByteBuffer buffer = myFile.getChannel().map(MapMode.READ_ONLY, 0, myFile.length());
+		if(buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.SIZE / Byte.SIZE) != VERSION)
+		{
+			myFile.close();
+			throw new IOException(fileName + " isn't a board archive");
+		}
+		myBoardCount = buffer.getInt(2 * Integer.SIZE / Byte.SIZE);
+		myTableSize = buffer.getInt(3 * Integer.SIZE / Byte.SIZE);
+		myTableStart = HEADER_SIZE + myBoardCount * ENTRY_SIZE;
+		if(Integer.bitCount(myTableSize) != 1 || myTableStart + (long) myTableSize * SLOT_SIZE > buffer.limit())
+		{
+			myFile.close();
+			throw new IOException(fileName + " is truncated");
+		}
+		myData = buffer;
+	}
+
+	/**
+	 * @return the number of boards in this archive
+	 */
+	public int getBoardCount()
+	{
+		return myBoardCount;
+	}
+
+	/**
+	 * @param index 0 to {@link #getBoardCount()} - 1, the boards are indexed in the order they were added to the archive
+	 * @return the name of the board at the given index
+	 */
+	public String getName(final int index)
+	{
+		int nameOffset = myData.getInt(HEADER_SIZE + index * ENTRY_SIZE);
+		byte[] name = new byte[myData.getShort(nameOffset) & 0xFFFF];
+		ByteBuffer nameData = myData.duplicate();
+		nameData.position(nameOffset + Short.SIZE / Byte.SIZE);
+		nameData.get(name);
+		return new String(name, NAME_CHARSET);
+	}
+
+	/**
+	 * @return the index of the board with the given name or -1 if there is no such board
+	 */
+	public int indexOf(final String name)
+	{
+		int mask = myTableSize - 1;
+		for(int slot = hash(name) & mask; ; slot = (slot + 1) & mask)
+		{
+			int entry = myData.getInt(myTableStart + slot * SLOT_SIZE);
+			if(entry == 0)
+			{
+				return -1;
+			}
+			if(getName(entry - 1).equals(name))
+			{
+				return entry - 1;
+			}
+		}
+	}
+
+	/**
+	 * @return true if this archive has a board with the given name
+	 */
+	public boolean contains(final String name)
+	{
+		return indexOf(name) != -1;
+	}
+
+	/**
+	 * @param index 0 to {@link #getBoardCount()} - 1
+	 * @return a read only view of the encoded board at the given index, positioned at its first byte
+	 */
+	public ByteBuffer getBoardData(final int index)
+	{
+		int entryOffset = HEADER_SIZE + index * ENTRY_SIZE;
+		int boardOffset = myData.getInt(entryOffset + Integer.SIZE / Byte.SIZE);
+		int boardLength = myData.getInt(entryOffset + 2 * Integer.SIZE / Byte.SIZE);
+		ByteBuffer board = myData.duplicate();
+		board.limit(boardOffset + boardLength);
+		board.position(boardOffset);
+		return board.slice();
+	}
+
+	/**
+	 * Spreads the bits of the name's hash code as the table index is taken from the lowest bits
+	 */
+	static int hash(final String name)
+	{
+		int h = name.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		myFile.close();
+	}
+}
@@ -0,0 +1,168 @@
+package com.jjonsson.chess.persistence;
+
+import static com.jjonsson.chess.persistence.PersistanceLogging.SKIP_PERSISTANCE_LOGGING;
+import static com.jjonsson.chess.persistence.PersistanceLogging.USE_PERSISTANCE_LOGGING;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.jjonsson.chess.board.ChessBoard;
+
+/**
+ * Collects named boards (from boards in memory or from .chess files) and writes them as a {@link BoardArchive}
+ */
+public class BoardArchiveBuilder
+{
+	/**
+	 * Name -> encoded board, in the order the boards were added
+	 */
+	private final Map<String, byte[]> myBoards;
+
+	public BoardArchiveBuilder()
+	{
+		myBoards = Maps.newLinkedHashMap();
+	}
+
+	/**
+	 * Adds the given board, with its move history if it logs its moves for persistence
+	 * @throws IllegalArgumentException if a board with the same name has already been added
+	 */
+	public void addBoard(final String name, final ChessBoard board) throws IOException
+	{
+		PersistanceLogging persistanceLogging = board.hasPersistencePossibility() ? USE_PERSISTANCE_LOGGING : SKIP_PERSISTANCE_LOGGING;
+		ByteBuffer buffer = ByteBuffer.allocate(board.getPersistenceSize(persistanceLogging));
+		board.writePersistenceData(buffer, persistanceLogging);
+		buffer.flip();
+		addBoardData(name, Arrays.copyOf(buffer.array(), buffer.limit()));
+	}
+
+	/**
+	 * Adds a .chess file as it is, the name of the board is the file name without the {@link ChessFileFilter#FILE_ENDING}
+	 * @throws IllegalArgumentException if a board with the same name has already been added
+	 */
+	public void addFile(final File file) throws IOException
+	{
+		String name = file.getName();
+		if(name.endsWith(ChessFileFilter.FILE_ENDING))
+		{
+			name = name.substring(0, name.length() - ChessFileFilter.FILE_ENDING.length());
+		}
+		addBoardData(name, Files.toByteArray(file));
+	}
+
+	/**
+	 * Adds all the .chess files directly in the given directory, sorted by their names
+	 * @return the number of boards that was added
+	 */
+	public int addDirectory(final File directory) throws IOException
+	{
+		File[] files = directory.listFiles(new FilenameFilter(){
+			@Override
+			public boolean accept(final File dir, final String name)
+			{
+				return name.endsWith(ChessFileFilter.FILE_ENDING);
+			}
+		});
+		if(files == null)
+		{
+			throw new IOException(directory + " isn't a directory");
+		}
+		Arrays.sort(files);
+		for(File file : files)
+		{
+			addFile(file);
+		}
+		return files.length;
+	}
+
+	private void addBoardData(final String name, final byte[] board)
+	{
+		if(name.getBytes(BoardArchive.NAME_CHARSET).length > 0xFFFF)
+		{
+			throw new IllegalArgumentException("Too long name: " + name);
+		}
+		if(myBoards.containsKey(name))
+		{
+			throw new IllegalArgumentException("There already is a board named " + name);
+		}
+		myBoards.put(name, board);
+	}
+
+	/**
+	 * @return the number of boards that has been added
+	 */
+	public int getBoardCount()
+	{
+		return myBoards.size();
+	}
+
+	public void write(final String fileName) throws IOException
+	{
+		int boardCount = myBoards.size();
+		//The table is kept at most half full so that lookups only probe a few slots
+		int tableSize = Integer.highestOneBit(Math.max(1, boardCount) * 2 - 1) << 1;
+		int[] table = new int[tableSize];
+		List<byte[]> names = Lists.newArrayListWithCapacity(boardCount);
+
+		int dataOffset = BoardArchive.HEADER_SIZE + boardCount * BoardArchive.ENTRY_SIZE + tableSize * BoardArchive.SLOT_SIZE;
+		int entry = 0;
+		for(String name : myBoards.keySet())
+		{
+			names.add(name.getBytes(BoardArchive.NAME_CHARSET));
+			int slot = BoardArchive.hash(name) & (tableSize - 1);
+			while(table[slot] != 0)
+			{
+				slot = (slot + 1) & (tableSize - 1);
+			}
+			table[slot] = ++entry;
+		}
+
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+		try
+		{
+			output.writeInt(BoardArchive.MAGIC);
+			output.writeInt(BoardArchive.VERSION);
+			output.writeInt(boardCount);
+			output.writeInt(tableSize);
+			//Each name is written right before its board
+			int offset = dataOffset;
+			int i = 0;
+			for(byte[] board : myBoards.values())
+			{
+				int nameOffset = offset;
+				int boardOffset = nameOffset + Short.SIZE / Byte.SIZE + names.get(i++).length;
+				output.writeInt(nameOffset);
+				output.writeInt(boardOffset);
+				output.writeInt(board.length);
+				offset = boardOffset + board.length;
+			}
+			for(int slot : table)
+			{
+				output.writeInt(slot);
+			}
+			i = 0;
+			for(byte[] board : myBoards.values())
+			{
+				byte[] name = names.get(i++);
+				output.writeShort(name.length);
+				output.write(name);
+				output.write(board);
+			}
+		}
+		finally
+		{
+			output.close();
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package com.jjonsson.chess.persistence;
+
+import static com.jjonsson.chess.persistence.PersistanceLogging.SKIP_PERSISTANCE_LOGGING;
+import static com.jjonsson.chess.persistence.PersistanceLogging.USE_PERSISTANCE_LOGGING;
+import static com.jjonsson.utilities.Loggers.STDERR;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.gui.Settings;
+
+/**
+ * Saves boards that are in an inconsistent state so that the bug can be reproduced later, without making the thread
+ * that found the inconsistency (often a search thread) wait for the disk.
+ * <br>The board is serialized on the calling thread (as it may change right after) but it's written by a background thread,
+ * at most {@link #getMaxQueuedDumps()} dumps may wait to be written, the ones after that are dropped.
+ * <br>A position is only dumped once per reason (the file is named after the reason and the {@link ChessBoard#getPositionKey()})
+ * and at most {@link #getMaxDumpsPerMinute()} dumps are made each minute so a bug that happens in every node of a search doesn't fill up the disk.
+ */
+public final class BoardDumps
+{
+	public static final String FAULTY_BOARDS_DIRECTORY = "faulty_boards";
+
+	private static final int DEFAULT_MAX_DUMPS_PER_MINUTE = 10;
+	private static final int DEFAULT_MAX_QUEUED_DUMPS = 4;
+
+	private static final BoardDumps FAULTY_BOARDS = new BoardDumps(new File(FAULTY_BOARDS_DIRECTORY), DEFAULT_MAX_DUMPS_PER_MINUTE, DEFAULT_MAX_QUEUED_DUMPS);
+
+	private static final long RATE_LIMIT_PERIOD = TimeUnit.MINUTES.toNanos(1);
+
+	private final File myDirectory;
+	private final int myMaxDumpsPerMinute;
+	private final int myMaxQueuedDumps;
+
+	private final ThreadPoolExecutor myWriter;
+
+	/**
+	 * The names of the dumps that have been made, used to not dump the same position for the same reason twice
+	 */
+	private final Set<String> myDumpedBoards = Sets.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	private final AtomicInteger myDroppedDumps = new AtomicInteger();
+	private final AtomicInteger myPendingDumps = new AtomicInteger();
+
+	private long myPeriodStart;
+	private int myDumpsInPeriod;
+
+	/**
+	 * @param directory where the boards are saved, it's created when the first board is written
+	 * @param maxDumpsPerMinute how many boards that may be dumped each minute
+	 * @param maxQueuedDumps how many dumps that may wait to be written at the same time
+	 */
+	public BoardDumps(final File directory, final int maxDumpsPerMinute, final int maxQueuedDumps)
+	{
+		myDirectory = directory;
+		myMaxDumpsPerMinute = maxDumpsPerMinute;
+		myMaxQueuedDumps = maxQueuedDumps;
+		myPeriodStart = System.nanoTime();
+		//The writer isn't a daemon so that queued dumps are written before the program exits but it stops when it has been idle for a while
+		myWriter = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(maxQueuedDumps),
+				new ThreadFactoryBuilder().setNameFormat(BoardDumps.class.getSimpleName() + "-%d").build());
+		myWriter.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Dumps the given board into the {@link #FAULTY_BOARDS_DIRECTORY}, see {@link #dump(ChessBoard, String)}
+	 */
+	public static boolean dumpFaultyBoard(final ChessBoard board, final String reason)
+	{
+		return FAULTY_BOARDS.dump(board, reason);
+	}
+
+	/**
+	 * Queues the given board to be saved
+	 * @param board the board to save, it's read by the calling thread
+	 * @param reason what's wrong with the board, used as the start of the file name
+	 * @return true if the board was queued, false if it had already been dumped for the same reason,
+	 * if the rate limit was reached, if the queue was full or if saving is disabled
+	 */
+	public boolean dump(final ChessBoard board, final String reason)
+	{
+		if(Settings.DISABLE_SAVING)
+		{
+			return false;
+		}
+		final String name = reason + "_" + Long.toHexString(board.getPositionKey()) + ChessFileFilter.FILE_ENDING;
+		if(!myDumpedBoards.add(name))
+		{
+			return false;
+		}
+		if(!acquirePermit())
+		{
+			//The position may be dumped when the rate allows it
+			myDumpedBoards.remove(name);
+			myDroppedDumps.incrementAndGet();
+			return false;
+		}
+		final ByteBuffer buffer;
+		try
+		{
+			PersistanceLogging persistanceLogging = board.hasPersistencePossibility() ? USE_PERSISTANCE_LOGGING : SKIP_PERSISTANCE_LOGGING;
+			buffer = ByteBuffer.allocate(board.getPersistenceSize(persistanceLogging));
+			board.writePersistenceData(buffer, persistanceLogging);
+			buffer.flip();
+		}
+		catch(IOException e)
+		{
+			STDERR.warn("Failed to serialize the board for " + name, e);
+			return false;
+		}
+		catch(RuntimeException e)
+		{
+			//The board is already known to be broken so a failure here shouldn't make things worse
+			STDERR.warn("Failed to serialize the board for " + name, e);
+			return false;
+		}
+		myPendingDumps.incrementAndGet();
+		try
+		{
+			myWriter.execute(new Runnable(){
+				@Override
+				public void run()
+				{
+					try
+					{
+						write(name, buffer);
+					}
+					finally
+					{
+						myPendingDumps.decrementAndGet();
+					}
+				}
+			});
+		}
+		catch(RejectedExecutionException queueIsFull)
+		{
+			myPendingDumps.decrementAndGet();
+			myDumpedBoards.remove(name);
+			myDroppedDumps.incrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	private void write(final String name, final ByteBuffer buffer)
+	{
+		File file = new File(myDirectory, name);
+		try
+		{
+			Files.createParentDirs(file);
+			//A dump from an earlier run of the same position and reason is kept
+			if(!file.exists())
+			{
+				Files.write(buffer.array(), file);
+			}
+		}
+		catch(IOException e)
+		{
+			STDERR.warn("Failed to write " + file, e);
+		}
+	}
+
+	private synchronized boolean acquirePermit()
+	{
+		long now = System.nanoTime();
+		if(now - myPeriodStart >= RATE_LIMIT_PERIOD)
+		{
+			myPeriodStart = now;
+			myDumpsInPeriod = 0;
+		}
+		if(myDumpsInPeriod >= myMaxDumpsPerMinute)
+		{
+			return false;
+		}
+		myDumpsInPeriod++;
+		return true;
+	}
+
+	public int getMaxDumpsPerMinute()
+	{
+		return myMaxDumpsPerMinute;
+	}
+
+	public int getMaxQueuedDumps()
+	{
+		return myMaxQueuedDumps;
+	}
+
+	/**
+	 * @return how many dumps that were dropped because of the rate limit or because the queue was full
+	 */
+	public int getDroppedDumps()
+	{
+		return myDroppedDumps.get();
+	}
+
+	/**
+	 * Waits until the dumps that are queued have been written
+	 */
+	@VisibleForTesting
+	void awaitWritten() throws InterruptedException
+	{
+		while(myPendingDumps.get() > 0)
+		{
+			Thread.sleep(1);
+		}
+	}
+}
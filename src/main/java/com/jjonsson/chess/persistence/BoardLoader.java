@@ -11,8 +11,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.Iterator;
 import java.util.Set;
 
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Sets;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
@@ -20,8 +22,10 @@ import com.jjonsson.chess.board.ChessBoard;
 import com.jjonsson.chess.board.PiecePlacement;
 import com.jjonsson.chess.exceptions.DuplicatePieceError;
 import com.jjonsson.chess.exceptions.InvalidBoardException;
+import com.jjonsson.chess.exceptions.InvalidFenException;
 import com.jjonsson.chess.exceptions.UnavailableMoveItem;
 import com.jjonsson.chess.gui.Settings;
+import com.jjonsson.utilities.EventRecorder;
 
 public final class BoardLoader
 {
@@ -34,29 +38,97 @@ public final class BoardLoader
 	 */
 	public static boolean loadStreamIntoBoard(final InputStream input, final ChessBoard boardToLoadInto)
 	{
+		long startTime = EventRecorder.isRecording() ? System.nanoTime() : 0;
 		BufferedInputStream bis = new BufferedInputStream(input);
+		boolean loaded;
 		try
 		{
 			ByteBuffer buffer = ByteBuffer.wrap(ByteStreams.toByteArray(bis));
-			return loadBufferIntoBoard(buffer, boardToLoadInto);
+			loaded = loadBufferIntoBoard(buffer, boardToLoadInto);
 		}
 		catch (IOException e)
 		{
-			return false;
+			loaded = false;
 		}
+		return recordEvent("boardLoad", "stream", startTime, loaded);
 	}
 
 	public static boolean loadFileIntoBoard(final File file, final ChessBoard boardToLoadInto)
 	{
+		long startTime = EventRecorder.isRecording() ? System.nanoTime() : 0;
+		boolean loaded;
 		try
 		{
 			ByteBuffer buffer = ByteBuffer.wrap(Files.toByteArray(file));
-			return loadBufferIntoBoard(buffer, boardToLoadInto);
+			loaded = loadBufferIntoBoard(buffer, boardToLoadInto);
 		}
 		catch (IOException e)
 		{
-			return false;
+			loaded = false;
 		}
+		return recordEvent("boardLoad", file.getPath(), startTime, loaded);
+	}
+
+	/**
+	 * Loads a board from an archive, see {@link BoardArchive}
+	 * @param name the name of the board in the archive
+	 * @param boardToLoadInto the (empty) board to load the board into
+	 * @return true if the archive had a board with the given name and it was loaded successfully
+	 */
+	public static boolean loadArchivedBoard(final BoardArchive archive, final String name, final ChessBoard boardToLoadInto)
+	{
+		long startTime = EventRecorder.isRecording() ? System.nanoTime() : 0;
+		int index = archive.indexOf(name);
+		boolean loaded = index != -1 && loadBufferIntoBoard(archive.getBoardData(index), boardToLoadInto);
+		return recordEvent("boardLoad", name, startTime, loaded);
+	}
+
+	/**
+	 * Iterates over all the boards in an archive, in the order they were added to it.
+	 * <br>Each board is loaded into a new board (that logs its moves for persistence) when the iteration reaches it,
+	 * boards that can't be loaded are logged and skipped
+	 */
+	public static Iterable<ChessBoard> loadArchive(final BoardArchive archive)
+	{
+		return new Iterable<ChessBoard>(){
+			@Override
+			public Iterator<ChessBoard> iterator()
+			{
+				return new AbstractIterator<ChessBoard>(){
+					private int myIndex;
+
+					@Override
+					protected ChessBoard computeNext()
+					{
+						while(myIndex < archive.getBoardCount())
+						{
+							int index = myIndex++;
+							ChessBoard board = new ChessBoard(PiecePlacement.DONT_PLACE_PIECES, USE_PERSISTANCE_LOGGING);
+							if(loadBufferIntoBoard(archive.getBoardData(index), board))
+							{
+								return board;
+							}
+							STDERR.error("Failed to load " + archive.getName(index) + " from the archive");
+						}
+						return endOfData();
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Records a load/save event if recording was running when the load/save started, see {@link EventRecorder}
+	 * @param startTime the start time of the load/save or 0 if recording wasn't running
+	 * @return success
+	 */
+	private static boolean recordEvent(final String event, final String source, final long startTime, final boolean success)
+	{
+		if(startTime != 0)
+		{
+			EventRecorder.record(EventRecorder.event(event, startTime).add("source", source).add("success", success));
+		}
+		return success;
 	}
 
 	public static boolean loadBufferIntoBoard(final ByteBuffer buffer, final ChessBoard boardToLoadInto)
@@ -67,6 +139,7 @@ public final class BoardLoader
 			boardToLoadInto.setPossibleMoves();
 			boardToLoadInto.updateGameState();
 			boardToLoadInto.updatePersistenceLogger();
+			boardToLoadInto.resetPositionHistory(0);
 			boardToLoadInto.applyMoveHistory();
 			return true;
 		}
@@ -89,6 +162,48 @@ public final class BoardLoader
 		return false;
 	}
 
+	/**
+	 * @param fen a board described in the Forsyth-Edwards Notation, see {@link FenNotation}
+	 * @param boardToLoadInto the (empty) board to load the board into
+	 * @return true if the board was loaded successfully
+	 */
+	public static boolean loadFenIntoBoard(final CharSequence fen, final ChessBoard boardToLoadInto)
+	{
+		long startTime = EventRecorder.isRecording() ? System.nanoTime() : 0;
+		return recordEvent("boardLoad", fen.toString(), startTime, readFenIntoBoard(fen, boardToLoadInto));
+	}
+
+	private static boolean readFenIntoBoard(final CharSequence fen, final ChessBoard boardToLoadInto)
+	{
+		try
+		{
+			FenNotation.readFen(fen, boardToLoadInto);
+			return true;
+		}
+		catch (InvalidFenException e)
+		{
+			STDERR.error("Faulty FEN: " + fen + ", " + e);
+		}
+		catch (InvalidBoardException e)
+		{
+			STDERR.error("Faulty board, detected that only one king exists in: " + fen);
+		}
+		catch (UnavailableMoveItem e)
+		{
+			STDERR.error("Couldn't restore the en-passant target in: " + fen + " because: " + e);
+		}
+		return false;
+	}
+
+	/**
+	 * @param board the board to describe
+	 * @return the given board described in the Forsyth-Edwards Notation, see {@link FenNotation}
+	 */
+	public static String toFen(final ChessBoard board)
+	{
+		return FenNotation.toFen(board);
+	}
+
 	/**
 	 * 
 	 * @param board the board to save
@@ -96,13 +211,19 @@ public final class BoardLoader
 	 * @return true if the board was successfully written to the given file
 	 */
 	public static boolean saveBoard(final ChessBoard board, final String pathToFile)
+	{
+		if(Settings.DISABLE_SAVING)
+		{
+			return false;
+		}
+		long startTime = EventRecorder.isRecording() ? System.nanoTime() : 0;
+		return recordEvent("boardSave", pathToFile, startTime, writeBoard(board, pathToFile));
+	}
+
+	private static boolean writeBoard(final ChessBoard board, final String pathToFile)
 	{
 		try
 		{
-			if(Settings.DISABLE_SAVING)
-			{
-				return false;
-			}
 			//TODO: perhaps this should be optional?
 			PersistanceLogging persistanceLogging = board.hasPersistencePossibility() ? USE_PERSISTANCE_LOGGING : SKIP_PERSISTANCE_LOGGING;
 			ByteBuffer buffer = ByteBuffer.allocate(board.getPersistenceSize(persistanceLogging));
@@ -0,0 +1,423 @@
+package com.jjonsson.chess.persistence;
+
+import static com.jjonsson.chess.moves.Position.BLACK_STARTING_ROW;
+import static com.jjonsson.chess.moves.Position.WHITE_STARTING_ROW;
+import static com.jjonsson.chess.pieces.Piece.BLACK;
+import static com.jjonsson.chess.pieces.Piece.WHITE;
+
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.exceptions.InvalidBoardException;
+import com.jjonsson.chess.exceptions.InvalidFenException;
+import com.jjonsson.chess.exceptions.UnavailableMoveItem;
+import com.jjonsson.chess.moves.ImmutablePosition;
+import com.jjonsson.chess.moves.Move;
+import com.jjonsson.chess.moves.MutablePosition;
+import com.jjonsson.chess.moves.PawnTwoStepMove;
+import com.jjonsson.chess.moves.Position.Column;
+import com.jjonsson.chess.pieces.Piece;
+import com.jjonsson.chess.pieces.Rock;
+
+/**
+ * Reads and writes boards in the Forsyth-Edwards Notation (FEN), for example:
+ * <br>rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1
+ */
+public final class FenNotation
+{
+	public static final String STARTING_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	private static final char RANK_SEPARATOR = '/';
+	private static final char FIELD_SEPARATOR = ' ';
+	private static final char NOT_AVAILABLE = '-';
+
+	private static final String PIECES = "KQRBNPkqrbnp";
+
+	private static final char WHITE_TO_MOVE = 'w';
+	private static final char BLACK_TO_MOVE = 'b';
+
+	private static final char WHITE_KING_SIDE = 'K';
+	private static final char WHITE_QUEEN_SIDE = 'Q';
+	private static final char BLACK_KING_SIDE = 'k';
+	private static final char BLACK_QUEEN_SIDE = 'q';
+
+	/**
+	 * Long enough for most positions, the StringBuilder grows if it isn't
+	 */
+	private static final int EXPECTED_FEN_LENGTH = 90;
+
+	private final CharSequence myFen;
+	private int myIndex;
+
+	private final char[][] myPlacement;
+	private boolean myCurrentPlayer;
+	private String myCastlingAvailability;
+	private ImmutablePosition myEnPassantTarget;
+	private int myEnPassantIndex;
+	private int myHalfmoveClock;
+	private int myFullMoveNumber;
+
+	private FenNotation(final CharSequence fen)
+	{
+		myFen = fen;
+		myPlacement = new char[ChessBoard.BOARD_SIZE][ChessBoard.BOARD_SIZE];
+		myFullMoveNumber = 1;
+	}
+
+	/**
+	 * Places the pieces described by the given FEN string onto the given (empty) board.
+	 * <br>Lost castling possibilities are remembered by marking the affected rocks as moved and
+	 * an en-passant target is restored by replaying the two-step move that made it possible.
+	 * <br>The half move clock is given to the board's position history, see {@link ChessBoard#resetPositionHistory(int)}.
+	 * @param fen the FEN string to read, the half move clock and the full move number may be left out
+	 * @param boardToLoadInto an empty board to place the pieces on
+	 * @throws InvalidFenException if the given string isn't a valid FEN string, nothing is placed on the board in that case
+	 * @throws InvalidBoardException if a King is missing
+	 * @throws UnavailableMoveItem if the two-step move for the en-passant target couldn't be replayed
+	 */
+	public static void readFen(final CharSequence fen, final ChessBoard boardToLoadInto) throws InvalidFenException, InvalidBoardException, UnavailableMoveItem
+	{
+		FenNotation notation = new FenNotation(fen);
+		notation.parse();
+		notation.placeOn(boardToLoadInto);
+	}
+
+	/**
+	 * Reads only what's needed to draw the position, no board is set up so this is much cheaper than {@link #readFen(CharSequence, ChessBoard)}
+	 * @param fen the FEN string to read
+	 * @return the notation character (see {@link Piece#getNotationCharacter()}) of the piece on each square by row and column, 0 for empty squares
+	 * @throws InvalidFenException if the given string isn't a valid FEN string
+	 */
+	public static char[][] readPlacement(final CharSequence fen) throws InvalidFenException
+	{
+		FenNotation notation = new FenNotation(fen);
+		notation.parse();
+		return notation.myPlacement;
+	}
+
+	/**
+	 * @param board the board to describe
+	 * @return a FEN string describing the given board
+	 */
+	public static String toFen(final ChessBoard board)
+	{
+		StringBuilder fen = new StringBuilder(EXPECTED_FEN_LENGTH);
+		for(int row = ChessBoard.BOARD_SIZE - 1; row >= 0; row--)
+		{
+			int emptyFields = 0;
+			for(int column = 0; column < ChessBoard.BOARD_SIZE; column++)
+			{
+				Piece piece = board.getPiece(ImmutablePosition.from(row, column));
+				if(piece == null)
+				{
+					emptyFields++;
+				}
+				else
+				{
+					if(emptyFields > 0)
+					{
+						fen.append(emptyFields);
+						emptyFields = 0;
+					}
+					fen.append(piece.getNotationCharacter());
+				}
+			}
+			if(emptyFields > 0)
+			{
+				fen.append(emptyFields);
+			}
+			if(row > 0)
+			{
+				fen.append(RANK_SEPARATOR);
+			}
+		}
+		fen.append(FIELD_SEPARATOR).append(board.getCurrentPlayer() == BLACK ? BLACK_TO_MOVE : WHITE_TO_MOVE);
+		fen.append(FIELD_SEPARATOR);
+		appendCastlingAvailability(fen, board);
+		fen.append(FIELD_SEPARATOR);
+		appendEnPassantTarget(fen, board);
+		fen.append(FIELD_SEPARATOR).append(board.getHalfmoveClock());
+		fen.append(FIELD_SEPARATOR).append(board.getMoveLogger().getPliesMade() / 2 + 1);
+		return fen.toString();
+	}
+
+	private static void appendCastlingAvailability(final StringBuilder fen, final ChessBoard board)
+	{
+		int lengthBefore = fen.length();
+		if(board.hasCastlingPossibility(WHITE, Column.H))
+		{
+			fen.append(WHITE_KING_SIDE);
+		}
+		if(board.hasCastlingPossibility(WHITE, Column.A))
+		{
+			fen.append(WHITE_QUEEN_SIDE);
+		}
+		if(board.hasCastlingPossibility(BLACK, Column.H))
+		{
+			fen.append(BLACK_KING_SIDE);
+		}
+		if(board.hasCastlingPossibility(BLACK, Column.A))
+		{
+			fen.append(BLACK_QUEEN_SIDE);
+		}
+		if(fen.length() == lengthBefore)
+		{
+			fen.append(NOT_AVAILABLE);
+		}
+	}
+
+	private static void appendEnPassantTarget(final StringBuilder fen, final ChessBoard board)
+	{
+		Move lastMove = board.getLastMove();
+		if(lastMove instanceof PawnTwoStepMove)
+		{
+			ImmutablePosition pawnPosition = lastMove.getPiece().getCurrentPosition();
+			ImmutablePosition target = lastMove.getPiece().isWhite() ? pawnPosition.down() : pawnPosition.up();
+			fen.append((char)('a' + target.getColumn())).append(target.getRow() + 1);
+		}
+		else
+		{
+			fen.append(NOT_AVAILABLE);
+		}
+	}
+
+	private void parse() throws InvalidFenException
+	{
+		skipWhitespace();
+		parsePlacement();
+		expectFieldSeparator();
+		parseCurrentPlayer();
+		expectFieldSeparator();
+		parseCastlingAvailability();
+		expectFieldSeparator();
+		parseEnPassantTarget();
+		if(hasMoreFields())
+		{
+			myHalfmoveClock = parseNumber(0);
+			if(hasMoreFields())
+			{
+				myFullMoveNumber = parseNumber(1);
+			}
+		}
+		skipWhitespace();
+		if(myIndex < myFen.length())
+		{
+			throw new InvalidFenException("Unexpected trailing characters", myIndex);
+		}
+	}
+
+	private void parsePlacement() throws InvalidFenException
+	{
+		int row = ChessBoard.BOARD_SIZE - 1;
+		int column = 0;
+		while(myIndex < myFen.length() && myFen.charAt(myIndex) != FIELD_SEPARATOR)
+		{
+			char c = myFen.charAt(myIndex);
+			if(c == RANK_SEPARATOR)
+			{
+				if(column != ChessBoard.BOARD_SIZE || row == 0)
+				{
+					throw new InvalidFenException("Unexpected rank separator", myIndex);
+				}
+				row--;
+				column = 0;
+			}
+			else if(c >= '1' && c <= '8')
+			{
+				column += c - '0';
+			}
+			else if(PIECES.indexOf(c) != -1 && column < ChessBoard.BOARD_SIZE)
+			{
+				myPlacement[row][column] = c;
+				column++;
+			}
+			else
+			{
+				throw new InvalidFenException("Unexpected character: '" + c + "'", myIndex);
+			}
+			if(column > ChessBoard.BOARD_SIZE)
+			{
+				throw new InvalidFenException("Too many fields in rank " + (row + 1), myIndex);
+			}
+			myIndex++;
+		}
+		if(row != 0 || column != ChessBoard.BOARD_SIZE)
+		{
+			throw new InvalidFenException("Incomplete piece placement", myIndex);
+		}
+	}
+
+	private void parseCurrentPlayer() throws InvalidFenException
+	{
+		char c = nextChar();
+		if(c == WHITE_TO_MOVE)
+		{
+			myCurrentPlayer = WHITE;
+		}
+		else if(c == BLACK_TO_MOVE)
+		{
+			myCurrentPlayer = BLACK;
+		}
+		else
+		{
+			throw new InvalidFenException("Expected 'w' or 'b' but got '" + c + "'", myIndex - 1);
+		}
+	}
+
+	private void parseCastlingAvailability() throws InvalidFenException
+	{
+		int start = myIndex;
+		if(myIndex < myFen.length() && myFen.charAt(myIndex) == NOT_AVAILABLE)
+		{
+			myIndex++;
+		}
+		else
+		{
+			while(myIndex < myFen.length() && myFen.charAt(myIndex) != FIELD_SEPARATOR)
+			{
+				char c = myFen.charAt(myIndex);
+				if(c != WHITE_KING_SIDE && c != WHITE_QUEEN_SIDE && c != BLACK_KING_SIDE && c != BLACK_QUEEN_SIDE)
+				{
+					throw new InvalidFenException("Unexpected castling availability: '" + c + "'", myIndex);
+				}
+				myIndex++;
+			}
+			if(myIndex == start)
+			{
+				throw new InvalidFenException("Missing castling availability", myIndex);
+			}
+		}
+		myCastlingAvailability = myFen.subSequence(start, myIndex).toString();
+	}
+
+	private void parseEnPassantTarget() throws InvalidFenException
+	{
+		myEnPassantIndex = myIndex;
+		char column = nextChar();
+		if(column == NOT_AVAILABLE)
+		{
+			return;
+		}
+		char row = nextChar();
+		if(column < 'a' || column > 'h' || (row != '3' && row != '6'))
+		{
+			throw new InvalidFenException("Invalid en-passant target: " + column + row, myEnPassantIndex);
+		}
+		myEnPassantTarget = ImmutablePosition.from(row - '1', column - 'a');
+	}
+
+	private int parseNumber(final int minimum) throws InvalidFenException
+	{
+		int start = myIndex;
+		int number = 0;
+		while(myIndex < myFen.length() && Character.isDigit(myFen.charAt(myIndex)))
+		{
+			number = number * 10 + (myFen.charAt(myIndex) - '0');
+			myIndex++;
+		}
+		if(myIndex == start || number < minimum)
+		{
+			throw new InvalidFenException("Expected a number larger than or equal to " + minimum, start);
+		}
+		return number;
+	}
+
+	private char nextChar() throws InvalidFenException
+	{
+		if(myIndex >= myFen.length())
+		{
+			throw new InvalidFenException("Unexpected end of FEN string", myIndex);
+		}
+		return myFen.charAt(myIndex++);
+	}
+
+	private void expectFieldSeparator() throws InvalidFenException
+	{
+		if(nextChar() != FIELD_SEPARATOR)
+		{
+			throw new InvalidFenException("Expected a space", myIndex - 1);
+		}
+		skipWhitespace();
+	}
+
+	private boolean hasMoreFields()
+	{
+		skipWhitespace();
+		return myIndex < myFen.length();
+	}
+
+	private void skipWhitespace()
+	{
+		while(myIndex < myFen.length() && Character.isWhitespace(myFen.charAt(myIndex)))
+		{
+			myIndex++;
+		}
+	}
+
+	private void placeOn(final ChessBoard board) throws InvalidFenException, InvalidBoardException, UnavailableMoveItem
+	{
+		boolean currentPlayer = myCurrentPlayer;
+		int pliesMade = (myFullMoveNumber - 1) * 2 + (myCurrentPlayer == BLACK ? 1 : 0);
+		ImmutablePosition twoStepOrigin = null;
+		ImmutablePosition twoStepDestination = null;
+		if(myEnPassantTarget != null)
+		{
+			//The player that isn't to move just made the two-step move, put the pawn back so that it can be replayed
+			int direction = myCurrentPlayer == BLACK ? 1 : -1;
+			twoStepOrigin = ImmutablePosition.from(myEnPassantTarget.getRow() - direction, myEnPassantTarget.getColumn());
+			twoStepDestination = ImmutablePosition.from(myEnPassantTarget.getRow() + direction, myEnPassantTarget.getColumn());
+			char expectedPawn = myCurrentPlayer == BLACK ? 'P' : 'p';
+			if(charAt(twoStepDestination) != expectedPawn || charAt(myEnPassantTarget) != 0 || charAt(twoStepOrigin) != 0)
+			{
+				throw new InvalidFenException("No pawn could have passed the en-passant target " + myEnPassantTarget, myEnPassantIndex);
+			}
+			myPlacement[twoStepOrigin.getRow()][twoStepOrigin.getColumn()] = expectedPawn;
+			myPlacement[twoStepDestination.getRow()][twoStepDestination.getColumn()] = 0;
+			currentPlayer = !currentPlayer;
+			pliesMade--;
+		}
+
+		for(int row = 0; row < ChessBoard.BOARD_SIZE; row++)
+		{
+			for(int column = 0; column < ChessBoard.BOARD_SIZE; column++)
+			{
+				if(myPlacement[row][column] != 0)
+				{
+					board.addPiece(Piece.getPieceFromNotation(myPlacement[row][column], MutablePosition.from(row, column), board), false, true);
+				}
+			}
+		}
+		removeLostCastlingPossibilities(board);
+		board.piecePlacementDone(currentPlayer);
+		board.setPossibleMoves();
+		board.updateGameState();
+		board.getMoveLogger().setMovesMadeOffset(Math.max(pliesMade, 0));
+		board.getMoveLogger().setPliesMadeOffset(Math.max(pliesMade, 0));
+		board.updatePersistenceLogger();
+		board.resetPositionHistory(myHalfmoveClock);
+		if(twoStepOrigin != null)
+		{
+			board.move(twoStepOrigin, twoStepDestination);
+		}
+	}
+
+	private char charAt(final ImmutablePosition position)
+	{
+		return myPlacement[position.getRow()][position.getColumn()];
+	}
+
+	private void removeLostCastlingPossibilities(final ChessBoard board)
+	{
+		markRockAsMovedUnless(board, WHITE_KING_SIDE, WHITE_STARTING_ROW, Column.H, WHITE);
+		markRockAsMovedUnless(board, WHITE_QUEEN_SIDE, WHITE_STARTING_ROW, Column.A, WHITE);
+		markRockAsMovedUnless(board, BLACK_KING_SIDE, BLACK_STARTING_ROW, Column.H, BLACK);
+		markRockAsMovedUnless(board, BLACK_QUEEN_SIDE, BLACK_STARTING_ROW, Column.A, BLACK);
+	}
+
+	private void markRockAsMovedUnless(final ChessBoard board, final char castlingAvailability, final int row, final Column column, final boolean affinity)
+	{
+		Piece rock = board.getPiece(ImmutablePosition.position(row, column));
+		if(rock instanceof Rock && rock.hasSameAffinityAs(affinity) && myCastlingAvailability.indexOf(castlingAvailability) == -1)
+		{
+			rock.increaseMovesMade();
+		}
+	}
+}
@@ -0,0 +1,711 @@
+package com.jjonsson.chess.persistence;
+
+import static com.jjonsson.chess.board.PiecePlacement.DONT_PLACE_PIECES;
+import static com.jjonsson.chess.persistence.PersistanceLogging.USE_PERSISTANCE_LOGGING;
+import static com.jjonsson.utilities.Loggers.STDERR;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.collect.TreeMultimap;
+import com.google.common.primitives.Longs;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.exceptions.InvalidPgnException;
+import com.jjonsson.chess.exceptions.UnavailableMoveItem;
+
+/**
+ * An append-only store of games with an index from positions to the games that reaches them.
+ * <br>Each game is stored in a memory-mapped data file with the same encoding as the .chess files
+ * (a settings byte, 2 bytes per move and then the start position), preceded by its length and result.
+ * <br>The secondary index holds (Zobrist position key, game offset) entries sorted by key. Entries for games added after the last
+ * {@link #flush()} are kept in memory, each flush writes them as a sorted run (&lt;path&gt;.index.&lt;first game offset&gt;-&lt;end offset&gt;)
+ * that is memory-mapped and binary searched. A run is merged with the run before it when it has at least as many entries, so the runs
+ * halves in size from the oldest to the newest and each entry is rewritten a logarithmic number of times.
+ * <br>The header holds how many of the games that are covered by the runs, games after those (their entries were still in memory
+ * when the program stopped) are indexed again when the database is opened.
+ * <br>The data file grows in steps of {@link #DATA_SEGMENT_SIZE} bytes and a game never spans two segments.
+ */
+public class GameDatabase implements Closeable
+{
+	public static final String DATA_FILE_ENDING = ".games";
+	public static final String INDEX_FILE_ENDING = ".index";
+
+	private static final int MAGIC = 0x43484744;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	private static final int END_OFFSET_POSITION = 8;
+	private static final int GAME_COUNT_POSITION = 16;
+	private static final int INDEXED_GAME_COUNT_POSITION = 20;
+	private static final int INDEXED_END_OFFSET_POSITION = 24;
+
+	/**
+	 * The size of each memory-mapped part of the data file
+	 */
+	public static final int DATA_SEGMENT_SIZE = 1 << 26;
+
+	/**
+	 * Game length + result
+	 */
+	private static final int GAME_HEADER_SIZE = 4 + 1;
+
+	private static final int INDEX_ENTRY_SIZE = 16;
+	private static final int INDEX_ENTRIES_PER_SEGMENT = 1 << 26;
+
+	/**
+	 * When this many index entries are kept in memory they are merged into the index file
+	 */
+	private static final int MAX_UNFLUSHED_ENTRIES = 1 << 20;
+
+	private static final String[] RESULTS = {PgnGame.UNKNOWN_RESULT, PgnGame.WHITE_WON, PgnGame.BLACK_WON, PgnGame.DRAW};
+
+	private final File myIndexDirectory;
+	private final String myIndexRunPrefix;
+	private final RandomAccessFile myDataFile;
+	private final List<MappedByteBuffer> myDataSegments;
+	private long myEndOffset;
+	private int myGameCount;
+
+	/**
+	 * The runs of the index, ordered by the games they cover, each run starts where the one before it ends
+	 */
+	private final List<IndexRun> myIndexRuns;
+
+	/**
+	 * The games before this offset are covered by the index runs
+	 */
+	private long myIndexedEndOffset;
+	private int myIndexedGames;
+
+	private final TreeMultimap<Long, Long> myUnflushedEntries;
+	private final int myMaxUnflushedEntries;
+
+	/**
+	 * Opens (or creates) the database stored in &lt;path&gt;.games and &lt;path&gt;.index.*
+	 * @param path the path to the database files, without file endings
+	 * @throws IOException if the files couldn't be opened or if the data file isn't a game database
+	 */
+	public GameDatabase(final String path) throws IOException
+	{
+		this(path, MAX_UNFLUSHED_ENTRIES);
+	}
+
+	/**
+	 * @param maxUnflushedEntries when this many index entries are kept in memory they are written as a new index run
+	 */
+	@VisibleForTesting
+	GameDatabase(final String path, final int maxUnflushedEntries) throws IOException
+	{
+		File indexFile = new File(path + INDEX_FILE_ENDING).getAbsoluteFile();
+		myIndexDirectory = indexFile.getParentFile();
+		myIndexRunPrefix = indexFile.getName() + ".";
+		myDataFile = new RandomAccessFile(path + DATA_FILE_ENDING, "rw");
+		myDataSegments = Lists.newArrayList();
+		myIndexRuns = Lists.newArrayList();
+		myUnflushedEntries = TreeMultimap.create();
+		myMaxUnflushedEntries = maxUnflushedEntries;
+
+		boolean isNew = myDataFile.length() == 0;
+		MappedByteBuffer header = getDataSegment(0);
+		if(isNew)
+		{
+			header.putInt(0, MAGIC);
+			header.putInt(Integer.SIZE / Byte.SIZE, VERSION);
+			myEndOffset = HEADER_SIZE;
+			myIndexedEndOffset = HEADER_SIZE;
+			writeHeader();
+		}
+		else
+		{
+			if(header.getInt(0) != MAGIC || header.getInt(Integer.SIZE / Byte.SIZE) != VERSION)
+			{
+				myDataFile.close();
+				throw new IOException(path + DATA_FILE_ENDING + " isn't a game database");
+			}
+			myEndOffset = header.getLong(END_OFFSET_POSITION);
+			myGameCount = header.getInt(GAME_COUNT_POSITION);
+			myIndexedGames = header.getInt(INDEXED_GAME_COUNT_POSITION);
+			myIndexedEndOffset = Math.max(HEADER_SIZE, header.getLong(INDEXED_END_OFFSET_POSITION));
+		}
+		openIndexRuns();
+		indexUnindexedGames();
+	}
+
+	/**
+	 * Adds the moves that has been made on the given board (it needs to log its moves for persistence)
+	 * @param board the board with the game to add
+	 * @param result one of the results in {@link PgnGame}
+	 * @return the offset of the added game
+	 * @throws UnavailableMoveItem if the logged moves couldn't be replayed
+	 * @throws IllegalStateException if the given board doesn't log its moves for persistence
+	 */
+	public synchronized long addGame(final ChessBoard board, final String result) throws IOException, UnavailableMoveItem
+	{
+		PersistenceLogger persistenceLogger = board.getPersistenceLogger();
+		if(persistenceLogger == null)
+		{
+			throw new IllegalStateException("A board without persistence logging can't be added to a game database");
+		}
+		return addGame(board, getPositionKeys(persistenceLogger), result);
+	}
+
+	/**
+	 * @return the keys of the positions that the game logged by the given logger reaches
+	 */
+	private static Set<Long> getPositionKeys(final PersistenceLogger persistenceLogger) throws UnavailableMoveItem
+	{
+		ChessBoard replayBoard = persistenceLogger.copyStartBoard();
+		Set<Long> positionKeys = Sets.newHashSet();
+		positionKeys.add(replayBoard.getPositionKey());
+		for(MoveItem move : persistenceLogger.getMoveHistory())
+		{
+			move.perform(replayBoard);
+			positionKeys.add(replayBoard.getPositionKey());
+		}
+		return positionKeys;
+	}
+
+	/**
+	 * Replays and adds the given game
+	 * @return the offset of the added game
+	 * @throws InvalidPgnException if the game couldn't be replayed, nothing is added in that case
+	 */
+	public synchronized long addGame(final PgnGame game) throws IOException, InvalidPgnException
+	{
+		ChessBoard board = game.createStartBoard(USE_PERSISTANCE_LOGGING);
+		Set<Long> positionKeys = Sets.newHashSet();
+		positionKeys.add(board.getPositionKey());
+		for(String move : game.getMoves())
+		{
+			SanNotation.perform(board, move);
+			positionKeys.add(board.getPositionKey());
+		}
+		return addGame(board, positionKeys, game.getResult());
+	}
+
+	private long addGame(final ChessBoard board, final Set<Long> positionKeys, final String result) throws IOException
+	{
+		ByteBuffer gameData = ByteBuffer.allocate(board.getPersistenceSize(USE_PERSISTANCE_LOGGING));
+		board.writePersistenceData(gameData, USE_PERSISTANCE_LOGGING);
+		gameData.flip();
+
+		int gameSize = GAME_HEADER_SIZE + gameData.remaining();
+		if(gameSize > DATA_SEGMENT_SIZE - HEADER_SIZE)
+		{
+			throw new IllegalArgumentException("The game is too long to be stored: " + gameSize + " bytes");
+		}
+		long offset = myEndOffset;
+		if(offset % DATA_SEGMENT_SIZE + gameSize > DATA_SEGMENT_SIZE)
+		{
+			//Games doesn't span segments, the rest of this segment is left as padding
+			offset = (offset / DATA_SEGMENT_SIZE + 1) * DATA_SEGMENT_SIZE;
+		}
+		ByteBuffer segment = getDataSegment((int) (offset / DATA_SEGMENT_SIZE)).duplicate();
+		segment.position((int) (offset % DATA_SEGMENT_SIZE));
+		segment.putInt(gameData.remaining());
+		segment.put(getResultByte(result));
+		segment.put(gameData);
+
+		myEndOffset = offset + gameSize;
+		myGameCount++;
+		writeHeader();
+
+		for(Long key : positionKeys)
+		{
+			myUnflushedEntries.put(key, offset);
+		}
+		if(myUnflushedEntries.size() >= myMaxUnflushedEntries)
+		{
+			flushIndex();
+		}
+		return offset;
+	}
+
+	/**
+	 * @return the offsets of the games that reaches the position of the given board
+	 */
+	public List<Long> findGames(final ChessBoard position)
+	{
+		return findGames(position.getPositionKey());
+	}
+
+	/**
+	 * @param positionKey a key from {@link ChessBoard#getPositionKey()}
+	 * @return the offsets of the games that reaches the given position, in the order they were added
+	 */
+	public synchronized List<Long> findGames(final long positionKey)
+	{
+		List<Long> games = Lists.newArrayList();
+		for(IndexRun run : myIndexRuns)
+		{
+			for(long entry = run.findFirstEntry(positionKey); entry < run.getEntries() && run.getKey(entry) == positionKey; entry++)
+			{
+				games.add(run.getOffset(entry));
+			}
+		}
+		games.addAll(myUnflushedEntries.get(positionKey));
+		return games;
+	}
+
+	/**
+	 * @param gameOffset the offset of a game, as given by {@link #addGame(PgnGame)} or {@link #findGames(long)}
+	 * @param boardToLoadInto an empty board, with persistence logging, to load the game into
+	 * @return true if the game was loaded successfully
+	 */
+	public synchronized boolean loadGame(final long gameOffset, final ChessBoard boardToLoadInto)
+	{
+		return BoardLoader.loadBufferIntoBoard(getGameData(gameOffset), boardToLoadInto);
+	}
+
+	/**
+	 * @return the result of the given game, one of the results in {@link PgnGame}
+	 */
+	public synchronized String getResult(final long gameOffset)
+	{
+		return RESULTS[getSegmentForOffset(gameOffset).get(getPositionInSegment(gameOffset) + Integer.SIZE / Byte.SIZE)];
+	}
+
+	/**
+	 * @return the offset of the first game or -1 if the database is empty
+	 */
+	public synchronized long getFirstGameOffset()
+	{
+		return getGameOffsetFrom(HEADER_SIZE);
+	}
+
+	/**
+	 * @return the offset of the game after the given game or -1 if the given game is the last one
+	 */
+	public synchronized long getNextGameOffset(final long gameOffset)
+	{
+		int gameLength = getSegmentForOffset(gameOffset).getInt(getPositionInSegment(gameOffset));
+		return getGameOffsetFrom(gameOffset + GAME_HEADER_SIZE + gameLength);
+	}
+
+	private long getGameOffsetFrom(final long offset)
+	{
+		long gameOffset = offset;
+		if(gameOffset % DATA_SEGMENT_SIZE + GAME_HEADER_SIZE > DATA_SEGMENT_SIZE
+				|| (gameOffset < myEndOffset && getSegmentForOffset(gameOffset).getInt(getPositionInSegment(gameOffset)) == 0))
+		{
+			//Padding at the end of a segment
+			gameOffset = (gameOffset / DATA_SEGMENT_SIZE + 1) * DATA_SEGMENT_SIZE;
+		}
+		if(gameOffset >= myEndOffset)
+		{
+			return -1;
+		}
+		return gameOffset;
+	}
+
+	public synchronized int getGameCount()
+	{
+		return myGameCount;
+	}
+
+	/**
+	 * Writes the index entries that are kept in memory as a new index run and forces the data file to disk
+	 */
+	public synchronized void flush() throws IOException
+	{
+		flushIndex();
+		for(MappedByteBuffer segment : myDataSegments)
+		{
+			segment.force();
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException
+	{
+		flush();
+		myDataFile.close();
+	}
+
+	private ByteBuffer getGameData(final long gameOffset)
+	{
+		ByteBuffer game = getSegmentForOffset(gameOffset).duplicate();
+		game.position(getPositionInSegment(gameOffset));
+		int gameLength = game.getInt();
+		game.get();
+		game.limit(game.position() + gameLength);
+		return game.slice();
+	}
+
+	private MappedByteBuffer getSegmentForOffset(final long offset)
+	{
+		try
+		{
+			return getDataSegment((int) (offset / DATA_SEGMENT_SIZE));
+		}
+		catch(IOException e)
+		{
+			throw new IllegalStateException("Failed to map the data file at " + offset, e);
+		}
+	}
+
+	private static int getPositionInSegment(final long offset)
+	{
+		return (int) (offset % DATA_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Maps the given segment of the data file (which grows the file if needed)
+	 */
+	private MappedByteBuffer getDataSegment(final int segment) throws IOException
+	{
+		while(myDataSegments.size() <= segment)
+		{
+			long start = (long) myDataSegments.size() * DATA_SEGMENT_SIZE;
+			myDataSegments.add(myDataFile.getChannel().map(MapMode.READ_WRITE, start, DATA_SEGMENT_SIZE));
+		}
+		return myDataSegments.get(segment);
+	}
+
+	private void writeHeader()
+	{
+		MappedByteBuffer header = myDataSegments.get(0);
+		header.putLong(END_OFFSET_POSITION, myEndOffset);
+		header.putInt(GAME_COUNT_POSITION, myGameCount);
+		header.putInt(INDEXED_GAME_COUNT_POSITION, myIndexedGames);
+		header.putLong(INDEXED_END_OFFSET_POSITION, myIndexedEndOffset);
+	}
+
+	private static byte getResultByte(final String result)
+	{
+		for(byte i = 0; i < RESULTS.length; i++)
+		{
+			if(RESULTS[i].equals(result))
+			{
+				return i;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Opens the runs that covers the games up to the indexed end offset, runs that were left behind when a merge was interrupted are removed
+	 */
+	private void openIndexRuns() throws IOException
+	{
+		//Start offset -> the run that covers the most games from it
+		Map<Long, File> runs = Maps.newHashMap();
+		Map<File, Long> runEnds = Maps.newHashMap();
+		File[] files = myIndexDirectory.listFiles();
+		for(File file : files == null ? new File[0] : files)
+		{
+			String name = file.getName();
+			if(!name.startsWith(myIndexRunPrefix))
+			{
+				continue;
+			}
+			String[] range = name.substring(myIndexRunPrefix.length()).split("-");
+			long start;
+			long end;
+			try
+			{
+				start = Long.parseLong(range[0]);
+				end = range.length == 2 ? Long.parseLong(range[1]) : -1;
+			}
+			catch(NumberFormatException e)
+			{
+				//A run that wasn't completely written
+				end = -1;
+				start = -1;
+			}
+			runEnds.put(file, end);
+			File other = runs.get(start);
+			if(end > start && end <= myIndexedEndOffset && (other == null || runEnds.get(other) < end))
+			{
+				runs.put(start, file);
+			}
+		}
+		long start = HEADER_SIZE;
+		while(start < myIndexedEndOffset && runs.containsKey(start))
+		{
+			File file = runs.get(start);
+			long end = runEnds.remove(file);
+			myIndexRuns.add(new IndexRun(file, start, end));
+			start = end;
+		}
+		for(File unused : runEnds.keySet())
+		{
+			unused.delete();
+		}
+		if(start < myIndexedEndOffset)
+		{
+			STDERR.warn("The index of " + myIndexRunPrefix + " is missing games after " + start + ", they are indexed again");
+			myIndexedEndOffset = start;
+			myIndexedGames = 0;
+			for(long offset = getGameOffsetFrom(HEADER_SIZE); offset != -1 && offset < start; offset = getNextGameOffset(offset))
+			{
+				myIndexedGames++;
+			}
+			writeHeader();
+		}
+	}
+
+	/**
+	 * Adds the index entries for the games that aren't covered by the index runs to the entries kept in memory
+	 */
+	private void indexUnindexedGames()
+	{
+		int indexedGames = 0;
+		for(long offset = getGameOffsetFrom(myIndexedEndOffset); offset != -1; offset = getNextGameOffset(offset))
+		{
+			indexedGames++;
+			ChessBoard board = new ChessBoard(DONT_PLACE_PIECES, USE_PERSISTANCE_LOGGING);
+			if(!loadGame(offset, board))
+			{
+				STDERR.error("Failed to load the game at " + offset + " to index it");
+				continue;
+			}
+			try
+			{
+				for(Long key : getPositionKeys(board.getPersistenceLogger()))
+				{
+					myUnflushedEntries.put(key, offset);
+				}
+			}
+			catch(UnavailableMoveItem e)
+			{
+				STDERR.error("Failed to index the game at " + offset, e);
+			}
+		}
+		if(myIndexedGames + indexedGames != myGameCount)
+		{
+			STDERR.warn("Expected " + (myGameCount - myIndexedGames) + " games that weren't indexed but found " + indexedGames);
+		}
+	}
+
+	/**
+	 * Writes the entries kept in memory as a new index run and merges the newest run with the one before it while that one has no more entries
+	 */
+	private void flushIndex() throws IOException
+	{
+		if(myUnflushedEntries.isEmpty())
+		{
+			return;
+		}
+		File runFile = getRunFile(myIndexedEndOffset, myEndOffset);
+		DataOutputStream output = createRun(runFile);
+		try
+		{
+			for(Entry<Long, Long> entry : myUnflushedEntries.entries())
+			{
+				output.writeLong(entry.getKey());
+				output.writeLong(entry.getValue());
+			}
+		}
+		finally
+		{
+			output.close();
+		}
+		myIndexRuns.add(completeRun(runFile, myIndexedEndOffset, myEndOffset));
+		myUnflushedEntries.clear();
+		//The new run is complete so the games it covers doesn't need to be indexed again when the database is opened
+		myIndexedEndOffset = myEndOffset;
+		myIndexedGames = myGameCount;
+		writeHeader();
+
+		while(myIndexRuns.size() > 1)
+		{
+			IndexRun newer = myIndexRuns.get(myIndexRuns.size() - 1);
+			IndexRun older = myIndexRuns.get(myIndexRuns.size() - 2);
+			if(older.getEntries() > newer.getEntries())
+			{
+				break;
+			}
+			IndexRun merged = mergeRuns(older, newer);
+			myIndexRuns.remove(myIndexRuns.size() - 1);
+			myIndexRuns.set(myIndexRuns.size() - 1, merged);
+			older.delete();
+			newer.delete();
+		}
+	}
+
+	private IndexRun mergeRuns(final IndexRun older, final IndexRun newer) throws IOException
+	{
+		File runFile = getRunFile(older.getStart(), newer.getEnd());
+		DataOutputStream output = createRun(runFile);
+		try
+		{
+			long olderEntry = 0;
+			long newerEntry = 0;
+			while(olderEntry < older.getEntries() || newerEntry < newer.getEntries())
+			{
+				//The older games comes first for equal keys so that the offsets stays in the order the games were added
+				if(newerEntry == newer.getEntries()
+						|| (olderEntry < older.getEntries() && Longs.compare(older.getKey(olderEntry), newer.getKey(newerEntry)) <= 0))
+				{
+					output.writeLong(older.getKey(olderEntry));
+					output.writeLong(older.getOffset(olderEntry));
+					olderEntry++;
+				}
+				else
+				{
+					output.writeLong(newer.getKey(newerEntry));
+					output.writeLong(newer.getOffset(newerEntry));
+					newerEntry++;
+				}
+			}
+		}
+		finally
+		{
+			output.close();
+		}
+		return completeRun(runFile, older.getStart(), newer.getEnd());
+	}
+
+	private File getRunFile(final long start, final long end)
+	{
+		return new File(myIndexDirectory, myIndexRunPrefix + start + "-" + end);
+	}
+
+	/**
+	 * @return a stream that writes to a temporary file for the given run, see {@link #completeRun(File, long, long)}
+	 */
+	private static DataOutputStream createRun(final File runFile) throws IOException
+	{
+		final FileOutputStream file = new FileOutputStream(runFile.getPath() + ".tmp");
+		return new DataOutputStream(new BufferedOutputStream(file, 1 << 16)){
+			@Override
+			public void close() throws IOException
+			{
+				flush();
+				//The run needs to be on disk before the header says that the games it covers are indexed
+				file.getFD().sync();
+				super.close();
+			}
+		};
+	}
+
+	/**
+	 * Renames the temporary file of the given run (a run file is always complete) and maps it
+	 */
+	private static IndexRun completeRun(final File runFile, final long start, final long end) throws IOException
+	{
+		File writtenFile = new File(runFile.getPath() + ".tmp");
+		if(!writtenFile.renameTo(runFile))
+		{
+			//Some platforms doesn't allow files to be replaced by a rename
+			if(!runFile.delete() || !writtenFile.renameTo(runFile))
+			{
+				throw new IOException("Failed to replace " + runFile + " with " + writtenFile);
+			}
+		}
+		return new IndexRun(runFile, start, end);
+	}
+
+	/**
+	 * A memory-mapped file with (position key, game offset) entries sorted by key for the games in a range of the data file
+	 */
+	private static final class IndexRun
+	{
+		private final File myFile;
+		private final long myStart;
+		private final long myEnd;
+		private final long myEntries;
+		private final MappedByteBuffer[] mySegments;
+
+		IndexRun(final File file, final long start, final long end) throws IOException
+		{
+			myFile = file;
+			myStart = start;
+			myEnd = end;
+			myEntries = file.length() / INDEX_ENTRY_SIZE;
+			int segments = (int) ((myEntries + INDEX_ENTRIES_PER_SEGMENT - 1) / INDEX_ENTRIES_PER_SEGMENT);
+			mySegments = new MappedByteBuffer[segments];
+			RandomAccessFile runFile = new RandomAccessFile(file, "r");
+			try
+			{
+				FileChannel channel = runFile.getChannel();
+				for(int i = 0; i < segments; i++)
+				{
+					long segmentStart = (long) i * INDEX_ENTRIES_PER_SEGMENT * INDEX_ENTRY_SIZE;
+					long size = Math.min((long) INDEX_ENTRIES_PER_SEGMENT * INDEX_ENTRY_SIZE, myEntries * INDEX_ENTRY_SIZE - segmentStart);
+					mySegments[i] = channel.map(MapMode.READ_ONLY, segmentStart, size);
+				}
+			}
+			finally
+			{
+				//The mappings stays valid after the file has been closed
+				runFile.close();
+			}
+		}
+
+		long getStart()
+		{
+			return myStart;
+		}
+
+		long getEnd()
+		{
+			return myEnd;
+		}
+
+		long getEntries()
+		{
+			return myEntries;
+		}
+
+		long getKey(final long entry)
+		{
+			return mySegments[(int) (entry / INDEX_ENTRIES_PER_SEGMENT)].getLong((int) (entry % INDEX_ENTRIES_PER_SEGMENT) * INDEX_ENTRY_SIZE);
+		}
+
+		long getOffset(final long entry)
+		{
+			return mySegments[(int) (entry / INDEX_ENTRIES_PER_SEGMENT)].getLong((int) (entry % INDEX_ENTRIES_PER_SEGMENT) * INDEX_ENTRY_SIZE + Long.SIZE / Byte.SIZE);
+		}
+
+		/**
+		 * @return the first entry with the given key, or where it would have been
+		 */
+		long findFirstEntry(final long positionKey)
+		{
+			long low = 0;
+			long high = myEntries;
+			while(low < high)
+			{
+				long middle = (low + high) >>> 1;
+				if(getKey(middle) < positionKey)
+				{
+					low = middle + 1;
+				}
+				else
+				{
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Removes the file of this run, it's still readable until it's no longer used as it's mapped
+		 */
+		void delete()
+		{
+			if(!myFile.delete())
+			{
+				STDERR.warn("Failed to remove the merged index run " + myFile);
+			}
+		}
+	}
+}
@@ -30,6 +30,16 @@ public final class MoveItem
 		return new MoveItem(fromPosition, toPosition);
 	}
 
+	public ImmutablePosition getFromPosition()
+	{
+		return myFromPosition;
+	}
+
+	public ImmutablePosition getToPosition()
+	{
+		return myToPosition;
+	}
+
 	public void put(final ByteBuffer buffer)
 	{
 		buffer.put(myFromPosition.getPersistence());
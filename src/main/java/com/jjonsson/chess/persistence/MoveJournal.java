@@ -0,0 +1,508 @@
+package com.jjonsson.chess.persistence;
+
+import static com.jjonsson.chess.persistence.PersistanceLogging.USE_PERSISTANCE_LOGGING;
+import static com.jjonsson.utilities.Loggers.STDERR;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.evaluators.ChessBoardEvaluator.ChessState;
+import com.jjonsson.chess.exceptions.UnavailableMoveItem;
+import com.jjonsson.chess.listeners.ChessBoardListener;
+import com.jjonsson.chess.listeners.MoveListener;
+import com.jjonsson.chess.moves.ImmutablePosition;
+import com.jjonsson.chess.moves.Move;
+import com.jjonsson.chess.moves.RevertingMove;
+import com.jjonsson.chess.pieces.Piece;
+
+/**
+ * Autosaves a board without ever making the game or the search wait for the disk.
+ * <br>The board is saved as a snapshot (a normal .chess file) and a journal next to it ({@link #JOURNAL_FILE_ENDING}) that the moves
+ * are appended to as they are made, {@link PersistenceLogger#BYTES_PER_MOVE} bytes per move (a {@link MoveItem}) and the same for an undo.
+ * <br>The records are encoded on the thread that changes the board but they are written to the journal by a background thread
+ * through a {@link FileChannel}, the snapshot is also written in the background.
+ * <br>When {@link #COMPACTION_INTERVAL} records have been written, the next time the board is in a consistent state (when the player changes
+ * or when an undo is done) a new snapshot is written and the journal is started over. After a reset (a new game or a load) no records
+ * are written until the snapshot has been replaced.
+ * <br>The journal starts with the length and the checksum of the snapshot that it continues from so a journal that was left behind
+ * when a compaction was interrupted is never replayed on the wrong snapshot, see {@link #recover(File, ChessBoard)}
+ */
+public final class MoveJournal implements MoveListener, ChessBoardListener, Closeable
+{
+	public static final String JOURNAL_FILE_ENDING = ".journal";
+
+	/**
+	 * The number of records that may be written to the journal before it's compacted into the snapshot
+	 */
+	static final int COMPACTION_INTERVAL = 64;
+
+	/**
+	 * Marks a record that isn't a move, 0xFF is never a valid position
+	 */
+	private static final byte CONTROL_RECORD = (byte) 0xFF;
+	private static final byte UNDO = 0;
+
+	private static final int MAGIC = 0x43484A31; //CHJ1
+	private static final int HEADER_SIZE = 12;
+
+	private static final long CLOSE_TIMEOUT_IN_SECONDS = 10;
+
+	private final ChessBoard myBoard;
+	private final File mySnapshotFile;
+	private final File myJournalFile;
+
+	/**
+	 * The journal is only written to by this thread
+	 */
+	private final ExecutorService myWriter;
+	private RandomAccessFile myJournal;
+
+	/**
+	 * The records that haven't been written yet, the journal is forced to the disk when all of them have been written
+	 */
+	private final AtomicInteger myUnwrittenRecords = new AtomicInteger();
+
+	/**
+	 * Only used by the thread that changes the board
+	 */
+	private int myRecordsSinceSnapshot;
+	private boolean myNeedsSnapshot;
+
+	/**
+	 * The first write error, reported by {@link #flush()}
+	 */
+	private volatile IOException myWriteError;
+
+	private MoveJournal(final ChessBoard board, final File snapshotFile)
+	{
+		myBoard = board;
+		mySnapshotFile = snapshotFile;
+		myJournalFile = getJournalFile(snapshotFile);
+		myWriter = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat(MoveJournal.class.getSimpleName() + "-%d").setDaemon(true).build());
+	}
+
+	/**
+	 * Starts to autosave the given board to the given file, the current state of the board is saved right away
+	 * @param board a board that logs its moves for persistence, its moves must be made by one thread at a time
+	 * @param snapshotFile where the board is saved, the journal is saved in a file next to it
+	 * @throws IllegalArgumentException if the given board doesn't log its moves for persistence
+	 */
+	public static MoveJournal open(final ChessBoard board, final File snapshotFile)
+	{
+		if(!board.hasPersistencePossibility())
+		{
+			throw new IllegalArgumentException("Only boards that log their moves for persistence can be journaled");
+		}
+		MoveJournal journal = new MoveJournal(board, snapshotFile);
+		journal.compact();
+		board.addMoveListener(journal);
+		board.addChessBoardListener(journal);
+		return journal;
+	}
+
+	public static File getJournalFile(final File snapshotFile)
+	{
+		return new File(snapshotFile.getPath() + JOURNAL_FILE_ENDING);
+	}
+
+	/**
+	 * Loads the snapshot in the given file into the given board and replays the journal next to it (if there is one).
+	 * <br>A record that was only partly written when the program stopped is ignored and so are the records after a record that can't be replayed.
+	 * @param board an empty board that logs its moves for persistence
+	 * @return false if the snapshot couldn't be loaded
+	 */
+	public static boolean recover(final File snapshotFile, final ChessBoard board)
+	{
+		byte[] snapshot;
+		try
+		{
+			snapshot = Files.toByteArray(snapshotFile);
+		}
+		catch(IOException e)
+		{
+			return false;
+		}
+		if(!BoardLoader.loadBufferIntoBoard(ByteBuffer.wrap(snapshot), board))
+		{
+			return false;
+		}
+		File journalFile = getJournalFile(snapshotFile);
+		if(!journalFile.isFile())
+		{
+			return true;
+		}
+		try
+		{
+			ByteBuffer journal = ByteBuffer.wrap(Files.toByteArray(journalFile));
+			if(journal.remaining() < HEADER_SIZE || journal.getInt() != MAGIC || journal.getInt() != snapshot.length || journal.getInt() != checksum(snapshot))
+			{
+				//Left behind by an interrupted compaction, the snapshot already contains its moves
+				return true;
+			}
+			while(journal.remaining() >= PersistenceLogger.BYTES_PER_MOVE)
+			{
+				byte from = journal.get();
+				byte to = journal.get();
+				if(from == CONTROL_RECORD && to == UNDO)
+				{
+					board.undoMoves(1, false);
+				}
+				else
+				{
+					MoveItem.from(ImmutablePosition.from(from), ImmutablePosition.from(to)).perform(board);
+				}
+			}
+		}
+		catch(IOException e)
+		{
+			STDERR.warn("Failed to read the journal " + journalFile + ", only the snapshot was recovered", e);
+		}
+		catch(UnavailableMoveItem e)
+		{
+			STDERR.warn("The journal " + journalFile + " could only be partly replayed: " + e);
+		}
+		catch(ArrayIndexOutOfBoundsException e)
+		{
+			STDERR.warn("The journal " + journalFile + " could only be partly replayed, invalid position: " + e);
+		}
+		return true;
+	}
+
+	/**
+	 * Saves the current state of the board as a new snapshot and starts a new journal.
+	 * <br>Must be called from the thread that changes the board, the board is encoded before this returns but it's written in the background
+	 */
+	public void compact()
+	{
+		final byte[] snapshot;
+		try
+		{
+			ByteBuffer buffer = ByteBuffer.allocate(myBoard.getPersistenceSize(USE_PERSISTANCE_LOGGING));
+			myBoard.writePersistenceData(buffer, USE_PERSISTANCE_LOGGING);
+			snapshot = buffer.array();
+		}
+		catch(IOException e)
+		{
+			writeFailed(e);
+			return;
+		}
+		myRecordsSinceSnapshot = 0;
+		myNeedsSnapshot = false;
+		write(new Runnable(){
+			@Override
+			public void run()
+			{
+				try
+				{
+					writeSnapshot(snapshot);
+				}
+				catch(IOException e)
+				{
+					writeFailed(e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Called by the writer thread, the snapshot is replaced before the journal so that a crash in between leaves a journal
+	 * that doesn't match the snapshot (and therefore isn't replayed) instead of a journal that would be replayed twice
+	 */
+	private void writeSnapshot(final byte[] snapshot) throws IOException
+	{
+		File temporarySnapshot = new File(mySnapshotFile.getPath() + ".tmp");
+		writeFully(temporarySnapshot, ByteBuffer.wrap(snapshot));
+		replace(temporarySnapshot, mySnapshotFile);
+
+		closeJournal();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(snapshot.length).putInt(checksum(snapshot));
+		header.flip();
+		File temporaryJournal = new File(myJournalFile.getPath() + ".tmp");
+		writeFully(temporaryJournal, header);
+		replace(temporaryJournal, myJournalFile);
+
+		myJournal = new RandomAccessFile(myJournalFile, "rw");
+		myJournal.seek(myJournal.length());
+	}
+
+	private static void writeFully(final File file, final ByteBuffer data) throws IOException
+	{
+		RandomAccessFile output = new RandomAccessFile(file, "rw");
+		try
+		{
+			output.setLength(0);
+			FileChannel channel = output.getChannel();
+			while(data.hasRemaining())
+			{
+				channel.write(data);
+			}
+			channel.force(true);
+		}
+		finally
+		{
+			output.close();
+		}
+	}
+
+	private static void replace(final File source, final File destination) throws IOException
+	{
+		if(!source.renameTo(destination))
+		{
+			//Some platforms doesn't allow files to be replaced by a rename
+			if(!destination.delete() || !source.renameTo(destination))
+			{
+				throw new IOException("Failed to replace " + destination + " with " + source);
+			}
+		}
+	}
+
+	private static int checksum(final byte[] data)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		return (int) crc.getValue();
+	}
+
+	private void append(final byte first, final byte second)
+	{
+		if(myNeedsSnapshot)
+		{
+			//The journal doesn't continue from the current board, the next snapshot will include this record
+			return;
+		}
+		myRecordsSinceSnapshot++;
+		myUnwrittenRecords.incrementAndGet();
+		write(new Runnable(){
+			@Override
+			public void run()
+			{
+				if(myJournal == null)
+				{
+					//The snapshot couldn't be written
+					myUnwrittenRecords.decrementAndGet();
+					return;
+				}
+				try
+				{
+					ByteBuffer record = ByteBuffer.wrap(new byte[]{first, second});
+					FileChannel channel = myJournal.getChannel();
+					while(record.hasRemaining())
+					{
+						channel.write(record);
+					}
+					//The records that are made in a burst are forced to the disk together
+					if(myUnwrittenRecords.decrementAndGet() == 0)
+					{
+						channel.force(false);
+					}
+				}
+				catch(IOException e)
+				{
+					writeFailed(e);
+				}
+			}
+		});
+	}
+
+	private void write(final Runnable task)
+	{
+		if(!myWriter.isShutdown())
+		{
+			myWriter.execute(task);
+		}
+	}
+
+	private void writeFailed(final IOException e)
+	{
+		if(myWriteError == null)
+		{
+			myWriteError = e;
+			STDERR.error("Autosaving to " + mySnapshotFile + " failed", e);
+		}
+	}
+
+	/**
+	 * Waits until everything that has been recorded so far has been written and forced to the disk
+	 * @throws IOException if something couldn't be written
+	 */
+	public void flush() throws IOException
+	{
+		try
+		{
+			myWriter.submit(new Runnable(){
+				@Override
+				public void run()
+				{
+					if(myJournal != null)
+					{
+						try
+						{
+							myJournal.getChannel().force(false);
+						}
+						catch(IOException e)
+						{
+							writeFailed(e);
+						}
+					}
+				}
+			}).get();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the journal to be written", e);
+		}
+		catch(ExecutionException e)
+		{
+			throw new IOException("Failed to force the journal to the disk", e);
+		}
+		if(myWriteError != null)
+		{
+			throw myWriteError;
+		}
+	}
+
+	/**
+	 * Stops journaling the board, what has been recorded is written before this returns
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		myBoard.removeChessBoardListener(this);
+		myBoard.removeMoveListener(this);
+		flush();
+		myWriter.submit(new Runnable(){
+			@Override
+			public void run()
+			{
+				closeJournal();
+			}
+		});
+		myWriter.shutdown();
+		try
+		{
+			myWriter.awaitTermination(CLOSE_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void closeJournal()
+	{
+		if(myJournal != null)
+		{
+			try
+			{
+				myJournal.close();
+			}
+			catch(IOException e)
+			{
+				writeFailed(e);
+			}
+			myJournal = null;
+		}
+	}
+
+	/**
+	 * Compacts the journal if it's time to do so, only called when the board is in a consistent state
+	 */
+	private void consistentState()
+	{
+		if(myNeedsSnapshot || myRecordsSinceSnapshot >= COMPACTION_INTERVAL)
+		{
+			compact();
+		}
+	}
+
+	@Override
+	public void movePerformed(final Move performedMove)
+	{
+		//Moves that are replayed when a game is loaded are included in the snapshot
+		if(myBoard.allowsMoves() && !performedMove.isPartOfAnotherMove())
+		{
+			MoveItem move = MoveItem.from(performedMove);
+			append(move.getFromPosition().getPersistence(), move.getToPosition().getPersistence());
+		}
+	}
+
+	@Override
+	public void moveReverted(final RevertingMove move)
+	{
+		if(!move.isPartOfAnotherMove())
+		{
+			append(CONTROL_RECORD, UNDO);
+		}
+	}
+
+	@Override
+	public void pieceRemoved(final Piece removedPiece)
+	{
+	}
+
+	@Override
+	public void reset()
+	{
+		myNeedsSnapshot = true;
+	}
+
+	@Override
+	public void nextPlayer()
+	{
+		consistentState();
+	}
+
+	@Override
+	public void undoDone()
+	{
+		consistentState();
+	}
+
+	@Override
+	public void loadingOfBoardDone()
+	{
+		consistentState();
+	}
+
+	@Override
+	public void piecePlaced(final Piece p)
+	{
+	}
+
+	@Override
+	public void gameStateChanged(final ChessState newState)
+	{
+	}
+
+	@Override
+	public void piecePlacedLoadingInProgress(final Piece p)
+	{
+	}
+
+	@Override
+	public boolean supportsPawnPromotionDialog()
+	{
+		return false;
+	}
+
+	@Override
+	public Piece getPawnPromotionFromDialog()
+	{
+		return null;
+	}
+}
@@ -4,7 +4,6 @@ import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.Map;
 
-import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Maps;
 import com.jjonsson.chess.listeners.MoveListener;
 import com.jjonsson.chess.moves.Move;
@@ -17,13 +16,13 @@ public class MoveLogger implements MoveListener
 	private Deque<Move> myMoveHistory;
 	private Map<Integer, Piece> myRemovalHistory;
 
+	private int myMovesMadeOffset;
+
 	/**
-	 * Defines how many moves (for each move) that are remembered so that the game doesn't get stuck in a repetitive loop
+	 * Counts each move made by a player once (castling moves moves two pieces but is only one half move)
 	 */
-	@VisibleForTesting
-	public static final int REPITION_HISTORY_RESET_INTERVAL = 30;
-
-	private int myMovesMadeOffset;
+	private int myPliesMade;
+	private int myPliesMadeOffset;
 
 	MoveLogger()
 	{
@@ -36,6 +35,7 @@ public class MoveLogger implements MoveListener
 	{
 		myMoveHistory.clear();
 		myRemovalHistory.clear();
+		myPliesMade = 0;
 	}
 
 	public void setMovesMadeOffset(final int movesMade)
@@ -43,6 +43,19 @@ public class MoveLogger implements MoveListener
 		myMovesMadeOffset = movesMade;
 	}
 
+	public void setPliesMadeOffset(final int pliesMade)
+	{
+		myPliesMadeOffset = pliesMade;
+	}
+
+	/**
+	 * @return the number of half moves that has been made, where a castling move counts as one
+	 */
+	public int getPliesMade()
+	{
+		return myPliesMade + myPliesMadeOffset;
+	}
+
 	private void addMove(final Move move)
 	{
 		myMoveHistory.push(move);
@@ -87,10 +100,9 @@ public class MoveLogger implements MoveListener
 	{
 		removeLastEnPassant();
 		addMove(performedMove);
-		//We need to reset the move counters periodically to avoid the measurements from getting off the charts
-		if(getMovesMade() % REPITION_HISTORY_RESET_INTERVAL == 0)
+		if(!performedMove.isPartOfAnotherMove())
 		{
-			performedMove.getPiece().getBoard().resetMoveCounters();
+			myPliesMade++;
 		}
 	}
 
@@ -99,6 +111,10 @@ public class MoveLogger implements MoveListener
 	{
 		myRemovalHistory.remove(myMoveHistory.size());
 		removeLastEnPassant();
+		if(!move.isPartOfAnotherMove())
+		{
+			myPliesMade--;
+		}
 	}
 
 	public Piece getRemovedPieceForLastMove()
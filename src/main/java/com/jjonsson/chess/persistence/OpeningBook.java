@@ -0,0 +1,190 @@
+package com.jjonsson.chess.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.collect.Lists;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.moves.ImmutablePosition;
+import com.jjonsson.chess.moves.Move;
+import com.jjonsson.chess.pieces.Piece;
+
+/**
+ * A read-only book of opening moves that is memory-mapped and binary searched.
+ * <br>The file starts with a header followed by {@link #ENTRY_SIZE} byte entries sorted by position key, each entry holds
+ * a Zobrist position key (see {@link ChessBoard#getPositionKey()}), the move (as a from and a to position) and a weight.
+ * <br>Books are created with {@link OpeningBookBuilder}
+ */
+public class OpeningBook implements Closeable
+{
+	public static final String FILE_ENDING = ".book";
+
+	static final int MAGIC = 0x43484f42;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+
+	/**
+	 * Key (8 bytes), from position (1 byte), to position (1 byte), weight (2 bytes)
+	 */
+	static final int ENTRY_SIZE = 12;
+
+	/**
+	 * The weight is stored as an unsigned short
+	 */
+	static final int MAX_WEIGHT = 0xFFFF;
+
+	private final RandomAccessFile myFile;
+	private final MappedByteBuffer myEntries;
+	private final int myEntryCount;
+	private final Random myRandom;
+
+	/**
+	 * @param fileName the book file to open
+	 * @throws IOException if the file couldn't be mapped or if it isn't an opening book
+	 */
+	public OpeningBook(final String fileName) throws IOException
+	{
+		myFile = new RandomAccessFile(fileName, "r");
+		MappedByteBuffer buffer = myFile.getChannel().map(MapMode.READ_ONLY, 0, myFile.length());
+		if(buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.SIZE / Byte.SIZE) != VERSION)
+		{
+			myFile.close();
+			throw new IOException(fileName + " isn't an opening book");
+		}
+		myEntryCount = buffer.getInt(2 * Integer.SIZE / Byte.SIZE);
+		if(HEADER_SIZE + (long) myEntryCount * ENTRY_SIZE > buffer.limit())
+		{
+			myFile.close();
+			throw new IOException(fileName + " is truncated");
+		}
+		buffer.position(HEADER_SIZE);
+		myEntries = buffer;
+		myRandom = new Random();
+	}
+
+	/**
+	 * @return the number of (position, move) entries in this book
+	 */
+	public int getEntryCount()
+	{
+		return myEntryCount;
+	}
+
+	/**
+	 * Picks one of the book moves for the current position of the given board, moves with a higher weight are picked more often
+	 * @return an available move on the given board or null if the position isn't in the book
+	 */
+	public Move getMove(final ChessBoard board)
+	{
+		List<Move> moves = Lists.newArrayList();
+		List<Integer> weights = Lists.newArrayList();
+		int totalWeight = 0;
+		long positionKey = board.getPositionKey();
+		for(int entry = findFirstEntry(positionKey); entry < myEntryCount && getKey(entry) == positionKey; entry++)
+		{
+			Move move = getAvailableMove(board, entry);
+			int weight = getWeight(entry);
+			if(move != null && weight > 0)
+			{
+				moves.add(move);
+				weights.add(weight);
+				totalWeight += weight;
+			}
+		}
+		if(moves.isEmpty())
+		{
+			return null;
+		}
+		int pick;
+		synchronized(myRandom)
+		{
+			pick = myRandom.nextInt(totalWeight);
+		}
+		for(int i = 0; i < moves.size(); i++)
+		{
+			pick -= weights.get(i);
+			if(pick < 0)
+			{
+				return moves.get(i);
+			}
+		}
+		return moves.get(moves.size() - 1);
+	}
+
+	/**
+	 * @return the moves that the book has for the given position
+	 */
+	public List<MoveItem> getMoves(final long positionKey)
+	{
+		List<MoveItem> moves = Lists.newArrayList();
+		for(int entry = findFirstEntry(positionKey); entry < myEntryCount && getKey(entry) == positionKey; entry++)
+		{
+			moves.add(MoveItem.from(ImmutablePosition.from(getFrom(entry)), ImmutablePosition.from(getTo(entry))));
+		}
+		return moves;
+	}
+
+	/**
+	 * @return the index of the first entry with the given key (or a key greater than the given key)
+	 */
+	private int findFirstEntry(final long positionKey)
+	{
+		int low = 0;
+		int high = myEntryCount;
+		while(low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if(getKey(middle) < positionKey)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private Move getAvailableMove(final ChessBoard board, final int entry)
+	{
+		Piece piece = board.getPiece(ImmutablePosition.from(getFrom(entry)));
+		if(piece == null || piece.getAffinity() != board.getCurrentPlayer())
+		{
+			//A key collision or a damaged book
+			return null;
+		}
+		return board.getAvailableMove(piece, ImmutablePosition.from(getTo(entry)));
+	}
+
+	private long getKey(final int entry)
+	{
+		return myEntries.getLong(HEADER_SIZE + entry * ENTRY_SIZE);
+	}
+
+	private byte getFrom(final int entry)
+	{
+		return myEntries.get(HEADER_SIZE + entry * ENTRY_SIZE + Long.SIZE / Byte.SIZE);
+	}
+
+	private byte getTo(final int entry)
+	{
+		return myEntries.get(HEADER_SIZE + entry * ENTRY_SIZE + Long.SIZE / Byte.SIZE + 1);
+	}
+
+	private int getWeight(final int entry)
+	{
+		return myEntries.getShort(HEADER_SIZE + entry * ENTRY_SIZE + Long.SIZE / Byte.SIZE + 2) & MAX_WEIGHT;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		myFile.close();
+	}
+}
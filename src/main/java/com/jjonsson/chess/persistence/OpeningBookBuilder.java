@@ -0,0 +1,182 @@
+package com.jjonsson.chess.persistence;
+
+import static com.jjonsson.chess.board.PiecePlacement.PLACE_PIECES;
+import static com.jjonsson.chess.persistence.PersistanceLogging.SKIP_PERSISTANCE_LOGGING;
+import static com.jjonsson.utilities.Loggers.STDERR;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.TreeMultiset;
+import com.google.common.primitives.Shorts;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.evaluators.ChessBoardEvaluator;
+import com.jjonsson.chess.evaluators.ChessMoveEvaluator;
+import com.jjonsson.chess.exceptions.InvalidPgnException;
+import com.jjonsson.chess.exceptions.NoMovesAvailableException;
+import com.jjonsson.chess.moves.Move;
+
+/**
+ * Collects the moves made in the opening of games (from PGN files or from self-play)
+ * and writes them as an {@link OpeningBook}, the weight of a move is the number of times it was made in the given position.
+ */
+public class OpeningBookBuilder
+{
+	public static final int DEFAULT_MAX_PLIES = 16;
+
+	private final int myMaxPlies;
+
+	/**
+	 * Position key -> (from, to) persistence bytes, sorted so that the book can be written as is
+	 */
+	private final Map<Long, Multiset<Short>> myPositions;
+
+	/**
+	 * @param maxPlies how many half moves into each game that should be included in the book
+	 */
+	public OpeningBookBuilder(final int maxPlies)
+	{
+		myMaxPlies = maxPlies;
+		myPositions = Maps.newTreeMap();
+	}
+
+	/**
+	 * Adds the first moves of the given game
+	 * @throws InvalidPgnException if one of the included moves couldn't be made,
+	 * the moves before the invalid move are kept in the book
+	 */
+	public void addGame(final PgnGame game) throws InvalidPgnException
+	{
+		ChessBoard board = game.createStartBoard(SKIP_PERSISTANCE_LOGGING);
+		int plies = Math.min(myMaxPlies, game.getMoves().size());
+		for(int ply = 0; ply < plies; ply++)
+		{
+			long positionKey = board.getPositionKey();
+			addMove(positionKey, SanNotation.perform(board, game.getMoves().get(ply)));
+		}
+	}
+
+	/**
+	 * Adds all the games that the given reader provides, games that can't be read are logged and skipped
+	 * @return the number of games that was added
+	 */
+	public int addGames(final PgnReader reader) throws IOException
+	{
+		int addedGames = 0;
+		while(true)
+		{
+			try
+			{
+				PgnGame game = reader.nextGame();
+				if(game == null)
+				{
+					return addedGames;
+				}
+				addGame(game);
+				addedGames++;
+			}
+			catch(InvalidPgnException e)
+			{
+				STDERR.warn("Skipping game " + reader.getGamesRead() + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Lets the engine play against itself and adds the moves that it chooses.
+	 * <br>The first moves of each game are random (and not added) so that the games differ from each other
+	 * @param games the number of games to play
+	 * @param difficulty the difficulty to play with (see {@link ChessBoard#setDifficulty(int)})
+	 * @param randomPlies the number of random half moves to start each game with
+	 */
+	public void addSelfPlayGames(final int games, final int difficulty, final int randomPlies)
+	{
+		for(int i = 0; i < games; i++)
+		{
+			ChessBoard board = new ChessBoard(PLACE_PIECES, SKIP_PERSISTANCE_LOGGING);
+			board.setDifficulty(difficulty);
+			try
+			{
+				for(int ply = 0; ply < myMaxPlies && ChessBoardEvaluator.inPlay(board); ply++)
+				{
+					if(ply < randomPlies)
+					{
+						board.performRandomMove();
+						continue;
+					}
+					long positionKey = board.getPositionKey();
+					Move bestMove = ChessMoveEvaluator.getBestMove(board);
+					MoveItem move = MoveItem.from(bestMove);
+					if(!bestMove.getPiece().performMove(bestMove, board))
+					{
+						break;
+					}
+					addMove(positionKey, move);
+				}
+			}
+			catch(NoMovesAvailableException e)
+			{
+				//The game ended early, keep the moves made so far
+			}
+		}
+	}
+
+	private void addMove(final long positionKey, final MoveItem move)
+	{
+		Multiset<Short> moves = myPositions.get(positionKey);
+		if(moves == null)
+		{
+			moves = TreeMultiset.create();
+			myPositions.put(positionKey, moves);
+		}
+		moves.add(Shorts.fromBytes(move.getFromPosition().getPersistence(), move.getToPosition().getPersistence()));
+	}
+
+	/**
+	 * @return the number of distinct positions that has been added
+	 */
+	public int getPositionCount()
+	{
+		return myPositions.size();
+	}
+
+	/**
+	 * Writes the collected moves as an opening book
+	 * @param fileName the file to write to (replaced if it exists)
+	 */
+	public void write(final String fileName) throws IOException
+	{
+		int entryCount = 0;
+		for(Multiset<Short> moves : myPositions.values())
+		{
+			entryCount += moves.elementSet().size();
+		}
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+		try
+		{
+			output.writeInt(OpeningBook.MAGIC);
+			output.writeInt(OpeningBook.VERSION);
+			output.writeInt(entryCount);
+			output.writeInt(0);
+			for(Entry<Long, Multiset<Short>> position : myPositions.entrySet())
+			{
+				for(Multiset.Entry<Short> move : position.getValue().entrySet())
+				{
+					output.writeLong(position.getKey());
+					output.writeShort(move.getElement());
+					output.writeShort(Math.min(move.getCount(), OpeningBook.MAX_WEIGHT));
+				}
+			}
+		}
+		finally
+		{
+			output.close();
+		}
+	}
+}
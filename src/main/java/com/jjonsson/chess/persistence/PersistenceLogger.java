@@ -7,7 +7,9 @@ import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
 
+import com.google.common.collect.Lists;
 import com.jjonsson.chess.board.ChessBoard;
 import com.jjonsson.chess.exceptions.UnavailableMoveItem;
 import com.jjonsson.chess.listeners.MoveListener;
@@ -36,6 +38,22 @@ public class PersistenceLogger implements MoveListener
 		myStartBoard = board.copy(SKIP_PERSISTANCE_LOGGING);
 	}
 
+	/**
+	 * @return a copy of the board that the logged moves starts from
+	 */
+	public ChessBoard copyStartBoard()
+	{
+		return myStartBoard.copy(SKIP_PERSISTANCE_LOGGING);
+	}
+
+	/**
+	 * @return the logged moves, ordered from the first move to the last move
+	 */
+	public List<MoveItem> getMoveHistory()
+	{
+		return Lists.reverse(Lists.newArrayList(myPersistenceStorage));
+	}
+
 	public void writeMoveHistory(final ByteBuffer buffer)
 	{
 		buffer.put(myStartBoard.getGameStateSettingsByte(USE_PERSISTANCE_LOGGING));
@@ -0,0 +1,190 @@
+package com.jjonsson.chess.persistence;
+
+import static com.jjonsson.chess.persistence.PersistanceLogging.SKIP_PERSISTANCE_LOGGING;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.board.PiecePlacement;
+import com.jjonsson.chess.evaluators.ChessBoardEvaluator.ChessState;
+import com.jjonsson.chess.exceptions.InvalidPgnException;
+import com.jjonsson.chess.exceptions.UnavailableMoveItem;
+import com.jjonsson.chess.pieces.Piece;
+
+/**
+ * A game as described by a PGN file, the moves are kept in SAN until they are performed on a board
+ */
+public final class PgnGame
+{
+	public static final String WHITE_WON = "1-0";
+	public static final String BLACK_WON = "0-1";
+	public static final String DRAW = "1/2-1/2";
+	public static final String UNKNOWN_RESULT = "*";
+
+	public static final String RESULT_TAG = "Result";
+	public static final String FEN_TAG = "FEN";
+	public static final String SET_UP_TAG = "SetUp";
+
+	/**
+	 * The tags that every exported PGN game should have, in the order they should come
+	 */
+	private static final String[] SEVEN_TAG_ROSTER = {"Event", "Site", "Date", "Round", "White", "Black", RESULT_TAG};
+	private static final String UNKNOWN_TAG_VALUE = "?";
+
+	private final Map<String, String> myTags;
+	private final List<String> myMoves;
+	private String myResult;
+
+	public PgnGame()
+	{
+		myTags = Maps.newLinkedHashMap();
+		myMoves = Lists.newArrayList();
+		myResult = UNKNOWN_RESULT;
+	}
+
+	/**
+	 * Describes the moves that has been made on the given board, the board needs to log its moves for persistence
+	 * @param board the board to describe
+	 * @param tags tags to include in the game, missing tags from the seven tag roster are added with unknown values
+	 * @return the game that has been played on the given board
+	 * @throws UnavailableMoveItem if the logged moves couldn't be replayed
+	 * @throws IllegalStateException if the given board doesn't log its moves for persistence
+	 */
+	public static PgnGame from(final ChessBoard board, final Map<String, String> tags) throws UnavailableMoveItem
+	{
+		PersistenceLogger persistenceLogger = board.getPersistenceLogger();
+		if(persistenceLogger == null)
+		{
+			throw new IllegalStateException("A board without persistence logging can't be described as a PGN game");
+		}
+		PgnGame game = new PgnGame();
+		for(String tag : SEVEN_TAG_ROSTER)
+		{
+			game.setTag(tag, UNKNOWN_TAG_VALUE);
+		}
+		game.myTags.putAll(tags);
+
+		ChessBoard replayBoard = persistenceLogger.copyStartBoard();
+		String startingPosition = FenNotation.toFen(replayBoard);
+		if(!startingPosition.equals(FenNotation.STARTING_POSITION))
+		{
+			game.setTag(SET_UP_TAG, "1");
+			game.setTag(FEN_TAG, startingPosition);
+		}
+		for(MoveItem move : persistenceLogger.getMoveHistory())
+		{
+			game.addMove(SanNotation.describeAndPerform(replayBoard, move));
+		}
+		game.setResult(getResult(board));
+		return game;
+	}
+
+	private static String getResult(final ChessBoard board)
+	{
+		if(board.getCurrentState() == ChessState.CHECKMATE)
+		{
+			//The current player is the one that has lost
+			return board.getCurrentPlayer() == Piece.BLACK ? WHITE_WON : BLACK_WON;
+		}
+		else if(board.getCurrentState() == ChessState.STALEMATE)
+		{
+			return DRAW;
+		}
+		return UNKNOWN_RESULT;
+	}
+
+	/**
+	 * Creates a board with the position the game starts from, as given by the FEN tag or the default starting position
+	 * @throws InvalidPgnException if the FEN tag is invalid
+	 */
+	public ChessBoard createStartBoard(final PersistanceLogging persistanceLogging) throws InvalidPgnException
+	{
+		String fen = getTag(FEN_TAG);
+		if(fen == null)
+		{
+			return new ChessBoard(PiecePlacement.PLACE_PIECES, persistanceLogging);
+		}
+		ChessBoard board = new ChessBoard(PiecePlacement.DONT_PLACE_PIECES, persistanceLogging);
+		if(!BoardLoader.loadFenIntoBoard(fen, board))
+		{
+			throw new InvalidPgnException("Invalid FEN tag: " + fen);
+		}
+		return board;
+	}
+
+	/**
+	 * Creates the start board and performs all the moves of this game on it
+	 * @return the board with the final position of this game
+	 * @throws InvalidPgnException if the starting position or one of the moves is invalid
+	 */
+	public ChessBoard replay() throws InvalidPgnException
+	{
+		ChessBoard board = createStartBoard(SKIP_PERSISTANCE_LOGGING);
+		for(String move : myMoves)
+		{
+			SanNotation.perform(board, move);
+		}
+		return board;
+	}
+
+	/**
+	 * @return the value of the given tag or null if the tag doesn't exist
+	 */
+	public String getTag(final String name)
+	{
+		return myTags.get(name);
+	}
+
+	public void setTag(final String name, final String value)
+	{
+		myTags.put(name, value);
+	}
+
+	/**
+	 * @return the tags of this game, in the order they were added
+	 */
+	public Map<String, String> getTags()
+	{
+		return Collections.unmodifiableMap(myTags);
+	}
+
+	public void addMove(final String san)
+	{
+		myMoves.add(san);
+	}
+
+	/**
+	 * @return the moves of this game in SAN
+	 */
+	public List<String> getMoves()
+	{
+		return Collections.unmodifiableList(myMoves);
+	}
+
+	/**
+	 * @return one of {@link #WHITE_WON}, {@link #BLACK_WON}, {@link #DRAW} or {@link #UNKNOWN_RESULT}
+	 */
+	public String getResult()
+	{
+		return myResult;
+	}
+
+	/**
+	 * Sets the game termination marker, also updates the Result tag
+	 */
+	public void setResult(final String result)
+	{
+		myResult = result;
+		myTags.put(RESULT_TAG, result);
+	}
+
+	@Override
+	public String toString()
+	{
+		return myTags.get("White") + " - " + myTags.get("Black") + " " + myResult + " (" + myMoves.size() + " moves)";
+	}
+}
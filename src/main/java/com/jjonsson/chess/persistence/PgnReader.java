@@ -0,0 +1,346 @@
+package com.jjonsson.chess.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+
+import com.jjonsson.chess.exceptions.InvalidPgnException;
+
+/**
+ * Reads PGN games one at a time from a channel or a (memory-mapped) buffer.
+ * <br>Only the game currently being read is held in memory so archives of any size can be streamed through.
+ * Comments, variations, NAGs and escaped lines are skipped.
+ * <br>PGN files are read as ISO-8859-1 which covers the 7-bit ASCII that the standard mandates.
+ */
+public class PgnReader implements Closeable
+{
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+	private static final int END_OF_INPUT = -1;
+
+	private final ReadableByteChannel myChannel;
+	private final ByteBuffer myBuffer;
+
+	/**
+	 * A character that has been read but not consumed, or {@link #NOTHING_PEEKED}
+	 */
+	private int myPeekedChar;
+	private static final int NOTHING_PEEKED = -2;
+
+	private int myLineNumber;
+	private int myGamesRead;
+	private final StringBuilder myToken;
+
+	/**
+	 * @param channel the channel to read PGN data from, for example a FileChannel, it must be in blocking mode
+	 * @throws IllegalArgumentException if the channel is a {@link SelectableChannel} in non-blocking mode,
+	 * waiting for its data would keep a thread busy
+	 */
+	public PgnReader(final ReadableByteChannel channel)
+	{
+		if(channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking())
+		{
+			throw new IllegalArgumentException("Only blocking channels can be read, " + channel + " is non-blocking");
+		}
+		myChannel = channel;
+		myBuffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+		myBuffer.flip();
+		myPeekedChar = NOTHING_PEEKED;
+		myLineNumber = 1;
+		myToken = new StringBuilder();
+	}
+
+	/**
+	 * @param buffer a buffer (for example a MappedByteBuffer) positioned at the beginning of the PGN data,
+	 * the data between the position and the limit is read
+	 */
+	public PgnReader(final ByteBuffer buffer)
+	{
+		myChannel = null;
+		myBuffer = buffer;
+		myPeekedChar = NOTHING_PEEKED;
+		myLineNumber = 1;
+		myToken = new StringBuilder();
+	}
+
+	/**
+	 * @return the next game or null if there are no more games
+	 * @throws IOException if the channel couldn't be read from
+	 * @throws InvalidPgnException if the PGN data is malformed, the reader is positioned after the malformed part so reading may continue
+	 */
+	public PgnGame nextGame() throws IOException, InvalidPgnException
+	{
+		PgnGame game = null;
+		while(true)
+		{
+			int c = skipWhitespace();
+			if(c == END_OF_INPUT)
+			{
+				return game;
+			}
+			switch(c)
+			{
+				case '[':
+					if(game != null && !game.getMoves().isEmpty())
+					{
+						//A new game starts without a termination marker for the previous one
+						return game;
+					}
+					game = startGame(game);
+					read();
+					readTag(game);
+					break;
+				case '{':
+					read();
+					skipComment();
+					break;
+				case ';':
+				case '%':
+					skipLine();
+					break;
+				case '(':
+					read();
+					skipVariation();
+					break;
+				case '$':
+					read();
+					readToken();
+					break;
+				case ')':
+				case ']':
+				case '}':
+				case '"':
+					//A stray delimiter
+					read();
+					break;
+				default:
+					game = startGame(game);
+					String token = readToken();
+					if(isTerminationMarker(token))
+					{
+						game.setResult(token);
+						return game;
+					}
+					String move = withoutMoveNumber(token);
+					if(move.length() > 0)
+					{
+						game.addMove(move);
+					}
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Games are started when their first tag or move is found so that comments between games doesn't create empty games
+	 */
+	private PgnGame startGame(final PgnGame currentGame)
+	{
+		if(currentGame != null)
+		{
+			return currentGame;
+		}
+		myGamesRead++;
+		return new PgnGame();
+	}
+
+	/**
+	 * @return the number of games that has been started to be read (including malformed ones)
+	 */
+	public int getGamesRead()
+	{
+		return myGamesRead;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if(myChannel != null)
+		{
+			myChannel.close();
+		}
+	}
+
+	private static boolean isTerminationMarker(final String token)
+	{
+		return token.equals(PgnGame.WHITE_WON) || token.equals(PgnGame.BLACK_WON) || token.equals(PgnGame.DRAW) || token.equals(PgnGame.UNKNOWN_RESULT);
+	}
+
+	/**
+	 * @return the given token without any leading move number indication (like "12." or "12..." in "12...Nf6")
+	 */
+	private static String withoutMoveNumber(final String token)
+	{
+		int start = 0;
+		while(start < token.length() && Character.isDigit(token.charAt(start)))
+		{
+			start++;
+		}
+		if(start == token.length() || token.charAt(start) != '.')
+		{
+			//Not a move number (e.g "0-0" castling)
+			start = 0;
+		}
+		while(start < token.length() && token.charAt(start) == '.')
+		{
+			start++;
+		}
+		return token.substring(start);
+	}
+
+	private void readTag(final PgnGame game) throws IOException, InvalidPgnException
+	{
+		skipWhitespace();
+		String name = readToken();
+		if(skipWhitespace() != '"')
+		{
+			skipPast(']');
+			throw new InvalidPgnException("Missing value for the tag " + name + " at line " + myLineNumber);
+		}
+		read();
+		StringBuilder value = new StringBuilder();
+		int c = read();
+		while(c != '"')
+		{
+			if(c == END_OF_INPUT || c == '\n')
+			{
+				throw new InvalidPgnException("Unterminated value for the tag " + name + " at line " + myLineNumber);
+			}
+			if(c == '\\')
+			{
+				c = read();
+				if(c == END_OF_INPUT)
+				{
+					throw new InvalidPgnException("Unterminated value for the tag " + name + " at line " + myLineNumber);
+				}
+			}
+			value.append((char) c);
+			c = read();
+		}
+		game.setTag(name, value.toString());
+		skipPast(']');
+	}
+
+	/**
+	 * @return the characters up to the next whitespace or delimiter
+	 */
+	private String readToken() throws IOException
+	{
+		myToken.setLength(0);
+		int c = peek();
+		while(c != END_OF_INPUT && !Character.isWhitespace(c) && "[]{}();\"".indexOf(c) == -1)
+		{
+			myToken.append((char) read());
+			c = peek();
+		}
+		return myToken.toString();
+	}
+
+	private void skipComment() throws IOException, InvalidPgnException
+	{
+		skipPast('}');
+	}
+
+	private void skipVariation() throws IOException, InvalidPgnException
+	{
+		int depth = 1;
+		while(depth > 0)
+		{
+			int c = read();
+			switch(c)
+			{
+				case END_OF_INPUT:
+					throw new InvalidPgnException("Unterminated variation at line " + myLineNumber);
+				case '(':
+					depth++;
+					break;
+				case ')':
+					depth--;
+					break;
+				case '{':
+					skipComment();
+					break;
+				case ';':
+					skipLine();
+					break;
+			}
+		}
+	}
+
+	private void skipPast(final char end) throws IOException, InvalidPgnException
+	{
+		int c = read();
+		while(c != end)
+		{
+			if(c == END_OF_INPUT)
+			{
+				throw new InvalidPgnException("Expected '" + end + "' before the end of the input");
+			}
+			c = read();
+		}
+	}
+
+	private void skipLine() throws IOException
+	{
+		int c = read();
+		while(c != '\n' && c != END_OF_INPUT)
+		{
+			c = read();
+		}
+	}
+
+	/**
+	 * @return the next non-whitespace character (without consuming it) or {@link #END_OF_INPUT}
+	 */
+	private int skipWhitespace() throws IOException
+	{
+		int c = peek();
+		while(c != END_OF_INPUT && Character.isWhitespace(c))
+		{
+			read();
+			c = peek();
+		}
+		return c;
+	}
+
+	private int peek() throws IOException
+	{
+		if(myPeekedChar == NOTHING_PEEKED)
+		{
+			myPeekedChar = readFromInput();
+		}
+		return myPeekedChar;
+	}
+
+	private int read() throws IOException
+	{
+		int c = peek();
+		myPeekedChar = NOTHING_PEEKED;
+		if(c == '\n')
+		{
+			myLineNumber++;
+		}
+		return c;
+	}
+
+	private int readFromInput() throws IOException
+	{
+		//Channels that aren't selectable (so their blocking mode is unknown) may still return an empty read now and then, those are retried
+		while(!myBuffer.hasRemaining())
+		{
+			if(myChannel == null)
+			{
+				return END_OF_INPUT;
+			}
+			myBuffer.clear();
+			int bytesRead = myChannel.read(myBuffer);
+			myBuffer.flip();
+			if(bytesRead == END_OF_INPUT)
+			{
+				return END_OF_INPUT;
+			}
+		}
+		return myBuffer.get() & 0xFF;
+	}
+}
@@ -0,0 +1,139 @@
+package com.jjonsson.chess.persistence;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.exceptions.UnavailableMoveItem;
+
+/**
+ * Writes games in the PGN export format, one game at a time
+ */
+public class PgnWriter implements Closeable, Flushable
+{
+	/**
+	 * The PGN standard recommends that lines doesn't exceed 80 characters
+	 */
+	private static final int MAX_LINE_LENGTH = 79;
+
+	private final Writer myWriter;
+	private int myLineLength;
+
+	public PgnWriter(final Writer writer)
+	{
+		myWriter = writer;
+	}
+
+	/**
+	 * Writes the moves that has been made on the given board, the board needs to log its moves for persistence
+	 * @param board the board to describe
+	 * @param tags the tags to describe the game with (Event, White, Black etc)
+	 * @throws UnavailableMoveItem if the logged moves couldn't be replayed
+	 * @throws IllegalStateException if the given board doesn't log its moves for persistence
+	 */
+	public void writeGame(final ChessBoard board, final Map<String, String> tags) throws IOException, UnavailableMoveItem
+	{
+		writeGame(PgnGame.from(board, tags));
+	}
+
+	/**
+	 * Writes the given game, the move numbers are taken from the FEN tag if the game doesn't start from the default starting position
+	 */
+	public void writeGame(final PgnGame game) throws IOException
+	{
+		for(Entry<String, String> tag : game.getTags().entrySet())
+		{
+			myWriter.write('[');
+			myWriter.write(tag.getKey());
+			myWriter.write(" \"");
+			myWriter.write(tag.getValue().replace("\\", "\\\\").replace("\"", "\\\""));
+			myWriter.write("\"]\n");
+		}
+		myWriter.write('\n');
+
+		int ply = getStartingPly(game);
+		myLineLength = 0;
+		boolean firstMove = true;
+		for(String move : game.getMoves())
+		{
+			if(ply % 2 == 0)
+			{
+				writeToken((ply / 2 + 1) + ".");
+			}
+			else if(firstMove)
+			{
+				writeToken((ply / 2 + 1) + "...");
+			}
+			writeToken(move);
+			firstMove = false;
+			ply++;
+		}
+		writeToken(game.getResult());
+		myWriter.write("\n\n");
+	}
+
+	/**
+	 * @return the number of half moves made before the first move of the given game
+	 */
+	private static int getStartingPly(final PgnGame game)
+	{
+		String fen = game.getTag(PgnGame.FEN_TAG);
+		if(fen == null)
+		{
+			return 0;
+		}
+		String[] fields = fen.trim().split("\\s+");
+		int ply = 0;
+		try
+		{
+			if(fields.length > 5)
+			{
+				ply = (Integer.parseInt(fields[5]) - 1) * 2;
+			}
+		}
+		catch(NumberFormatException e)
+		{
+			ply = 0;
+		}
+		if(fields.length > 1 && fields[1].equals("b"))
+		{
+			ply++;
+		}
+		return Math.max(ply, 0);
+	}
+
+	private void writeToken(final String token) throws IOException
+	{
+		if(myLineLength > 0)
+		{
+			if(myLineLength + 1 + token.length() > MAX_LINE_LENGTH)
+			{
+				myWriter.write('\n');
+				myLineLength = 0;
+			}
+			else
+			{
+				myWriter.write(' ');
+				myLineLength++;
+			}
+		}
+		myWriter.write(token);
+		myLineLength += token.length();
+	}
+
+	@Override
+	public void flush() throws IOException
+	{
+		myWriter.flush();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		myWriter.close();
+	}
+}
@@ -0,0 +1,355 @@
+package com.jjonsson.chess.persistence;
+
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.evaluators.ChessBoardEvaluator.ChessState;
+import com.jjonsson.chess.exceptions.InvalidPgnException;
+import com.jjonsson.chess.exceptions.UnavailableMoveItem;
+import com.jjonsson.chess.listeners.ChessBoardListener;
+import com.jjonsson.chess.moves.ImmutablePosition;
+import com.jjonsson.chess.moves.Move;
+import com.jjonsson.chess.moves.MutablePosition;
+import com.jjonsson.chess.pieces.King;
+import com.jjonsson.chess.pieces.Pawn;
+import com.jjonsson.chess.pieces.Piece;
+
+/**
+ * Resolves and describes moves in the Standard Algebraic Notation (SAN) used by PGN files, for example: e4, Nbd7, exd5, O-O-O, e8=Q+
+ */
+public final class SanNotation
+{
+	private SanNotation(){}
+
+	private static final String KING_SIDE_CASTLING = "O-O";
+	private static final String QUEEN_SIDE_CASTLING = "O-O-O";
+
+	private static final String PIECE_LETTERS = "KQRBN";
+	private static final String PROMOTION_LETTERS = "QRBN";
+	private static final char PAWN_LETTER = 'P';
+	private static final char DEFAULT_PROMOTION = 'Q';
+
+	private static final char TAKE_OVER = 'x';
+	private static final char PROMOTION = '=';
+	private static final char CHECK = '+';
+	private static final char CHECKMATE = '#';
+
+	private static final int KING_CASTLING_DISTANCE = 2;
+
+	/**
+	 * Performs the given move for the current player of the given board
+	 * @param board the board to perform the move on
+	 * @param san a move in SAN, long algebraic notation (e2e4) is also accepted
+	 * @return the move that was performed
+	 * @throws InvalidPgnException if the given move couldn't be understood or if it didn't match exactly one available move
+	 */
+	public static MoveItem perform(final ChessBoard board, final CharSequence san) throws InvalidPgnException
+	{
+		String move = withoutAnnotations(san);
+		if(move.equals(KING_SIDE_CASTLING) || move.equals("0-0"))
+		{
+			return castle(board, san, KING_CASTLING_DISTANCE);
+		}
+		else if(move.equals(QUEEN_SIDE_CASTLING) || move.equals("0-0-0"))
+		{
+			return castle(board, san, -KING_CASTLING_DISTANCE);
+		}
+
+		int end = move.length();
+		char promotion = 0;
+		int promotionIndex = move.indexOf(PROMOTION);
+		if(promotionIndex != -1 && promotionIndex == end - 2)
+		{
+			promotion = move.charAt(end - 1);
+			end = promotionIndex;
+		}
+		else if(end > 2 && PROMOTION_LETTERS.indexOf(move.charAt(end - 1)) != -1)
+		{
+			promotion = move.charAt(end - 1);
+			end--;
+		}
+		if(end < 2 || (promotion != 0 && PROMOTION_LETTERS.indexOf(promotion) == -1))
+		{
+			throw new InvalidPgnException("Invalid move: " + san);
+		}
+		ImmutablePosition destination = parseSquare(move.charAt(end - 2), move.charAt(end - 1), san);
+
+		int start = 0;
+		char pieceLetter = PAWN_LETTER;
+		if(PIECE_LETTERS.indexOf(move.charAt(0)) != -1)
+		{
+			pieceLetter = move.charAt(0);
+			start = 1;
+		}
+		int fromRow = -1;
+		int fromColumn = -1;
+		for(int i = start; i < end - 2; i++)
+		{
+			char c = move.charAt(i);
+			if(c >= 'a' && c <= 'h')
+			{
+				fromColumn = c - 'a';
+			}
+			else if(c >= '1' && c <= '8')
+			{
+				fromRow = c - '1';
+			}
+			else if(c != TAKE_OVER && c != '-' && c != ':')
+			{
+				throw new InvalidPgnException("Invalid move: " + san);
+			}
+		}
+
+		Piece pieceToMove = null;
+		for(Move candidate : board.getAvailableMoves(destination, board.getCurrentPlayer()))
+		{
+			Piece piece = candidate.getPiece();
+			ImmutablePosition position = piece.getCurrentPosition();
+			if(candidate.isPartOfAnotherMove() || Character.toUpperCase(piece.getNotationCharacter()) != pieceLetter
+					|| (fromRow != -1 && position.getRow() != fromRow) || (fromColumn != -1 && position.getColumn() != fromColumn)
+					|| board.getAvailableMove(piece, destination) == null)
+			{
+				continue;
+			}
+			if(pieceToMove != null && pieceToMove != piece)
+			{
+				throw new InvalidPgnException("Ambiguous move: " + san);
+			}
+			pieceToMove = piece;
+		}
+		if(pieceToMove == null)
+		{
+			throw new InvalidPgnException("No " + board.getCurrentPlayerString() + " piece can make the move: " + san);
+		}
+		MoveItem moveItem = MoveItem.from(pieceToMove.getCurrentPosition(), destination);
+		perform(board, moveItem, promotion, san);
+		return moveItem;
+	}
+
+	/**
+	 * Describes and performs the given move
+	 * @param board the board to perform the move on
+	 * @param moveItem the move to perform
+	 * @return the given move described in SAN
+	 * @throws UnavailableMoveItem if the move couldn't be made
+	 */
+	public static String describeAndPerform(final ChessBoard board, final MoveItem moveItem) throws UnavailableMoveItem
+	{
+		ImmutablePosition from = moveItem.getFromPosition();
+		ImmutablePosition to = moveItem.getToPosition();
+		Piece piece = board.getPiece(from);
+		if(piece == null)
+		{
+			throw new UnavailableMoveItem("Couldn't find a piece at " + from, from, to);
+		}
+		StringBuilder san = new StringBuilder();
+		int columnChange = to.getColumn() - from.getColumn();
+		boolean isPawn = piece instanceof Pawn;
+		if(piece instanceof King && Math.abs(columnChange) == KING_CASTLING_DISTANCE)
+		{
+			san.append(columnChange > 0 ? KING_SIDE_CASTLING : QUEEN_SIDE_CASTLING);
+		}
+		else
+		{
+			boolean isTakeOver = board.getPiece(to) != null || (isPawn && columnChange != 0);
+			if(isPawn)
+			{
+				if(isTakeOver)
+				{
+					san.append(file(from));
+				}
+			}
+			else
+			{
+				san.append(Character.toUpperCase(piece.getNotationCharacter()));
+				appendDisambiguation(san, board, piece, to);
+			}
+			if(isTakeOver)
+			{
+				san.append(TAKE_OVER);
+			}
+			san.append(file(to)).append(to.getRow() + 1);
+		}
+		moveItem.perform(board);
+
+		Piece pieceAtDestination = board.getPiece(to);
+		if(isPawn && pieceAtDestination != null && !(pieceAtDestination instanceof Pawn))
+		{
+			san.append(PROMOTION).append(Character.toUpperCase(pieceAtDestination.getNotationCharacter()));
+		}
+		if(board.getCurrentState() == ChessState.CHECKMATE)
+		{
+			san.append(CHECKMATE);
+		}
+		else if(board.getCurrentState() == ChessState.CHECK)
+		{
+			san.append(CHECK);
+		}
+		return san.toString();
+	}
+
+	/**
+	 * Adds the column and/or row of the moving piece if another piece of the same type could move to the same destination
+	 */
+	private static void appendDisambiguation(final StringBuilder san, final ChessBoard board, final Piece piece, final ImmutablePosition destination)
+	{
+		ImmutablePosition from = piece.getCurrentPosition();
+		boolean ambiguous = false;
+		boolean sameColumn = false;
+		boolean sameRow = false;
+		for(Move m : board.getAvailableMoves(destination, piece.getAffinity()))
+		{
+			Piece other = m.getPiece();
+			if(other == piece || m.isPartOfAnotherMove() || other.getNotationCharacter() != piece.getNotationCharacter()
+					|| board.getAvailableMove(other, destination) == null)
+			{
+				continue;
+			}
+			ambiguous = true;
+			sameColumn |= other.getCurrentPosition().getColumn() == from.getColumn();
+			sameRow |= other.getCurrentPosition().getRow() == from.getRow();
+		}
+		if(ambiguous)
+		{
+			if(!sameColumn)
+			{
+				san.append(file(from));
+			}
+			else if(!sameRow)
+			{
+				san.append(from.getRow() + 1);
+			}
+			else
+			{
+				san.append(file(from)).append(from.getRow() + 1);
+			}
+		}
+	}
+
+	private static char file(final ImmutablePosition position)
+	{
+		return (char) ('a' + position.getColumn());
+	}
+
+	private static MoveItem castle(final ChessBoard board, final CharSequence san, final int columnChange) throws InvalidPgnException
+	{
+		ImmutablePosition kingPosition = board.getCurrentKing().getCurrentPosition();
+		int destinationColumn = kingPosition.getColumn() + columnChange;
+		if(destinationColumn < 0 || destinationColumn >= ChessBoard.BOARD_SIZE)
+		{
+			throw new InvalidPgnException("Castling isn't possible: " + san);
+		}
+		MoveItem moveItem = MoveItem.from(kingPosition, ImmutablePosition.from(kingPosition.getRow(), destinationColumn));
+		perform(board, moveItem, (char) 0, san);
+		return moveItem;
+	}
+
+	private static ImmutablePosition parseSquare(final char file, final char rank, final CharSequence san) throws InvalidPgnException
+	{
+		if(file < 'a' || file > 'h' || rank < '1' || rank > '8')
+		{
+			throw new InvalidPgnException("Invalid destination in move: " + san);
+		}
+		return ImmutablePosition.from(rank - '1', file - 'a');
+	}
+
+	/**
+	 * @return the given move without check, checkmate and move quality annotations (+, #, !, ?)
+	 */
+	private static String withoutAnnotations(final CharSequence san)
+	{
+		int end = san.length();
+		while(end > 0 && "+#!?".indexOf(san.charAt(end - 1)) != -1)
+		{
+			end--;
+		}
+		return san.subSequence(0, end).toString();
+	}
+
+	private static void perform(final ChessBoard board, final MoveItem moveItem, final char promotion, final CharSequence san) throws InvalidPgnException
+	{
+		ChessBoardListener promotionListener = null;
+		if(promotion != 0 && promotion != DEFAULT_PROMOTION)
+		{
+			char notation = board.getCurrentPlayer() == Piece.BLACK ? Character.toLowerCase(promotion) : promotion;
+			promotionListener = new PawnPromotion(notation, moveItem.getToPosition(), board);
+			board.addChessBoardListener(promotionListener);
+		}
+		try
+		{
+			moveItem.perform(board);
+		}
+		catch(UnavailableMoveItem e)
+		{
+			throw new InvalidPgnException("Couldn't perform " + san + ": " + e);
+		}
+		finally
+		{
+			if(promotionListener != null)
+			{
+				board.removeChessBoardListener(promotionListener);
+			}
+		}
+	}
+
+	/**
+	 * Answers the board's question about which piece a pawn should be promoted to (when it isn't a queen)
+	 */
+	private static final class PawnPromotion implements ChessBoardListener
+	{
+		private final char myPromotion;
+		private final ImmutablePosition myDestination;
+		private final ChessBoard myBoard;
+
+		/**
+		 * @param promotion the notation of the piece to promote to, in the case matching the affinity of the pawn
+		 * @param destination where the promoted pawn ends up
+		 */
+		private PawnPromotion(final char promotion, final ImmutablePosition destination, final ChessBoard board)
+		{
+			myPromotion = promotion;
+			myDestination = destination;
+			myBoard = board;
+		}
+
+		@Override
+		public boolean supportsPawnPromotionDialog()
+		{
+			return true;
+		}
+
+		@Override
+		public Piece getPawnPromotionFromDialog()
+		{
+			return Piece.getPieceFromNotation(myPromotion, MutablePosition.from(myDestination.getRow(), myDestination.getColumn()), myBoard);
+		}
+
+		@Override
+		public void piecePlaced(final Piece p)
+		{
+		}
+
+		@Override
+		public void gameStateChanged(final ChessState newState)
+		{
+		}
+
+		@Override
+		public void piecePlacedLoadingInProgress(final Piece p)
+		{
+		}
+
+		@Override
+		public void loadingOfBoardDone()
+		{
+		}
+
+		@Override
+		public void nextPlayer()
+		{
+		}
+
+		@Override
+		public void undoDone()
+		{
+		}
+	}
+}
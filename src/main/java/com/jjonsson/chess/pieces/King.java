@@ -15,8 +15,7 @@ import com.jjonsson.chess.moves.KingMove;
 import com.jjonsson.chess.moves.Move;
 import com.jjonsson.chess.moves.MutablePosition;
 import com.jjonsson.chess.moves.Position;
-import com.jjonsson.chess.persistence.BoardLoader;
-import com.jjonsson.chess.persistence.ChessFileFilter;
+import com.jjonsson.chess.persistence.BoardDumps;
 
 public class King extends Piece
 {
@@ -140,7 +139,7 @@ public class King extends Piece
 	@Override
 	public Piece removeFromBoard(final ChessBoard board)
 	{
-		BoardLoader.saveBoard(board, "faulty_boards/board_with_move_that_takes_king_over_" + System.currentTimeMillis() + ChessFileFilter.FILE_ENDING);
+		BoardDumps.dumpFaultyBoard(board, "board_with_move_that_takes_king_over");
 		Error error = new UnremovablePieceError("Kings may not be removed from the board");
 		STDERR.fatal("", error);
 		throw error;
@@ -302,6 +302,83 @@ public abstract class Piece
 		return piece;
 	}
 
+	/**
+	 * @return the letter used for this type of piece in algebraic notation (and FEN), upper case for white pieces and lower case for black pieces
+	 */
+	public char getNotationCharacter()
+	{
+		char notation = ' ';
+		switch(getPersistenceIdentifierType())
+		{
+			case BISHOP:
+				notation = 'B';
+				break;
+			case QUEEN:
+				notation = 'Q';
+				break;
+			case ROCK:
+			case MOVED_ROCK:
+				notation = 'R';
+				break;
+			case KING:
+			case MOVED_KING:
+				notation = 'K';
+				break;
+			case KNIGHT:
+				notation = 'N';
+				break;
+			case PAWN:
+				notation = 'P';
+				break;
+		}
+		if(isBlack())
+		{
+			return Character.toLowerCase(notation);
+		}
+		return notation;
+	}
+
+	/**
+	 * @param notation the letter used for a piece in algebraic notation (and FEN), upper case for white pieces and lower case for black pieces
+	 * @param position where the piece should be placed
+	 * @param board the board the piece is going to be placed on
+	 * @return a newly constructed piece or null if the given notation doesn't represent a piece
+	 */
+	public static Piece getPieceFromNotation(final char notation, final MutablePosition position, final ChessBoard board)
+	{
+		Piece piece = null;
+		boolean affinity = Character.isLowerCase(notation);
+		switch(Character.toUpperCase(notation))
+		{
+			case 'B':
+				piece = new Bishop(position, affinity, board);
+				break;
+			case 'Q':
+				piece = new Queen(position, affinity, board);
+				break;
+			case 'R':
+				piece = new Rock(position, affinity, board);
+				break;
+			case 'K':
+				piece = new King(position, affinity, board);
+				break;
+			case 'N':
+				piece = new Knight(position, affinity, board);
+				break;
+			case 'P':
+				if(affinity == BLACK)
+				{
+					piece = new BlackPawn(position, board);
+				}
+				else
+				{
+					piece = new WhitePawn(position, board);
+				}
+				break;
+		}
+		return piece;
+	}
+
 	/**
 	 * Adds a possible move to this piece
 	 * @param moveToAdd the move to add to
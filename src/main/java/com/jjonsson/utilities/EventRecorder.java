@@ -0,0 +1,211 @@
+package com.jjonsson.utilities;
+
+import static com.jjonsson.utilities.Loggers.STDERR;
+import static com.jjonsson.utilities.Loggers.STDOUT;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Records timed events (searches, board copies, loads, saves and repaints) as JSON lines so that latency spikes
+ * can be tied to specific positions and code paths.
+ * <br>Recording is started with -D{@value #RECORDING_PROPERTY}=file (see {@link #startRecordingFromProperty()}).
+ * When it's not started the cost of an event is a check of {@link #isRecording()}:
+ * <pre>
+ * boolean recording = EventRecorder.isRecording();
+ * long startTime = recording ? System.nanoTime() : 0;
+ * ...
+ * if(recording)
+ * {
+ * 	EventRecorder.record(EventRecorder.event("name", startTime).add("field", value));
+ * }
+ * </pre>
+ * Events are written by a background thread, if it can't keep up events are dropped rather than slowing down the recording threads.
+ */
+public final class EventRecorder
+{
+	private EventRecorder(){}
+
+	public static final String RECORDING_PROPERTY = "recording";
+
+	private static final int QUEUE_SIZE = 1 << 14;
+
+	/**
+	 * Makes the writer thread stop
+	 */
+	private static final JsonLine END_OF_RECORDING = new JsonLine();
+
+	private static volatile boolean recording;
+	private static volatile BlockingQueue<JsonLine> events;
+	private static Thread writerThread;
+	private static final AtomicLong DROPPED_EVENTS = new AtomicLong();
+
+	public static boolean isRecording()
+	{
+		return recording;
+	}
+
+	/**
+	 * Starts recording to the file given by the {@value #RECORDING_PROPERTY} system property (if it's set),
+	 * the recording is stopped when the JVM shuts down
+	 */
+	public static void startRecordingFromProperty()
+	{
+		String fileName = System.getProperty(RECORDING_PROPERTY);
+		if(fileName == null)
+		{
+			return;
+		}
+		try
+		{
+			startRecording(Files.newWriter(new File(fileName), Charsets.UTF_8));
+			STDOUT.info("Recording events to " + fileName);
+		}
+		catch(IOException e)
+		{
+			STDERR.warn("Failed to start recording events to " + fileName, e);
+			return;
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(EventRecorder.class.getSimpleName() + "-shutdown"){
+			@Override
+			public void run()
+			{
+				stopRecording();
+			}
+		});
+	}
+
+	/**
+	 * Starts recording, a recording that is already running is stopped first
+	 * @param output where to write the events, it's closed when the recording is stopped
+	 */
+	public static synchronized void startRecording(final Writer output)
+	{
+		stopRecording();
+		final BlockingQueue<JsonLine> queue = new ArrayBlockingQueue<JsonLine>(QUEUE_SIZE);
+		events = queue;
+		writerThread = new Thread(EventRecorder.class.getSimpleName()){
+			@Override
+			public void run()
+			{
+				writeEvents(queue, output);
+			}
+		};
+		writerThread.setDaemon(true);
+		writerThread.start();
+		recording = true;
+	}
+
+	/**
+	 * Stops the recording and waits for the recorded events to be written
+	 */
+	public static synchronized void stopRecording()
+	{
+		if(!recording)
+		{
+			return;
+		}
+		recording = false;
+		boolean interrupted = false;
+		while(true)
+		{
+			try
+			{
+				events.put(END_OF_RECORDING);
+				writerThread.join();
+				break;
+			}
+			catch(InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+		events = null;
+		writerThread = null;
+		if(interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @param name what kind of event it is
+	 * @param startTime the {@link System#nanoTime()} when the event started
+	 * @return an event that ended now, add the fields that describes it and pass it to {@link #record(JsonLine)}
+	 */
+	public static JsonLine event(final String name, final long startTime)
+	{
+		long duration = System.nanoTime() - startTime;
+		return new JsonLine().add("event", name).add("time", System.currentTimeMillis())
+				.add("thread", Thread.currentThread().getName()).add("durationNanos", duration);
+	}
+
+	/**
+	 * Queues the given event for writing, nothing is done if recording isn't running
+	 */
+	public static void record(final JsonLine event)
+	{
+		BlockingQueue<JsonLine> queue = events;
+		if(queue != null && !queue.offer(event))
+		{
+			DROPPED_EVENTS.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @return the number of events that were dropped because they were recorded faster than they could be written
+	 */
+	public static long getDroppedEvents()
+	{
+		return DROPPED_EVENTS.get();
+	}
+
+	private static void writeEvents(final BlockingQueue<JsonLine> queue, final Writer output)
+	{
+		try
+		{
+			while(true)
+			{
+				JsonLine event = queue.take();
+				if(event == END_OF_RECORDING)
+				{
+					break;
+				}
+				output.write(event.toString());
+				output.write('\n');
+				if(queue.isEmpty())
+				{
+					output.flush();
+				}
+			}
+		}
+		catch(InterruptedException e)
+		{
+			STDERR.warn("The event recording was interrupted");
+		}
+		catch(IOException e)
+		{
+			STDERR.error("Failed to write recorded events", e);
+			//Keeps the recording threads from blocking
+			recording = false;
+		}
+		finally
+		{
+			try
+			{
+				output.close();
+			}
+			catch(IOException e)
+			{
+				STDERR.warn("Failed to close the event recording", e);
+			}
+		}
+	}
+}
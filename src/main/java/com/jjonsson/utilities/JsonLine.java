@@ -0,0 +1,118 @@
+package com.jjonsson.utilities;
+
+/**
+ * Builds a flat JSON object on a single line, suitable for JSON lines output (one object per line)
+ */
+public class JsonLine
+{
+	private final StringBuilder myJson;
+
+	public JsonLine()
+	{
+		myJson = new StringBuilder("{");
+	}
+
+	/**
+	 * @param value the value to add, null is written as null
+	 */
+	public JsonLine add(final String name, final String value)
+	{
+		appendName(name);
+		if(value == null)
+		{
+			myJson.append("null");
+		}
+		else
+		{
+			appendString(value);
+		}
+		return this;
+	}
+
+	public JsonLine add(final String name, final long value)
+	{
+		appendName(name);
+		myJson.append(value);
+		return this;
+	}
+
+	/**
+	 * NaN and infinite values are written as null as JSON doesn't support them
+	 */
+	public JsonLine add(final String name, final double value)
+	{
+		appendName(name);
+		if(Double.isNaN(value) || Double.isInfinite(value))
+		{
+			myJson.append("null");
+		}
+		else
+		{
+			myJson.append(value);
+		}
+		return this;
+	}
+
+	public JsonLine add(final String name, final boolean value)
+	{
+		appendName(name);
+		myJson.append(value);
+		return this;
+	}
+
+	private void appendName(final String name)
+	{
+		if(myJson.length() > 1)
+		{
+			myJson.append(',');
+		}
+		appendString(name);
+		myJson.append(':');
+	}
+
+	private void appendString(final String value)
+	{
+		myJson.append('"');
+		for(int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			switch(c)
+			{
+				case '"':
+					myJson.append("\\\"");
+					break;
+				case '\\':
+					myJson.append("\\\\");
+					break;
+				case '\n':
+					myJson.append("\\n");
+					break;
+				case '\r':
+					myJson.append("\\r");
+					break;
+				case '\t':
+					myJson.append("\\t");
+					break;
+				default:
+					if(c < ' ')
+					{
+						myJson.append(String.format("\\u%04x", (int) c));
+					}
+					else
+					{
+						myJson.append(c);
+					}
+			}
+		}
+		myJson.append('"');
+	}
+
+	/**
+	 * @return the JSON object (without a line break)
+	 */
+	@Override
+	public String toString()
+	{
+		return myJson.toString() + "}";
+	}
+}
@@ -0,0 +1,65 @@
+package com.jjonsson.utilities;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that many threads can increment without contending for the same memory.
+ * <br>Each thread increments one of several stripes (chosen by its thread id) and the stripes are
+ * summed when the value is read, so reads are slower than increments.
+ * The stripes are spread out so that they don't share cache lines.
+ */
+public final class StripedCounter
+{
+	/**
+	 * The number of longs between two stripes (a 64 byte cache line)
+	 */
+	private static final int PADDING = 8;
+
+	private final AtomicLongArray myStripes;
+	private final int myStripeMask;
+
+	/**
+	 * Creates a counter with two stripes per available processor
+	 */
+	public StripedCounter()
+	{
+		int stripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+		myStripes = new AtomicLongArray(stripes * PADDING);
+		myStripeMask = stripes - 1;
+	}
+
+	public void increment()
+	{
+		add(1);
+	}
+
+	public void add(final long value)
+	{
+		int stripe = (int) Thread.currentThread().getId() & myStripeMask;
+		myStripes.addAndGet(stripe * PADDING, value);
+	}
+
+	/**
+	 * @return the current value, increments made concurrently with this call may or may not be included
+	 */
+	public long sum()
+	{
+		long sum = 0;
+		for(int i = 0; i < myStripes.length(); i += PADDING)
+		{
+			sum += myStripes.get(i);
+		}
+		return sum;
+	}
+
+	/**
+	 * Sets the counter to zero, increments made concurrently with this call may or may not be kept
+	 */
+	public void reset()
+	{
+		for(int i = 0; i < myStripes.length(); i += PADDING)
+		{
+			myStripes.set(i, 0);
+		}
+	}
+}
@@ -9,9 +9,16 @@ import static junit.framework.Assert.assertTrue;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import java.util.List;
+
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
 import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.board.PiecePlacement;
+import com.jjonsson.chess.board.ZobristKeys;
+import com.jjonsson.chess.persistence.BoardLoader;
+import com.jjonsson.chess.persistence.PersistanceLogging;
 import com.jjonsson.chess.exceptions.UnavailableMoveItem;
 import com.jjonsson.chess.moves.ImmutablePosition;
 import com.jjonsson.chess.moves.Move;
@@ -134,4 +141,32 @@ public class TestUndoMoves
 		Piece queen = board.getPiece(position("2D"));
 		assertNull(board.getAvailableMove(queen, position("3E")));
 	}
+
+	@Test
+	public void testPositionKeyIsKeptInSyncWhenMovesAreMadeAndUndone() throws UnavailableMoveItem
+	{
+		//En passant, castling on both sides, promotions with captures and a quiet pawn move, in that order
+		String[][] moves = {{"5E", "6D"}, {"8E", "8G"}, {"1E", "1G"}, {"2B", "1A"}, {"7B", "8A"}, {"7G", "5G"}};
+		ChessBoard board = new ChessBoard(PiecePlacement.DONT_PLACE_PIECES, PersistanceLogging.SKIP_PERSISTANCE_LOGGING);
+		assertTrue(BoardLoader.loadFenIntoBoard("r3k2r/1P4p1/8/3pP3/8/8/1p4P1/R3K2R w KQkq d6 0 1", board));
+		List<Long> keys = Lists.newArrayList(board.getPositionKey());
+		assertEquals(ZobristKeys.getKey(board), board.getPositionKey());
+		for(String[] move : moves)
+		{
+			board.move(move[0], move[1]);
+			assertEquals(move[0] + "-" + move[1], ZobristKeys.getKey(board), board.getPositionKey());
+			keys.add(board.getPositionKey());
+		}
+		assertNull("The pawn should have been taken en passant", board.getPiece(position("5D")));
+		assertTrue(board.getPiece(position("8F")) instanceof Rock);
+		assertTrue(board.getPiece(position("1F")) instanceof Rock);
+		assertTrue(board.getPiece(position("1A")) instanceof Queen);
+		assertTrue(board.getPiece(position("8A")) instanceof Queen);
+		for(int i = keys.size() - 2; i >= 0; i--)
+		{
+			assertEquals(1, board.undoMoves(1, false));
+			assertEquals(ZobristKeys.getKey(board), board.getPositionKey());
+			assertEquals(keys.get(i).longValue(), board.getPositionKey());
+		}
+	}
 }
@@ -12,6 +12,9 @@ import static junit.framework.Assert.assertNotSame;
 import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertTrue;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Test;
 
 import com.jjonsson.chess.board.ChessBoard;
@@ -26,6 +29,12 @@ import com.jjonsson.chess.pieces.Piece;
 
 public class TestChessMoveEvaluator
 {
+	/**
+	 * The cancellation is checked in every node and the first level stops as soon as it has a move, so the search should stop
+	 * within a few ms, the bound leaves room for the thread to be scheduled
+	 */
+	private static final long MAX_CANCEL_LATENCY_MILLIS = 10;
+
 	/**
 	 * Test if the AI is to aggressive and doesn't recognize that the best move may be to move to cover
 	 * instead of taking a less valuable piece as a trade for a more valuable one
@@ -180,7 +189,50 @@ public class TestChessMoveEvaluator
 		assertNotNull(ChessMoveEvaluator.getBestMove(board));
 	}
 
-
+	@Test
+	public void testThatCancelledSearchReturnsBestMoveSoFar() throws InterruptedException
+	{
+		final ChessBoard board = new ChessBoard();
+		board.setDifficulty(5);
+		final CountDownLatch searching = new CountDownLatch(1);
+		final SearchBudget budget = new SearchBudget(){
+			@Override
+			void nodesSearched(final long nodes)
+			{
+				searching.countDown();
+				super.nodesSearched(nodes);
+			}
+		};
+		final Move[] bestMove = new Move[1];
+		final long[] returnTime = new long[1];
+		Thread search = new Thread(){
+			@Override
+			public void run()
+			{
+				try
+				{
+					bestMove[0] = ChessMoveEvaluator.getBestMove(board, budget);
+				}
+				catch(NoMovesAvailableException e)
+				{
+					bestMove[0] = null;
+				}
+				returnTime[0] = System.nanoTime();
+			}
+		};
+		search.start();
+		assertTrue(searching.await(1, TimeUnit.MINUTES));
+		long cancelTime = System.nanoTime();
+		budget.cancel();
+		search.join(5000);
+		assertFalse("The search should stop shortly after being cancelled", search.isAlive());
+		assertTrue("The search should still have been running when it was cancelled", returnTime[0] > cancelTime);
+		long latency = TimeUnit.NANOSECONDS.toMillis(returnTime[0] - cancelTime);
+		assertTrue("The search took " + latency + " ms to stop after being cancelled", latency < MAX_CANCEL_LATENCY_MILLIS);
+		assertTrue(budget.isCancelled());
+		assertNotNull(bestMove[0]);
+		assertTrue(bestMove[0].canBeMade(board));
+	}
 
 	private void makeSureMoveWasNotMade(final ChessBoard board, final Position badPosition) throws NoMovesAvailableException
 	{
@@ -0,0 +1,121 @@
+package com.jjonsson.chess.evaluators;
+
+import static com.jjonsson.chess.board.PiecePlacement.DONT_PLACE_PIECES;
+import static com.jjonsson.chess.moves.ImmutablePosition.position;
+import static com.jjonsson.chess.persistence.PersistanceLogging.SKIP_PERSISTANCE_LOGGING;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.board.PiecePlacement;
+import com.jjonsson.chess.exceptions.NoMovesAvailableException;
+import com.jjonsson.chess.moves.Move;
+import com.jjonsson.chess.persistence.BoardLoader;
+import com.jjonsson.chess.persistence.FenNotation;
+
+public class TestMateSearch
+{
+	private static final String BACK_RANK_MATE = "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1";
+
+	/**
+	 * 1. Qg8+ Rxg8 2. Nf7#
+	 */
+	private static final String SMOTHERED_MATE = "r6k/6pp/7N/8/2Q5/8/8/1K6 w - - 0 1";
+
+	private static ChessBoard loadFen(final String fen)
+	{
+		ChessBoard board = new ChessBoard(DONT_PLACE_PIECES, SKIP_PERSISTANCE_LOGGING);
+		assertTrue(BoardLoader.loadFenIntoBoard(fen, board));
+		return board;
+	}
+
+	private static void assertMove(final Move move, final String from, final String to)
+	{
+		assertEquals(position(from), move.getCurrentPosition());
+		assertEquals(position(to), move.getDestination());
+	}
+
+	@Test
+	public void testMateScores()
+	{
+		assertTrue(MateScore.isMate(MateScore.mateAt(1)));
+		assertTrue(MateScore.isMate(-MateScore.mateAt(1)));
+		assertFalse(MateScore.isMate(Long.MIN_VALUE));
+		assertFalse(MateScore.isMate(ChessBoardEvaluator.ChessState.STALEMATE.getValue()));
+		assertTrue(MateScore.mateAt(1) > MateScore.mateAt(3));
+		assertTrue(-MateScore.mateAt(2) < -MateScore.mateAt(4));
+		assertEquals(3, MateScore.getPliesToMate(MateScore.mateAt(3)));
+		assertEquals(-2, MateScore.getPliesToMate(-MateScore.mateAt(2)));
+		assertEquals(1, MateScore.getMovesToMate(MateScore.mateAt(1)));
+		assertEquals(2, MateScore.getMovesToMate(MateScore.mateAt(3)));
+		assertEquals(-1, MateScore.getMovesToMate(-MateScore.mateAt(2)));
+	}
+
+	@Test
+	public void testMateInOne()
+	{
+		ChessBoard board = loadFen(BACK_RANK_MATE);
+		SearchBudget budget = new SearchBudget();
+		SearchResult mate = MateSearch.findMate(board, 1, budget);
+		assertMove(mate.getBestMove(), "1D", "8D");
+		assertTrue(mate.isMate());
+		assertEquals(1, mate.getMovesToMate());
+		assertEquals("The board should not be modified", BACK_RANK_MATE, FenNotation.toFen(board));
+	}
+
+	@Test
+	public void testMateInTwo()
+	{
+		ChessBoard board = loadFen(SMOTHERED_MATE);
+		assertNull(MateSearch.findMate(board, 1, new SearchBudget()).getBestMove());
+
+		SearchBudget budget = new SearchBudget();
+		SearchResult mate = MateSearch.findMate(board, 3, budget);
+		assertMove(mate.getBestMove(), "4C", "8G");
+		assertEquals(2, mate.getMovesToMate());
+		assertEquals("The board should not be modified", SMOTHERED_MATE, FenNotation.toFen(board));
+
+		//The full search needs to search the replies of the defender full width to see the mate
+		board.setDifficulty(2);
+		SearchBudget fullSearchBudget = new SearchBudget();
+		try
+		{
+			ChessMoveEvaluator.search(board, fullSearchBudget);
+		}
+		catch(NoMovesAvailableException e)
+		{
+			throw new AssertionError(e);
+		}
+		assertTrue("The mate search should need fewer nodes (" + budget.getNodesSearched() + ") than a full search ("
+				+ fullSearchBudget.getNodesSearched() + ")", budget.getNodesSearched() < fullSearchBudget.getNodesSearched());
+	}
+
+	@Test
+	public void testNoMateInTheStartingPosition()
+	{
+		ChessBoard board = new ChessBoard(PiecePlacement.PLACE_PIECES, SKIP_PERSISTANCE_LOGGING);
+		SearchResult mate = MateSearch.findMate(board, 3, new SearchBudget());
+		assertNull(mate.getBestMove());
+		assertFalse(mate.isMate());
+	}
+
+	@Test
+	public void testSearchPrefersTheShortestMate() throws NoMovesAvailableException
+	{
+		ChessBoard board = loadFen(SMOTHERED_MATE);
+		board.setDifficulty(2);
+		SearchResult result = ChessMoveEvaluator.search(board, new SearchBudget());
+		assertTrue("Value: " + result.getBestMoveValue(), result.isMate());
+		assertEquals(2, result.getMovesToMate());
+		assertMove(result.getBestMove(), "4C", "8G");
+
+		board = loadFen(BACK_RANK_MATE);
+		result = ChessMoveEvaluator.search(board, new SearchBudget());
+		assertEquals(1, result.getMovesToMate());
+		assertMove(result.getBestMove(), "1D", "8D");
+	}
+}
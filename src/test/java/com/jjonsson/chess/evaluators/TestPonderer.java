@@ -0,0 +1,114 @@
+package com.jjonsson.chess.evaluators;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.evaluators.statistics.StatisticsSnapshot;
+import com.jjonsson.chess.exceptions.NoMovesAvailableException;
+import com.jjonsson.chess.exceptions.UnavailableMoveItem;
+import com.jjonsson.chess.listeners.StatisticsListener;
+import com.jjonsson.chess.moves.Move;
+import com.jjonsson.chess.persistence.MoveItem;
+
+public class TestPonderer
+{
+	private static MoveItem performBestMove(final Ponderer ponderer, final ChessBoard board) throws NoMovesAvailableException
+	{
+		Move move = ponderer.getBestMove(new SearchBudget());
+		assertNotNull(move);
+		assertTrue(move.getPiece().performMove(move, board));
+		ponderer.startPondering();
+		return ponderer.getExpectedReply();
+	}
+
+	@Test
+	public void testExpectedReplyIsPondered() throws NoMovesAvailableException, UnavailableMoveItem
+	{
+		ChessBoard board = new ChessBoard();
+		Ponderer ponderer = new Ponderer(board);
+		MoveItem expectedReply = performBestMove(ponderer, board);
+		assertNotNull(expectedReply);
+		assertTrue(ponderer.isPondering());
+
+		expectedReply.perform(board);
+		performBestMove(ponderer, board);
+		assertEquals(1, ponderer.getPonderHits());
+		assertEquals(0, ponderer.getPonderMisses());
+	}
+
+	@Test
+	public void testUnexpectedReplyCancelsPondering() throws NoMovesAvailableException, UnavailableMoveItem
+	{
+		ChessBoard board = new ChessBoard();
+		Ponderer ponderer = new Ponderer(board);
+		MoveItem expectedReply = performBestMove(ponderer, board);
+		assertTrue(ponderer.isPondering());
+
+		//Any other move than the expected one
+		for(Move move : board.getAvailableMoves(board.getCurrentPlayer()))
+		{
+			if(move.shouldBeIncludedInMoveTable() && !MoveItem.from(move).toString().equals(expectedReply.toString()))
+			{
+				assertTrue(move.getPiece().performMove(move, board));
+				break;
+			}
+		}
+		performBestMove(ponderer, board);
+		assertEquals(0, ponderer.getPonderHits());
+		assertEquals(1, ponderer.getPonderMisses());
+
+		ponderer.cancel();
+		assertFalse(ponderer.isPondering());
+	}
+
+	@Test
+	public void testPonderingIsNotPartOfTheStatistics() throws NoMovesAvailableException, UnavailableMoveItem
+	{
+		ChessBoard board = new ChessBoard();
+		final List<String> searchThreads = Collections.synchronizedList(Lists.<String>newArrayList());
+		board.setStatisticsListener(new StatisticsListener(){
+			@Override
+			public void newStatistics(final StatisticsSnapshot snapshot)
+			{
+			}
+
+			@Override
+			public void searchFinished(final SearchTelemetry telemetry)
+			{
+				searchThreads.add(Thread.currentThread().getName());
+			}
+
+			@Override
+			public void wasInterrupted(final InterruptedException ie)
+			{
+			}
+
+			@Override
+			public long notificationIntervalInNanos()
+			{
+				return TimeUnit.SECONDS.toNanos(1);
+			}
+		});
+		Ponderer ponderer = new Ponderer(board);
+		MoveItem expectedReply = performBestMove(ponderer, board);
+		assertTrue(ponderer.isPondering());
+		expectedReply.perform(board);
+		//Waits for the pondering to finish
+		performBestMove(ponderer, board);
+		assertEquals(1, ponderer.getPonderHits());
+		ponderer.cancel();
+
+		assertFalse(searchThreads.isEmpty());
+		assertFalse(searchThreads.toString(), searchThreads.contains(Ponderer.class.getName()));
+	}
+}
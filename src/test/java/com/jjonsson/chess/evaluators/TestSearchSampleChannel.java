@@ -0,0 +1,116 @@
+package com.jjonsson.chess.evaluators;
+
+import static com.jjonsson.chess.persistence.PersistanceLogging.SKIP_PERSISTANCE_LOGGING;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.board.PiecePlacement;
+import com.jjonsson.chess.exceptions.NoMovesAvailableException;
+import com.jjonsson.chess.pieces.Piece;
+
+public class TestSearchSampleChannel
+{
+	private static final int CAPACITY = 4;
+
+	@Test
+	public void testSamplesAreReadInOrder()
+	{
+		SearchSampleChannel channel = new SearchSampleChannel(CAPACITY);
+		List<SearchSample> samples = Lists.newArrayList();
+		assertEquals(0, channel.drainTo(samples));
+
+		channel.offer(SearchSample.progress(1, 10));
+		channel.offer(SearchSample.progress(2, 20));
+		assertEquals(2, channel.drainTo(samples));
+		assertEquals(10, samples.get(0).getNodes());
+		assertEquals(20, samples.get(1).getNodes());
+		assertNull(samples.get(0).getRootMove());
+
+		//Already read samples aren't read again
+		assertEquals(0, channel.drainTo(samples));
+		assertEquals(0, channel.getDroppedSamples());
+	}
+
+	@Test
+	public void testTheOldestSamplesAreDroppedWhenTheReaderFallsBehind()
+	{
+		SearchSampleChannel channel = new SearchSampleChannel(CAPACITY);
+		for(int i = 0; i < CAPACITY + 3; i++)
+		{
+			channel.offer(SearchSample.progress(1, i));
+		}
+		List<SearchSample> samples = Lists.newArrayList();
+		assertEquals(CAPACITY, channel.drainTo(samples));
+		assertEquals(3, channel.getDroppedSamples());
+		assertEquals(3, samples.get(0).getNodes());
+		assertEquals(CAPACITY + 2, samples.get(CAPACITY - 1).getNodes());
+	}
+
+	@Test
+	public void testAWriterThatIsOvertakenByTheNextLapDropsItsSample()
+	{
+		SearchSampleChannel channel = new SearchSampleChannel(CAPACITY);
+		long[] sequences = new long[CAPACITY + 1];
+		for(int i = 0; i < sequences.length; i++)
+		{
+			sequences[i] = channel.claim();
+		}
+		for(int i = 1; i < sequences.length; i++)
+		{
+			channel.write(sequences[i], SearchSample.progress(1, i));
+		}
+		//The first writer finishes last, its slot already has the sample of the last writer
+		channel.write(sequences[0], SearchSample.progress(1, 0));
+
+		List<SearchSample> samples = Lists.newArrayList();
+		assertEquals(CAPACITY, channel.drainTo(samples));
+		assertEquals(1, channel.getDroppedSamples());
+		assertEquals(1, samples.get(0).getNodes());
+		assertEquals(CAPACITY, samples.get(CAPACITY - 1).getNodes());
+
+		//The reader isn't stuck
+		channel.offer(SearchSample.progress(1, CAPACITY + 1));
+		assertEquals(1, channel.drainTo(samples));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCapacityMustBeAPowerOfTwo()
+	{
+		new SearchSampleChannel(CAPACITY + 1);
+	}
+
+	@Test
+	public void testASearchOffersItsRootMoves() throws NoMovesAvailableException
+	{
+		ChessBoard board = new ChessBoard(PiecePlacement.PLACE_PIECES, SKIP_PERSISTANCE_LOGGING);
+		SearchBudget budget = new SearchBudget();
+		SearchSampleChannel channel = new SearchSampleChannel(1024);
+		budget.setSampleChannel(channel);
+		ChessMoveEvaluator.search(board, budget);
+
+		List<SearchSample> samples = Lists.newArrayList();
+		channel.drainTo(samples);
+		int rootMoves = 0;
+		for(SearchSample sample : samples)
+		{
+			if(sample.getRootMove() != null)
+			{
+				rootMoves++;
+				Piece piece = board.getPiece(sample.getRootMove().getFromPosition());
+				assertNotNull(piece);
+				assertEquals(board.getCurrentPlayer(), piece.getAffinity());
+			}
+			assertTrue(sample.getNodes() <= budget.getNodesSearched());
+		}
+		assertTrue(rootMoves > 0);
+		assertEquals(0, channel.getDroppedSamples());
+	}
+}
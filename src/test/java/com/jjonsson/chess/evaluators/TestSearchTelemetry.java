@@ -0,0 +1,95 @@
+package com.jjonsson.chess.evaluators;
+
+import static com.jjonsson.chess.persistence.PersistanceLogging.SKIP_PERSISTANCE_LOGGING;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.board.PiecePlacement;
+import com.jjonsson.chess.evaluators.statistics.StatisticsSnapshot;
+import com.jjonsson.chess.exceptions.NoMovesAvailableException;
+import com.jjonsson.chess.listeners.StatisticsListener;
+
+public class TestSearchTelemetry
+{
+	@Test
+	public void testSearchMeasurements() throws NoMovesAvailableException
+	{
+		ChessBoard board = new ChessBoard(PiecePlacement.PLACE_PIECES, SKIP_PERSISTANCE_LOGGING);
+		final SearchTelemetry[] reported = new SearchTelemetry[1];
+		board.setStatisticsListener(new StatisticsListener(){
+			@Override
+			public void newStatistics(final StatisticsSnapshot snapshot)
+			{
+			}
+
+			@Override
+			public void searchFinished(final SearchTelemetry telemetry)
+			{
+				reported[0] = telemetry;
+			}
+
+			@Override
+			public void wasInterrupted(final InterruptedException ie)
+			{
+			}
+
+			@Override
+			public long notificationIntervalInNanos()
+			{
+				return Long.MAX_VALUE;
+			}
+		});
+		SearchBudget budget = new SearchBudget();
+		ChessMoveEvaluator.search(board, budget);
+
+		SearchTelemetry telemetry = budget.getTelemetry();
+		assertSame(telemetry, reported[0]);
+		assertEquals(budget.getNodesSearched(), telemetry.getNodes());
+		assertTrue(telemetry.getNodes() > 0);
+		assertTrue(telemetry.getNodesPerSecond() > 0);
+		assertTrue(telemetry.getDepth() > 1);
+		assertTrue(telemetry.getSelectiveDepth() >= telemetry.getDepth());
+		assertTrue(telemetry.getExtensionNodes() < telemetry.getNodes());
+		assertTrue(telemetry.getBranchingFactor() > 1);
+		assertTrue(telemetry.getEffectiveBranchingFactor() > 1);
+		assertTrue(telemetry.getFirstMoveBestRate() >= 0 && telemetry.getFirstMoveBestRate() <= 1);
+		assertTrue(telemetry.getOrderingNanos() > 0);
+		assertTrue(telemetry.getMakeNanos() > 0);
+		assertTrue(telemetry.getUnmakeNanos() > 0);
+		assertTrue(telemetry.getEvaluationNanos() > 0);
+
+		String json = telemetry.toJsonLine().toString();
+		assertTrue(json, json.startsWith("{\"nodes\":" + telemetry.getNodes() + ","));
+		assertTrue(json, json.contains("\"firstMoveBestRate\":"));
+
+		//A new search starts from scratch
+		ChessMoveEvaluator.search(board, budget);
+		assertEquals(budget.getNodesSearched(), telemetry.getNodes());
+	}
+
+	@Test
+	public void testPhasesAreOnlyTimedWhenAskedFor() throws NoMovesAvailableException
+	{
+		ChessBoard board = new ChessBoard(PiecePlacement.PLACE_PIECES, SKIP_PERSISTANCE_LOGGING);
+		SearchBudget budget = new SearchBudget();
+		ChessMoveEvaluator.search(board, budget);
+
+		SearchTelemetry telemetry = budget.getTelemetry();
+		assertTrue(telemetry.getNodes() > 0);
+		assertEquals(0, telemetry.getOrderingNanos());
+		assertEquals(0, telemetry.getMakeNanos());
+		assertEquals(0, telemetry.getUnmakeNanos());
+		assertEquals(0, telemetry.getEvaluationNanos());
+
+		budget.setPhaseTiming(true);
+		ChessMoveEvaluator.search(board, budget);
+		assertTrue(telemetry.getOrderingNanos() > 0);
+		assertTrue(telemetry.getMakeNanos() > 0);
+		assertTrue(telemetry.getUnmakeNanos() > 0);
+		assertTrue(telemetry.getEvaluationNanos() > 0);
+	}
+}
@@ -0,0 +1,62 @@
+package com.jjonsson.chess.evaluators;
+
+import static com.jjonsson.chess.persistence.PersistanceLogging.SKIP_PERSISTANCE_LOGGING;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.board.PiecePlacement;
+import com.jjonsson.chess.exceptions.NoMovesAvailableException;
+import com.jjonsson.chess.persistence.FenNotation;
+import com.jjonsson.chess.persistence.MoveItem;
+
+public class TestSearchTracer
+{
+	@Test
+	public void testTraceAndSummary() throws IOException, NoMovesAvailableException
+	{
+		File traceFile = File.createTempFile("search", ".trace");
+		try
+		{
+			ChessBoard board = new ChessBoard(PiecePlacement.PLACE_PIECES, SKIP_PERSISTANCE_LOGGING);
+			SearchBudget budget = new SearchBudget();
+			SearchTracer tracer = new SearchTracer(traceFile.getPath(), board);
+			budget.setTracer(tracer);
+			SearchResult result = ChessMoveEvaluator.search(board, budget);
+			tracer.close();
+
+			SearchTrace trace = SearchTrace.read(traceFile.getPath());
+			assertEquals(FenNotation.STARTING_POSITION, trace.getFen());
+			assertEquals(budget.getNodesSearched(), trace.getNodeCount());
+			assertEquals(20, trace.getChildren(0).size());
+
+			int subtrees = 0;
+			for(int rootMove : trace.getChildren(0))
+			{
+				subtrees += trace.getSubtreeSize(rootMove);
+				assertEquals(1, trace.getPath(rootMove).split(" ").length);
+			}
+			assertEquals(trace.getNodeCount(), subtrees);
+			assertTrue(trace.getBestMoveRank(0) >= 0);
+
+			StringWriter summary = new StringWriter();
+			trace.summarize(summary, 3);
+			String text = summary.toString();
+			assertTrue(text, text.contains("Nodes: " + trace.getNodeCount()));
+			MoveItem bestMove = MoveItem.from(result.getBestMove());
+			assertTrue(text, text.contains(bestMove.getFromPosition() + "-" + bestMove.getToPosition()));
+			assertTrue(text, text.contains("(best)"));
+			assertTrue(text, text.contains("Ordering mistakes: "));
+		}
+		finally
+		{
+			traceFile.delete();
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package com.jjonsson.chess.evaluators.statistics;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.evaluators.ChessMoveEvaluator;
+import com.jjonsson.chess.evaluators.SearchBudget;
+import com.jjonsson.chess.evaluators.SearchTelemetry;
+import com.jjonsson.chess.exceptions.NoMovesAvailableException;
+import com.jjonsson.chess.listeners.StatisticsListener;
+
+public class TestStatisticsTracker
+{
+	private static final int THREADS = 4;
+	private static final int MOVES_PER_THREAD = 100000;
+
+	@Test
+	public void testMovesEvaluatedFromManyThreadsAreCounted() throws InterruptedException
+	{
+		final CountDownLatch interrupted = new CountDownLatch(1);
+		final List<Long> notifiedMoves = new CopyOnWriteArrayList<Long>();
+		final StatisticsTracker tracker = new StatisticsTracker(new StatisticsListener(){
+			@Override
+			public void newStatistics(final StatisticsSnapshot snapshot)
+			{
+				notifiedMoves.add(snapshot.getMovesMade());
+			}
+
+			@Override
+			public void searchFinished(final SearchTelemetry telemetry)
+			{
+			}
+
+			@Override
+			public void wasInterrupted(final InterruptedException ie)
+			{
+				interrupted.countDown();
+			}
+
+			@Override
+			public long notificationIntervalInNanos()
+			{
+				return NANOSECONDS.convert(5, MILLISECONDS);
+			}
+		});
+		tracker.perform(StatisticsAction.RESET);
+
+		List<Thread> searchers = Lists.newArrayList();
+		for(int i = 0; i < THREADS; i++)
+		{
+			Thread searcher = new Thread(){
+				@Override
+				public void run()
+				{
+					for(int move = 0; move < MOVES_PER_THREAD; move++)
+					{
+						tracker.perform(StatisticsAction.MOVE_EVALUATED);
+					}
+				}
+			};
+			searchers.add(searcher);
+			searcher.start();
+		}
+		for(Thread searcher : searchers)
+		{
+			searcher.join();
+		}
+		tracker.perform(StatisticsAction.MOVE_EVALUATION_STOPPED);
+
+		assertEquals(THREADS * MOVES_PER_THREAD, tracker.createSnapshotForCurrentStatistics().getMovesMade());
+
+		tracker.perform(StatisticsAction.INTERRUPT_TRACKING);
+		assertTrue("The poller should stop when tracking is interrupted", interrupted.await(1, SECONDS));
+		assertFalse(notifiedMoves.isEmpty());
+	}
+
+	@Test
+	public void testMovesOfASearchAreCountedByItsBudget() throws NoMovesAvailableException
+	{
+		ChessBoard board = new ChessBoard();
+		board.setStatisticsListener(new StatisticsListener(){
+			@Override
+			public void newStatistics(final StatisticsSnapshot snapshot)
+			{
+			}
+
+			@Override
+			public void searchFinished(final SearchTelemetry telemetry)
+			{
+			}
+
+			@Override
+			public void wasInterrupted(final InterruptedException ie)
+			{
+			}
+
+			@Override
+			public long notificationIntervalInNanos()
+			{
+				return SECONDS.toNanos(1);
+			}
+		});
+		SearchBudget budget = new SearchBudget();
+		ChessMoveEvaluator.search(board, budget);
+
+		assertTrue(budget.getNodesSearched() > 0);
+		assertEquals(budget.getNodesSearched(), board.getStatisticsTracker().createSnapshotForCurrentStatistics().getMovesMade());
+		board.performStatisticsAction(StatisticsAction.INTERRUPT_TRACKING);
+	}
+}
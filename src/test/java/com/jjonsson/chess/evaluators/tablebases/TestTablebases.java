@@ -0,0 +1,174 @@
+package com.jjonsson.chess.evaluators.tablebases;
+
+import static com.jjonsson.chess.board.PiecePlacement.DONT_PLACE_PIECES;
+import static com.jjonsson.chess.persistence.PersistanceLogging.SKIP_PERSISTANCE_LOGGING;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.evaluators.ChessBoardEvaluator.ChessState;
+import com.jjonsson.chess.evaluators.ChessMoveEvaluator;
+import com.jjonsson.chess.evaluators.MateScore;
+import com.jjonsson.chess.evaluators.SearchBudget;
+import com.jjonsson.chess.evaluators.SearchResult;
+import com.jjonsson.chess.evaluators.tablebases.TablebaseResult.Outcome;
+import com.jjonsson.chess.exceptions.NoMovesAvailableException;
+import com.jjonsson.chess.moves.Move;
+import com.jjonsson.chess.persistence.BoardLoader;
+
+public class TestTablebases
+{
+	private static TablebaseGenerator generator;
+
+	@BeforeClass
+	public static void generateTables() throws IOException
+	{
+		generator = new TablebaseGenerator(null);
+		generator.generate(Material.parse("KQK"));
+		generator.generate(Material.parse("KRK"));
+		generator.generate(Material.parse("KPK"));
+	}
+
+	private static ChessBoard loadFen(final String fen, final Tablebases tablebases)
+	{
+		ChessBoard board = new ChessBoard(DONT_PLACE_PIECES, SKIP_PERSISTANCE_LOGGING);
+		assertTrue(BoardLoader.loadFenIntoBoard(fen, board));
+		board.setTablebases(tablebases);
+		return board;
+	}
+
+	/**
+	 * @return the longest distance to mate for the given outcome and player to move
+	 */
+	private static int getLongestMate(final Tablebase table, final int outcome, final boolean whiteToMove)
+	{
+		int longest = -1;
+		long positions = table.getMaterial().getPositionCount() / 2;
+		for(long index = whiteToMove ? 0 : positions; index < (whiteToMove ? positions : 2 * positions); index++)
+		{
+			if(table.getOutcome(index) == outcome)
+			{
+				longest = Math.max(longest, table.getPliesToMate(index));
+			}
+		}
+		return longest;
+	}
+
+	@Test
+	public void testMaterial()
+	{
+		Material material = Material.parse("KPKQ");
+		assertEquals("KPKQ", material.toString());
+		assertFalse(material.isCanonical());
+		assertEquals("KQKP", material.flipped().toString());
+		assertEquals("KQRK", Material.of("KRQ", "K").toString());
+		assertEquals("KK", Material.parse("KQK").without(1).toString());
+		assertEquals("KNK", Material.parse("KPK").promoted(1, Material.KNIGHT).toString());
+		assertEquals(5, TablebaseGenerator.getMaterials(3).size());
+	}
+
+	@Test
+	public void testLongestMates() throws IOException
+	{
+		//The longest mates are known to be 10 moves for KQK and 16 moves for KRK
+		Tablebase queen = generator.generate(Material.parse("KQK"));
+		assertEquals(19, getLongestMate(queen, Tablebase.WIN, true));
+		assertEquals(20, getLongestMate(queen, Tablebase.LOSS, false));
+		assertEquals("The lone king can't win", -1, getLongestMate(queen, Tablebase.WIN, false));
+
+		Tablebase rock = generator.generate(Material.parse("KRK"));
+		assertEquals(31, getLongestMate(rock, Tablebase.WIN, true));
+		assertEquals(32, getLongestMate(rock, Tablebase.LOSS, false));
+	}
+
+	@Test
+	public void testProbingBoards()
+	{
+		Tablebases tables = generator.getTables();
+		//The king is in front of the pawn on the sixth row, that wins no matter who moves
+		assertEquals(Outcome.WIN, tables.probe(loadFen("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1", null)).getOutcome());
+		assertEquals(Outcome.LOSS, tables.probe(loadFen("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1", null)).getOutcome());
+		assertEquals(Outcome.DRAW, tables.probe(loadFen("4k3/4P3/4K3/8/8/8/8/8 b - - 0 1", null)).getOutcome());
+		//Black pieces are probed with the colors flipped
+		TablebaseResult blackQueen = tables.probe(loadFen("k7/8/8/8/8/8/q7/7K b - - 0 1", null));
+		assertEquals(Outcome.WIN, blackQueen.getOutcome());
+		assertEquals(tables.probe(loadFen("7k/Q7/8/8/8/8/8/K7 w - - 0 1", null)).getPliesToMate(), blackQueen.getPliesToMate());
+		assertNull("There is no table for KQKR", tables.probe(loadFen("k7/8/8/8/8/8/r7/KQ6 w - - 0 1", null)));
+		assertNull("Castling isn't in the tables", tables.probe(loadFen("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1", null)));
+	}
+
+	@Test
+	public void testProbingWithAMaterialCache()
+	{
+		Tablebases tables = generator.getTables();
+		Tablebases.MaterialCache cache = new Tablebases.MaterialCache();
+		String[] fens = {"4k3/8/4K3/4P3/8/8/8/8 w - - 0 1", "4k3/8/4K3/4P3/8/8/8/8 b - - 0 1", "k7/8/8/8/8/8/q7/7K b - - 0 1",
+				"7k/Q7/8/8/8/8/8/K7 w - - 0 1", "k7/8/8/8/8/8/r7/KQ6 w - - 0 1", "4k3/8/4K3/8/8/8/8/8 w - - 0 1", "8/8/3k4/8/8/8/8/R3K3 b - - 0 1"};
+		//Twice so that each material is probed both after another material and after itself
+		for(int i = 0; i < 2 * fens.length; i++)
+		{
+			ChessBoard board = loadFen(fens[i / 2], null);
+			assertEquals(fens[i / 2], String.valueOf(tables.probe(board)), String.valueOf(tables.probe(board, cache)));
+		}
+	}
+
+	@Test
+	public void testMappedTablesFromADirectory() throws IOException
+	{
+		File directory = new File(System.getProperty("java.io.tmpdir"), "tablebases_" + System.nanoTime());
+		assertTrue(directory.mkdirs());
+		try
+		{
+			new TablebaseGenerator(directory).generate(Material.parse("KRK"));
+			assertTrue(new File(directory, "KRK" + Tablebase.FILE_ENDING).isFile());
+			Tablebases mapped = new Tablebases(directory);
+			try
+			{
+				String fen = "8/8/3k4/8/8/8/8/R3K3 b - - 0 1";
+				TablebaseResult result = mapped.probe(loadFen(fen, null));
+				assertNotNull(result);
+				assertEquals(generator.getTables().probe(loadFen(fen, null)).toString(), result.toString());
+				assertEquals(Outcome.LOSS, result.getOutcome());
+			}
+			finally
+			{
+				mapped.close();
+			}
+		}
+		finally
+		{
+			for(File file : directory.listFiles())
+			{
+				file.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	@Test
+	public void testSearchPlaysPerfectEndgames() throws NoMovesAvailableException
+	{
+		ChessBoard board = loadFen("8/8/8/4k3/8/8/8/KQ6 w - - 0 1", generator.getTables());
+		int pliesToMate = generator.getTables().probe(board).getPliesToMate();
+		SearchResult result = ChessMoveEvaluator.search(board, new SearchBudget());
+		assertTrue(result.isMate());
+		assertEquals(pliesToMate, MateScore.getPliesToMate(result.getBestMoveValue()));
+
+		//Both players use the tables so the mate should come exactly as predicted
+		for(int ply = 0; ply < pliesToMate; ply++)
+		{
+			Move move = ChessMoveEvaluator.search(board, new SearchBudget()).getBestMove();
+			assertTrue(move.getPiece().performMove(move, board));
+		}
+		assertEquals(ChessState.CHECKMATE, board.getCurrentState());
+	}
+}
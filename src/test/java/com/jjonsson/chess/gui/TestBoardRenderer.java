@@ -0,0 +1,102 @@
+package com.jjonsson.chess.gui;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.gui.BoardRenderer.ImageFormat;
+import com.jjonsson.chess.gui.components.ChessBoardComponent;
+import com.jjonsson.chess.persistence.FenNotation;
+
+public class TestBoardRenderer
+{
+	private static final int SQUARE_SIZE = 40;
+
+	@Test
+	public void testRenderingAFen() throws IOException
+	{
+		char[][] placement = BoardRenderer.readPlacement(FenNotation.STARTING_POSITION);
+		assertEquals('K', placement[0][4]);
+		assertEquals('p', placement[6][0]);
+		assertEquals(0, placement[3][3]);
+
+		BufferedImage image = BoardRenderer.render(placement, SQUARE_SIZE);
+		assertEquals(SQUARE_SIZE * ChessBoard.BOARD_SIZE, image.getWidth());
+		//The squares are colored like they are in the board component, the corners are outside of the pieces
+		assertEquals(ChessBoardComponent.LIGHT_BACKGROUND.getRGB(), image.getRGB(1, image.getHeight() - 2));
+		assertEquals(ChessBoardComponent.DARK_BACKGROUND.getRGB(), image.getRGB(SQUARE_SIZE + 1, image.getHeight() - 2));
+
+		//The same position drawn from a board should look the same
+		assertSameImage(image, BoardRenderer.render(new ChessBoard(), SQUARE_SIZE));
+	}
+
+	private static void assertSameImage(final BufferedImage expected, final BufferedImage actual)
+	{
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		for(int x = 0; x < expected.getWidth(); x++)
+		{
+			for(int y = 0; y < expected.getHeight(); y++)
+			{
+				assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidFen() throws IOException
+	{
+		BoardRenderer.readPlacement("rnbqkbnr/pppppppp w KQkq - 0 1");
+	}
+
+	@Test
+	public void testSvg() throws IOException
+	{
+		StringWriter svg = new StringWriter();
+		BoardRenderer.writeSvg(BoardRenderer.readPlacement("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1"), SQUARE_SIZE, svg);
+		String image = svg.toString();
+		assertEquals(ChessBoard.BOARD_SIZE * ChessBoard.BOARD_SIZE, image.split("<rect ").length - 1);
+		//Each piece image is included once and used once per piece
+		assertEquals(1 + 3, image.split("<svg ").length - 1);
+		assertEquals(3, image.split("<use ").length - 1);
+		assertTrue(image.contains("id=\"White_Pawn\""));
+	}
+
+	@Test
+	public void testBatchRendering() throws IOException
+	{
+		File directory = new File(System.getProperty("java.io.tmpdir"), "rendered_boards_" + System.nanoTime());
+		try
+		{
+			List<String> positions = Lists.newArrayList(FenNotation.STARTING_POSITION, "not a fen", "4k3/8/8/8/8/8/8/4K3 b - - 0 1");
+			assertEquals(2, BoardRenderer.renderAll(positions, directory, ImageFormat.PNG, SQUARE_SIZE));
+			BufferedImage first = ImageIO.read(new File(directory, "000000.png"));
+			assertSameImage(BoardRenderer.render(new ChessBoard(), SQUARE_SIZE), first);
+			assertTrue(new File(directory, "000002.png").isFile());
+			assertTrue(!new File(directory, "000001.png").exists());
+		}
+		finally
+		{
+			File[] files = directory.listFiles();
+			if(files != null)
+			{
+				for(File file : files)
+				{
+					file.delete();
+				}
+			}
+			directory.delete();
+		}
+	}
+}
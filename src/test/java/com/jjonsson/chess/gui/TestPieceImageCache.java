@@ -0,0 +1,64 @@
+package com.jjonsson.chess.gui;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class TestPieceImageCache
+{
+	@Test
+	public void testSpritesAreRasterizedOncePerSize()
+	{
+		BufferedImage sprite = PieceImageCache.getSprite("White_King", 40);
+		assertNotNull(sprite);
+		assertEquals(40, sprite.getWidth());
+		assertEquals(40, sprite.getHeight());
+		assertSame(sprite, PieceImageCache.getSprite("White_King", 40));
+
+		//The corners are outside of the piece so they should be transparent while the center is painted
+		assertEquals(0, sprite.getRGB(0, 0) >>> 24);
+		assertTrue(sprite.getRGB(20, 20) >>> 24 != 0);
+
+		assertEquals(80, PieceImageCache.getSprite("Black_Queen", 80).getWidth());
+		assertNull(PieceImageCache.getSprite("Purple_King", 40));
+	}
+
+	@Test
+	public void testOldSizesAreEvicted()
+	{
+		BufferedImage first = PieceImageCache.getSprite("Black_Pawn", 20);
+		for(int size = 21; size <= 20 + PieceImageCache.MAX_CACHED_SIZES; size++)
+		{
+			assertNotNull(PieceImageCache.getSprite("Black_Pawn", size));
+		}
+		assertEquals(PieceImageCache.MAX_CACHED_SIZES, PieceImageCache.getCachedSizeCount());
+		assertTrue("The first size should have been evicted", first != PieceImageCache.getSprite("Black_Pawn", 20));
+	}
+
+	@Test
+	public void testPreloading()
+	{
+		PieceImageCache.preload(30);
+		assertTrue(PieceImageCache.awaitPreloading(30, TimeUnit.SECONDS));
+		Map<String, BufferedImage> preloaded = Maps.newHashMap();
+		for(String identifier : PieceImageCache.PIECE_IDENTIFIERS)
+		{
+			preloaded.put(identifier, PieceImageCache.getSprite(identifier, 30));
+			assertNotNull(preloaded.get(identifier));
+		}
+		for(String identifier : PieceImageCache.PIECE_IDENTIFIERS)
+		{
+			assertSame("The sprites should be cached by the preloading", preloaded.get(identifier), PieceImageCache.getSprite(identifier, 30));
+		}
+	}
+}
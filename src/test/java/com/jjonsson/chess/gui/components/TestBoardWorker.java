@@ -0,0 +1,158 @@
+package com.jjonsson.chess.gui.components;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.jjonsson.chess.gui.components.BoardWorker.BoardCommand;
+
+public class TestBoardWorker
+{
+	private static final int COMMANDS = 10;
+
+	@Test
+	public void testCommandsArePerformedInOrderOffTheEdt() throws InterruptedException
+	{
+		BoardWorker worker = new BoardWorker();
+		final List<Integer> performed = Lists.newArrayList();
+		final List<Integer> published = Lists.newArrayList();
+		final List<String> threadErrors = Lists.newArrayList();
+		for(int i = 0; i < COMMANDS; i++)
+		{
+			final int command = i;
+			worker.submit(new BoardCommand<Integer>("command " + i){
+				@Override
+				protected Integer perform()
+				{
+					if(SwingUtilities.isEventDispatchThread())
+					{
+						threadErrors.add("Performed on the EDT");
+					}
+					performed.add(command);
+					return command;
+				}
+
+				@Override
+				protected void done(final Integer result)
+				{
+					if(!SwingUtilities.isEventDispatchThread())
+					{
+						threadErrors.add("Published outside of the EDT");
+					}
+					published.add(result);
+				}
+			});
+		}
+		worker.awaitIdle();
+		assertTrue(worker.isIdle());
+		assertEquals(threadErrors.toString(), 0, threadErrors.size());
+		for(int i = 0; i < COMMANDS; i++)
+		{
+			assertEquals(i, performed.get(i).intValue());
+			assertEquals(i, published.get(i).intValue());
+		}
+		worker.shutdown();
+	}
+
+	@Test
+	public void testFailuresArePublished() throws InterruptedException
+	{
+		BoardWorker worker = new BoardWorker();
+		final Exception[] failure = new Exception[1];
+		final boolean[] done = new boolean[1];
+		worker.submit(new BoardCommand<Void>("fail"){
+			@Override
+			protected Void perform()
+			{
+				throw new IllegalStateException("Expected");
+			}
+
+			@Override
+			protected void done(final Void result)
+			{
+				done[0] = true;
+			}
+
+			@Override
+			protected void failed(final Exception e)
+			{
+				failure[0] = e;
+			}
+		});
+		worker.awaitIdle();
+		assertFalse(done[0]);
+		assertTrue(failure[0] instanceof IllegalStateException);
+		worker.shutdown();
+	}
+
+	@Test
+	public void testErrorsArePublishedAndEndTheWorkerThread() throws InterruptedException
+	{
+		BoardWorker worker = new BoardWorker();
+		final Exception[] failure = new Exception[1];
+		final Thread[] threads = new Thread[2];
+		worker.submit(new BoardCommand<Void>("fail with an error"){
+			@Override
+			protected Void perform()
+			{
+				threads[0] = Thread.currentThread();
+				throw new AssertionError("Expected");
+			}
+
+			@Override
+			protected void failed(final Exception e)
+			{
+				failure[0] = e;
+			}
+		});
+		worker.submit(new BoardCommand<Void>("run after the error"){
+			@Override
+			protected Void perform()
+			{
+				threads[1] = Thread.currentThread();
+				return null;
+			}
+		});
+		worker.awaitIdle();
+		assertTrue(failure[0] instanceof ExecutionException);
+		assertTrue(failure[0].getCause() instanceof AssertionError);
+		threads[0].join(TimeUnit.MINUTES.toMillis(1));
+		assertFalse(threads[0].isAlive());
+		assertNotSame(threads[0], threads[1]);
+		worker.shutdown();
+	}
+
+	@Test
+	public void testTheWorkerIsBusyUntilTheResultHasBeenPublished() throws InterruptedException
+	{
+		final BoardWorker worker = new BoardWorker();
+		final CountDownLatch performing = new CountDownLatch(1);
+		final CountDownLatch finish = new CountDownLatch(1);
+		worker.submit(new BoardCommand<Void>("wait"){
+			@Override
+			protected Void perform() throws InterruptedException
+			{
+				performing.countDown();
+				finish.await();
+				return null;
+			}
+		});
+		assertTrue(performing.await(1, TimeUnit.MINUTES));
+		assertFalse(worker.isIdle());
+		finish.countDown();
+		worker.awaitIdle();
+		assertTrue(worker.isIdle());
+		worker.shutdown();
+	}
+}
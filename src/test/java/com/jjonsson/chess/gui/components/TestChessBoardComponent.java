@@ -8,6 +8,9 @@ import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
 
 import java.awt.Point;
+import java.lang.reflect.InvocationTargetException;
+
+import javax.swing.SwingUtilities;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -78,7 +81,7 @@ public class TestChessBoardComponent
 
 
 	@Test
-	public void testPerformHintedMove()
+	public void testPerformHintedMove() throws InterruptedException, InvocationTargetException
 	{
 		ChessBoard board = new ChessBoard();
 		ChessWindow window = new ChessWindow(board, DisplayOption.DISPLAY);
@@ -86,6 +89,13 @@ public class TestChessBoardComponent
 
 		ChessBoardComponent component = window.getBoardComponent();
 		component.showHint();
+		//The hint is shown on the EDT
+		SwingUtilities.invokeAndWait(new Runnable(){
+			@Override
+			public void run()
+			{
+			}
+		});
 		//Show hint should select a piece to move
 		assertNotNull(component.getSelectedPiece());
 		//TODO(jontejj) validate that it was a good move
@@ -0,0 +1,224 @@
+package com.jjonsson.chess.gui.components;
+
+import static com.jjonsson.chess.moves.ImmutablePosition.position;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.exceptions.UnavailableMoveItem;
+import com.jjonsson.chess.listeners.MoveListener;
+import com.jjonsson.chess.moves.Move;
+import com.jjonsson.chess.moves.RevertingMove;
+import com.jjonsson.chess.pieces.Piece;
+
+/**
+ * Paints the board component into images so it doesn't need a window
+ */
+public class TestChessBoardComponentPainting
+{
+	private static final Dimension SIZE = new Dimension(400, 400);
+
+	private static BufferedImage paintAll(final ChessBoardComponent component)
+	{
+		BufferedImage image = new BufferedImage(SIZE.width, SIZE.height, BufferedImage.TYPE_INT_RGB);
+		paint(component, image, new Rectangle(SIZE));
+		return image;
+	}
+
+	private static void paint(final ChessBoardComponent component, final BufferedImage image, final Rectangle clip)
+	{
+		Graphics2D graphics = image.createGraphics();
+		try
+		{
+			graphics.setClip(clip);
+			component.paintComponent(graphics);
+		}
+		finally
+		{
+			graphics.dispose();
+		}
+	}
+
+	/**
+	 * Paints the dirty squares of the component on top of the given image
+	 */
+	private static int paintDirtySquares(final ChessBoardComponent component, final BufferedImage image)
+	{
+		long dirtySquares = component.getDirtySquares();
+		paint(component, image, component.getSquareBounds(dirtySquares));
+		assertEquals(0, component.getDirtySquares());
+		return Long.bitCount(dirtySquares);
+	}
+
+	/**
+	 * Waits for the updates that the moves made by the test thread posted to the EDT, like the ones the {@link BoardWorker} posts
+	 */
+	private static void awaitEdt() throws InterruptedException, InvocationTargetException
+	{
+		SwingUtilities.invokeAndWait(new Runnable(){
+			@Override
+			public void run()
+			{
+			}
+		});
+	}
+
+	private static void assertSameImage(final BufferedImage expected, final BufferedImage actual)
+	{
+		for(int x = 0; x < expected.getWidth(); x++)
+		{
+			for(int y = 0; y < expected.getHeight(); y++)
+			{
+				assertEquals("Pixel differs at " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testOnlyChangedSquaresAreRepainted() throws UnavailableMoveItem, InterruptedException, InvocationTargetException
+	{
+		ChessBoard board = new ChessBoard();
+		ChessBoardComponent component = new ChessBoardComponent(board, SIZE);
+		component.setAIEnabled(false);
+		component.showAvailableClicks(false);
+		//Disabling the AI updates the component on the EDT, that must be done before the test starts selecting pieces
+		awaitEdt();
+		BufferedImage image = paintAll(component);
+		assertEquals(0, component.getDirtySquares());
+
+		component.setSelectedPiece(board.getPiece(position("2E")));
+		assertEquals("Only the selected pawn should be repainted", 1, paintDirtySquares(component, image));
+		assertSameImage(paintAll(component), image);
+
+		board.move(position("2E"), position("4E"));
+		awaitEdt();
+		assertEquals("Only the squares the pawn moved between should be repainted", 2, paintDirtySquares(component, image));
+		assertSameImage(paintAll(component), image);
+	}
+
+	@Test
+	public void testRepaintingWithAvailableClicks() throws UnavailableMoveItem, InterruptedException, InvocationTargetException
+	{
+		ChessBoard board = new ChessBoard();
+		ChessBoardComponent component = new ChessBoardComponent(board, SIZE);
+		component.setAIEnabled(false);
+		component.showAvailableClicks(true);
+		awaitEdt();
+		BufferedImage image = paintAll(component);
+
+		component.setSelectedPiece(board.getPiece(position("1G")));
+		//The knight and the two squares it can move to
+		assertEquals(3, paintDirtySquares(component, image));
+		assertSameImage(paintAll(component), image);
+
+		board.move(position("1G"), position("3F"));
+		awaitEdt();
+		paintDirtySquares(component, image);
+		assertSameImage(paintAll(component), image);
+
+		board.move(position("7E"), position("5E"));
+		awaitEdt();
+		paintDirtySquares(component, image);
+		assertSameImage(paintAll(component), image);
+	}
+
+	@Test
+	public void testChangesOnTheBoardArePaintedWhenTheEdtHasTheirSnapshot() throws UnavailableMoveItem, InterruptedException, InvocationTargetException
+	{
+		ChessBoard board = new ChessBoard();
+		ChessBoardComponent component = new ChessBoardComponent(board, SIZE);
+		component.setAIEnabled(false);
+		awaitEdt();
+		BufferedImage before = paintAll(component);
+
+		final CountDownLatch edtIsBlocked = new CountDownLatch(1);
+		final CountDownLatch unblockEdt = new CountDownLatch(1);
+		SwingUtilities.invokeLater(new Runnable(){
+			@Override
+			public void run()
+			{
+				edtIsBlocked.countDown();
+				try
+				{
+					unblockEdt.await();
+				}
+				catch(InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		assertTrue(edtIsBlocked.await(1, TimeUnit.MINUTES));
+		try
+		{
+			board.move(position("2E"), position("4E"));
+			//The EDT hasn't got the snapshot with the move yet
+			assertSameImage(before, paintAll(component));
+		}
+		finally
+		{
+			unblockEdt.countDown();
+		}
+		awaitEdt();
+		assertNotNull(component.getStatus());
+		assertEquals("The squares the pawn moved between should be repainted", 2, Long.bitCount(component.getDirtySquares()));
+	}
+
+	@Test
+	public void testClickedMovesAreMadeOnTheWorker() throws InterruptedException, InvocationTargetException
+	{
+		final ChessBoard board = new ChessBoard();
+		final ChessBoardComponent component = new ChessBoardComponent(board, SIZE);
+		component.setAIEnabled(false);
+		final AtomicBoolean madeOnTheEdt = new AtomicBoolean();
+		board.addMoveListener(new MoveListener(){
+			@Override
+			public void movePerformed(final Move performedMove)
+			{
+				madeOnTheEdt.compareAndSet(false, SwingUtilities.isEventDispatchThread());
+			}
+			@Override
+			public void pieceRemoved(final Piece removedPiece)
+			{
+			}
+			@Override
+			public void moveReverted(final RevertingMove move)
+			{
+			}
+			@Override
+			public void reset()
+			{
+			}
+		});
+		SwingUtilities.invokeAndWait(new Runnable(){
+			@Override
+			public void run()
+			{
+				component.positionClicked(position("2E"));
+				component.positionClicked(position("4E"));
+			}
+		});
+		component.getBoardWorker().awaitIdle();
+		awaitEdt();
+		assertNotNull(board.getPiece(position("4E")));
+		assertFalse(madeOnTheEdt.get());
+		assertNull(component.getSelectedPiece());
+		component.getBoardWorker().shutdown();
+	}
+}
@@ -15,8 +15,10 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 
 import java.awt.event.ActionEvent;
+import java.lang.reflect.InvocationTargetException;
 
 import javax.swing.JMenuItem;
+import javax.swing.SwingUtilities;
 
 import org.fest.swing.core.BasicRobot;
 import org.fest.swing.core.MouseButton;
@@ -45,11 +47,13 @@ public class TestChessWindow
 
 	private static final JMenuItem FAKE_MENU_ITEM = new JMenuItem();
 
-	private void undoOneMove(final ChessWindow window)
+	private void undoOneMove(final ChessWindow window) throws InterruptedException
 	{
 		//Undo the move
 		ActionEvent undoEvent = new ActionEvent(FAKE_MENU_ITEM, ActionEvent.ACTION_PERFORMED, UNDO_BLACK_MENU_ITEM, System.nanoTime(), 0);
 		window.actionPerformed(undoEvent);
+		//The undo is made by the board worker
+		window.getBoardWorker().awaitIdle();
 	}
 
 	private void disableAI(final ChessWindow window)
@@ -65,10 +69,11 @@ public class TestChessWindow
 		window.actionPerformed(showClicksEvent);
 	}
 
-	private void newGame(final ChessWindow window)
+	private void newGame(final ChessWindow window) throws InterruptedException
 	{
 		ActionEvent newGameEvent = new ActionEvent(FAKE_MENU_ITEM, ActionEvent.ACTION_PERFORMED, NEW_MENU_ITEM, System.nanoTime(), 0);
 		window.actionPerformed(newGameEvent);
+		window.getBoardWorker().awaitIdle();
 	}
 
 	private void exit(final ChessWindow window)
@@ -83,7 +88,7 @@ public class TestChessWindow
 	 * @throws InterruptedException
 	 */
 	@Test
-	public void testUndoMove() throws InvalidPosition
+	public void testUndoMove() throws InvalidPosition, InterruptedException
 	{
 		ChessBoard board = new ChessBoard();
 		ChessWindow window = new ChessWindow(board, DisplayOption.DISPLAY);
@@ -114,18 +119,24 @@ public class TestChessWindow
 	}
 
 	@Test
-	public void testInterruptingAI()
+	public void testInterruptingAI() throws InterruptedException, InvocationTargetException
 	{
 		ChessBoard board = loadBoard("bishop_should_move_rational");
 		//Make sure we think a long time :)
 		board.setDifficulty(5);
 		ChessWindow window = new ChessWindow(board, DisplayOption.DISPLAY);
-		ChessBoardComponent component = window.getBoardComponent();
+		final ChessBoardComponent component = window.getBoardComponent();
 
 		window.setTitle("Testing interruption of an AI move");
 
-		//Triggers the AI
-		component.loadingOfBoardDone();
+		//Triggers the AI, on the EDT the board isn't read again
+		SwingUtilities.invokeAndWait(new Runnable(){
+			@Override
+			public void run()
+			{
+				component.loadingOfBoardDone();
+			}
+		});
 
 		//Verify that the AI is thinking
 		assertTrue(component.isWorking());
@@ -140,7 +151,7 @@ public class TestChessWindow
 
 
 	@Test
-	public void testRevertOfPawnReplacementMove()
+	public void testRevertOfPawnReplacementMove() throws InterruptedException
 	{
 		ChessBoard board = TestScenarios.loadBoard("next_pawn_time_for_replacement_move_should_check_king_horse_take_queen_then_no_more_check");
 		ChessWindow window = new ChessWindow(board, DisplayOption.DISPLAY);
@@ -175,7 +186,7 @@ public class TestChessWindow
 	}
 
 	@Test
-	public void testNewGame()
+	public void testNewGame() throws InterruptedException
 	{
 		ChessBoard board = new ChessBoard();
 		ChessWindow window = new ChessWindow(board, DisplayOption.DISPLAY);
@@ -189,6 +200,8 @@ public class TestChessWindow
 		component.positionClicked(fromPosition);
 		TestChessBoardComponent.sleep();
 		component.positionClicked(toPosition);
+		//The moves are made on the worker
+		window.getBoardWorker().awaitIdle();
 
 		assertNotNull(board.getPiece(toPosition));
 		newGame(window);
@@ -226,7 +239,7 @@ public class TestChessWindow
 
 		clickMenuItem(window, ACTIONS_MENU_NAME, SHOW_HINT_MENU_ITEM);
 
-		window.getThreadTracker().joinAllJobs();
+		window.getBoardWorker().awaitIdle();
 		assertTrue(window.getBoardComponent().getHintMove().perform());
 		window.dispose();
 	}
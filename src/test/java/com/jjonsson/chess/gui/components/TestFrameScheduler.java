@@ -0,0 +1,63 @@
+package com.jjonsson.chess.gui.components;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+import com.jjonsson.chess.gui.components.FrameScheduler.FrameListener;
+import com.jjonsson.chess.gui.components.FrameScheduler.FramePacing;
+
+public class TestFrameScheduler
+{
+	private static final int FRAMES = 5;
+
+	@Test
+	public void testTheTimerOnlyRunsWhileFramesAreWanted() throws InterruptedException, InvocationTargetException
+	{
+		final CountDownLatch framesLeft = new CountDownLatch(FRAMES);
+		final AtomicBoolean calledFromTheEdt = new AtomicBoolean(true);
+		final FrameListener listener = new FrameListener(){
+			@Override
+			public boolean frame(final long frameTime)
+			{
+				calledFromTheEdt.compareAndSet(true, SwingUtilities.isEventDispatchThread());
+				framesLeft.countDown();
+				return framesLeft.getCount() > 0;
+			}
+		};
+		SwingUtilities.invokeAndWait(new Runnable(){
+			@Override
+			public void run()
+			{
+				FrameScheduler.getInstance().add(listener);
+				//Adding the same listener twice shouldn't give it more frames
+				FrameScheduler.getInstance().add(listener);
+			}
+		});
+		assertTrue(framesLeft.await(1, TimeUnit.MINUTES));
+		assertTrue(calledFromTheEdt.get());
+
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final FramePacing[] pacing = new FramePacing[1];
+		SwingUtilities.invokeAndWait(new Runnable(){
+			@Override
+			public void run()
+			{
+				running.set(FrameScheduler.getInstance().isRunning());
+				pacing[0] = FrameScheduler.getInstance().getFramePacing();
+			}
+		});
+		assertFalse("The timer should be stopped when nothing is animated", running.get());
+		assertEquals(FRAMES, pacing[0].getFrames());
+		assertTrue(pacing[0].getLongestIntervalInMillis() >= pacing[0].getAverageIntervalInMillis());
+	}
+}
@@ -0,0 +1,63 @@
+package com.jjonsson.chess.performance;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.jjonsson.chess.evaluators.SearchBudget;
+
+public class TestBatchAnalyzer
+{
+	private static final String POSITIONS = "# A comment\n"
+			+ "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1\n"
+			+ "\n"
+			+ "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - id \"back rank mate\";\n"
+			+ "not a position\n";
+
+	@Test
+	public void testAnalyzePositions() throws IOException, InterruptedException
+	{
+		File positions = File.createTempFile("positions", ".epd");
+		try
+		{
+			Files.write(POSITIONS, positions, Charsets.UTF_8);
+			StringWriter output = new StringWriter();
+			BatchAnalyzer analyzer = new BatchAnalyzer(2, 1, 2000, SearchBudget.UNLIMITED);
+			assertEquals(4, analyzer.analyze(Arrays.asList(positions.getPath(), "src/test/resources/scenarios/castling_move.chess"), output));
+
+			List<String> lines = Arrays.asList(output.toString().split("\n"));
+			assertEquals(5, lines.size());
+			String mate = null;
+			int errors = 0;
+			for(String line : lines.subList(0, 4))
+			{
+				if(line.contains("\"error\""))
+				{
+					errors++;
+				}
+				if(line.contains("\"id\":\"back rank mate\""))
+				{
+					mate = line;
+				}
+			}
+			assertEquals(1, errors);
+			assertTrue(mate, mate.contains("\"bestMove\":\"Rd8#\""));
+			String summary = lines.get(4);
+			assertTrue(summary, summary.startsWith("{\"positions\":4,\"failed\":1,\"workers\":2,"));
+			assertTrue(summary, summary.contains("\"positionsPerSecond\":"));
+		}
+		finally
+		{
+			positions.delete();
+		}
+	}
+}
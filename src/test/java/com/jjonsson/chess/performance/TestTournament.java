@@ -0,0 +1,46 @@
+package com.jjonsson.chess.performance;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.jjonsson.chess.evaluators.SearchBudget;
+import com.jjonsson.chess.performance.Tournament.EngineStatistics;
+import com.jjonsson.chess.persistence.FenNotation;
+
+public class TestTournament
+{
+	private static final String MATE_IN_ONE = "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1";
+
+	@Test
+	public void testTournament() throws IOException, InterruptedException
+	{
+		EngineConfiguration first = new EngineConfiguration("first", 1, 10, 2000, SearchBudget.UNLIMITED);
+		EngineConfiguration second = EngineConfiguration.parse("second", "1,5", 2000, SearchBudget.UNLIMITED);
+		Tournament tournament = new Tournament(first, second, Arrays.asList(FenNotation.STARTING_POSITION, MATE_IN_ONE), 2, 4);
+		StringWriter output = new StringWriter();
+		tournament.play(4, output);
+
+		String[] lines = output.toString().split("\n");
+		assertEquals(6, lines.length);
+		for(int engine = 0; engine < 2; engine++)
+		{
+			EngineStatistics statistics = tournament.getStatistics(engine);
+			assertEquals(4, statistics.getGames());
+			//Both engines should find the mate when they play white from the mate in one position
+			assertEquals(1, statistics.getWins());
+			assertEquals(1, statistics.getLosses());
+			assertEquals(0.5, statistics.getScore());
+			assertEquals(0.0, statistics.getElo(), 0.001);
+			assertTrue(statistics.getEloError() > 0);
+			assertTrue(statistics.getNodesPerSecond() > 0);
+		}
+		assertTrue(lines[4], lines[4].contains("\"engine\":\"first (difficulty: 1, punishment factor: 10)\""));
+		assertTrue(lines[5], lines[5].contains("\"engine\":\"second (difficulty: 1, punishment factor: 5)\""));
+	}
+}
@@ -0,0 +1,131 @@
+package com.jjonsson.chess.persistence;
+
+import static com.jjonsson.chess.board.PiecePlacement.DONT_PLACE_PIECES;
+import static com.jjonsson.chess.moves.ImmutablePosition.position;
+import static com.jjonsson.chess.persistence.PersistanceLogging.USE_PERSISTANCE_LOGGING;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.exceptions.UnavailableMoveItem;
+
+public class TestBoardArchive
+{
+	private static final File SCENARIOS = new File("src/test/resources/scenarios/");
+
+	private File myArchiveFile;
+
+	@Before
+	public void createArchiveFile() throws IOException
+	{
+		myArchiveFile = File.createTempFile("boards", BoardArchive.FILE_ENDING);
+	}
+
+	@After
+	public void deleteArchiveFile()
+	{
+		myArchiveFile.delete();
+	}
+
+	@Test
+	public void testScenariosAreLoadedByName() throws IOException
+	{
+		BoardArchiveBuilder builder = new BoardArchiveBuilder();
+		int scenarios = builder.addDirectory(SCENARIOS);
+		assertTrue(scenarios > 0);
+		builder.write(myArchiveFile.getPath());
+
+		BoardArchive archive = new BoardArchive(myArchiveFile.getPath());
+		try
+		{
+			assertEquals(scenarios, archive.getBoardCount());
+			File[] files = SCENARIOS.listFiles();
+			Arrays.sort(files);
+			int loadableScenarios = 0;
+			for(File file : files)
+			{
+				if(!file.getName().endsWith(ChessFileFilter.FILE_ENDING))
+				{
+					continue;
+				}
+				String name = file.getName().substring(0, file.getName().length() - ChessFileFilter.FILE_ENDING.length());
+				ChessBoard fromFile = new ChessBoard(DONT_PLACE_PIECES, USE_PERSISTANCE_LOGGING);
+				ChessBoard fromArchive = new ChessBoard(DONT_PLACE_PIECES, USE_PERSISTANCE_LOGGING);
+				boolean loaded = BoardLoader.loadFileIntoBoard(file, fromFile);
+				assertEquals(name, loaded, BoardLoader.loadArchivedBoard(archive, name, fromArchive));
+				if(loaded)
+				{
+					loadableScenarios++;
+					assertEquals(name, BoardLoader.toFen(fromFile), BoardLoader.toFen(fromArchive));
+				}
+			}
+			int iterated = 0;
+			for(ChessBoard board : BoardLoader.loadArchive(archive))
+			{
+				iterated++;
+			}
+			assertEquals(loadableScenarios, iterated);
+		}
+		finally
+		{
+			archive.close();
+		}
+	}
+
+	@Test
+	public void testBoardsWithMoves() throws IOException, UnavailableMoveItem
+	{
+		ChessBoard board = new ChessBoard();
+		board.move(position("2E"), position("4E"));
+		board.move(position("7E"), position("5E"));
+		BoardArchiveBuilder builder = new BoardArchiveBuilder();
+		builder.addBoard("start", new ChessBoard());
+		builder.addBoard("e4 e5", board);
+		try
+		{
+			builder.addBoard("start", board);
+			fail("Names should be unique");
+		}
+		catch(IllegalArgumentException expected)
+		{
+		}
+		builder.write(myArchiveFile.getPath());
+
+		BoardArchive archive = new BoardArchive(myArchiveFile.getPath());
+		try
+		{
+			assertEquals(2, archive.getBoardCount());
+			assertEquals("start", archive.getName(0));
+			assertEquals(1, archive.indexOf("e4 e5"));
+			assertFalse(archive.contains("e4"));
+
+			ChessBoard loaded = new ChessBoard(DONT_PLACE_PIECES, USE_PERSISTANCE_LOGGING);
+			assertTrue(BoardLoader.loadArchivedBoard(archive, "e4 e5", loaded));
+			assertEquals(BoardLoader.toFen(board), BoardLoader.toFen(loaded));
+			assertEquals(2, loaded.getPersistenceLogger().getMoveHistory().size());
+			assertFalse(BoardLoader.loadArchivedBoard(archive, "missing", new ChessBoard(DONT_PLACE_PIECES, USE_PERSISTANCE_LOGGING)));
+		}
+		finally
+		{
+			archive.close();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testOtherFilesAreRejected() throws IOException
+	{
+		Files.write(new byte[]{1, 2, 3}, myArchiveFile);
+		new BoardArchive(myArchiveFile.getPath());
+	}
+}
@@ -0,0 +1,76 @@
+package com.jjonsson.chess.persistence;
+
+import static com.jjonsson.chess.board.PiecePlacement.DONT_PLACE_PIECES;
+import static com.jjonsson.chess.moves.ImmutablePosition.position;
+import static com.jjonsson.chess.persistence.PersistanceLogging.USE_PERSISTANCE_LOGGING;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.exceptions.UnavailableMoveItem;
+
+public class TestBoardDumps
+{
+	private File myDirectory;
+
+	@Before
+	public void createDirectory() throws IOException
+	{
+		myDirectory = File.createTempFile("board_dumps", "");
+		assertTrue(myDirectory.delete());
+		assertTrue(myDirectory.mkdir());
+	}
+
+	@After
+	public void deleteDirectory()
+	{
+		for(File file : myDirectory.listFiles())
+		{
+			file.delete();
+		}
+		myDirectory.delete();
+	}
+
+	@Test
+	public void testAPositionIsOnlyDumpedOncePerReason() throws InterruptedException, UnavailableMoveItem
+	{
+		BoardDumps dumps = new BoardDumps(myDirectory, 10, 10);
+		ChessBoard board = new ChessBoard();
+		board.move(position("2E"), position("4E"));
+
+		assertTrue(dumps.dump(board, "first"));
+		assertFalse(dumps.dump(board, "first"));
+		assertTrue(dumps.dump(board, "second"));
+		dumps.awaitWritten();
+
+		File[] files = myDirectory.listFiles();
+		assertEquals(2, files.length);
+		ChessBoard loaded = new ChessBoard(DONT_PLACE_PIECES, USE_PERSISTANCE_LOGGING);
+		assertTrue(BoardLoader.loadFileIntoBoard(files[0], loaded));
+		assertEquals(BoardLoader.toFen(board), BoardLoader.toFen(loaded));
+	}
+
+	@Test
+	public void testDumpsAreRateLimited() throws InterruptedException, UnavailableMoveItem
+	{
+		BoardDumps dumps = new BoardDumps(myDirectory, 2, 10);
+		ChessBoard board = new ChessBoard();
+		assertTrue(dumps.dump(board, "faulty"));
+		board.move(position("2E"), position("4E"));
+		assertTrue(dumps.dump(board, "faulty"));
+		board.move(position("7E"), position("5E"));
+		assertFalse(dumps.dump(board, "faulty"));
+		dumps.awaitWritten();
+
+		assertEquals(1, dumps.getDroppedDumps());
+		assertEquals(2, myDirectory.listFiles().length);
+	}
+}
@@ -0,0 +1,100 @@
+package com.jjonsson.chess.persistence;
+
+import static com.jjonsson.chess.board.PiecePlacement.DONT_PLACE_PIECES;
+import static com.jjonsson.chess.moves.ImmutablePosition.position;
+import static com.jjonsson.chess.persistence.PersistanceLogging.USE_PERSISTANCE_LOGGING;
+import static com.jjonsson.chess.pieces.Piece.BLACK;
+import static com.jjonsson.chess.pieces.Piece.WHITE;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import org.junit.Test;
+
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.exceptions.UnavailableMoveItem;
+import com.jjonsson.chess.moves.Move;
+import com.jjonsson.chess.pieces.Piece;
+
+public class TestFenNotation
+{
+	private static ChessBoard loadFen(final String fen)
+	{
+		ChessBoard board = new ChessBoard(DONT_PLACE_PIECES, USE_PERSISTANCE_LOGGING);
+		assertTrue(BoardLoader.loadFenIntoBoard(fen, board));
+		return board;
+	}
+
+	@Test
+	public void testStartingPosition()
+	{
+		assertEquals(FenNotation.STARTING_POSITION, BoardLoader.toFen(new ChessBoard()));
+
+		ChessBoard board = loadFen(FenNotation.STARTING_POSITION);
+		assertEquals(new ChessBoard().getTotalPieceCount(), board.getTotalPieceCount());
+		assertEquals(FenNotation.STARTING_POSITION, BoardLoader.toFen(board));
+	}
+
+	@Test
+	public void testExportAfterTwoStepMove() throws UnavailableMoveItem
+	{
+		ChessBoard board = new ChessBoard();
+		board.move("2E", "4E");
+		assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", BoardLoader.toFen(board));
+	}
+
+	@Test
+	public void testEnPassantTargetIsRestored() throws UnavailableMoveItem
+	{
+		String fen = "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3";
+		ChessBoard board = loadFen(fen);
+		assertEquals(WHITE, board.getCurrentPlayer());
+		assertEquals(fen, BoardLoader.toFen(board));
+
+		board.move("5E", "6D");
+		assertNull("The black pawn should have been taken en-passant", board.getPiece(position("5D")));
+	}
+
+	@Test
+	public void testCastlingAvailability()
+	{
+		String fen = "r3k2r/8/8/8/8/8/8/R3K2R w Kq - 0 1";
+		ChessBoard board = loadFen(fen);
+		assertEquals(fen, BoardLoader.toFen(board));
+		Piece whiteKing = board.getPiece(position("1E"));
+		assertNotNull(board.getAvailableMove(whiteKing, position("1G")));
+		assertNull(board.getAvailableMove(whiteKing, position("1C")));
+		try
+		{
+			board.move("1E", "1C");
+			fail("Queen side castling shouldn't be available for white");
+		}
+		catch(UnavailableMoveItem expected)
+		{
+		}
+	}
+
+	@Test
+	public void testOptionalMoveCounters()
+	{
+		ChessBoard board = loadFen("4k3/8/8/8/8/8/8/4K3 b - -");
+		assertEquals(BLACK, board.getCurrentPlayer());
+		assertEquals("4k3/8/8/8/8/8/8/4K3 b - - 0 1", BoardLoader.toFen(board));
+	}
+
+	@Test
+	public void testInvalidFens()
+	{
+		String[] invalidFens = {"", "8/8/8 w - -", "8/8/8/8/8/8/8/8 w - - 0 1", "4k3/8/8/8/8/8/8/4K4 w - - 0 1",
+				"4k3/8/8/8/8/8/8/4K3 x - - 0 1", "4k3/8/8/8/8/8/8/4K3 w X - 0 1", "4k3/8/8/8/8/8/8/4K3 w - e3 0 1",
+				"4k3/8/8/8/8/8/8/4K3 w - - 0 0", "4k3/8/8/8/8/8/8/4J3 w - - 0 1", "4k3/8/8/8/8/8/8/4K3 w - - 0 1 trailing"};
+		for(String fen : invalidFens)
+		{
+			ChessBoard board = new ChessBoard(DONT_PLACE_PIECES);
+			assertFalse(fen, BoardLoader.loadFenIntoBoard(fen, board));
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package com.jjonsson.chess.persistence;
+
+import static com.jjonsson.chess.board.PiecePlacement.DONT_PLACE_PIECES;
+import static com.jjonsson.chess.persistence.PersistanceLogging.USE_PERSISTANCE_LOGGING;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.exceptions.InvalidPgnException;
+import com.jjonsson.chess.exceptions.UnavailableMoveItem;
+
+public class TestGameDatabase
+{
+	private File myDirectory;
+	private String myPath;
+
+	@Before
+	public void createDirectory() throws IOException
+	{
+		myDirectory = File.createTempFile("game_database", "");
+		assertTrue(myDirectory.delete());
+		assertTrue(myDirectory.mkdir());
+		myPath = new File(myDirectory, "games").getPath();
+	}
+
+	@After
+	public void deleteDirectory()
+	{
+		for(File file : myDirectory.listFiles())
+		{
+			file.delete();
+		}
+		myDirectory.delete();
+	}
+
+	private static PgnGame game(final String result, final String ... moves)
+	{
+		PgnGame game = new PgnGame();
+		for(String move : moves)
+		{
+			game.addMove(move);
+		}
+		game.setResult(result);
+		return game;
+	}
+
+	private static ChessBoard position(final String ... moves) throws InvalidPgnException
+	{
+		return game(PgnGame.UNKNOWN_RESULT, moves).replay();
+	}
+
+	@Test
+	public void testTranspositionsGiveEqualKeys() throws InvalidPgnException
+	{
+		assertEquals(position("Nf3", "Nf6", "Nc3").getPositionKey(), position("Nc3", "Nf6", "Nf3").getPositionKey());
+		assertFalse(position("Nf3", "Nf6", "Ng1", "Ng8").getPositionKey() == position("Nf3", "Nf6").getPositionKey());
+		//Same pieces but the white rock has moved back and forth and therefore lost its castling possibility
+		assertFalse(new ChessBoard().getPositionKey() == position("Nf3", "Nf6", "Rg1", "Ng8", "Rh1", "Nf6", "Ng1", "Ng8").getPositionKey());
+		assertEquals(new ChessBoard().getPositionKey(), position("Nf3", "Nf6", "Ng1", "Ng8").getPositionKey());
+	}
+
+	@Test
+	public void testFindGames() throws IOException, InvalidPgnException, UnavailableMoveItem
+	{
+		GameDatabase database = new GameDatabase(myPath);
+		long first = database.addGame(game(PgnGame.WHITE_WON, "e4", "e5", "Nf3", "Nc6"));
+		long second = database.addGame(game(PgnGame.DRAW, "Nf3", "Nc6", "e4", "e5", "Bc4"));
+		ChessBoard played = new ChessBoard();
+		SanNotation.perform(played, "d4");
+		long third = database.addGame(played, PgnGame.BLACK_WON);
+
+		assertEquals(3, database.getGameCount());
+		assertEquals(Arrays.asList(first, second, third), database.findGames(new ChessBoard()));
+		assertEquals(Arrays.asList(first, second), database.findGames(position("e4", "e5", "Nf3", "Nc6")));
+		assertEquals(Arrays.asList(second), database.findGames(position("Nf3", "Nc6", "e4", "e5", "Bc4")));
+		assertTrue(database.findGames(position("c4")).isEmpty());
+
+		database.close();
+
+		//The index should be usable after it has been written to disk as well
+		database = new GameDatabase(myPath);
+		assertEquals(3, database.getGameCount());
+		assertEquals(Arrays.asList(first, second), database.findGames(position("e4", "e5", "Nf3", "Nc6")));
+		long fourth = database.addGame(game(PgnGame.UNKNOWN_RESULT, "e4", "e5", "Nf3"));
+		assertEquals(Arrays.asList(first, fourth), database.findGames(position("e4", "e5", "Nf3")));
+
+		assertEquals(PgnGame.DRAW, database.getResult(second));
+		assertEquals(PgnGame.BLACK_WON, database.getResult(third));
+		assertEquals(second, database.getNextGameOffset(first));
+		assertEquals(-1, database.getNextGameOffset(fourth));
+		assertEquals(first, database.getFirstGameOffset());
+
+		ChessBoard loaded = new ChessBoard(DONT_PLACE_PIECES, USE_PERSISTANCE_LOGGING);
+		assertTrue(database.loadGame(second, loaded));
+		assertEquals(FenNotation.toFen(position("Nf3", "Nc6", "e4", "e5", "Bc4")), FenNotation.toFen(loaded));
+		database.close();
+	}
+
+	@Test
+	public void testIndexRunsAreMerged() throws IOException, InvalidPgnException
+	{
+		//A small limit so that nearly every game is flushed as its own index run
+		GameDatabase database = new GameDatabase(myPath, 4);
+		List<Long> games = Lists.newArrayList();
+		int gameCount = 64;
+		for(int i = 0; i < gameCount; i++)
+		{
+			games.add(database.addGame(game(PgnGame.DRAW, i % 2 == 0 ? "e4" : "d4", "e5")));
+		}
+		assertEquals(games, database.findGames(new ChessBoard()));
+		assertEquals(gameCount / 2, database.findGames(position("e4", "e5")).size());
+		database.close();
+
+		int runs = 0;
+		for(File file : myDirectory.listFiles())
+		{
+			if(file.getName().contains(GameDatabase.INDEX_FILE_ENDING))
+			{
+				runs++;
+			}
+		}
+		//Each game has 3 positions, the runs halves in size so there are only a logarithmic number of them
+		assertTrue("Too many index runs: " + runs, runs <= 9);
+
+		database = new GameDatabase(myPath, 4);
+		assertEquals(games, database.findGames(new ChessBoard()));
+		database.close();
+	}
+
+	@Test
+	public void testGamesThatWereNotIndexedAreIndexedWhenOpened() throws IOException, InvalidPgnException
+	{
+		GameDatabase database = new GameDatabase(myPath);
+		long first = database.addGame(game(PgnGame.WHITE_WON, "e4", "e5"));
+		database.flush();
+		long second = database.addGame(game(PgnGame.DRAW, "d4", "d5", "e4"));
+		long third = database.addGame(game(PgnGame.BLACK_WON, "e4", "e5", "Nf3"));
+
+		//Opened without closing the first one, as if the program had stopped before the index entries for the last games were written
+		GameDatabase reopened = new GameDatabase(myPath);
+		assertEquals(3, reopened.getGameCount());
+		assertEquals(Arrays.asList(first, second, third), reopened.findGames(new ChessBoard()));
+		assertEquals(Arrays.asList(first, third), reopened.findGames(position("e4", "e5")));
+		assertEquals(Arrays.asList(second), reopened.findGames(position("d4", "d5")));
+		reopened.close();
+		//The first database isn't closed as that would write its index entries as well
+	}
+}
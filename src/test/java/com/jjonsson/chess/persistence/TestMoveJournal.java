@@ -0,0 +1,149 @@
+package com.jjonsson.chess.persistence;
+
+import static com.jjonsson.chess.board.PiecePlacement.DONT_PLACE_PIECES;
+import static com.jjonsson.chess.moves.ImmutablePosition.position;
+import static com.jjonsson.chess.persistence.PersistanceLogging.USE_PERSISTANCE_LOGGING;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.exceptions.UnavailableMoveItem;
+
+public class TestMoveJournal
+{
+	private File myDirectory;
+	private File mySnapshot;
+
+	@Before
+	public void createDirectory() throws IOException
+	{
+		myDirectory = File.createTempFile("move_journal", "");
+		assertTrue(myDirectory.delete());
+		assertTrue(myDirectory.mkdir());
+		mySnapshot = new File(myDirectory, "autosave" + ChessFileFilter.FILE_ENDING);
+	}
+
+	@After
+	public void deleteDirectory()
+	{
+		for(File file : myDirectory.listFiles())
+		{
+			file.delete();
+		}
+		myDirectory.delete();
+	}
+
+	private ChessBoard recover()
+	{
+		ChessBoard board = new ChessBoard(DONT_PLACE_PIECES, USE_PERSISTANCE_LOGGING);
+		assertTrue(MoveJournal.recover(mySnapshot, board));
+		return board;
+	}
+
+	private static void assertSameGame(final ChessBoard expected, final ChessBoard actual)
+	{
+		assertEquals(BoardLoader.toFen(expected), BoardLoader.toFen(actual));
+		assertEquals(expected.getPersistenceLogger().getMoveHistory().toString(), actual.getPersistenceLogger().getMoveHistory().toString());
+	}
+
+	@Test
+	public void testMovesAndUndosAreRecovered() throws IOException, UnavailableMoveItem
+	{
+		ChessBoard board = new ChessBoard();
+		MoveJournal journal = MoveJournal.open(board, mySnapshot);
+		board.move(position("2E"), position("4E"));
+		board.move(position("7E"), position("5E"));
+		board.move(position("1G"), position("3F"));
+		board.undoMoves(1, false);
+		board.move(position("1F"), position("4C"));
+		journal.close();
+
+		ChessBoard recovered = recover();
+		assertSameGame(board, recovered);
+		assertEquals(3, recovered.getPersistenceLogger().getMoveHistory().size());
+	}
+
+	@Test
+	public void testAPartlyWrittenRecordIsIgnored() throws IOException, UnavailableMoveItem
+	{
+		ChessBoard board = new ChessBoard();
+		MoveJournal journal = MoveJournal.open(board, mySnapshot);
+		board.move(position("2D"), position("4D"));
+		journal.close();
+
+		FileOutputStream output = new FileOutputStream(MoveJournal.getJournalFile(mySnapshot), true);
+		try
+		{
+			output.write(position("7D").getPersistence());
+		}
+		finally
+		{
+			output.close();
+		}
+		assertSameGame(board, recover());
+	}
+
+	@Test
+	public void testTheJournalIsCompactedIntoTheSnapshot() throws IOException, UnavailableMoveItem
+	{
+		ChessBoard board = new ChessBoard();
+		MoveJournal journal = MoveJournal.open(board, mySnapshot);
+		int moves = 0;
+		while(moves <= MoveJournal.COMPACTION_INTERVAL)
+		{
+			board.move(position("1G"), position("3F"));
+			board.move(position("8G"), position("6F"));
+			board.move(position("3F"), position("1G"));
+			board.move(position("6F"), position("8G"));
+			moves += 4;
+		}
+		journal.flush();
+		File journalFile = MoveJournal.getJournalFile(mySnapshot);
+		assertTrue("The journal should have been started over", journalFile.length() < MoveJournal.COMPACTION_INTERVAL * PersistenceLogger.BYTES_PER_MOVE);
+		journal.close();
+		assertSameGame(board, recover());
+	}
+
+	@Test
+	public void testAJournalThatDoesNotBelongToTheSnapshotIsIgnored() throws IOException, UnavailableMoveItem
+	{
+		ChessBoard board = new ChessBoard();
+		MoveJournal journal = MoveJournal.open(board, mySnapshot);
+		board.move(position("2E"), position("4E"));
+		journal.flush();
+		File journalFile = MoveJournal.getJournalFile(mySnapshot);
+		byte[] oldJournal = Files.toByteArray(journalFile);
+
+		//Simulates that the program stopped after the snapshot had been replaced but before the journal had been replaced
+		journal.compact();
+		journal.close();
+		Files.write(oldJournal, journalFile);
+
+		assertSameGame(board, recover());
+	}
+
+	@Test
+	public void testANewGameReplacesTheSnapshot() throws IOException, UnavailableMoveItem
+	{
+		ChessBoard board = new ChessBoard();
+		MoveJournal journal = MoveJournal.open(board, mySnapshot);
+		board.move(position("2E"), position("4E"));
+		board.move(position("7E"), position("5E"));
+		board.reset();
+		board.move(position("2A"), position("3A"));
+		journal.close();
+
+		ChessBoard recovered = recover();
+		assertSameGame(board, recovered);
+		assertEquals(1, recovered.getPersistenceLogger().getMoveHistory().size());
+	}
+}
@@ -4,6 +4,7 @@ import static com.jjonsson.chess.board.PiecePlacement.DONT_PLACE_PIECES;
 import static com.jjonsson.chess.gui.Settings.disableDebug;
 import static com.jjonsson.chess.gui.Settings.enableDebug;
 import static com.jjonsson.chess.moves.ImmutablePosition.position;
+import static com.jjonsson.chess.persistence.PersistanceLogging.SKIP_PERSISTANCE_LOGGING;
 import static com.jjonsson.chess.persistence.PersistanceLogging.USE_PERSISTANCE_LOGGING;
 import static com.jjonsson.chess.scenarios.TestScenarios.loadBoard;
 import static junit.framework.Assert.assertEquals;
@@ -27,7 +28,7 @@ public class TestMoveLogger
 {
 
 	@Test
-	public void testMovesMadeShouldBeResetPeriodically()
+	public void testRepeatedPositionsAreDetected()
 	{
 		ChessBoard board = loadBoard("repetitive_test");
 
@@ -36,26 +37,44 @@ public class TestMoveLogger
 		ImmutablePosition blackRockStartingPosition = position("8H");
 		ImmutablePosition blackRockMoveDestination = position("6H");
 
-
 		Piece whiteRock = board.getPiece(whiteRockStartingPosition);
 		Piece blackRock = board.getPiece(blackRockStartingPosition);
 
-		int movesDone = 0;
-		while(movesDone < MoveLogger.REPITION_HISTORY_RESET_INTERVAL)
+		int clock = board.getHalfmoveClock();
+		assertEquals(1, board.getRepetitionCount());
+		//The first time the rocks move back the castling possibilities are lost so that isn't a repetition
+		for(int repetition = 1; repetition <= 3; repetition++)
 		{
-			//Moves the rocks back and forth until we reach the reset point
-			Move whiteRockMove = board.getAvailableMove(whiteRock, whiteRockMoveDestination);
-			assertTrue(whiteRock.performMove(whiteRockMove, board, false));
-			Move blackRockMove = board.getAvailableMove(blackRock, blackRockMoveDestination);
-			assertTrue(blackRock.performMove(blackRockMove, board, false));
-			whiteRockMove = board.getAvailableMove(whiteRock, whiteRockStartingPosition);
-			assertTrue(whiteRock.performMove(whiteRockMove, board, false));
-			blackRockMove = board.getAvailableMove(blackRock, blackRockStartingPosition);
-			assertTrue(blackRock.performMove(blackRockMove, board, false));
-			movesDone +=4;
+			//Moves the rocks back and forth so that the position comes back
+			assertTrue(whiteRock.performMove(board.getAvailableMove(whiteRock, whiteRockMoveDestination), board, false));
+			assertTrue(blackRock.performMove(board.getAvailableMove(blackRock, blackRockMoveDestination), board, false));
+			assertTrue(whiteRock.performMove(board.getAvailableMove(whiteRock, whiteRockStartingPosition), board, false));
+			assertTrue(blackRock.performMove(board.getAvailableMove(blackRock, blackRockStartingPosition), board, false));
+			assertEquals(repetition, board.getRepetitionCount());
 		}
-		//It may be made one time depending on what interval we use but it shouldn't be more
-		assertFalse(board.getAvailableMove(whiteRock, whiteRockMoveDestination).getMovesMade() > 1);
+		assertEquals(clock + 12, board.getHalfmoveClock());
+		assertTrue(board.isDrawByRepetition());
+		assertTrue("The history should be copied", board.copy(SKIP_PERSISTANCE_LOGGING).isDrawByRepetition());
+
+		assertEquals(1, board.undoMoves(1));
+		assertEquals(clock + 11, board.getHalfmoveClock());
+		assertTrue(blackRock.performMove(board.getAvailableMove(blackRock, blackRockStartingPosition), board, false));
+		assertTrue(board.isDrawByRepetition());
+	}
+
+	@Test
+	public void testFiftyMoveRule() throws UnavailableMoveItem
+	{
+		ChessBoard board = new ChessBoard(DONT_PLACE_PIECES, SKIP_PERSISTANCE_LOGGING);
+		assertTrue(BoardLoader.loadFenIntoBoard("4k3/8/8/8/8/8/4P3/R3K3 w - - 99 80", board));
+		assertEquals(99, board.getHalfmoveClock());
+		assertFalse(board.isDrawByFiftyMoveRule());
+		board.move("1A", "2A");
+		assertTrue(board.isDrawByFiftyMoveRule());
+		assertEquals(1, board.undoMoves(1));
+		board.move("2E", "3E");
+		assertEquals("A pawn move should reset the clock", 0, board.getHalfmoveClock());
+		assertFalse(board.isDrawByFiftyMoveRule());
 	}
 
 	@Test
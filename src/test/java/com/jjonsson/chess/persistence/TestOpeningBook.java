@@ -0,0 +1,107 @@
+package com.jjonsson.chess.persistence;
+
+import static com.jjonsson.chess.moves.ImmutablePosition.position;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.evaluators.ChessMoveEvaluator;
+import com.jjonsson.chess.exceptions.InvalidPgnException;
+import com.jjonsson.chess.exceptions.NoMovesAvailableException;
+import com.jjonsson.chess.moves.Move;
+
+public class TestOpeningBook
+{
+	private static final String GAMES = "1. e4 e5 2. Nf3 Nc6 *\n1. e4 c5 *\n1. e4 e5 2. Nf3 d6 3. d4 *\n";
+
+	private File myBookFile;
+
+	@Before
+	public void createBookFile() throws IOException
+	{
+		myBookFile = File.createTempFile("opening", OpeningBook.FILE_ENDING);
+	}
+
+	@After
+	public void deleteBookFile()
+	{
+		myBookFile.delete();
+	}
+
+	private OpeningBook buildBook(final int maxPlies) throws IOException
+	{
+		OpeningBookBuilder builder = new OpeningBookBuilder(maxPlies);
+		PgnReader reader = new PgnReader(Channels.newChannel(new ByteArrayInputStream(GAMES.getBytes(Charsets.ISO_8859_1))));
+		assertEquals(3, builder.addGames(reader));
+		builder.write(myBookFile.getPath());
+		return new OpeningBook(myBookFile.getPath());
+	}
+
+	@Test
+	public void testBookMoves() throws IOException, InvalidPgnException
+	{
+		OpeningBook book = buildBook(4);
+		//e4, e5/c5, Nf3, Nc6/d6
+		assertEquals(6, book.getEntryCount());
+
+		ChessBoard board = new ChessBoard();
+		Move move = book.getMove(board);
+		assertEquals(position("2E"), move.getCurrentPosition());
+		assertEquals(position("4E"), move.getDestination());
+		assertEquals(1, book.getMoves(board.getPositionKey()).size());
+
+		SanNotation.perform(board, "e4");
+		assertEquals(2, book.getMoves(board.getPositionKey()).size());
+
+		SanNotation.perform(board, "e5");
+		SanNotation.perform(board, "Nf3");
+		SanNotation.perform(board, "d6");
+		//3. d4 is beyond the plies included in the book
+		assertNull(book.getMove(board));
+		book.close();
+	}
+
+	@Test
+	public void testBestMoveIsTakenFromTheBook() throws IOException, InvalidPgnException, NoMovesAvailableException
+	{
+		OpeningBook book = buildBook(OpeningBookBuilder.DEFAULT_MAX_PLIES);
+		ChessBoard board = new ChessBoard();
+		board.setOpeningBook(book);
+		SanNotation.perform(board, "e4");
+		SanNotation.perform(board, "e5");
+		Move move = ChessMoveEvaluator.getBestMove(board);
+		assertEquals(position("1G"), move.getCurrentPosition());
+		assertEquals(position("3F"), move.getDestination());
+		book.close();
+	}
+
+	@Test
+	public void testSelfPlay() throws IOException
+	{
+		OpeningBookBuilder builder = new OpeningBookBuilder(2);
+		builder.addSelfPlayGames(1, 1, 1);
+		assertEquals(1, builder.getPositionCount());
+		builder.write(myBookFile.getPath());
+		OpeningBook book = new OpeningBook(myBookFile.getPath());
+		assertEquals(1, book.getEntryCount());
+		assertNull(book.getMove(new ChessBoard()));
+		book.close();
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidBook() throws IOException
+	{
+		new OpeningBook(myBookFile.getPath());
+	}
+}
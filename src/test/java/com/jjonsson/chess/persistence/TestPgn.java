@@ -0,0 +1,207 @@
+package com.jjonsson.chess.persistence;
+
+import static com.jjonsson.chess.moves.ImmutablePosition.position;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.evaluators.ChessBoardEvaluator.ChessState;
+import com.jjonsson.chess.exceptions.InvalidPgnException;
+import com.jjonsson.chess.exceptions.UnavailableMoveItem;
+import com.jjonsson.chess.pieces.Knight;
+
+public class TestPgn
+{
+	private static final String OPERA_GAME = "[Event \"Paris\"]\n[Site \"Paris FRA\"]\n[Date \"1858.??.??\"]\n[Round \"?\"]\n"
+			+ "[White \"Paul Morphy\"]\n[Black \"Duke Karl / Count Isouard\"]\n[Result \"1-0\"]\n\n"
+			+ "1. e4 e5 2. Nf3 d6 3. d4 Bg4 {This is a weak move} 4. dxe5 Bxf3 5. Qxf3 dxe5 6. Bc4 Nf6 7. Qb3 Qe7\n"
+			+ "8. Nc3 c6 9. Bg5 b5 (9... Qb4 10. Qxb4) 10. Nxb5 cxb5 11. Bxb5+ Nbd7 12. O-O-O Rd8\n"
+			+ "13. Rxd7 Rxd7 14. Rd1 Qe6 $1 15. Bxd7+ Nxd7 16. Qb8+ Nxb8 17. Rd8# 1-0\n";
+
+	private static final String PROMOTION_GAME = "[FEN \"8/1P2k3/8/8/8/8/8/4K3 w - - 0 40\"]\n[SetUp \"1\"]\n\n40. b8=N Kd6 *\n";
+
+	private static PgnReader reader(final String pgn)
+	{
+		return new PgnReader(Channels.newChannel(new ByteArrayInputStream(pgn.getBytes(Charsets.ISO_8859_1))));
+	}
+
+	@Test
+	public void testReadAndReplayGame() throws IOException, InvalidPgnException
+	{
+		PgnReader reader = reader(OPERA_GAME);
+		PgnGame game = reader.nextGame();
+		assertEquals("Paul Morphy", game.getTag("White"));
+		assertEquals(PgnGame.WHITE_WON, game.getResult());
+		assertEquals(33, game.getMoves().size());
+		assertNull(reader.nextGame());
+
+		ChessBoard board = game.replay();
+		assertEquals(ChessState.CHECKMATE, board.getCurrentState());
+		assertEquals("1n1Rkb1r/p4ppp/4q3/4p1B1/4P3/8/PPP2PPP/2K5 b k - 1 17", FenNotation.toFen(board));
+	}
+
+	@Test
+	public void testStreamingSeveralGames() throws IOException, InvalidPgnException
+	{
+		StringBuilder pgn = new StringBuilder();
+		int games = 50;
+		for(int i = 0; i < games; i++)
+		{
+			pgn.append(i % 2 == 0 ? OPERA_GAME : PROMOTION_GAME).append("\n; a comment line\n");
+		}
+		//Read from a heap buffer as well as the channel to cover the memory-mapped path
+		PgnReader bufferReader = new PgnReader(ByteBuffer.wrap(pgn.toString().getBytes(Charsets.ISO_8859_1)));
+		PgnReader channelReader = reader(pgn.toString());
+		for(int i = 0; i < games; i++)
+		{
+			assertEquals(i % 2 == 0 ? 33 : 2, bufferReader.nextGame().getMoves().size());
+			assertEquals(i % 2 == 0 ? 33 : 2, channelReader.nextGame().getMoves().size());
+		}
+		assertNull(bufferReader.nextGame());
+		assertNull(channelReader.nextGame());
+		assertEquals(games, channelReader.getGamesRead());
+	}
+
+	@Test
+	public void testUnderPromotion() throws IOException, InvalidPgnException
+	{
+		ChessBoard board = reader(PROMOTION_GAME).nextGame().replay();
+		assertTrue(board.getPiece(position("8B")) instanceof Knight);
+	}
+
+	@Test
+	public void testWriteAndReadBack() throws IOException, InvalidPgnException, UnavailableMoveItem
+	{
+		ChessBoard board = reader(OPERA_GAME).nextGame().createStartBoard(PersistanceLogging.USE_PERSISTANCE_LOGGING);
+		PgnGame original = reader(OPERA_GAME).nextGame();
+		for(String move : original.getMoves())
+		{
+			SanNotation.perform(board, move);
+		}
+		Map<String, String> tags = ImmutableMap.of("White", "Paul Morphy");
+		StringWriter output = new StringWriter();
+		PgnWriter writer = new PgnWriter(output);
+		writer.writeGame(board, tags);
+		writer.close();
+
+		PgnGame written = reader(output.toString()).nextGame();
+		assertEquals(original.getMoves(), written.getMoves());
+		assertEquals(PgnGame.WHITE_WON, written.getResult());
+		assertEquals("Paul Morphy", written.getTag("White"));
+		assertEquals("?", written.getTag("Event"));
+		assertTrue(output.toString().contains("12. O-O-O Rd8"));
+	}
+
+	@Test
+	public void testWriteFromCustomStartingPosition() throws IOException, InvalidPgnException, UnavailableMoveItem
+	{
+		ChessBoard board = reader(PROMOTION_GAME).nextGame().createStartBoard(PersistanceLogging.USE_PERSISTANCE_LOGGING);
+		SanNotation.perform(board, "b8=Q");
+		SanNotation.perform(board, "Kd7");
+		StringWriter output = new StringWriter();
+		new PgnWriter(output).writeGame(board, Collections.<String, String>emptyMap());
+		assertTrue(output.toString(), output.toString().contains("[FEN \"8/1P2k3/8/8/8/8/8/4K3 w - - 0 40\"]"));
+		assertTrue(output.toString(), output.toString().contains("40. b8=Q Kd7 *"));
+	}
+
+	@Test
+	public void testInvalidMoves() throws IOException, InvalidPgnException
+	{
+		String[] invalidMoves = {"e5", "Nc3c", "Ke2", "O-O", "z9", "Qd1", "e8=K"};
+		for(String move : invalidMoves)
+		{
+			try
+			{
+				SanNotation.perform(new ChessBoard(), move);
+				fail(move + " should not be possible from the starting position");
+			}
+			catch(InvalidPgnException expected)
+			{
+			}
+		}
+	}
+
+	@Test
+	public void testChannelWithEmptyReads() throws IOException, InvalidPgnException
+	{
+		final ReadableByteChannel data = Channels.newChannel(new ByteArrayInputStream(PROMOTION_GAME.getBytes(Charsets.ISO_8859_1)));
+		//A channel that often reads nothing, one byte at a time otherwise
+		ReadableByteChannel slowChannel = new ReadableByteChannel(){
+			private int myReads;
+
+			@Override
+			public int read(final ByteBuffer destination) throws IOException
+			{
+				if(myReads++ % 100000 != 0)
+				{
+					return 0;
+				}
+				ByteBuffer oneByte = ByteBuffer.allocate(1);
+				int bytesRead = data.read(oneByte);
+				oneByte.flip();
+				destination.put(oneByte);
+				return bytesRead;
+			}
+
+			@Override
+			public boolean isOpen()
+			{
+				return data.isOpen();
+			}
+
+			@Override
+			public void close() throws IOException
+			{
+				data.close();
+			}
+		};
+		PgnReader reader = new PgnReader(slowChannel);
+		assertEquals(2, reader.nextGame().getMoves().size());
+		assertNull(reader.nextGame());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonBlockingChannelsAreRejected() throws IOException
+	{
+		Pipe pipe = Pipe.open();
+		try
+		{
+			pipe.source().configureBlocking(false);
+			new PgnReader(pipe.source());
+		}
+		finally
+		{
+			pipe.source().close();
+			pipe.sink().close();
+		}
+	}
+
+	@Test
+	public void testEscapeAtTheEndOfTheInput() throws IOException
+	{
+		try
+		{
+			reader("[Event \"Paris\\").nextGame();
+			fail("A tag value that ends with an escape character should be invalid");
+		}
+		catch(InvalidPgnException expected)
+		{
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.jjonsson.chess.utilities;
+
+import static com.jjonsson.chess.persistence.PersistanceLogging.SKIP_PERSISTANCE_LOGGING;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import com.jjonsson.chess.board.ChessBoard;
+import com.jjonsson.chess.board.PiecePlacement;
+import com.jjonsson.chess.evaluators.ChessMoveEvaluator;
+import com.jjonsson.chess.exceptions.NoMovesAvailableException;
+import com.jjonsson.chess.persistence.BoardLoader;
+import com.jjonsson.chess.persistence.FenNotation;
+import com.jjonsson.utilities.EventRecorder;
+
+public class TestEventRecorder
+{
+	@Test
+	public void testRecordedEvents() throws NoMovesAvailableException
+	{
+		assertFalse(EventRecorder.isRecording());
+		StringWriter output = new StringWriter();
+		EventRecorder.startRecording(output);
+		try
+		{
+			assertTrue(EventRecorder.isRecording());
+			ChessBoard board = new ChessBoard(PiecePlacement.DONT_PLACE_PIECES, SKIP_PERSISTANCE_LOGGING);
+			assertTrue(BoardLoader.loadFenIntoBoard(FenNotation.STARTING_POSITION, board));
+			assertNotNull(board.copy(SKIP_PERSISTANCE_LOGGING));
+			ChessMoveEvaluator.getBestMove(board);
+		}
+		finally
+		{
+			EventRecorder.stopRecording();
+		}
+		assertFalse(EventRecorder.isRecording());
+
+		String events = output.toString();
+		assertTrue(events, events.startsWith("{\"event\":\"boardLoad\","));
+		assertTrue(events, events.contains("\"source\":\"" + FenNotation.STARTING_POSITION + "\",\"success\":true}"));
+		assertTrue(events, events.contains("{\"event\":\"boardCopy\","));
+		assertTrue(events, events.contains("{\"event\":\"search\","));
+		assertTrue(events, events.contains("\"fen\":\"" + FenNotation.STARTING_POSITION + "\""));
+		assertTrue(events, events.contains("\"cancelled\":false"));
+		assertEquals(0, EventRecorder.getDroppedEvents());
+
+		//Nothing is recorded after the recording has been stopped
+		new ChessBoard().copy(SKIP_PERSISTANCE_LOGGING);
+		assertEquals(events, output.toString());
+	}
+}
@@ -11,6 +11,7 @@ import org.junit.Test;
 import com.jjonsson.chess.Chess;
 import com.jjonsson.chess.board.PiecePlacement;
 import com.jjonsson.chess.board.PositionContainer;
+import com.jjonsson.chess.board.ZobristKeys;
 import com.jjonsson.chess.evaluators.ChessBoardEvaluator;
 import com.jjonsson.chess.evaluators.ChessBoardEvaluator.ChessState;
 import com.jjonsson.chess.evaluators.ChessMoveEvaluator;
@@ -27,6 +28,7 @@ import com.jjonsson.chess.persistence.BoardLoader;
 import com.jjonsson.chess.persistence.MoveItem;
 import com.jjonsson.chess.persistence.MoveLoggerFactory;
 import com.jjonsson.chess.persistence.PersistanceLogging;
+import com.jjonsson.chess.persistence.SanNotation;
 import com.jjonsson.utilities.Bits;
 import com.jjonsson.utilities.CrossPlatformUtilities;
 import com.jjonsson.utilities.FileSystem;
@@ -60,7 +62,7 @@ public class TestForCodeCoverage
 		Class<?>[] classesToConstruct = {MoveOrdering.class, Bits.class, CrossPlatformUtilities.class, ChessMoveEvaluator.class,
 				ChessBoardEvaluator.class, KeyboardActions.class, BoardLoader.class, MoveLoggerFactory.class, Settings.class,
 				WindowUtilities.class, PieceImageCache.class, HashCodes.class, Loggers.class, Chess.class,
-				VersionControlHelper.class, FileSystem.class, ResourceAllocator.class};
+				VersionControlHelper.class, FileSystem.class, ResourceAllocator.class, SanNotation.class, ZobristKeys.class};
 
 		for(Class<?> clazz : classesToConstruct)
 		{